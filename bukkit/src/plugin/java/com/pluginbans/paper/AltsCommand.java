@@ -0,0 +1,84 @@
+package com.pluginbans.paper;
+
+import com.pluginbans.core.ConnectionLog;
+import com.pluginbans.core.PunishmentRecord;
+import com.pluginbans.core.PunishmentRules;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+public final class AltsCommand implements CommandExecutor {
+    private static final int MAX_LINES = 20;
+
+    private final PaperPunishmentService service;
+    private final ConnectionLog connectionLog;
+
+    public AltsCommand(PaperPunishmentService service, ConnectionLog connectionLog) {
+        this.service = service;
+        this.connectionLog = connectionLog;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("bans.alts") && !sender.hasPermission("bans.fullaccess")) {
+            service.messageService().send(sender, service.messages().permissionDenied());
+            return true;
+        }
+        if (args.length < 1) {
+            service.messageService().send(sender, "<red>Использование:</red> <white>" + command.getUsage() + "</white>");
+            return true;
+        }
+        Optional<UUID> uuid = PlayerResolver.resolveUuid(args[0]);
+        if (uuid.isEmpty()) {
+            service.messageService().send(sender, service.messages().error("player_not_found"));
+            return true;
+        }
+        if (!connectionLog.loaded()) {
+            service.messageService().send(sender, "<yellow>История подключений ещё загружается, список может быть неполным.</yellow>");
+        }
+        String target = args[0];
+        connectionLog.findAlts(uuid.get()).whenComplete((alts, throwable) -> {
+            if (throwable != null) {
+                service.logError("Не удалось найти аккаунты с общими IP: " + target, throwable);
+                service.runSync(() -> service.messageService().send(sender, "<red>Не удалось получить историю подключений.</red>"));
+                return;
+            }
+            service.runSync(() -> sendAlts(sender, target, alts));
+        });
+        return true;
+    }
+
+    private void sendAlts(CommandSender sender, String target, Map<UUID, Integer> alts) {
+        if (alts.isEmpty()) {
+            service.messageService().send(sender, "<gray>Аккаунтов с общими IP не найдено:</gray> <white>" + target + "</white>");
+            return;
+        }
+        service.messageService().send(sender,
+                "<yellow>Аккаунты с общими IP для</yellow> <white>" + target + "</white><gray>: " + alts.size() + "</gray>");
+        int shown = 0;
+        for (Map.Entry<UUID, Integer> entry : alts.entrySet()) {
+            if (shown++ == MAX_LINES) {
+                service.messageService().send(sender, "<gray>... и ещё " + (alts.size() - MAX_LINES) + "</gray>");
+                break;
+            }
+            service.messageService().send(sender, line(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    private String line(UUID alt, int sharedAddresses) {
+        OfflinePlayer player = Bukkit.getOfflinePlayer(alt);
+        String name = Optional.ofNullable(player.getName()).orElse(alt.toString());
+        // Статус берётся из индекса активных наказаний в памяти, без запроса к базе на каждую строку.
+        List<PunishmentRecord> active = service.core().knownActiveForConnection(alt, null);
+        boolean banned = active.stream().anyMatch(record -> PunishmentRules.isBanLike(record.type()));
+        String status = banned ? " <red>[забанен]</red>" : (player.isOnline() ? " <green>[онлайн]</green>" : "");
+        return "<dark_gray>-</dark_gray> <white>" + name + "</white> <gray>(общих IP: " + sharedAddresses + ")</gray>" + status;
+    }
+}
@@ -0,0 +1,28 @@
+package com.pluginbans.paper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("pluginbans.ApiRequest")
+@Label("Запрос Forum API")
+@Category({"PluginBans", "Forum API"})
+@Description("Обработка HTTP-запроса от приёма до отправки ответа, включая асинхронные обращения к базе.")
+@StackTrace(false)
+final class ApiRequestFlightEvent extends jdk.jfr.Event {
+    @Label("Маршрут")
+    String route;
+
+    @Label("Код ответа")
+    int status;
+
+    void finish(String route, int status) {
+        if (shouldCommit()) {
+            this.route = route;
+            this.status = status;
+            commit();
+        }
+    }
+}
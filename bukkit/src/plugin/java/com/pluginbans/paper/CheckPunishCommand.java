@@ -18,17 +18,15 @@ public final class CheckPunishCommand implements CommandExecutor {
             .withZone(ZoneId.systemDefault());
 
     private final PaperPunishmentService service;
-    private final MessagesConfig messages;
 
-    public CheckPunishCommand(PaperPunishmentService service, MessagesConfig messages) {
+    public CheckPunishCommand(PaperPunishmentService service) {
         this.service = service;
-        this.messages = messages;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!sender.hasPermission("bans.check") && !sender.hasPermission("bans.fullaccess")) {
-            service.messageService().send(sender, messages.permissionDenied());
+            service.messageService().send(sender, service.messages().permissionDenied());
             return true;
         }
         if (args.length != 1) {
@@ -54,7 +52,7 @@ public final class CheckPunishCommand implements CommandExecutor {
     private void sendUsage(CommandSender sender, Command command) {
         String usage = command.getUsage();
         if (usage == null || usage.isBlank()) {
-            service.messageService().send(sender, messages.error("usage"));
+            service.messageService().send(sender, service.messages().error("usage"));
             return;
         }
         service.messageService().send(sender, "<red>Использование:</red> <white>" + usage + "</white>");
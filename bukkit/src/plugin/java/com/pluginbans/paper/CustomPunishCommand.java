@@ -5,52 +5,40 @@ import com.pluginbans.core.DurationFormatter;
 import com.pluginbans.core.PunishmentRecord;
 import com.pluginbans.core.PunishmentType;
 import org.bukkit.Bukkit;
-import org.bukkit.Material;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryCloseEvent;
 import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 public final class CustomPunishCommand implements CommandExecutor, Listener {
-    private static final int INVENTORY_SIZE = 27;
-    private static final int[] OPTION_SLOTS = {10, 11, 12, 13, 14};
-    private static final Material BORDER_MATERIAL = Material.RED_STAINED_GLASS_PANE;
-    private static final Material OPTION_MATERIAL = Material.FERMENTED_SPIDER_EYE;
-    private static final Material EMPTY_PRIMARY_MATERIAL = Material.GRAY_DYE;
+    private static final int MAX_POOLED_MENUS = 16;
 
-    private final JavaPlugin plugin;
     private final PaperPunishmentService service;
-    private final MessagesConfig messages;
+    private final Deque<PunishMenuHolder> menuPool = new ArrayDeque<>();
 
-    public CustomPunishCommand(JavaPlugin plugin, PaperPunishmentService service, MessagesConfig messages) {
-        this.plugin = plugin;
+    public CustomPunishCommand(PaperPunishmentService service) {
         this.service = service;
-        this.messages = messages;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!sender.hasPermission("bans.punish") && !sender.hasPermission("bans.fullaccess")) {
-            service.messageService().send(sender, messages.permissionDenied());
+            service.messageService().send(sender, service.messages().permissionDenied());
             return true;
         }
         if (args.length == 1) {
@@ -87,7 +75,7 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
         MenuPunishment punishment = holder.punishmentAt(slot);
         if (punishment == null) {
             ItemStack clicked = top.getItem(slot);
-            if (slot == OPTION_SLOTS[0] && clicked != null && clicked.getType() == EMPTY_PRIMARY_MATERIAL) {
+            if (slot == PunishMenuTemplate.OPTION_SLOTS[0] && clicked != null && clicked.getType() == PunishMenuTemplate.EMPTY_PRIMARY_MATERIAL) {
                 service.messageService().send(player, "<gray>Пока ничего нет. Настройте punish.menu.punishments в config.yml.</gray>");
                 return;
             }
@@ -96,8 +84,25 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
             }
             return;
         }
+        // Цель читается до закрытия: после него держатель возвращается в пул и может достаться другому меню.
+        UUID target = holder.targetUuid();
         player.closeInventory();
-        issueFromMenu(player, holder.targetUuid(), punishment);
+        issueFromMenu(player, target, punishment);
+    }
+
+    @EventHandler
+    public void onInventoryClose(InventoryCloseEvent event) {
+        if (!(event.getInventory().getHolder() instanceof PunishMenuHolder holder)) {
+            return;
+        }
+        // Закрывающий игрок ещё числится среди зрителей.
+        if (event.getInventory().getViewers().size() > 1) {
+            return;
+        }
+        holder.release();
+        if (holder.template() == service.settings().menu().template() && menuPool.size() < MAX_POOLED_MENUS) {
+            menuPool.push(holder);
+        }
     }
 
     @EventHandler
@@ -110,7 +115,7 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
     private void issueManual(CommandSender sender, String[] args) {
         Optional<UUID> uuid = PlayerResolver.resolveUuid(args[0]);
         if (uuid.isEmpty()) {
-            service.messageService().send(sender, messages.error("player_not_found"));
+            service.messageService().send(sender, service.messages().error("player_not_found"));
             return;
         }
         String typeName = args[1].toUpperCase(Locale.ROOT);
@@ -118,14 +123,14 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
         try {
             type = PunishmentType.valueOf(typeName);
         } catch (IllegalArgumentException exception) {
-            service.messageService().send(sender, messages.error("type"));
+            service.messageService().send(sender, service.messages().error("type"));
             return;
         }
         long durationSeconds;
         try {
             durationSeconds = DurationParser.parseToSeconds(args[2]);
         } catch (IllegalArgumentException exception) {
-            service.messageService().send(sender, messages.error("duration"));
+            service.messageService().send(sender, service.messages().error("duration"));
             return;
         }
         if (type == PunishmentType.TEMPBAN && durationSeconds == 0L) {
@@ -134,7 +139,7 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
         }
         String reason = joinArgs(args, 3);
         if (reason.isBlank()) {
-            service.messageService().send(sender, messages.error("reason"));
+            service.messageService().send(sender, service.messages().error("reason"));
             return;
         }
         if (type == PunishmentType.WARN) {
@@ -161,57 +166,28 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
     private void openMenu(Player sender, String targetInput) {
         Optional<UUID> uuid = PlayerResolver.resolveUuid(targetInput);
         if (uuid.isEmpty()) {
-            service.messageService().send(sender, messages.error("player_not_found"));
+            service.messageService().send(sender, service.messages().error("player_not_found"));
             return;
         }
-        List<MenuPunishment> punishments = loadMenuPunishments();
+        // Меню берётся из уже собранного шаблона; на открытие подставляется только имя цели.
+        PunishMenuTemplate template = service.settings().menu().template();
         UUID targetUuid = uuid.get();
         String targetName = resolveTargetName(targetUuid, targetInput);
-        String title = plugin.getConfig().getString("punish.menu.title", "<dark_red>Выдача наказания</dark_red>");
-        PunishMenuHolder holder = new PunishMenuHolder(
-                targetUuid,
-                targetName,
-                service.messageService().formatRaw(title)
-        );
-        renderLayout(holder, punishments);
+        PunishMenuHolder holder = acquireHolder(template);
+        boolean fresh = holder.assign(targetUuid);
+        template.fill(holder.inventory(), targetName, fresh);
         sender.openInventory(holder.inventory());
     }
 
-    private void renderLayout(PunishMenuHolder holder, List<MenuPunishment> punishments) {
-        Inventory inventory = holder.inventory();
-        ItemStack border = createBorderItem();
-        for (int slot = 0; slot <= 8; slot++) {
-            inventory.setItem(slot, border);
-        }
-        for (int slot = 18; slot <= 26; slot++) {
-            inventory.setItem(slot, border);
-        }
-        inventory.setItem(9, border);
-        inventory.setItem(15, border);
-
-        if (punishments.isEmpty()) {
-            inventory.setItem(OPTION_SLOTS[0], createNoPunishmentsItem());
-            for (int i = 1; i < OPTION_SLOTS.length; i++) {
-                inventory.setItem(OPTION_SLOTS[i], createEmptyPunishmentItem());
-            }
-            return;
-        }
-
-        int added = 0;
-        for (int i = 0; i < OPTION_SLOTS.length; i++) {
-            int slot = OPTION_SLOTS[i];
-            if (i < punishments.size()) {
-                MenuPunishment punishment = punishments.get(i);
-                holder.putPunishment(slot, punishment);
-                inventory.setItem(slot, createPunishmentItem(holder.targetName(), punishment));
-                added++;
-            } else {
-                inventory.setItem(slot, createEmptyPunishmentItem());
+    private PunishMenuHolder acquireHolder(PunishMenuTemplate template) {
+        PunishMenuHolder pooled;
+        while ((pooled = menuPool.poll()) != null) {
+            // После перезагрузки конфигурации инвентари со старым заголовком и предметами выбрасываются.
+            if (pooled.template() == template) {
+                return pooled;
             }
         }
-        if (added == 0) {
-            plugin.getLogger().warning("Не удалось отрисовать punish-меню: все записи punish.menu.punishments невалидны.");
-        }
+        return new PunishMenuHolder(template);
     }
 
     private void issueFromMenu(Player sender, UUID target, MenuPunishment punishment) {
@@ -243,7 +219,7 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
     private void sendUsage(CommandSender sender, Command command) {
         String usage = command.getUsage();
         if (usage == null || usage.isBlank()) {
-            service.messageService().send(sender, messages.error("usage"));
+            service.messageService().send(sender, service.messages().error("usage"));
             return;
         }
         service.messageService().send(sender, "<red>Использование:</red> <white>/punish <игрок|uuid></white>");
@@ -282,78 +258,6 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
                 "<gray>Причина:</gray> <white>" + record.reason() + "</white> <dark_gray>|</dark_gray> <gray>Срок:</gray> <white>" + time + "</white>");
     }
 
-    private List<MenuPunishment> loadMenuPunishments() {
-        FileConfiguration config = plugin.getConfig();
-        List<Map<?, ?>> raw = config.getMapList("punish.menu.punishments");
-        List<MenuPunishment> punishments = new ArrayList<>();
-        for (Map<?, ?> entry : raw) {
-            if (punishments.size() >= OPTION_SLOTS.length) {
-                break;
-            }
-            MenuPunishment punishment = parseMenuPunishment(entry);
-            if (punishment != null) {
-                punishments.add(punishment);
-            }
-        }
-        return punishments;
-    }
-
-    private MenuPunishment parseMenuPunishment(Map<?, ?> entry) {
-        String typeRaw = readString(entry.get("type"));
-        String reason = readString(entry.get("reason"));
-        if (typeRaw == null || typeRaw.isBlank() || reason == null || reason.isBlank()) {
-            return null;
-        }
-        PunishmentType type;
-        try {
-            type = PunishmentType.valueOf(typeRaw.toUpperCase(Locale.ROOT));
-        } catch (IllegalArgumentException exception) {
-            plugin.getLogger().warning("Пропущена запись punish.menu.punishments: неверный type=" + typeRaw);
-            return null;
-        }
-        long durationSeconds = resolveConfiguredDuration(entry, type);
-        if (durationSeconds < 0L) {
-            plugin.getLogger().warning("Пропущена запись punish.menu.punishments: duration должен быть >= 0");
-            return null;
-        }
-        if (type == PunishmentType.TEMPBAN && durationSeconds == 0L) {
-            plugin.getLogger().warning("Пропущена запись punish.menu.punishments: TEMPBAN требует duration > 0");
-            return null;
-        }
-        if (type == PunishmentType.WARN && service.normalizeWarnReason(reason).isEmpty()) {
-            plugin.getLogger().warning("Пропущена запись punish.menu.punishments: WARN reason должен быть в warn.allowed-reasons");
-            return null;
-        }
-        String name = readString(entry.get("name"));
-        if (name == null || name.isBlank()) {
-            name = "<red>" + type.name() + "</red>";
-        }
-        List<String> lore = readStringList(entry.get("lore"));
-        boolean silent = readBoolean(entry.get("silent"));
-        boolean nnr = readBoolean(entry.get("nnr"));
-        return new MenuPunishment(name, lore, type, durationSeconds, reason.trim(), silent, nnr);
-    }
-
-    private long resolveConfiguredDuration(Map<?, ?> entry, PunishmentType type) {
-        Object rawSeconds = entry.get("duration-seconds");
-        if (rawSeconds instanceof Number number) {
-            return number.longValue();
-        }
-        String durationRaw = readString(entry.get("duration"));
-        if (durationRaw != null && !durationRaw.isBlank()) {
-            try {
-                return DurationParser.parseToSeconds(durationRaw.trim());
-            } catch (IllegalArgumentException exception) {
-                plugin.getLogger().warning("Неверная duration в punish.menu.punishments: " + durationRaw);
-                return -1L;
-            }
-        }
-        if (type == PunishmentType.WARN) {
-            return service.config().warnDurationSeconds();
-        }
-        return 0L;
-    }
-
     private String resolveTargetName(UUID uuid, String fallback) {
         OfflinePlayer offline = Bukkit.getOfflinePlayer(uuid);
         if (offline.getName() != null && !offline.getName().isBlank()) {
@@ -362,69 +266,8 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
         return fallback;
     }
 
-    private ItemStack createBorderItem() {
-        ItemStack item = new ItemStack(BORDER_MATERIAL);
-        ItemMeta meta = item.getItemMeta();
-        meta.displayName(service.messageService().formatRaw(" "));
-        item.setItemMeta(meta);
-        return item;
-    }
-
-    private ItemStack createEmptyPunishmentItem() {
-        ItemStack item = new ItemStack(OPTION_MATERIAL);
-        ItemMeta meta = item.getItemMeta();
-        meta.displayName(service.messageService().formatRaw("<gray>Пустой слот</gray>"));
-        meta.lore(List.of(
-                service.messageService().formatRaw("<dark_gray>Добавьте наказание в config.yml</dark_gray>"),
-                service.messageService().formatRaw("<dark_gray>punish.menu.punishments</dark_gray>")
-        ));
-        item.setItemMeta(meta);
-        return item;
-    }
-
-    private ItemStack createNoPunishmentsItem() {
-        ItemStack item = new ItemStack(EMPTY_PRIMARY_MATERIAL);
-        ItemMeta meta = item.getItemMeta();
-        meta.displayName(service.messageService().formatRaw("<gray>Пока ничего нет</gray>"));
-        meta.lore(List.of(
-                service.messageService().formatRaw("<dark_gray>Пока ничего нет</dark_gray>"),
-                service.messageService().formatRaw("<dark_gray>Настройте punish.menu.punishments в config.yml</dark_gray>")
-        ));
-        item.setItemMeta(meta);
-        return item;
-    }
-
-    private ItemStack createPunishmentItem(String targetName, MenuPunishment punishment) {
-        ItemStack item = new ItemStack(OPTION_MATERIAL);
-        ItemMeta meta = item.getItemMeta();
-        meta.displayName(service.messageService().formatRaw(punishment.name()));
-        List<String> loreLines = punishment.lore();
-        List<net.kyori.adventure.text.Component> lore = new ArrayList<>();
-        if (loreLines.isEmpty()) {
-            loreLines = List.of(
-                    "<gray>Игрок:</gray> <white>%player%</white>",
-                    "<gray>Тип:</gray> <white>%type%</white>",
-                    "<gray>Причина:</gray> <white>%reason%</white>",
-                    "<gray>Срок:</gray> <white>%time%</white>",
-                    "<green>Нажмите, чтобы выдать</green>"
-            );
-        }
-        String time = DurationFormatter.formatSeconds(punishment.durationSeconds());
-        for (String line : loreLines) {
-            String rendered = line
-                    .replace("%player%", targetName)
-                    .replace("%type%", punishment.type().name())
-                    .replace("%reason%", punishment.reason())
-                    .replace("%time%", time);
-            lore.add(service.messageService().formatRaw(rendered));
-        }
-        meta.lore(lore);
-        item.setItemMeta(meta);
-        return item;
-    }
-
     private boolean isOptionSlot(int slot) {
-        for (int optionSlot : OPTION_SLOTS) {
+        for (int optionSlot : PunishMenuTemplate.OPTION_SLOTS) {
             if (optionSlot == slot) {
                 return true;
             }
@@ -432,64 +275,36 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
         return false;
     }
 
-    private String readString(Object value) {
-        return value == null ? null : String.valueOf(value);
-    }
+    private static final class PunishMenuHolder implements InventoryHolder {
+        private final PunishMenuTemplate template;
+        private final Inventory inventory;
+        private UUID targetUuid;
+        private boolean filled;
 
-    private List<String> readStringList(Object value) {
-        if (!(value instanceof List<?> rawList)) {
-            return List.of();
-        }
-        List<String> lines = new ArrayList<>(rawList.size());
-        for (Object entry : rawList) {
-            if (entry != null) {
-                lines.add(String.valueOf(entry));
-            }
+        private PunishMenuHolder(PunishMenuTemplate template) {
+            this.template = template;
+            this.inventory = Bukkit.createInventory(this, PunishMenuTemplate.INVENTORY_SIZE, template.title());
         }
-        return lines;
-    }
 
-    private boolean readBoolean(Object value) {
-        if (value instanceof Boolean bool) {
-            return bool;
-        }
-        if (value == null) {
-            return false;
+        private boolean assign(UUID targetUuid) {
+            this.targetUuid = targetUuid;
+            boolean fresh = !filled;
+            filled = true;
+            return fresh;
         }
-        return Boolean.parseBoolean(String.valueOf(value));
-    }
-
-    private record MenuPunishment(
-            String name,
-            List<String> lore,
-            PunishmentType type,
-            long durationSeconds,
-            String reason,
-            boolean silent,
-            boolean nnr
-    ) {
-    }
 
-    private static final class PunishMenuHolder implements InventoryHolder {
-        private final UUID targetUuid;
-        private final String targetName;
-        private final Inventory inventory;
-        private final Map<Integer, MenuPunishment> punishmentsBySlot = new HashMap<>();
+        private void release() {
+            this.targetUuid = null;
+        }
 
-        private PunishMenuHolder(UUID targetUuid, String targetName, net.kyori.adventure.text.Component title) {
-            this.targetUuid = targetUuid;
-            this.targetName = targetName;
-            this.inventory = Bukkit.createInventory(this, INVENTORY_SIZE, title);
+        public PunishMenuTemplate template() {
+            return template;
         }
 
         public UUID targetUuid() {
             return targetUuid;
         }
 
-        public String targetName() {
-            return targetName;
-        }
-
         public Inventory inventory() {
             return inventory;
         }
@@ -499,12 +314,8 @@ public final class CustomPunishCommand implements CommandExecutor, Listener {
             return inventory;
         }
 
-        public void putPunishment(int slot, MenuPunishment punishment) {
-            punishmentsBySlot.put(slot, punishment);
-        }
-
         public MenuPunishment punishmentAt(int slot) {
-            return punishmentsBySlot.get(slot);
+            return template.punishmentAt(slot);
         }
     }
 }
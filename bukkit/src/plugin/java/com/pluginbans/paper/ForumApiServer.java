@@ -3,10 +3,18 @@ package com.pluginbans.paper;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
+import com.pluginbans.core.ConnectionLog;
+import com.pluginbans.core.DailyStat;
 import com.pluginbans.core.DurationParser;
+import com.pluginbans.core.IpRange;
+import com.pluginbans.core.LatencyHistogram;
+import com.pluginbans.core.MetricsRegistry;
 import com.pluginbans.core.PunishmentHistoryRecord;
 import com.pluginbans.core.PunishmentRecord;
 import com.pluginbans.core.PunishmentType;
+import com.pluginbans.core.SearchPage;
+import com.pluginbans.core.SearchQuery;
+import com.pluginbans.core.Workload;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
 
@@ -15,12 +23,17 @@ import java.net.InetSocketAddress;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
@@ -28,6 +41,12 @@ import java.util.concurrent.Executors;
 
 public final class ForumApiServer implements AutoCloseable {
     private static final String API_PREFIX = "/api/v1";
+    private static final int DEFAULT_STATS_DAYS = 7;
+    private static final int DEFAULT_SEARCH_LIMIT = 25;
+    private static final int MAX_STATS_DAYS = 366;
+    private static final String STARTED_ATTRIBUTE = "pluginbans.started";
+    private static final String ROUTE_ATTRIBUTE = "pluginbans.route";
+    private static final String EVENT_ATTRIBUTE = "pluginbans.event";
     private static final List<String> FORBIDDEN_TOKENS = List.of(
             "CHANGE_ME",
             "CHANGE_ME_LONG_RANDOM_TOKEN",
@@ -36,13 +55,17 @@ public final class ForumApiServer implements AutoCloseable {
 
     private final PaperPunishmentService service;
     private final PaperConfig config;
+    private final ConnectionLog connectionLog;
     private final Gson gson;
     private final HttpServer server;
     private final ExecutorService executor;
+    private final MetricsRegistry metrics;
 
-    public ForumApiServer(PaperPunishmentService service, PaperConfig config) throws IOException {
+    public ForumApiServer(PaperPunishmentService service, PaperConfig config, ConnectionLog connectionLog) throws IOException {
         this.service = service;
         this.config = config;
+        this.connectionLog = connectionLog;
+        this.metrics = service.core().metrics();
         this.gson = new GsonBuilder().disableHtmlEscaping().create();
         this.server = HttpServer.create(new InetSocketAddress(config.apiBind(), config.apiPort()), 0);
         this.executor = Executors.newFixedThreadPool(4);
@@ -61,8 +84,16 @@ public final class ForumApiServer implements AutoCloseable {
     }
 
     private void handleRequest(HttpExchange exchange) throws IOException {
+        // Время и маршрут записываются при отправке ответа: часть обработчиков отвечает асинхронно.
+        ApiRequestFlightEvent event = new ApiRequestFlightEvent();
+        event.begin();
+        exchange.setAttribute(EVENT_ATTRIBUTE, event);
+        exchange.setAttribute(STARTED_ATTRIBUTE, System.nanoTime());
         try {
-            if ("OPTIONS".equalsIgnoreCase(exchange.getRequestMethod())) {
+            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
+            List<String> segments = extractSegments(exchange.getRequestURI().getPath());
+            exchange.setAttribute(ROUTE_ATTRIBUTE, route(method, segments));
+            if ("OPTIONS".equals(method)) {
                 sendJson(exchange, 204, Map.of("ok", true));
                 return;
             }
@@ -70,17 +101,19 @@ public final class ForumApiServer implements AutoCloseable {
                 sendJson(exchange, 401, Map.of("ok", false, "error", "Unauthorized"));
                 return;
             }
-            String method = exchange.getRequestMethod().toUpperCase(Locale.ROOT);
-            List<String> segments = extractSegments(exchange.getRequestURI().getPath());
 
             if ("GET".equals(method) && segments.size() == 1 && "health".equalsIgnoreCase(segments.get(0))) {
-                sendJson(exchange, 200, Map.of("ok", true, "time", Instant.now().toString()));
+                sendJson(exchange, 200, Map.of("ok", true, "time", Instant.now().toString(), "leader", service.core().leads()));
                 return;
             }
             if ("GET".equals(method) && segments.size() == 1 && "meta".equalsIgnoreCase(segments.get(0))) {
                 handleMeta(exchange);
                 return;
             }
+            if ("GET".equals(method) && segments.size() == 1 && "metrics".equalsIgnoreCase(segments.get(0))) {
+                sendText(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", metrics.prometheus());
+                return;
+            }
             if ("POST".equals(method) && segments.size() == 1 && "punishments".equalsIgnoreCase(segments.get(0))) {
                 handleCreatePunishment(exchange);
                 return;
@@ -94,11 +127,28 @@ public final class ForumApiServer implements AutoCloseable {
                 handleRevokePunishment(exchange, segments.get(1));
                 return;
             }
+            if ("GET".equals(method) && segments.size() == 1 && "search".equalsIgnoreCase(segments.get(0))) {
+                handleSearch(exchange);
+                return;
+            }
+            if ("GET".equals(method) && segments.size() == 1 && "stats".equalsIgnoreCase(segments.get(0))) {
+                handleStats(exchange);
+                return;
+            }
+            if ("GET".equals(method) && segments.size() == 1 && "ranges".equalsIgnoreCase(segments.get(0))) {
+                handleActiveRanges(exchange);
+                return;
+            }
             if ("GET".equals(method) && segments.size() == 3 && "players".equalsIgnoreCase(segments.get(0))
                     && "active".equalsIgnoreCase(segments.get(2))) {
                 handlePlayerActive(exchange, segments.get(1));
                 return;
             }
+            if ("GET".equals(method) && segments.size() == 3 && "players".equalsIgnoreCase(segments.get(0))
+                    && "alts".equalsIgnoreCase(segments.get(2))) {
+                handlePlayerAlts(exchange, segments.get(1));
+                return;
+            }
             if ("GET".equals(method) && segments.size() == 3 && "players".equalsIgnoreCase(segments.get(0))
                     && "history".equalsIgnoreCase(segments.get(2))) {
                 handlePlayerHistory(exchange, segments.get(1));
@@ -119,6 +169,10 @@ public final class ForumApiServer implements AutoCloseable {
             sendJson(exchange, 400, Map.of("ok", false, "error", "Invalid JSON payload"));
             return;
         }
+        if (request != null && !isBlank(request.range)) {
+            handleCreateRangeBan(exchange, request);
+            return;
+        }
         if (request == null || isBlank(request.target) || isBlank(request.type) || isBlank(request.reason)) {
             sendJson(exchange, 400, Map.of("ok", false, "error", "target, type and reason are required"));
             return;
@@ -203,6 +257,151 @@ public final class ForumApiServer implements AutoCloseable {
         }
     }
 
+    private void handleCreateRangeBan(HttpExchange exchange, CreatePunishmentRequest request) throws IOException {
+        if (!isBlank(request.type) && !PunishmentType.IPBAN.name().equalsIgnoreCase(request.type.trim())) {
+            sendJson(exchange, 400, Map.of("ok", false, "error", "range is supported only for IPBAN"));
+            return;
+        }
+        if (isBlank(request.reason)) {
+            sendJson(exchange, 400, Map.of("ok", false, "error", "range and reason are required"));
+            return;
+        }
+        Optional<IpRange> range = IpRange.parse(request.range.trim());
+        if (range.isEmpty()) {
+            sendJson(exchange, 400, Map.of("ok", false, "error", "Invalid CIDR range"));
+            return;
+        }
+        long durationSeconds;
+        try {
+            durationSeconds = resolveDurationSeconds(request, PunishmentType.IPBAN);
+        } catch (IllegalArgumentException exception) {
+            sendJson(exchange, 400, Map.of("ok", false, "error", exception.getMessage()));
+            return;
+        }
+        String actor = isBlank(request.actor) ? "ForumAPI" : request.actor.trim();
+        try {
+            PunishmentRecord record = service.issuePunishment(
+                    IpRange.NO_PLAYER,
+                    PunishmentType.IPBAN.name(),
+                    request.reason.trim(),
+                    durationSeconds,
+                    actor,
+                    range.get().toString(),
+                    Boolean.TRUE.equals(request.silent),
+                    Boolean.TRUE.equals(request.nnr)
+            ).join();
+            sendJson(exchange, 201, Map.of(
+                    "ok", true,
+                    "punishment", toPunishmentMap(record)
+            ));
+        } catch (CompletionException exception) {
+            service.logError("Forum API create range ban failed", exception);
+            sendJson(exchange, 500, Map.of("ok", false, "error", "Failed to create punishment"));
+        }
+    }
+
+    private void handleSearch(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        SearchQuery search;
+        try {
+            PunishmentType type = query.containsKey("type") ? PunishmentType.valueOf(query.get("type").toUpperCase(Locale.ROOT)) : null;
+            int limit = query.containsKey("limit") ? Integer.parseInt(query.get("limit")) : DEFAULT_SEARCH_LIMIT;
+            search = new SearchQuery(query.get("q"), query.get("actor"), type, SearchPage.parseCursor(query.get("cursor")), limit);
+        } catch (IllegalArgumentException exception) {
+            sendJson(exchange, 400, Map.of("ok", false, "error", "Invalid search parameters: q or actor is required"));
+            return;
+        }
+        try {
+            SearchPage page = service.core().search(search).join();
+            List<Map<String, Object>> payload = new ArrayList<>(page.records().size());
+            for (PunishmentRecord record : page.records()) {
+                payload.add(toPunishmentMap(record));
+            }
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("ok", true);
+            response.put("results", payload);
+            response.put("nextCursor", page.nextCursor());
+            sendJson(exchange, 200, response);
+        } catch (CompletionException exception) {
+            service.logError("Forum API search failed", exception);
+            sendJson(exchange, 500, Map.of("ok", false, "error", "Failed to search punishments"));
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        LocalDate from;
+        LocalDate to;
+        PunishmentType type = null;
+        try {
+            to = query.containsKey("to") ? LocalDate.parse(query.get("to")) : LocalDate.now(ZoneOffset.UTC);
+            from = query.containsKey("from") ? LocalDate.parse(query.get("from")) : to.minusDays(DEFAULT_STATS_DAYS - 1);
+            if (query.containsKey("type")) {
+                type = PunishmentType.valueOf(query.get("type").toUpperCase(Locale.ROOT));
+            }
+        } catch (DateTimeParseException | IllegalArgumentException exception) {
+            sendJson(exchange, 400, Map.of("ok", false, "error", "Invalid from/to (YYYY-MM-DD) or type"));
+            return;
+        }
+        if (from.isAfter(to) || ChronoUnit.DAYS.between(from, to) >= MAX_STATS_DAYS) {
+            sendJson(exchange, 400, Map.of("ok", false, "error", "Range must be 1.." + MAX_STATS_DAYS + " days"));
+            return;
+        }
+        String action = query.get("action");
+        String actor = query.get("actor");
+        try {
+            List<DailyStat> stats = service.core().dailyStats(from, to).join();
+            List<Map<String, Object>> rows = new ArrayList<>();
+            Map<String, Long> byDay = new TreeMap<>();
+            Map<String, Long> byType = new TreeMap<>();
+            Map<String, Long> byAction = new TreeMap<>();
+            Map<String, Long> byActor = new TreeMap<>();
+            long total = 0L;
+            for (DailyStat stat : stats) {
+                if ((type != null && stat.type() != type)
+                        || (action != null && !action.equalsIgnoreCase(stat.action()))
+                        || (actor != null && !actor.equalsIgnoreCase(stat.actor()))) {
+                    continue;
+                }
+                Map<String, Object> row = new LinkedHashMap<>();
+                row.put("day", stat.day().toString());
+                row.put("type", stat.type().name());
+                row.put("action", stat.action());
+                row.put("actor", stat.actor());
+                row.put("total", stat.total());
+                rows.add(row);
+                byDay.merge(stat.day().toString(), stat.total(), Long::sum);
+                byType.merge(stat.type().name(), stat.total(), Long::sum);
+                byAction.merge(stat.action(), stat.total(), Long::sum);
+                byActor.merge(stat.actor(), stat.total(), Long::sum);
+                total += stat.total();
+            }
+            Map<String, Object> payload = new LinkedHashMap<>();
+            payload.put("ok", true);
+            payload.put("from", from.toString());
+            payload.put("to", to.toString());
+            payload.put("total", total);
+            payload.put("byDay", byDay);
+            payload.put("byType", byType);
+            payload.put("byAction", byAction);
+            payload.put("byActor", byActor);
+            payload.put("rows", rows);
+            sendJson(exchange, 200, payload);
+        } catch (CompletionException exception) {
+            service.logError("Forum API stats failed", exception);
+            sendJson(exchange, 500, Map.of("ok", false, "error", "Failed to load stats"));
+        }
+    }
+
+    private void handleActiveRanges(HttpExchange exchange) throws IOException {
+        List<PunishmentRecord> ranges = service.core().activeRanges();
+        List<Map<String, Object>> payload = new ArrayList<>(ranges.size());
+        for (PunishmentRecord record : ranges) {
+            payload.add(toPunishmentMap(record));
+        }
+        sendJson(exchange, 200, Map.of("ok", true, "ranges", payload));
+    }
+
     private void handleGetPunishment(HttpExchange exchange, String id) throws IOException {
         String punishmentId = id.toUpperCase(Locale.ROOT);
         try {
@@ -269,7 +468,7 @@ public final class ForumApiServer implements AutoCloseable {
             return;
         }
         try {
-            List<PunishmentRecord> punishments = service.core().getActiveByUuid(uuid.get()).join().all();
+            List<PunishmentRecord> punishments = service.core().getActiveByUuid(uuid.get(), Workload.API).join().all();
             List<Map<String, Object>> payload = new ArrayList<>(punishments.size());
             for (PunishmentRecord punishment : punishments) {
                 payload.add(toPunishmentMap(punishment));
@@ -281,6 +480,39 @@ public final class ForumApiServer implements AutoCloseable {
         }
     }
 
+    private void handlePlayerAlts(HttpExchange exchange, String target) throws IOException {
+        Optional<UUID> uuid;
+        try {
+            uuid = service.supplySync(() -> PlayerResolver.resolveUuid(decodeSegment(target))).join();
+        } catch (CompletionException exception) {
+            service.logError("Forum API failed to resolve player for alts endpoint: " + target, exception);
+            sendJson(exchange, 500, Map.of("ok", false, "error", "Failed to resolve player"));
+            return;
+        }
+        if (uuid.isEmpty()) {
+            sendJson(exchange, 404, Map.of("ok", false, "error", "Player not found"));
+            return;
+        }
+        Map<UUID, Integer> alts;
+        try {
+            alts = connectionLog.findAlts(uuid.get()).join();
+        } catch (CompletionException exception) {
+            service.logError("Forum API failed to load alts: " + target, exception);
+            sendJson(exchange, 500, Map.of("ok", false, "error", "Failed to load alts"));
+            return;
+        }
+        List<Map<String, Object>> payload = new ArrayList<>(alts.size());
+        for (Map.Entry<UUID, Integer> entry : alts.entrySet()) {
+            payload.add(Map.of("uuid", entry.getKey().toString(), "sharedAddresses", entry.getValue()));
+        }
+        sendJson(exchange, 200, Map.of(
+                "ok", true,
+                "uuid", uuid.get().toString(),
+                "complete", connectionLog.loaded(),
+                "alts", payload
+        ));
+    }
+
     private void handlePlayerHistory(HttpExchange exchange, String target) throws IOException {
         Optional<UUID> uuid;
         try {
@@ -295,12 +527,14 @@ public final class ForumApiServer implements AutoCloseable {
             return;
         }
         try {
-            List<PunishmentHistoryRecord> history = service.core().history(uuid.get()).join();
+            // По умолчанию отдаётся оперативная история, full=true добавляет записи из архива.
+            boolean full = Boolean.parseBoolean(parseQuery(exchange.getRequestURI().getRawQuery()).get("full"));
+            List<PunishmentHistoryRecord> history = service.core().history(uuid.get(), full).join();
             List<Map<String, Object>> payload = new ArrayList<>(history.size());
             for (PunishmentHistoryRecord record : history) {
                 payload.add(toHistoryMap(record));
             }
-            sendJson(exchange, 200, Map.of("ok", true, "uuid", uuid.get().toString(), "history", payload));
+            sendJson(exchange, 200, Map.of("ok", true, "uuid", uuid.get().toString(), "full", full, "history", payload));
         } catch (CompletionException exception) {
             service.logError("Forum API player history failed", exception);
             sendJson(exchange, 500, Map.of("ok", false, "error", "Failed to load punishment history"));
@@ -332,21 +566,27 @@ public final class ForumApiServer implements AutoCloseable {
         payload.put("ok", true);
         payload.put("apiVersion", "v1");
         payload.put("time", Instant.now().toString());
-        payload.put("warnAllowedReasons", config.warnAllowedReasons());
-        payload.put("warnExternalActors", config.warnExternalActors());
+        PaperConfig current = service.config();
+        payload.put("warnAllowedReasons", current.warnAllowedReasons());
+        payload.put("warnExternalActors", current.warnExternalActors());
         payload.put("defaults", Map.of(
-                "warnDurationSeconds", config.warnDurationSeconds(),
-                "checkDurationSeconds", config.checkDurationSeconds(),
-                "checkTimeoutBanSeconds", config.checkTimeoutBanSeconds()
+                "warnDurationSeconds", current.warnDurationSeconds(),
+                "checkDurationSeconds", current.checkDurationSeconds(),
+                "checkTimeoutBanSeconds", current.checkTimeoutBanSeconds()
         ));
         payload.put("endpoints", List.of(
                 "GET /api/v1/health",
                 "GET /api/v1/meta",
+                "GET /api/v1/metrics",
                 "POST /api/v1/punishments",
                 "GET /api/v1/punishments/{id}",
                 "POST /api/v1/punishments/{id}/revoke",
+                "GET /api/v1/ranges",
+                "GET /api/v1/stats?from=&to=&type=&action=&actor=",
+                "GET /api/v1/search?q=&actor=&type=&cursor=&limit=",
                 "GET /api/v1/players/{target}/active",
-                "GET /api/v1/players/{target}/history"
+                "GET /api/v1/players/{target}/history?full=",
+                "GET /api/v1/players/{target}/alts"
         ));
         sendJson(exchange, 200, payload);
     }
@@ -361,6 +601,7 @@ public final class ForumApiServer implements AutoCloseable {
         map.put("active", record.active());
         map.put("silent", record.silent());
         map.put("ip", record.ip());
+        map.put("range", IpRange.isRange(record.ip()));
         map.put("startTime", record.startTime().toEpochMilli());
         map.put("endTime", record.endTime() == null ? null : record.endTime().toEpochMilli());
         map.put("durationSeconds", record.durationSeconds());
@@ -411,6 +652,24 @@ public final class ForumApiServer implements AutoCloseable {
         return segments;
     }
 
+    private Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isBlank()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator <= 0) {
+                continue;
+            }
+            String value = decodeSegment(pair.substring(separator + 1));
+            if (!value.isBlank()) {
+                query.put(decodeSegment(pair.substring(0, separator)).toLowerCase(Locale.ROOT), value.trim());
+            }
+        }
+        return query;
+    }
+
     private String decodeSegment(String value) {
         return URLDecoder.decode(value, StandardCharsets.UTF_8);
     }
@@ -449,8 +708,12 @@ public final class ForumApiServer implements AutoCloseable {
     }
 
     private void sendJson(HttpExchange exchange, int statusCode, Object payload) throws IOException {
-        byte[] body = gson.toJson(payload).getBytes(StandardCharsets.UTF_8);
-        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        sendText(exchange, statusCode, "application/json; charset=utf-8", gson.toJson(payload));
+    }
+
+    private void sendText(HttpExchange exchange, int statusCode, String contentType, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
         exchange.getResponseHeaders().set("X-PluginBans-Api-Version", "v1");
         exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
         exchange.getResponseHeaders().set("Access-Control-Allow-Headers", "Content-Type, Authorization, X-API-Token");
@@ -458,6 +721,52 @@ public final class ForumApiServer implements AutoCloseable {
         exchange.sendResponseHeaders(statusCode, body.length);
         exchange.getResponseBody().write(body);
         exchange.close();
+        recordResponse(exchange, statusCode);
+    }
+
+    private void recordResponse(HttpExchange exchange, int statusCode) {
+        Object started = exchange.getAttribute(STARTED_ATTRIBUTE);
+        Object route = exchange.getAttribute(ROUTE_ATTRIBUTE);
+        if (!(started instanceof Long startedNanos) || route == null) {
+            return;
+        }
+        String name = route.toString();
+        if (exchange.getAttribute(EVENT_ATTRIBUTE) instanceof ApiRequestFlightEvent event) {
+            event.finish(name, statusCode);
+        }
+        LatencyHistogram latency = metrics.histogram("pluginbans_api_request_seconds", "Время ответа HTTP API.", "route", name);
+        latency.recordSince(startedNanos);
+        metrics.counter("pluginbans_api_responses_total", "Ответы HTTP API по кодам.", "route", name,
+                "status", Integer.toString(statusCode)).increment();
+    }
+
+    private static String route(String method, List<String> segments) {
+        // Идентификаторы и ники заменяются шаблоном, иначе каждая цель заводила бы свою серию метрик.
+        String verb = switch (method) {
+            case "GET", "POST", "OPTIONS" -> method;
+            default -> "OTHER";
+        };
+        StringBuilder builder = new StringBuilder(verb).append(' ').append(API_PREFIX);
+        for (int i = 0; i < segments.size() && i < 3; i++) {
+            String segment = segments.get(i).toLowerCase(Locale.ROOT);
+            if (i == 1 && "punishments".equals(segments.get(0).toLowerCase(Locale.ROOT))) {
+                segment = "{id}";
+            } else if (i == 1 && "players".equals(segments.get(0).toLowerCase(Locale.ROOT))) {
+                segment = "{target}";
+            } else if (!isKnownSegment(segment)) {
+                segment = "{other}";
+            }
+            builder.append('/').append(segment);
+        }
+        return segments.size() > 3 ? builder.append("/{other}").toString() : builder.toString();
+    }
+
+    private static boolean isKnownSegment(String segment) {
+        return switch (segment) {
+            case "health", "meta", "metrics", "punishments", "revoke", "search", "stats", "ranges", "players", "active",
+                    "alts", "history" -> true;
+            default -> false;
+        };
     }
 
     private boolean isBlank(String value) {
@@ -466,7 +775,7 @@ public final class ForumApiServer implements AutoCloseable {
 
     private String plainWarnReasons() {
         StringBuilder builder = new StringBuilder();
-        List<String> reasons = config.warnAllowedReasons();
+        List<String> reasons = service.config().warnAllowedReasons();
         for (int i = 0; i < reasons.size(); i++) {
             if (i > 0) {
                 builder.append(" | ");
@@ -478,6 +787,7 @@ public final class ForumApiServer implements AutoCloseable {
 
     private static final class CreatePunishmentRequest {
         String target;
+        String range;
         String type;
         String duration;
         Long durationSeconds;
@@ -0,0 +1,112 @@
+package com.pluginbans.paper;
+
+import com.pluginbans.core.AdvancedBanImporter;
+import com.pluginbans.core.DatabaseManager;
+import com.zaxxer.hikari.HikariDataSource;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public final class ImportCommand implements CommandExecutor {
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+    private static final int DEFAULT_THREADS = 2;
+
+    private final JavaPlugin plugin;
+    private final PaperPunishmentService service;
+    private final DatabaseManager databaseManager;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ImportCommand(JavaPlugin plugin, PaperPunishmentService service, DatabaseManager databaseManager) {
+        this.plugin = plugin;
+        this.service = service;
+        this.databaseManager = databaseManager;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("bans.fullaccess")) {
+            service.messageService().send(sender, service.messages().permissionDenied());
+            return true;
+        }
+        if (args.length < 1 || !args[0].toLowerCase(Locale.ROOT).equals("advancedban")) {
+            service.messageService().send(sender, "<red>Использование:</red> <white>" + command.getUsage() + "</white>");
+            return true;
+        }
+        int pageSize = parseOrDefault(args, 1, DEFAULT_PAGE_SIZE);
+        int requestedThreads = parseOrDefault(args, 2, DEFAULT_THREADS);
+        if (pageSize <= 0 || requestedThreads <= 0) {
+            service.messageService().send(sender, "<red>Размер страницы и число потоков должны быть положительными числами.</red>");
+            return true;
+        }
+        int threads = AdvancedBanImporter.clampParallelism(requestedThreads);
+        if (!running.compareAndSet(false, true)) {
+            service.messageService().send(sender, "<yellow>Импорт уже выполняется.</yellow>");
+            return true;
+        }
+        // Настройки берутся из снимка конфигурации, а не перечитываются из файла на каждый запуск.
+        ImportConfig source = service.settings().config().advancedBanImport();
+        String jdbcUrl = source.jdbcUrl();
+        String user = source.user();
+        String password = source.password();
+        service.messageService().send(sender, "<yellow>Импорт из AdvancedBan запущен.</yellow> <gray>Страница: " + pageSize
+                + ", потоков записи: " + threads + "</gray>");
+        // Импорт длится минуты и сам распределяет запись по своим потокам; основной поток сервера не занят.
+        Thread worker = new Thread(() -> runImport(sender, jdbcUrl, user, password, pageSize, threads), "PluginBans-Импорт");
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    private void runImport(CommandSender sender, String jdbcUrl, String user, String password, int pageSize, int threads) {
+        // Писатели, чтение и сохранение позиции берут соединения из своего пула, а не из пула полос и аренд.
+        HikariDataSource target = databaseManager.openSeparate("PluginBans-Импорт", threads + 1);
+        // Без отдельного адреса таблицы AdvancedBan читаются из той же базы, что и таблицы PluginBans.
+        HikariDataSource external = jdbcUrl == null || jdbcUrl.isBlank()
+                ? null
+                : DatabaseManager.openExternal(jdbcUrl, user, password, 2);
+        DataSource source = external != null ? external : target;
+        try (AdvancedBanImporter importer = new AdvancedBanImporter(source, target,
+                databaseManager.storageFormat(), pageSize, threads)) {
+            List<AdvancedBanImporter.ImportProgress> results = importer.run(progress -> report(sender, progress));
+            long imported = results.stream().mapToLong(AdvancedBanImporter.ImportProgress::imported).sum();
+            service.core().refreshActive();
+            service.runSync(() -> service.messageService().send(sender,
+                    "<green>Импорт завершён.</green> <gray>Перенесено наказаний: " + imported + ".</gray>"));
+        } catch (RuntimeException exception) {
+            service.logError("Импорт из AdvancedBan прерван", exception);
+            service.runSync(() -> service.messageService().send(sender,
+                    "<red>Импорт прерван:</red> <white>" + exception.getMessage() + "</white>"));
+        } finally {
+            if (external != null) {
+                external.close();
+            }
+            target.close();
+            running.set(false);
+        }
+    }
+
+    private void report(CommandSender sender, AdvancedBanImporter.ImportProgress progress) {
+        String line = "<gray>" + progress.table().tableName() + ":</gray> <white>прочитано " + progress.read()
+                + ", записано " + progress.imported() + ", пропущено " + progress.skipped()
+                + "</white> <gray>(id " + progress.cursor() + ", " + Math.round(progress.rowsPerSecond()) + " строк/с)</gray>";
+        plugin.getLogger().info(line.replaceAll("<[^>]+>", ""));
+        service.runSync(() -> service.messageService().send(sender, line));
+    }
+
+    private static int parseOrDefault(String[] args, int index, int fallback) {
+        if (args.length <= index) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(args[index]);
+        } catch (NumberFormatException exception) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.pluginbans.paper;
+
+public record ImportConfig(String jdbcUrl, String user, String password) {
+}
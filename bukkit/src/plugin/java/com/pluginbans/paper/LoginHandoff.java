@@ -0,0 +1,57 @@
+package com.pluginbans.paper;
+
+import com.pluginbans.core.PunishmentRecord;
+import net.kyori.adventure.text.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class LoginHandoff {
+    private static final Duration TIME_TO_LIVE = Duration.ofSeconds(30);
+    private static final int PURGE_THRESHOLD = 64;
+
+    private final ConcurrentHashMap<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    public void put(UUID uuid, String ip, List<PunishmentRecord> punishments, Component kickMessage) {
+        if (uuid == null) {
+            return;
+        }
+        if (entries.size() >= PURGE_THRESHOLD) {
+            purgeExpired();
+        }
+        entries.put(uuid, new Entry(ip, List.copyOf(punishments), kickMessage, System.nanoTime()));
+    }
+
+    public Optional<Entry> take(UUID uuid, String ip) {
+        if (uuid == null) {
+            return Optional.empty();
+        }
+        Entry entry = entries.remove(uuid);
+        // Результат проверки относится только к тому же подключению: другой адрес или устаревшая запись проверяются заново.
+        if (entry == null || entry.isExpired(System.nanoTime()) || !Objects.equals(entry.ip(), ip)) {
+            return Optional.empty();
+        }
+        return Optional.of(entry);
+    }
+
+    public void discard(UUID uuid) {
+        if (uuid != null) {
+            entries.remove(uuid);
+        }
+    }
+
+    private void purgeExpired() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    public record Entry(String ip, List<PunishmentRecord> punishments, Component kickMessage, long createdAtNanos) {
+        boolean isExpired(long nowNanos) {
+            return nowNanos - createdAtNanos > TIME_TO_LIVE.toNanos();
+        }
+    }
+}
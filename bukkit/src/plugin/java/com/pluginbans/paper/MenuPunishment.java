@@ -0,0 +1,16 @@
+package com.pluginbans.paper;
+
+import com.pluginbans.core.PunishmentType;
+
+import java.util.List;
+
+record MenuPunishment(
+        String name,
+        List<String> lore,
+        PunishmentType type,
+        long durationSeconds,
+        String reason,
+        boolean silent,
+        boolean nnr
+) {
+}
@@ -0,0 +1,29 @@
+package com.pluginbans.paper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("pluginbans.MessageRender")
+@Label("Разбор сообщения")
+@Category({"PluginBans", "Сообщения"})
+@Description("Преобразование MiniMessage-шаблона в компонент чата.")
+final class MessageRenderFlightEvent extends jdk.jfr.Event {
+    @Label("С префиксом")
+    boolean prefixed;
+
+    @Label("Длина шаблона")
+    int length;
+
+    MessageRenderFlightEvent(boolean prefixed) {
+        this.prefixed = prefixed;
+    }
+
+    void finish(String template) {
+        if (shouldCommit()) {
+            this.length = template == null ? 0 : template.length();
+            commit();
+        }
+    }
+}
@@ -5,11 +5,10 @@ import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bukkit.command.CommandSender;
 
 import java.util.Map;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 public final class MessageService {
-    private static final String LEGACY_PREFIX = "<gray>[<aqua>PluginBans</aqua>]</gray> ";
-    private static final String DEFAULT_PREFIX = "<red>БАНЫ | </red>";
     private static final Pattern MINI_ISSUER_SEGMENT = Pattern.compile(
             "\\s*<gray>Выдал:</gray>\\s*<white>[^<]*</white>",
             Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE
@@ -17,10 +16,10 @@ public final class MessageService {
     private static final Pattern PLAIN_ISSUER_LINE = Pattern.compile("(?im)^\\s*Выдал:.*(?:\\R|$)");
     private static final Pattern EXTRA_NEWLINES = Pattern.compile("(\\R){3,}");
 
-    private final MessagesConfig messages;
+    private final Supplier<MessagesConfig> messages;
     private final MiniMessage miniMessage;
 
-    public MessageService(MessagesConfig messages) {
+    public MessageService(Supplier<MessagesConfig> messages) {
         this.messages = messages;
         this.miniMessage = MiniMessage.miniMessage();
     }
@@ -30,16 +29,24 @@ public final class MessageService {
     }
 
     public Component format(String message) {
-        String configuredPrefix = messages.prefix();
-        String prefix = configuredPrefix;
-        if (prefix == null || prefix.isBlank() || LEGACY_PREFIX.equals(prefix)) {
-            prefix = DEFAULT_PREFIX;
+        MessagesConfig config = messages.get();
+        Component prerendered = message == null ? null : config.prefixed().get(message);
+        if (prerendered != null) {
+            return prerendered;
         }
-        return miniMessage.deserialize(prefix + message);
+        return render(config.effectivePrefix() + message, true);
     }
 
     public Component formatRaw(String message) {
-        return miniMessage.deserialize(message);
+        return render(message, false);
+    }
+
+    private Component render(String template, boolean prefixed) {
+        MessageRenderFlightEvent event = new MessageRenderFlightEvent(prefixed);
+        event.begin();
+        Component component = miniMessage.deserialize(template);
+        event.finish(template);
+        return component;
     }
 
     public String hideIssuerDetails(String message) {
@@ -1,13 +1,18 @@
 package com.pluginbans.paper;
 
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public record MessagesConfig(
         String prefix,
+        String effectivePrefix,
         String banMessage,
         String muteMessage,
         String warnMessage,
@@ -16,8 +21,13 @@ public record MessagesConfig(
         String checkBlockMessage,
         String mutedChatMessage,
         String permissionDenied,
-        Map<String, String> errors
+        Map<String, String> errors,
+        Map<String, Component> prefixed
 ) {
+    private static final String LEGACY_PREFIX = "<gray>[<aqua>PluginBans</aqua>]</gray> ";
+    private static final String DEFAULT_PREFIX = "<red>БАНЫ | </red>";
+    private static final String UNKNOWN_ERROR = "<red>Неизвестная ошибка.</red>";
+
     public static MessagesConfig from(FileConfiguration configuration) {
         String prefix = configuration.getString("prefix", "<red>[PluginBans]</red> ");
         String ban = configuration.getString("ban", "");
@@ -35,10 +45,25 @@ public record MessagesConfig(
                 errors.put(key, section.getString(key, ""));
             }
         }
-        return new MessagesConfig(prefix, ban, mute, warn, check, kick, checkBlock, mutedChat, permissionDenied, errors);
+        // Префикс вычисляется при загрузке, а не при каждой отправке сообщения.
+        String effectivePrefix = prefix == null || prefix.isBlank() || LEGACY_PREFIX.equals(prefix) ? DEFAULT_PREFIX : prefix;
+        // Сообщения без подстановок разбираются один раз при загрузке; отправка берёт готовый компонент.
+        Map<String, Component> prefixed = new HashMap<>();
+        List<String> fixed = new ArrayList<>(errors.values());
+        fixed.add(permissionDenied);
+        fixed.add(checkBlock);
+        fixed.add(UNKNOWN_ERROR);
+        MiniMessage miniMessage = MiniMessage.miniMessage();
+        for (String template : fixed) {
+            if (template != null && !template.contains("%")) {
+                prefixed.computeIfAbsent(template, key -> miniMessage.deserialize(effectivePrefix + key));
+            }
+        }
+        return new MessagesConfig(prefix, effectivePrefix, ban, mute, warn, check, kick, checkBlock, mutedChat, permissionDenied,
+                Map.copyOf(errors), Map.copyOf(prefixed));
     }
 
     public String error(String key) {
-        return errors.getOrDefault(key, "<red>Неизвестная ошибка.</red>");
+        return errors.getOrDefault(key, UNKNOWN_ERROR);
     }
 }
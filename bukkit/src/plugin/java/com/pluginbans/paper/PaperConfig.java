@@ -1,8 +1,15 @@
 package com.pluginbans.paper;
 
+import com.pluginbans.core.ClusterConfig;
 import com.pluginbans.core.DatabaseConfig;
+import com.pluginbans.core.EscalationPolicy;
+import com.pluginbans.core.FailStaticConfig;
+import com.pluginbans.core.ProxyVerdictConfig;
+import com.pluginbans.core.RetentionConfig;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 public record PaperConfig(
         DatabaseConfig databaseConfig,
@@ -11,6 +18,7 @@ public record PaperConfig(
         List<String> warnAllowedReasons,
         List<String> warnExternalActors,
         String autoBanReason,
+        EscalationPolicy escalation,
         long checkDurationSeconds,
         long checkTimeoutBanSeconds,
         String checkTimeoutBanReason,
@@ -18,6 +26,47 @@ public record PaperConfig(
         boolean apiEnabled,
         String apiBind,
         int apiPort,
-        String apiToken
+        String apiToken,
+        FailStaticConfig failStatic,
+        ProxyVerdictConfig proxyVerdict,
+        RetentionConfig retention,
+        ClusterConfig cluster,
+        ImportConfig advancedBanImport
 ) {
+    public Optional<String> normalizeWarnReason(String input) {
+        if (input == null) {
+            return Optional.empty();
+        }
+        String normalizedInput = normalize(input);
+        try {
+            int index = Integer.parseInt(normalizedInput);
+            if (index >= 1 && index <= warnAllowedReasons.size()) {
+                return Optional.of(warnAllowedReasons.get(index - 1));
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        for (String reason : warnAllowedReasons) {
+            if (normalize(reason).equals(normalizedInput)) {
+                return Optional.of(reason);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public boolean requiresRestart(PaperConfig next) {
+        // Пул соединений, HTTP-сервер, секрет подписи, планировщик архива и аренда лидера создаются один раз при включении плагина.
+        return !databaseConfig.equals(next.databaseConfig)
+                || syncPollSeconds != next.syncPollSeconds
+                || apiEnabled != next.apiEnabled
+                || !apiBind.equals(next.apiBind)
+                || apiPort != next.apiPort
+                || !apiToken.equals(next.apiToken)
+                || !failStatic.equals(next.failStatic)
+                || !retention.equals(next.retention)
+                || !cluster.equals(next.cluster);
+    }
+
+    static String normalize(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
 }
@@ -3,6 +3,7 @@ package com.pluginbans.paper;
 import com.pluginbans.core.AuditLogger;
 import com.pluginbans.core.DurationFormatter;
 import com.pluginbans.core.IpHashing;
+import com.pluginbans.core.IpRange;
 import com.pluginbans.core.PunishmentCreateEvent;
 import com.pluginbans.core.PunishmentIdGenerator;
 import com.pluginbans.core.PunishmentListener;
@@ -15,6 +16,7 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 
+import java.net.InetSocketAddress;
 import java.time.Instant;
 import java.util.List;
 import java.util.Locale;
@@ -22,14 +24,14 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.function.Supplier;
 
 public final class PaperPunishmentService implements PunishmentListener {
     private final Plugin plugin;
     private final PunishmentService punishmentService;
-    private final PaperConfig config;
-    private final MessagesConfig messages;
+    private final AtomicReference<PaperSettings> settings;
     private final MessageService messageService;
     private final AuditLogger auditLogger;
     private CheckManager checkManager;
@@ -37,16 +39,14 @@ public final class PaperPunishmentService implements PunishmentListener {
     public PaperPunishmentService(
             Plugin plugin,
             PunishmentService punishmentService,
-            PaperConfig config,
-            MessagesConfig messages,
+            PaperSettings settings,
             AuditLogger auditLogger,
             CheckManager checkManager
     ) {
         this.plugin = plugin;
         this.punishmentService = punishmentService;
-        this.config = config;
-        this.messages = messages;
-        this.messageService = new MessageService(messages);
+        this.settings = new AtomicReference<>(settings);
+        this.messageService = new MessageService(this::messages);
         this.auditLogger = auditLogger;
         this.checkManager = checkManager;
     }
@@ -73,7 +73,7 @@ public final class PaperPunishmentService implements PunishmentListener {
         PunishmentRecord record = new PunishmentRecord(
                 uuid,
                 ip,
-                IpHashing.hash(ip),
+                IpRange.isRange(ip) ? null : IpHashing.hash(ip),
                 type,
                 reason,
                 actor,
@@ -85,7 +85,7 @@ public final class PaperPunishmentService implements PunishmentListener {
         );
         auditLogger.log("Наказание: %s -> %s (%s), причина: %s, длительность: %s, скрыто: %s".formatted(
                 actor,
-                uuid,
+                IpRange.NO_PLAYER.equals(uuid) ? ip : uuid,
                 type.name(),
                 reason,
                 DurationFormatter.formatSeconds(durationSeconds),
@@ -95,39 +95,22 @@ public final class PaperPunishmentService implements PunishmentListener {
     }
 
     public Optional<String> normalizeWarnReason(String input) {
-        if (input == null) {
-            return Optional.empty();
-        }
-        String normalizedInput = normalize(input);
-        List<String> allowed = config.warnAllowedReasons();
-        try {
-            int index = Integer.parseInt(normalizedInput);
-            if (index >= 1 && index <= allowed.size()) {
-                return Optional.of(allowed.get(index - 1));
-            }
-        } catch (NumberFormatException ignored) {
-        }
-        for (String reason : allowed) {
-            if (normalize(reason).equals(normalizedInput)) {
-                return Optional.of(reason);
-            }
-        }
-        return Optional.empty();
+        return config().normalizeWarnReason(input);
     }
 
     public boolean canIssueWarnFromExternalActor(String actor) {
         if (actor == null || actor.isBlank()) {
             return false;
         }
-        String normalizedActor = normalize(actor);
-        return config.warnExternalActors().stream()
-                .map(this::normalize)
+        String normalizedActor = PaperConfig.normalize(actor);
+        return config().warnExternalActors().stream()
+                .map(PaperConfig::normalize)
                 .anyMatch(normalizedActor::equals);
     }
 
     public String warnReasonsHint() {
         StringBuilder builder = new StringBuilder();
-        List<String> allowed = config.warnAllowedReasons();
+        List<String> allowed = config().warnAllowedReasons();
         for (int i = 0; i < allowed.size(); i++) {
             if (i > 0) {
                 builder.append(" <gray>|</gray> ");
@@ -137,16 +120,21 @@ public final class PaperPunishmentService implements PunishmentListener {
         return builder.toString();
     }
 
-    private String normalize(String value) {
-        return value.trim().toLowerCase(Locale.ROOT);
-    }
-
     public PunishmentService core() {
         return punishmentService;
     }
 
+    public PaperSettings settings() {
+        return settings.get();
+    }
+
+    public void applySettings(PaperSettings next) {
+        // Снимок заменяется целиком: читатели видят либо старую, либо новую конфигурацию, но не их смесь.
+        settings.set(next);
+    }
+
     public PaperConfig config() {
-        return config;
+        return settings.get().config();
     }
 
     public MessageService messageService() {
@@ -154,7 +142,7 @@ public final class PaperPunishmentService implements PunishmentListener {
     }
 
     public MessagesConfig messages() {
-        return messages;
+        return settings.get().messages();
     }
 
     public void runSync(Runnable runnable) {
@@ -185,22 +173,22 @@ public final class PaperPunishmentService implements PunishmentListener {
         }
         if (record.type() == PunishmentType.CHECK) {
             checkManager.startCheck(record.uuid(), record.endTime());
-            broadcast(record, messages.checkMessage());
+            broadcast(record, messages().checkMessage());
             return;
         }
         if (record.type() == PunishmentType.MUTE) {
-            sendPunished(record, messages.muteMessage());
-            broadcast(record, messages.muteMessage());
+            sendPunished(record, messages().muteMessage());
+            broadcast(record, messages().muteMessage());
             return;
         }
         if (record.type() == PunishmentType.WARN) {
             kickIfOnline(record);
-            broadcast(record, messages.warnMessage());
+            broadcast(record, messages().warnMessage());
             return;
         }
         if (PunishmentRules.isBanLike(record.type())) {
             kickIfOnline(record);
-            broadcast(record, messages.banMessage());
+            broadcast(record, messages().banMessage());
         }
     }
 
@@ -209,8 +197,13 @@ public final class PaperPunishmentService implements PunishmentListener {
             return;
         }
         runSync(() -> {
-            OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(record.uuid());
-            String playerName = java.util.Optional.ofNullable(offlinePlayer.getName()).orElse(record.uuid().toString());
+            String playerName;
+            if (IpRange.NO_PLAYER.equals(record.uuid())) {
+                playerName = record.ip();
+            } else {
+                OfflinePlayer offlinePlayer = Bukkit.getOfflinePlayer(record.uuid());
+                playerName = java.util.Optional.ofNullable(offlinePlayer.getName()).orElse(record.uuid().toString());
+            }
             String time = DurationFormatter.formatSeconds(record.durationSeconds());
             String rendered = messageService.applyPlaceholders(template, Map.of(
                     "%player%", playerName,
@@ -248,24 +241,40 @@ public final class PaperPunishmentService implements PunishmentListener {
     }
 
     private void kickIfOnline(PunishmentRecord record) {
+        Optional<IpRange> range = record.type() == PunishmentType.IPBAN ? IpRange.parse(record.ip()) : Optional.empty();
+        if (range.isPresent()) {
+            runSync(() -> {
+                for (Player player : Bukkit.getOnlinePlayers()) {
+                    InetSocketAddress address = player.getAddress();
+                    if (address != null && address.getAddress() != null && range.get().contains(address.getAddress().getAddress())) {
+                        kick(player, record);
+                    }
+                }
+            });
+            return;
+        }
         runSync(() -> {
             Player player = Bukkit.getPlayer(record.uuid());
-            if (player == null) {
-                return;
+            if (player != null) {
+                kick(player, record);
             }
-            String time = DurationFormatter.formatSeconds(record.durationSeconds());
-            String rendered = messageService.applyPlaceholders(messages.kickMessage(), Map.of(
-                    "%reason%", record.reason(),
-                    "%time%", time,
-                    "%actor%", record.actor(),
-                    "%id%", record.internalId()
-            ));
-            String message = ensureIdInMessage(messages.kickMessage(), rendered, record.internalId());
-            message = messageService.hideIssuerDetails(message);
-            player.kick(messageService.formatRaw(message));
         });
     }
 
+    private void kick(Player player, PunishmentRecord record) {
+        String template = messages().kickMessage();
+        String time = DurationFormatter.formatSeconds(record.durationSeconds());
+        String rendered = messageService.applyPlaceholders(template, Map.of(
+                "%reason%", record.reason(),
+                "%time%", time,
+                "%actor%", record.actor(),
+                "%id%", record.internalId()
+        ));
+        String message = ensureIdInMessage(template, rendered, record.internalId());
+        message = messageService.hideIssuerDetails(message);
+        player.kick(messageService.formatRaw(message));
+    }
+
     private String ensureIdInMessage(String template, String rendered, String id) {
         if (template != null && template.contains("%id%")) {
             return rendered;
@@ -0,0 +1,4 @@
+package com.pluginbans.paper;
+
+public record PaperSettings(PaperConfig config, MessagesConfig messages, PunishMenuConfig menu) {
+}
@@ -1,15 +1,36 @@
 package com.pluginbans.paper;
 
 import com.pluginbans.core.AuditLogger;
+import com.pluginbans.core.CircuitBreakerConfig;
+import com.pluginbans.core.CircuitBreakerPunishmentRepository;
+import com.pluginbans.core.ClusterConfig;
+import com.pluginbans.core.ClusterLeader;
+import com.pluginbans.core.ConfigWatcher;
+import com.pluginbans.core.ConnectionLog;
 import com.pluginbans.core.DatabaseConfig;
 import com.pluginbans.core.DatabaseManager;
 import com.pluginbans.core.DatabaseType;
+import com.pluginbans.core.EscalationLadder;
+import com.pluginbans.core.EscalationPolicy;
+import com.pluginbans.core.EscalationStep;
+import com.pluginbans.core.FailStaticConfig;
+import com.pluginbans.core.FailStaticPolicy;
+import com.pluginbans.core.InstrumentedPunishmentRepository;
 import com.pluginbans.core.JdbcPunishmentRepository;
-import com.pluginbans.core.PunishmentRepository;
+import com.pluginbans.core.MetricsRegistry;
+import com.pluginbans.core.ProxyVerdictConfig;
 import com.pluginbans.core.PunishmentService;
+import com.pluginbans.core.PunishmentType;
+import com.pluginbans.core.RetentionConfig;
+import com.pluginbans.core.RetentionJob;
+import com.pluginbans.core.StorageFormat;
+import com.pluginbans.core.Workload;
+import com.pluginbans.core.WorkloadLimits;
 import org.bukkit.Bukkit;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.PluginCommand;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -21,69 +42,162 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 public final class PluginBansPaper extends JavaPlugin {
     private DatabaseManager databaseManager;
-    private PunishmentRepository repository;
+    private CircuitBreakerPunishmentRepository repository;
     private PaperPunishmentService punishmentService;
     private ForumApiServer forumApiServer;
-    private MessagesConfig messages;
     private PunishmentService coreService;
     private CheckManager checkManager;
     private CustomPunishCommand customPunishCommand;
+    private ConnectionLog connectionLog;
+    private ConfigWatcher configWatcher;
+    private RetentionJob retentionJob;
+    private ClusterLeader clusterLeader;
+    private ClusterLeader retentionLeader;
     @Override
     public void onEnable() {
         saveDefaultConfig();
         saveResource("messages.yml", false);
-        this.messages = loadMessages();
-        PaperConfig config = loadPluginConfig();
-        this.databaseManager = new DatabaseManager(config.databaseConfig());
-        this.repository = new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executor());
-        this.coreService = new PunishmentService(repository, Duration.ofSeconds(Math.max(1L, config.syncPollSeconds())));
-        this.punishmentService = new PaperPunishmentService(this, coreService, config, messages, new AuditLogger(auditPath()), null);
+        PaperSettings settings = loadSettings(getConfig(), loadMessages());
+        PaperConfig config = settings.config();
+        MetricsRegistry metrics = new MetricsRegistry();
+        this.databaseManager = new DatabaseManager(config.databaseConfig(), metrics);
+        this.repository = new CircuitBreakerPunishmentRepository(
+                new InstrumentedPunishmentRepository(
+                        new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executors(), databaseManager.storageFormat()),
+                        metrics
+                ),
+                config.databaseConfig().circuitBreaker()
+        );
+        this.connectionLog = new ConnectionLog(databaseManager.dataSource(), databaseManager.executors());
+        this.coreService = new PunishmentService(repository, Duration.ofSeconds(Math.max(1L, config.syncPollSeconds())), config.failStatic(), metrics);
+        this.coreService.setEscalationPolicy(config.escalation());
+        // Снятие истёкших наказаний и архив выполняет один узел кластера, остальные только читают.
+        String nodeId = config.cluster().nodeIdOr("paper");
+        this.clusterLeader = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.BACKGROUND_LEASE,
+                nodeId, config.cluster().lease());
+        this.clusterLeader.start();
+        this.coreService.setClusterLeader(clusterLeader);
+        this.coreService.enableWarmStart(getDataFolder().toPath().resolve("active-snapshot.bin"));
+        this.punishmentService = new PaperPunishmentService(this, coreService, settings, new AuditLogger(auditPath()), null);
         this.checkManager = new CheckManager(this, punishmentService);
         this.punishmentService.setCheckManager(checkManager);
+        this.coreService.setListenerErrorHandler(punishmentService::logError);
         this.coreService.registerListener(punishmentService);
         registerCommands();
         registerListeners();
         startApiServer(config);
+        startConfigWatcher();
+        this.retentionJob = new RetentionJob(databaseManager.dataSource(), databaseManager.executors(), databaseManager.storageFormat(), config.retention());
+        // Прокси тоже борется за аренду фоновых задач, но архив не ведёт, поэтому у архива своя аренда только для Paper.
+        this.retentionLeader = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.RETENTION_LEASE,
+                nodeId, config.cluster().lease());
+        this.retentionLeader.start();
+        this.retentionJob.setClusterLeader(retentionLeader);
+        this.retentionJob.start();
     }
 
     @Override
     public void onDisable() {
+        if (configWatcher != null) {
+            configWatcher.close();
+        }
         if (forumApiServer != null) {
             forumApiServer.close();
         }
+        if (retentionJob != null) {
+            retentionJob.close();
+        }
         if (coreService != null) {
             coreService.close();
         }
+        if (retentionLeader != null) {
+            retentionLeader.close();
+        }
+        if (clusterLeader != null) {
+            clusterLeader.close();
+        }
+        if (connectionLog != null) {
+            connectionLog.close();
+        }
+        if (repository != null) {
+            repository.close();
+        }
         if (databaseManager != null) {
             databaseManager.close();
         }
     }
 
     private void registerCommands() {
-        registerCommandExecutor("ban", new StandardPunishCommand(punishmentService, messages, StandardPunishCommand.Type.BAN));
-        registerCommandExecutor("tempban", new StandardPunishCommand(punishmentService, messages, StandardPunishCommand.Type.TEMPBAN));
-        registerCommandExecutor("ipban", new StandardPunishCommand(punishmentService, messages, StandardPunishCommand.Type.IPBAN));
-        registerCommandExecutor("mute", new StandardPunishCommand(punishmentService, messages, StandardPunishCommand.Type.MUTE));
-        registerCommandExecutor("warn", new StandardPunishCommand(punishmentService, messages, StandardPunishCommand.Type.WARN));
-        this.customPunishCommand = new CustomPunishCommand(this, punishmentService, messages);
+        registerCommandExecutor("ban", new StandardPunishCommand(punishmentService, StandardPunishCommand.Type.BAN));
+        registerCommandExecutor("tempban", new StandardPunishCommand(punishmentService, StandardPunishCommand.Type.TEMPBAN));
+        registerCommandExecutor("ipban", new StandardPunishCommand(punishmentService, StandardPunishCommand.Type.IPBAN));
+        registerCommandExecutor("mute", new StandardPunishCommand(punishmentService, StandardPunishCommand.Type.MUTE));
+        registerCommandExecutor("warn", new StandardPunishCommand(punishmentService, StandardPunishCommand.Type.WARN));
+        this.customPunishCommand = new CustomPunishCommand(punishmentService);
         registerCommandExecutor("punish", customPunishCommand);
-        registerCommandExecutor("checkpunish", new CheckPunishCommand(punishmentService, messages));
-        registerCommandExecutor("unpunish", new UnpunishCommand(punishmentService, messages));
+        registerCommandExecutor("checkpunish", new CheckPunishCommand(punishmentService));
+        registerCommandExecutor("unpunish", new UnpunishCommand(punishmentService));
+        registerCommandExecutor("alts", new AltsCommand(punishmentService, connectionLog));
+        registerCommandExecutor("pbsearch", new SearchCommand(punishmentService));
+        registerCommandExecutor("pbstats", new StatsCommand(punishmentService));
+        registerCommandExecutor("pbimport", new ImportCommand(this, punishmentService, databaseManager));
     }
 
     private void registerListeners() {
-        Bukkit.getPluginManager().registerEvents(new PunishmentListener(punishmentService, checkManager, messages), this);
+        Bukkit.getPluginManager().registerEvents(new PunishmentListener(punishmentService, checkManager, connectionLog), this);
         if (customPunishCommand != null) {
             Bukkit.getPluginManager().registerEvents(customPunishCommand, this);
         }
+        Bukkit.getPluginManager().registerEvents(new TabCompletionService(this, punishmentService), this);
+    }
+
+    private void startConfigWatcher() {
+        try {
+            this.configWatcher = new ConfigWatcher(getDataFolder().toPath(), Set.of("config.yml", "messages.yml"), this::reloadSettings);
+        } catch (IllegalStateException exception) {
+            getLogger().warning("Автоперезагрузка конфигурации отключена: " + exception.getMessage());
+        }
     }
 
-    private PaperConfig loadPluginConfig() {
-        FileConfiguration config = getConfig();
+    private void reloadSettings(Set<String> changedFiles) {
+        // Вызывается из потока наблюдения: новый снимок собирается целиком здесь, игровые потоки только читают ссылку.
+        PaperSettings current = punishmentService.settings();
+        PaperSettings next;
+        try {
+            next = loadSettings(readYaml("config.yml"), MessagesConfig.from(readYaml("messages.yml")));
+        } catch (IOException | InvalidConfigurationException exception) {
+            getLogger().warning("Конфигурация не перечитана, остаётся прежняя: " + exception.getMessage());
+            return;
+        }
+        if (current.config().requiresRestart(next.config())) {
+            getLogger().warning("Изменения в database, api, fail-static и sync применятся только после перезапуска.");
+        }
+        punishmentService.applySettings(next);
+        coreService.setEscalationPolicy(next.config().escalation());
+        getLogger().info("Конфигурация перечитана: " + String.join(", ", changedFiles));
+    }
+
+    private FileConfiguration readYaml(String fileName) throws IOException, InvalidConfigurationException {
+        // В отличие от loadConfiguration, ошибка разбора не подменяет файл пустой конфигурацией со значениями по умолчанию.
+        YamlConfiguration configuration = new YamlConfiguration();
+        configuration.load(new File(getDataFolder(), fileName));
+        return configuration;
+    }
+
+    private PaperSettings loadSettings(FileConfiguration configuration, MessagesConfig messages) {
+        PaperConfig config = loadPluginConfig(configuration);
+        return new PaperSettings(config, messages, PunishMenuConfig.from(configuration, config, getLogger()));
+    }
+
+    private PaperConfig loadPluginConfig(FileConfiguration config) {
         DatabaseType type = DatabaseType.valueOf(config.getString("database.type", "SQLITE").toUpperCase());
         String sqlitePath = resolveSqlitePath(config.getString("database.sqlite.file", "pluginbans.db"));
         long syncPollSeconds = Math.max(1L, config.getLong("sync.poll-seconds", 2L));
@@ -103,7 +217,10 @@ public final class PluginBansPaper extends JavaPlugin {
                 config.getString("database.mysql.user", "root"),
                 config.getString("database.mysql.password", ""),
                 sqlitePath,
-                config.getInt("database.pool-size", 10)
+                config.getInt("database.pool-size", 10),
+                loadCircuitBreakerConfig(config),
+                loadWorkloadLimits(config),
+                loadStorageFormat(config)
         );
         long warnDuration = config.getLong("punish.warn-duration-seconds", 1209600L);
         String autoBanReason = config.getString(
@@ -125,6 +242,7 @@ public final class PluginBansPaper extends JavaPlugin {
                 warnAllowedReasons,
                 warnExternalActors,
                 autoBanReason,
+                loadEscalationPolicy(config, autoBanReason),
                 checkDurationSeconds,
                 checkTimeoutBanSeconds,
                 checkTimeoutBanReason,
@@ -132,10 +250,129 @@ public final class PluginBansPaper extends JavaPlugin {
                 apiEnabled,
                 apiBind,
                 apiPort,
-                apiToken
+                apiToken,
+                loadFailStaticConfig(config),
+                new ProxyVerdictConfig(
+                        config.getBoolean("proxy-verdict.enabled", false),
+                        config.getString("proxy-verdict.secret", ""),
+                        Duration.ofSeconds(Math.max(1L, config.getLong("proxy-verdict.max-age-seconds", 10L))),
+                        Duration.ofSeconds(Math.max(1L, config.getLong("proxy-verdict.max-staleness-seconds", 30L)))
+                ),
+                loadRetentionConfig(config),
+                new ClusterConfig(
+                        config.getString("cluster.node-id", ""),
+                        Duration.ofSeconds(Math.max(3L, config.getLong("cluster.lease-seconds", ClusterConfig.defaults().lease().toSeconds())))
+                ),
+                new ImportConfig(
+                        config.getString("import.advancedban.jdbc-url", ""),
+                        config.getString("import.advancedban.user", ""),
+                        config.getString("import.advancedban.password", "")
+                )
+        );
+    }
+
+    private RetentionConfig loadRetentionConfig(FileConfiguration config) {
+        RetentionConfig defaults = RetentionConfig.defaults();
+        return new RetentionConfig(
+                config.getBoolean("retention.enabled", defaults.enabled()),
+                Duration.ofDays(Math.max(1L, config.getLong("retention.max-age-days", defaults.maxAge().toDays()))),
+                Math.max(1, config.getInt("retention.chunk-size", defaults.chunkSize())),
+                Duration.ofMillis(Math.max(1L, config.getLong("retention.chunk-millis", defaults.chunkBudget().toMillis()))),
+                Duration.ofSeconds(Math.max(1L, config.getLong("retention.run-seconds", defaults.runBudget().toSeconds()))),
+                Duration.ofMinutes(Math.max(1L, config.getLong("retention.interval-minutes", defaults.interval().toMinutes())))
+        );
+    }
+
+    private CircuitBreakerConfig loadCircuitBreakerConfig(FileConfiguration config) {
+        CircuitBreakerConfig defaults = CircuitBreakerConfig.defaults();
+        return new CircuitBreakerConfig(
+                config.getBoolean("database.circuit-breaker.enabled", defaults.enabled()),
+                Math.max(1, config.getInt("database.circuit-breaker.window-size", defaults.windowSize())),
+                Math.max(1, config.getInt("database.circuit-breaker.minimum-calls", defaults.minimumCalls())),
+                config.getDouble("database.circuit-breaker.failure-rate", defaults.failureRateThreshold()),
+                Duration.ofMillis(Math.max(1L, config.getLong("database.circuit-breaker.slow-call-ms", defaults.slowCallThreshold().toMillis()))),
+                config.getDouble("database.circuit-breaker.slow-call-rate", defaults.slowCallRateThreshold()),
+                Duration.ofSeconds(Math.max(1L, config.getLong("database.circuit-breaker.probe-seconds", defaults.probeInterval().toSeconds())))
         );
     }
 
+    private StorageFormat loadStorageFormat(FileConfiguration config) {
+        String value = config.getString("database.storage-format", "TEXT");
+        try {
+            return StorageFormat.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            getLogger().warning("Неизвестный database.storage-format: " + value + ", используется TEXT.");
+            return StorageFormat.TEXT;
+        }
+    }
+
+    private Map<Workload, WorkloadLimits> loadWorkloadLimits(FileConfiguration config) {
+        Map<Workload, WorkloadLimits> limits = new EnumMap<>(WorkloadLimits.defaultsFor(config.getInt("database.pool-size", 10)));
+        for (Workload workload : Workload.values()) {
+            String path = "database.workloads." + workload.name().toLowerCase(Locale.ROOT);
+            WorkloadLimits defaults = limits.get(workload);
+            limits.put(workload, new WorkloadLimits(
+                    config.getInt(path + ".threads", defaults.threads()),
+                    config.getInt(path + ".queue-depth", defaults.queueDepth()),
+                    Duration.ofMillis(Math.max(0L, config.getLong(path + ".max-wait-ms", defaults.maxQueueWait().toMillis())))
+            ));
+        }
+        return limits;
+    }
+
+    private FailStaticConfig loadFailStaticConfig(FileConfiguration config) {
+        FailStaticConfig defaults = FailStaticConfig.defaults();
+        Map<PunishmentType, FailStaticPolicy> policies = new EnumMap<>(defaults.policies());
+        ConfigurationSection section = config.getConfigurationSection("fail-static.policies");
+        if (section != null) {
+            for (String key : section.getKeys(false)) {
+                try {
+                    PunishmentType type = PunishmentType.valueOf(key.toUpperCase(Locale.ROOT));
+                    policies.put(type, FailStaticPolicy.valueOf(section.getString(key, "ENFORCE").toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException exception) {
+                    getLogger().warning("Пропущена запись fail-static.policies: " + key);
+                }
+            }
+        }
+        return new FailStaticConfig(config.getBoolean("fail-static.enabled", defaults.enabled()), policies);
+    }
+
+    private EscalationPolicy loadEscalationPolicy(FileConfiguration config, String autoBanReason) {
+        if (!config.getBoolean("escalation.enabled", true)) {
+            return EscalationPolicy.none();
+        }
+        if (!config.isList("escalation.ladders")) {
+            return EscalationPolicy.defaults(autoBanReason);
+        }
+        List<EscalationLadder> ladders = new ArrayList<>();
+        for (Map<?, ?> entry : config.getMapList("escalation.ladders")) {
+            try {
+                List<EscalationStep> steps = new ArrayList<>();
+                Object rawSteps = entry.get("steps");
+                if (rawSteps instanceof List<?> list) {
+                    for (Object rawStep : list) {
+                        if (rawStep instanceof Map<?, ?> step) {
+                            steps.add(new EscalationStep(
+                                    Integer.parseInt(String.valueOf(step.get("count"))),
+                                    PunishmentType.valueOf(String.valueOf(step.get("action")).toUpperCase(Locale.ROOT)),
+                                    step.get("duration-seconds") == null ? 0L : Long.parseLong(String.valueOf(step.get("duration-seconds"))),
+                                    step.get("reason") == null ? autoBanReason : String.valueOf(step.get("reason"))
+                            ));
+                        }
+                    }
+                }
+                ladders.add(new EscalationLadder(
+                        PunishmentType.valueOf(String.valueOf(entry.get("trigger")).toUpperCase(Locale.ROOT)),
+                        entry.get("reason") == null ? null : String.valueOf(entry.get("reason")),
+                        steps
+                ));
+            } catch (IllegalArgumentException exception) {
+                getLogger().warning("Пропущена лестница escalation.ladders: " + entry + " (" + exception.getMessage() + ")");
+            }
+        }
+        return new EscalationPolicy(ladders);
+    }
+
     private MessagesConfig loadMessages() {
         File file = new File(getDataFolder(), "messages.yml");
         FileConfiguration configuration = YamlConfiguration.loadConfiguration(file);
@@ -223,7 +460,7 @@ public final class PluginBansPaper extends JavaPlugin {
             return;
         }
         try {
-            this.forumApiServer = new ForumApiServer(punishmentService, config);
+            this.forumApiServer = new ForumApiServer(punishmentService, config, connectionLog);
             this.forumApiServer.start();
             getLogger().info("Forum API enabled on " + config.apiBind() + ":" + config.apiPort());
         } catch (Exception exception) {
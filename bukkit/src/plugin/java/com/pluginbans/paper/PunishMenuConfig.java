@@ -0,0 +1,119 @@
+package com.pluginbans.paper;
+
+import com.pluginbans.core.DurationParser;
+import com.pluginbans.core.PunishmentType;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+public record PunishMenuConfig(List<MenuPunishment> punishments, PunishMenuTemplate template) {
+    static final int MAX_PUNISHMENTS = PunishMenuTemplate.OPTION_SLOTS.length;
+
+    public static PunishMenuConfig from(FileConfiguration configuration, PaperConfig config, Logger logger) {
+        String title = configuration.getString("punish.menu.title", "<dark_red>Выдача наказания</dark_red>");
+        List<MenuPunishment> punishments = new ArrayList<>();
+        for (Map<?, ?> entry : configuration.getMapList("punish.menu.punishments")) {
+            if (punishments.size() >= MAX_PUNISHMENTS) {
+                break;
+            }
+            MenuPunishment punishment = parse(entry, config, logger);
+            if (punishment != null) {
+                punishments.add(punishment);
+            }
+        }
+        if (!configuration.getMapList("punish.menu.punishments").isEmpty() && punishments.isEmpty()) {
+            logger.warning("Все записи punish.menu.punishments невалидны, меню будет пустым.");
+        }
+        Component titleComponent = MiniMessage.miniMessage().deserialize(title);
+        return new PunishMenuConfig(List.copyOf(punishments), PunishMenuTemplate.compile(titleComponent, punishments));
+    }
+
+    private static MenuPunishment parse(Map<?, ?> entry, PaperConfig config, Logger logger) {
+        String typeRaw = readString(entry.get("type"));
+        String reason = readString(entry.get("reason"));
+        if (typeRaw == null || typeRaw.isBlank() || reason == null || reason.isBlank()) {
+            return null;
+        }
+        PunishmentType type;
+        try {
+            type = PunishmentType.valueOf(typeRaw.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException exception) {
+            logger.warning("Пропущена запись punish.menu.punishments: неверный type=" + typeRaw);
+            return null;
+        }
+        long durationSeconds = resolveDuration(entry, type, config, logger);
+        if (durationSeconds < 0L) {
+            logger.warning("Пропущена запись punish.menu.punishments: duration должен быть >= 0");
+            return null;
+        }
+        if (type == PunishmentType.TEMPBAN && durationSeconds == 0L) {
+            logger.warning("Пропущена запись punish.menu.punishments: TEMPBAN требует duration > 0");
+            return null;
+        }
+        if (type == PunishmentType.WARN && config.normalizeWarnReason(reason).isEmpty()) {
+            logger.warning("Пропущена запись punish.menu.punishments: WARN reason должен быть в warn.allowed-reasons");
+            return null;
+        }
+        String name = readString(entry.get("name"));
+        if (name == null || name.isBlank()) {
+            name = "<red>" + type.name() + "</red>";
+        }
+        List<String> lore = readStringList(entry.get("lore"));
+        boolean silent = readBoolean(entry.get("silent"));
+        boolean nnr = readBoolean(entry.get("nnr"));
+        return new MenuPunishment(name, lore, type, durationSeconds, reason.trim(), silent, nnr);
+    }
+
+    private static long resolveDuration(Map<?, ?> entry, PunishmentType type, PaperConfig config, Logger logger) {
+        Object rawSeconds = entry.get("duration-seconds");
+        if (rawSeconds instanceof Number number) {
+            return number.longValue();
+        }
+        String durationRaw = readString(entry.get("duration"));
+        if (durationRaw != null && !durationRaw.isBlank()) {
+            try {
+                return DurationParser.parseToSeconds(durationRaw.trim());
+            } catch (IllegalArgumentException exception) {
+                logger.warning("Неверная duration в punish.menu.punishments: " + durationRaw);
+                return -1L;
+            }
+        }
+        if (type == PunishmentType.WARN) {
+            return config.warnDurationSeconds();
+        }
+        return 0L;
+    }
+
+    private static String readString(Object value) {
+        return value == null ? null : String.valueOf(value);
+    }
+
+    private static List<String> readStringList(Object value) {
+        if (!(value instanceof List<?> rawList)) {
+            return List.of();
+        }
+        List<String> lines = new ArrayList<>(rawList.size());
+        for (Object entry : rawList) {
+            if (entry != null) {
+                lines.add(String.valueOf(entry));
+            }
+        }
+        return List.copyOf(lines);
+    }
+
+    private static boolean readBoolean(Object value) {
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value == null) {
+            return false;
+        }
+        return Boolean.parseBoolean(String.valueOf(value));
+    }
+}
@@ -0,0 +1,151 @@
+package com.pluginbans.paper;
+
+import com.pluginbans.core.DurationFormatter;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class PunishMenuTemplate {
+    static final int INVENTORY_SIZE = 27;
+    static final int[] OPTION_SLOTS = {10, 11, 12, 13, 14};
+    static final Material EMPTY_PRIMARY_MATERIAL = Material.GRAY_DYE;
+    private static final Material BORDER_MATERIAL = Material.RED_STAINED_GLASS_PANE;
+    private static final Material OPTION_MATERIAL = Material.FERMENTED_SPIDER_EYE;
+    private static final String PLAYER_PLACEHOLDER = "%player%";
+    private static final List<String> DEFAULT_LORE = List.of(
+            "<gray>Игрок:</gray> <white>%player%</white>",
+            "<gray>Тип:</gray> <white>%type%</white>",
+            "<gray>Причина:</gray> <white>%reason%</white>",
+            "<gray>Срок:</gray> <white>%time%</white>",
+            "<green>Нажмите, чтобы выдать</green>"
+    );
+
+    private final Component title;
+    private final ItemStack[] contents;
+    private final MenuPunishment[] punishmentsBySlot;
+    private final List<Option> personalized;
+
+    private PunishMenuTemplate(Component title, ItemStack[] contents, MenuPunishment[] punishmentsBySlot, List<Option> personalized) {
+        this.title = title;
+        this.contents = contents;
+        this.punishmentsBySlot = punishmentsBySlot;
+        this.personalized = personalized;
+    }
+
+    public static PunishMenuTemplate compile(Component title, List<MenuPunishment> punishments) {
+        MiniMessage miniMessage = MiniMessage.miniMessage();
+        ItemStack[] contents = new ItemStack[INVENTORY_SIZE];
+        MenuPunishment[] bySlot = new MenuPunishment[INVENTORY_SIZE];
+        List<Option> personalized = new ArrayList<>();
+        ItemStack border = item(BORDER_MATERIAL, miniMessage.deserialize(" "), List.of());
+        for (int slot = 0; slot <= 8; slot++) {
+            contents[slot] = border;
+        }
+        for (int slot = 18; slot <= 26; slot++) {
+            contents[slot] = border;
+        }
+        contents[9] = border;
+        contents[15] = border;
+        ItemStack empty = item(OPTION_MATERIAL, miniMessage.deserialize("<gray>Пустой слот</gray>"), List.of(
+                miniMessage.deserialize("<dark_gray>Добавьте наказание в config.yml</dark_gray>"),
+                miniMessage.deserialize("<dark_gray>punish.menu.punishments</dark_gray>")
+        ));
+        for (int i = 0; i < OPTION_SLOTS.length; i++) {
+            int slot = OPTION_SLOTS[i];
+            if (i >= punishments.size()) {
+                contents[slot] = empty;
+                continue;
+            }
+            MenuPunishment punishment = punishments.get(i);
+            bySlot[slot] = punishment;
+            Option option = compileOption(miniMessage, slot, punishment);
+            contents[slot] = option.base();
+            if (option.personalized()) {
+                personalized.add(option);
+            }
+        }
+        if (punishments.isEmpty()) {
+            contents[OPTION_SLOTS[0]] = item(EMPTY_PRIMARY_MATERIAL, miniMessage.deserialize("<gray>Пока ничего нет</gray>"), List.of(
+                    miniMessage.deserialize("<dark_gray>Пока ничего нет</dark_gray>"),
+                    miniMessage.deserialize("<dark_gray>Настройте punish.menu.punishments в config.yml</dark_gray>")
+            ));
+        }
+        return new PunishMenuTemplate(title, contents, bySlot, List.copyOf(personalized));
+    }
+
+    private static Option compileOption(MiniMessage miniMessage, int slot, MenuPunishment punishment) {
+        List<String> lines = punishment.lore().isEmpty() ? DEFAULT_LORE : punishment.lore();
+        String time = DurationFormatter.formatSeconds(punishment.durationSeconds());
+        List<LoreLine> lore = new ArrayList<>(lines.size());
+        boolean personalized = false;
+        for (String line : lines) {
+            // Всё, кроме имени цели, известно заранее и подставляется один раз при сборке шаблона.
+            String rendered = line
+                    .replace("%type%", punishment.type().name())
+                    .replace("%reason%", punishment.reason())
+                    .replace("%time%", time);
+            if (rendered.contains(PLAYER_PLACEHOLDER)) {
+                lore.add(new LoreLine(null, rendered));
+                personalized = true;
+            } else {
+                lore.add(new LoreLine(miniMessage.deserialize(rendered), null));
+            }
+        }
+        Component name = miniMessage.deserialize(punishment.name());
+        List<Component> staticLore = new ArrayList<>(lore.size());
+        for (LoreLine line : lore) {
+            staticLore.add(line.fixed() != null ? line.fixed() : miniMessage.deserialize(line.raw().replace(PLAYER_PLACEHOLDER, "")));
+        }
+        return new Option(slot, item(OPTION_MATERIAL, name, staticLore), List.copyOf(lore), personalized);
+    }
+
+    private static ItemStack item(Material material, Component name, List<Component> lore) {
+        ItemStack item = new ItemStack(material);
+        ItemMeta meta = item.getItemMeta();
+        meta.displayName(name);
+        if (!lore.isEmpty()) {
+            meta.lore(lore);
+        }
+        item.setItemMeta(meta);
+        return item;
+    }
+
+    public Component title() {
+        return title;
+    }
+
+    public MenuPunishment punishmentAt(int slot) {
+        return slot >= 0 && slot < punishmentsBySlot.length ? punishmentsBySlot[slot] : null;
+    }
+
+    public void fill(Inventory inventory, String targetName, boolean fresh) {
+        if (fresh) {
+            inventory.setContents(contents);
+        }
+        // В переиспользуемом инвентаре рамка и статичные предметы уже на месте, меняются только слоты с именем цели.
+        MiniMessage miniMessage = MiniMessage.miniMessage();
+        for (Option option : personalized) {
+            ItemStack item = option.base().clone();
+            ItemMeta meta = item.getItemMeta();
+            List<Component> lore = new ArrayList<>(option.lore().size());
+            for (LoreLine line : option.lore()) {
+                lore.add(line.fixed() != null ? line.fixed() : miniMessage.deserialize(line.raw().replace(PLAYER_PLACEHOLDER, targetName)));
+            }
+            meta.lore(lore);
+            item.setItemMeta(meta);
+            inventory.setItem(option.slot(), item);
+        }
+    }
+
+    private record LoreLine(Component fixed, String raw) {
+    }
+
+    private record Option(int slot, ItemStack base, List<LoreLine> lore, boolean personalized) {
+    }
+}
@@ -1,6 +1,11 @@
 package com.pluginbans.paper;
 
+import com.destroystokyo.paper.profile.PlayerProfile;
+import com.destroystokyo.paper.profile.ProfileProperty;
+import com.pluginbans.core.ConnectionLog;
 import com.pluginbans.core.DurationFormatter;
+import com.pluginbans.core.LoginVerdict;
+import com.pluginbans.core.ProxyVerdictConfig;
 import com.pluginbans.core.PunishmentRecord;
 import com.pluginbans.core.PunishmentRules;
 import com.pluginbans.core.PunishmentType;
@@ -15,6 +20,7 @@ import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -25,18 +31,23 @@ public final class PunishmentListener implements Listener {
     private static final Pattern ANYDESK_PATTERN = Pattern.compile("^\\d{6,19}$");
     private final PaperPunishmentService service;
     private final CheckManager checkManager;
-    private final MessagesConfig messages;
+    private final ConnectionLog connectionLog;
+    private final LoginHandoff loginHandoff = new LoginHandoff();
 
-    public PunishmentListener(PaperPunishmentService service, CheckManager checkManager, MessagesConfig messages) {
+    public PunishmentListener(PaperPunishmentService service, CheckManager checkManager, ConnectionLog connectionLog) {
         this.service = service;
         this.checkManager = checkManager;
-        this.messages = messages;
+        this.connectionLog = connectionLog;
     }
 
     @EventHandler
     public void onPreLogin(AsyncPlayerPreLoginEvent event) {
         String ip = event.getAddress() == null ? null : event.getAddress().getHostAddress();
         UUID uuid = event.getUniqueId();
+        if (acceptProxyVerdict(event, uuid, ip)) {
+            loginHandoff.put(uuid, ip, List.of(), null);
+            return;
+        }
         List<PunishmentRecord> punishments;
         try {
             punishments = service.core().getActiveForConnection(uuid, ip).join();
@@ -50,21 +61,11 @@ public final class PunishmentListener implements Listener {
         Optional<PunishmentRecord> ban = punishments.stream()
                 .filter(record -> PunishmentRules.blocksLogin(record.type()))
                 .findFirst();
-        if (ban.isEmpty()) {
-            return;
+        Component component = ban.map(this::kickMessage).orElse(null);
+        loginHandoff.put(uuid, ip, punishments, component);
+        if (component != null) {
+            event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, component);
         }
-        PunishmentRecord record = ban.get();
-        String time = DurationFormatter.formatSeconds(record.durationSeconds());
-        String rendered = service.messageService().applyPlaceholders(messages.kickMessage(), Map.of(
-                "%reason%", record.reason(),
-                "%time%", time,
-                "%actor%", record.actor(),
-                "%id%", record.internalId()
-        ));
-        String message = withIdIfMissing(messages.kickMessage(), rendered, record.internalId());
-        message = service.messageService().hideIssuerDetails(message);
-        Component component = service.messageService().formatRaw(message);
-        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_BANNED, component);
     }
 
     @EventHandler
@@ -76,7 +77,7 @@ public final class PunishmentListener implements Listener {
                 checkManager.pause(uuid);
                 notifyStaffAnyDesk(event.getPlayer().getName(), messageText);
             } else {
-                event.getPlayer().sendMessage(service.messageService().format(messages.checkBlockMessage()));
+                event.getPlayer().sendMessage(service.messageService().format(service.messages().checkBlockMessage()));
             }
             event.setCancelled(true);
             return;
@@ -122,33 +123,38 @@ public final class PunishmentListener implements Listener {
         UUID uuid = event.getPlayer().getUniqueId();
         String ip = event.getPlayer().getAddress() == null ? null : event.getPlayer().getAddress().getAddress().getHostAddress();
         service.core().track(uuid, ip);
+        connectionLog.record(uuid, ip);
+        Optional<LoginHandoff.Entry> handoff = loginHandoff.take(uuid, ip);
+        if (handoff.isPresent()) {
+            // Наказания уже загружены при предварительном входе: решение принимается сразу, без повторного запроса.
+            LoginHandoff.Entry entry = handoff.get();
+            if (entry.kickMessage() != null) {
+                org.bukkit.entity.Player player = event.getPlayer();
+                service.runSync(() -> {
+                    if (player.isOnline()) {
+                        player.kick(entry.kickMessage());
+                    }
+                });
+                return;
+            }
+            startCheckIfPresent(uuid, entry.punishments());
+            return;
+        }
         service.core().getActiveForConnection(uuid, ip).thenAccept(punishments -> {
             Optional<PunishmentRecord> ban = punishments.stream()
                     .filter(record -> PunishmentRules.blocksLogin(record.type()))
                     .findFirst();
             if (ban.isPresent()) {
-                PunishmentRecord record = ban.get();
-                String time = DurationFormatter.formatSeconds(record.durationSeconds());
-                String rendered = service.messageService().applyPlaceholders(messages.kickMessage(), Map.of(
-                        "%reason%", record.reason(),
-                        "%time%", time,
-                        "%actor%", record.actor(),
-                        "%id%", record.internalId()
-                ));
-                String message = withIdIfMissing(messages.kickMessage(), rendered, record.internalId());
-                String finalMessage = service.messageService().hideIssuerDetails(message);
+                Component component = kickMessage(ban.get());
                 service.runSync(() -> {
                     org.bukkit.entity.Player online = org.bukkit.Bukkit.getPlayer(uuid);
                     if (online != null && online.isOnline()) {
-                        online.kick(service.messageService().formatRaw(finalMessage));
+                        online.kick(component);
                     }
                 });
                 return;
             }
-            Optional<PunishmentRecord> check = punishments.stream()
-                    .filter(record -> record.type() == PunishmentType.CHECK)
-                    .findFirst();
-            check.ifPresent(record -> checkManager.startCheck(uuid, record.endTime()));
+            startCheckIfPresent(uuid, punishments);
         }).exceptionally(exception -> {
             service.logError("Не удалось обработать активные наказания после входа: " + uuid, exception);
             return null;
@@ -181,9 +187,54 @@ public final class PunishmentListener implements Listener {
     @EventHandler
     public void onQuit(PlayerQuitEvent event) {
         checkManager.stopCheck(event.getPlayer().getUniqueId());
+        loginHandoff.discard(event.getPlayer().getUniqueId());
         service.core().untrack(event.getPlayer().getUniqueId());
     }
 
+    private boolean acceptProxyVerdict(AsyncPlayerPreLoginEvent event, UUID uuid, String ip) {
+        PlayerProfile profile = event.getPlayerProfile();
+        Optional<ProfileProperty> property = profile.getProperties().stream()
+                .filter(candidate -> LoginVerdict.PROPERTY.equals(candidate.getName()))
+                .findFirst();
+        if (property.isEmpty()) {
+            return false;
+        }
+        // Служебное свойство не должно попасть в профиль, который видят другие игроки.
+        profile.removeProperty(LoginVerdict.PROPERTY);
+        event.setPlayerProfile(profile);
+        ProxyVerdictConfig verdictConfig = service.config().proxyVerdict();
+        if (!verdictConfig.usable()) {
+            return false;
+        }
+        boolean trusted = LoginVerdict.verify(property.get().getValue(), verdictConfig.secretBytes())
+                .filter(verdict -> verdict.clean() && verdict.uuid().equals(uuid))
+                .filter(verdict -> verdict.isFresh(Instant.now(), verdictConfig.maxAge()))
+                .filter(verdict -> verdict.isStateCurrent(verdictConfig.maxStaleness()))
+                .isPresent();
+        // Наказание, о котором прокси ещё не знает, но которое уже есть в локальном индексе, требует полной проверки.
+        return trusted && service.core().knownActiveForConnection(uuid, ip).isEmpty();
+    }
+
+    private void startCheckIfPresent(UUID uuid, List<PunishmentRecord> punishments) {
+        punishments.stream()
+                .filter(record -> record.type() == PunishmentType.CHECK)
+                .findFirst()
+                .ifPresent(record -> checkManager.startCheck(uuid, record.endTime()));
+    }
+
+    private Component kickMessage(PunishmentRecord record) {
+        String template = service.messages().kickMessage();
+        String time = DurationFormatter.formatSeconds(record.durationSeconds());
+        String rendered = service.messageService().applyPlaceholders(template, Map.of(
+                "%reason%", record.reason(),
+                "%time%", time,
+                "%actor%", record.actor(),
+                "%id%", record.internalId()
+        ));
+        String message = withIdIfMissing(template, rendered, record.internalId());
+        return service.messageService().formatRaw(service.messageService().hideIssuerDetails(message));
+    }
+
     private void notifyStaffAnyDesk(String playerName, String code) {
         String message = "<yellow>Игрок <white>%s</white> передал AnyDesk: <green>%s</green></yellow>".formatted(playerName, code);
         org.bukkit.Bukkit.getOnlinePlayers().stream()
@@ -192,13 +243,14 @@ public final class PunishmentListener implements Listener {
     }
 
     private String muteBlockedMessage(PunishmentRecord mute, String originalMessage) {
-        String rendered = service.messageService().applyPlaceholders(messages.mutedChatMessage(), Map.of(
+        String template = service.messages().mutedChatMessage();
+        String rendered = service.messageService().applyPlaceholders(template, Map.of(
                 "%reason%", mute.reason(),
                 "%time%", DurationFormatter.formatSeconds(mute.durationSeconds()),
                 "%id%", mute.internalId(),
                 "%message%", originalMessage == null ? "" : originalMessage
         ));
-        return withIdIfMissing(messages.mutedChatMessage(), rendered, mute.internalId());
+        return withIdIfMissing(template, rendered, mute.internalId());
     }
 
     private String withIdIfMissing(String template, String rendered, String id) {
@@ -0,0 +1,114 @@
+package com.pluginbans.paper;
+
+import com.pluginbans.core.PunishmentRecord;
+import com.pluginbans.core.PunishmentType;
+import com.pluginbans.core.SearchPage;
+import com.pluginbans.core.SearchQuery;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class SearchCommand implements CommandExecutor {
+    private static final int PAGE_SIZE = 10;
+    private static final String NEXT_PAGE = "дальше";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy HH:mm")
+            .withZone(ZoneId.systemDefault());
+
+    private final PaperPunishmentService service;
+    // Курсор следующей страницы хранится на отправителя, чтобы "/pbsearch дальше" не повторял запрос целиком.
+    private final Map<String, SearchQuery> nextPages = new ConcurrentHashMap<>();
+
+    public SearchCommand(PaperPunishmentService service) {
+        this.service = service;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("bans.search") && !sender.hasPermission("bans.fullaccess")) {
+            service.messageService().send(sender, service.messages().permissionDenied());
+            return true;
+        }
+        if (args.length == 0) {
+            service.messageService().send(sender, "<red>Использование:</red> <white>" + command.getUsage() + "</white>");
+            return true;
+        }
+        SearchQuery query;
+        if (args.length == 1 && NEXT_PAGE.equalsIgnoreCase(args[0])) {
+            query = nextPages.get(sender.getName());
+            if (query == null) {
+                service.messageService().send(sender, "<gray>Следующей страницы нет.</gray>");
+                return true;
+            }
+        } else {
+            try {
+                query = parse(args);
+            } catch (IllegalArgumentException exception) {
+                service.messageService().send(sender, "<red>" + exception.getMessage() + "</red>");
+                return true;
+            }
+        }
+        SearchQuery current = query;
+        service.core().search(current).whenComplete((page, throwable) -> {
+            if (throwable != null) {
+                service.logError("Не удалось выполнить поиск наказаний", throwable);
+                service.runSync(() -> service.messageService().send(sender, "<red>Не удалось выполнить поиск.</red>"));
+                return;
+            }
+            if (page.nextCursor() == null) {
+                nextPages.remove(sender.getName());
+            } else {
+                nextPages.put(sender.getName(), new SearchQuery(current.text(), current.actor(), current.type(),
+                        SearchPage.parseCursor(page.nextCursor()), current.limit()));
+            }
+            service.runSync(() -> sendPage(sender, page));
+        });
+        return true;
+    }
+
+    private SearchQuery parse(String[] args) {
+        List<String> words = new ArrayList<>();
+        String actor = null;
+        PunishmentType type = null;
+        for (String arg : args) {
+            String lower = arg.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("actor:") && arg.length() > 6) {
+                actor = arg.substring(6);
+            } else if (lower.startsWith("type:") && arg.length() > 5) {
+                try {
+                    type = PunishmentType.valueOf(arg.substring(5).toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException exception) {
+                    throw new IllegalArgumentException("Неизвестный тип наказания: " + arg.substring(5));
+                }
+            } else {
+                words.add(arg);
+            }
+        }
+        return new SearchQuery(String.join(" ", words), actor, type, 0L, PAGE_SIZE);
+    }
+
+    private void sendPage(CommandSender sender, SearchPage page) {
+        if (page.records().isEmpty()) {
+            service.messageService().send(sender, "<gray>Ничего не найдено.</gray>");
+            return;
+        }
+        MiniMessage miniMessage = MiniMessage.miniMessage();
+        for (PunishmentRecord record : page.records()) {
+            service.messageService().send(sender, "<dark_gray>-</dark_gray> <yellow>" + record.internalId() + "</yellow> <white>"
+                    + record.type().name() + "</white> <gray>" + DATE_FORMATTER.format(record.startTime()) + "</gray> <white>"
+                    + miniMessage.escapeTags(record.reason()) + "</white> <gray>(" + miniMessage.escapeTags(record.actor()) + ")</gray>"
+                    + (record.active() ? "" : " <dark_gray>[снято]</dark_gray>"));
+        }
+        if (page.nextCursor() != null) {
+            service.messageService().send(sender, "<gray>Ещё результаты:</gray> <white>/pbsearch " + NEXT_PAGE + "</white>");
+        }
+    }
+}
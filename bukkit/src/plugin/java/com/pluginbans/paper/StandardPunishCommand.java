@@ -2,9 +2,8 @@ package com.pluginbans.paper;
 
 import com.pluginbans.core.DurationFormatter;
 import com.pluginbans.core.DurationParser;
-import com.pluginbans.core.PunishmentRules;
+import com.pluginbans.core.IpRange;
 import com.pluginbans.core.PunishmentRecord;
-import com.pluginbans.core.PunishmentType;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -31,28 +30,30 @@ public final class StandardPunishCommand implements CommandExecutor {
     }
 
     private final PaperPunishmentService service;
-    private final MessagesConfig messages;
     private final Type type;
 
-    public StandardPunishCommand(PaperPunishmentService service, MessagesConfig messages, Type type) {
+    public StandardPunishCommand(PaperPunishmentService service, Type type) {
         this.service = service;
-        this.messages = messages;
         this.type = type;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!sender.hasPermission(type.permission) && !sender.hasPermission("bans.fullaccess")) {
-            service.messageService().send(sender, messages.permissionDenied());
+            service.messageService().send(sender, service.messages().permissionDenied());
             return true;
         }
         if (args.length < 2) {
             sendUsage(sender, command);
             return true;
         }
+        if (type == Type.IPBAN && IpRange.isRange(args[0])) {
+            issueRangeBan(sender, args);
+            return true;
+        }
         Optional<UUID> uuid = PlayerResolver.resolveUuid(args[0]);
         if (uuid.isEmpty()) {
-            service.messageService().send(sender, messages.error("player_not_found"));
+            service.messageService().send(sender, service.messages().error("player_not_found"));
             return true;
         }
         long durationSeconds = type == Type.WARN ? service.config().warnDurationSeconds() : parseDuration(args[1], sender);
@@ -65,7 +66,7 @@ public final class StandardPunishCommand implements CommandExecutor {
         }
         String reason = joinArgs(args, type == Type.WARN ? 1 : 2);
         if (reason.isBlank()) {
-            service.messageService().send(sender, messages.error("reason"));
+            service.messageService().send(sender, service.messages().error("reason"));
             return true;
         }
         if (type == Type.WARN) {
@@ -94,31 +95,41 @@ public final class StandardPunishCommand implements CommandExecutor {
                         return;
                     }
                     service.runSync(() -> sendIssueSummary(sender, record));
-                    if (type == Type.WARN) {
-                        service.core().getActiveByUuid(target).whenComplete((active, warnThrowable) -> {
-                            if (warnThrowable != null) {
-                                service.logError("Не удалось проверить лимит предупреждений для " + target, warnThrowable);
-                                return;
-                            }
-                            long warnCount = active.all().stream().filter(p -> p.type() == PunishmentType.WARN).count();
-                            boolean hasActiveBan = active.all().stream().anyMatch(p -> PunishmentRules.isBanLike(p.type()));
-                            if (warnCount >= 3 && !hasActiveBan) {
-                                service.issuePunishment(target, PunishmentType.BAN.name(), service.config().autoBanReason(), 0L, "Система", ip, false, false)
-                                        .exceptionally(autoBanThrowable -> {
-                                            service.logError("Не удалось выдать авто-бан после 3 предупреждений для " + target, autoBanThrowable);
-                                            return null;
-                                        });
-                            }
-                        });
-                    }
                 });
         return true;
     }
 
+    private void issueRangeBan(CommandSender sender, String[] args) {
+        Optional<IpRange> range = IpRange.parse(args[0]);
+        if (range.isEmpty()) {
+            service.messageService().send(sender, "<red>Некорректный диапазон. Пример: 203.0.113.0/24 или 2001:db8::/32.</red>");
+            return;
+        }
+        long durationSeconds = parseDuration(args[1], sender);
+        if (durationSeconds < 0) {
+            return;
+        }
+        String reason = joinArgs(args, 2);
+        if (reason.isBlank()) {
+            service.messageService().send(sender, service.messages().error("reason"));
+            return;
+        }
+        String cidr = range.get().toString();
+        service.issuePunishment(IpRange.NO_PLAYER, type.typeName, reason.trim(), durationSeconds, sender.getName(), cidr, hasFlag(args, "-s"), hasFlag(args, "-nnr"))
+                .whenComplete((record, throwable) -> {
+                    if (throwable != null) {
+                        service.logError("Не удалось выдать бан диапазона " + cidr, throwable);
+                        service.runSync(() -> service.messageService().send(sender, "<red>Не удалось выдать наказание.</red>"));
+                        return;
+                    }
+                    service.runSync(() -> sendIssueSummary(sender, record));
+                });
+    }
+
     private void sendUsage(CommandSender sender, Command command) {
         String usage = command.getUsage();
         if (usage == null || usage.isBlank()) {
-            service.messageService().send(sender, messages.error("usage"));
+            service.messageService().send(sender, service.messages().error("usage"));
             return;
         }
         service.messageService().send(sender, "<red>Использование:</red> <white>" + usage + "</white>");
@@ -131,7 +142,7 @@ public final class StandardPunishCommand implements CommandExecutor {
         try {
             return DurationParser.parseToSeconds(input);
         } catch (IllegalArgumentException exception) {
-            service.messageService().send(sender, messages.error("duration"));
+            service.messageService().send(sender, service.messages().error("duration"));
             return -1;
         }
     }
@@ -0,0 +1,41 @@
+package com.pluginbans.paper;
+
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+
+import java.util.List;
+
+public final class StatsCommand implements CommandExecutor {
+    private static final int MAX_LINES = 40;
+
+    private final PaperPunishmentService service;
+
+    public StatsCommand(PaperPunishmentService service) {
+        this.service = service;
+    }
+
+    @Override
+    public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
+        if (!sender.hasPermission("bans.stats") && !sender.hasPermission("bans.fullaccess")) {
+            service.messageService().send(sender, service.messages().permissionDenied());
+            return true;
+        }
+        String filter = args.length == 0 ? "" : String.join(" ", args);
+        List<String> lines = service.core().metrics().summary(filter);
+        if (lines.isEmpty()) {
+            service.messageService().send(sender, "<gray>Метрик по фильтру не найдено.</gray>");
+            return true;
+        }
+        MiniMessage miniMessage = MiniMessage.miniMessage();
+        service.messageService().send(sender, "<gold>Метрики PluginBans</gold> <gray>(" + lines.size() + ")</gray>");
+        for (int i = 0; i < Math.min(lines.size(), MAX_LINES); i++) {
+            service.messageService().send(sender, "<white>" + miniMessage.escapeTags(lines.get(i)) + "</white>");
+        }
+        if (lines.size() > MAX_LINES) {
+            service.messageService().send(sender, "<gray>Показаны первые " + MAX_LINES + ", уточните фильтр: /pbstats db_query</gray>");
+        }
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+package com.pluginbans.paper;
+
+import com.destroystokyo.paper.event.server.AsyncTabCompleteEvent;
+import com.pluginbans.core.CompletionTrie;
+import org.bukkit.Bukkit;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.PluginCommand;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public final class TabCompletionService implements Listener {
+    private static final int MAX_RESULTS = 20;
+    private static final int MAX_RECENT_NAMES = 5000;
+    // Онлайн-игроки всегда выше недавно вышедших, внутри групп - по времени входа или выхода.
+    private static final long ONLINE_BONUS = 1L << 62;
+
+    private enum Target {
+        PLAYER,
+        PUNISHMENT_ID
+    }
+
+    private final PaperPunishmentService service;
+    private final CompletionTrie<String> names = new CompletionTrie<>();
+    private final Map<String, String> recentNames = new LinkedHashMap<>(256, 0.75f, true);
+    private final Map<String, Target> commands = new HashMap<>();
+    private final Map<String, List<String>> permissions = new HashMap<>();
+
+    public TabCompletionService(JavaPlugin plugin, PaperPunishmentService service) {
+        this.service = service;
+        register(plugin, "ban", Target.PLAYER, "bans.ban");
+        register(plugin, "tempban", Target.PLAYER, "bans.tempban");
+        register(plugin, "ipban", Target.PLAYER, "bans.ipban");
+        register(plugin, "mute", Target.PLAYER, "bans.mute");
+        register(plugin, "warn", Target.PLAYER, "bans.warn");
+        register(plugin, "punish", Target.PLAYER, "bans.punish");
+        register(plugin, "alts", Target.PLAYER, "bans.alts");
+        register(plugin, "checkpunish", Target.PUNISHMENT_ID, "bans.check");
+        register(plugin, "unpunish", Target.PUNISHMENT_ID, "bans.unpunish");
+        long now = System.currentTimeMillis();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            names.put(player.getName(), player.getName(), ONLINE_BONUS + now);
+        }
+    }
+
+    private void register(JavaPlugin plugin, String name, Target target, String permission) {
+        // Метки и алиасы собираются при включении, в асинхронном обработчике карта команд сервера не трогается.
+        List<String> required = List.of(permission, "bans.fullaccess");
+        commands.put(name, target);
+        permissions.put(name, required);
+        PluginCommand command = plugin.getCommand(name);
+        if (command == null) {
+            return;
+        }
+        for (String alias : command.getAliases()) {
+            String normalized = alias.toLowerCase(Locale.ROOT);
+            commands.put(normalized, target);
+            permissions.put(normalized, required);
+        }
+    }
+
+    @EventHandler
+    public void onJoin(PlayerJoinEvent event) {
+        String name = event.getPlayer().getName();
+        recentNames.remove(name.toLowerCase(Locale.ROOT));
+        names.put(name, name, ONLINE_BONUS + System.currentTimeMillis());
+    }
+
+    @EventHandler
+    public void onQuit(PlayerQuitEvent event) {
+        String name = event.getPlayer().getName();
+        names.put(name, name, System.currentTimeMillis());
+        recentNames.put(name.toLowerCase(Locale.ROOT), name);
+        if (recentNames.size() > MAX_RECENT_NAMES) {
+            Iterator<Map.Entry<String, String>> eldest = recentNames.entrySet().iterator();
+            String evicted = eldest.next().getKey();
+            eldest.remove();
+            names.remove(evicted);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onAsyncTabComplete(AsyncTabCompleteEvent event) {
+        if (!event.isCommand() || event.isHandled()) {
+            return;
+        }
+        String buffer = event.getBuffer();
+        if (buffer.startsWith("/")) {
+            buffer = buffer.substring(1);
+        }
+        int space = buffer.indexOf(' ');
+        if (space < 0) {
+            return;
+        }
+        String label = buffer.substring(0, space).toLowerCase(Locale.ROOT);
+        int namespace = label.indexOf(':');
+        if (namespace >= 0) {
+            label = label.substring(namespace + 1);
+        }
+        Target target = commands.get(label);
+        if (target == null) {
+            return;
+        }
+        String arguments = buffer.substring(space + 1);
+        // Дополняется только первый аргумент: цель или ID наказания.
+        if (arguments.indexOf(' ') >= 0) {
+            return;
+        }
+        if (!hasAnyPermission(event.getSender(), permissions.get(label))) {
+            return;
+        }
+        List<String> completions = target == Target.PLAYER
+                ? names.complete(arguments, MAX_RESULTS)
+                : service.core().completeActiveIds(arguments, MAX_RESULTS);
+        event.setCompletions(completions);
+        event.setHandled(true);
+    }
+
+    private boolean hasAnyPermission(CommandSender sender, List<String> required) {
+        for (String permission : required) {
+            if (sender.hasPermission(permission)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
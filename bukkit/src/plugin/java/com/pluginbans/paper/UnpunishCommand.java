@@ -10,17 +10,15 @@ import java.util.Optional;
 
 public final class UnpunishCommand implements CommandExecutor {
     private final PaperPunishmentService service;
-    private final MessagesConfig messages;
 
-    public UnpunishCommand(PaperPunishmentService service, MessagesConfig messages) {
+    public UnpunishCommand(PaperPunishmentService service) {
         this.service = service;
-        this.messages = messages;
     }
 
     @Override
     public boolean onCommand(CommandSender sender, Command command, String label, String[] args) {
         if (!sender.hasPermission("bans.unpunish") && !sender.hasPermission("bans.fullaccess")) {
-            service.messageService().send(sender, messages.permissionDenied());
+            service.messageService().send(sender, service.messages().permissionDenied());
             return true;
         }
         if (args.length < 1) {
@@ -60,7 +58,7 @@ public final class UnpunishCommand implements CommandExecutor {
     private void sendUsage(CommandSender sender, Command command) {
         String usage = command.getUsage();
         if (usage == null || usage.isBlank()) {
-            service.messageService().send(sender, messages.error("usage"));
+            service.messageService().send(sender, service.messages().error("usage"));
             return;
         }
         service.messageService().send(sender, "<red>Использование:</red> <white>" + usage + "</white>");
@@ -1,22 +1,40 @@
 package com.pluginbans.velocity;
 
+import com.pluginbans.core.MetricsRegistry;
+
 import java.time.Instant;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class ConnectionThrottle {
-    private final int maxConnections;
-    private final int windowSeconds;
     private final Map<String, Deque<Long>> attempts = new ConcurrentHashMap<>();
+    private final LongAdder allowed;
+    private final LongAdder throttled;
+    private volatile Limits limits;
 
     public ConnectionThrottle(int maxConnections, int windowSeconds) {
-        this.maxConnections = Math.max(1, maxConnections);
-        this.windowSeconds = Math.max(1, windowSeconds);
+        this(maxConnections, windowSeconds, new MetricsRegistry());
+    }
+
+    public ConnectionThrottle(int maxConnections, int windowSeconds, MetricsRegistry metrics) {
+        this.allowed = metrics.counter("pluginbans_throttle_decisions_total", "Решения ограничителя подключений.", "result", "allowed");
+        this.throttled = metrics.counter("pluginbans_throttle_decisions_total", "Решения ограничителя подключений.", "result", "throttled");
+        metrics.gauge("pluginbans_throttle_tracked_ips", "Адреса с историей попыток в окне ограничителя.", attempts::size);
+        update(maxConnections, windowSeconds);
+    }
+
+    public void update(int maxConnections, int windowSeconds) {
+        // Лимиты меняются одной записью, история попыток сохраняется.
+        this.limits = new Limits(Math.max(1, maxConnections), Math.max(1, windowSeconds));
     }
 
     public boolean tryAcquire(String ip) {
+        Limits current = limits;
+        int maxConnections = current.maxConnections();
+        int windowSeconds = current.windowSeconds();
         long now = Instant.now().getEpochSecond();
         Deque<Long> deque = attempts.computeIfAbsent(ip, key -> new ArrayDeque<>());
         synchronized (deque) {
@@ -24,10 +42,15 @@ public final class ConnectionThrottle {
                 deque.removeFirst();
             }
             if (deque.size() >= maxConnections) {
+                throttled.increment();
                 return false;
             }
             deque.addLast(now);
+            allowed.increment();
             return true;
         }
     }
+
+    private record Limits(int maxConnections, int windowSeconds) {
+    }
 }
@@ -1,42 +1,66 @@
 package com.pluginbans.velocity;
 
 import com.google.inject.Inject;
+import com.pluginbans.core.ActivePunishment;
 import com.pluginbans.core.AuditLogger;
+import com.pluginbans.core.CircuitBreakerPunishmentRepository;
+import com.pluginbans.core.ClusterLeader;
+import com.pluginbans.core.ConfigWatcher;
+import com.pluginbans.core.ConnectionLog;
 import com.pluginbans.core.DatabaseManager;
 import com.pluginbans.core.DurationFormatter;
+import com.pluginbans.core.InstrumentedPunishmentRepository;
 import com.pluginbans.core.JdbcPunishmentRepository;
+import com.pluginbans.core.LoginVerdict;
+import com.pluginbans.core.MetricsRegistry;
 import com.pluginbans.core.PunishmentCreateEvent;
 import com.pluginbans.core.PunishmentListener;
 import com.pluginbans.core.PunishmentRecord;
 import com.pluginbans.core.PunishmentRules;
 import com.pluginbans.core.PunishmentService;
 import com.pluginbans.core.PunishmentType;
+import com.velocitypowered.api.event.EventTask;
 import com.velocitypowered.api.event.PostOrder;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.PreLoginEvent;
 import com.velocitypowered.api.event.connection.PostLoginEvent;
+import com.velocitypowered.api.event.player.GameProfileRequestEvent;
 import com.velocitypowered.api.event.player.ServerPreConnectEvent;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
+import com.velocitypowered.api.proxy.InboundConnection;
 import com.velocitypowered.api.proxy.ProxyServer;
+import com.velocitypowered.api.util.GameProfile;
 import net.kyori.adventure.text.Component;
 
 import java.nio.file.Path;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.WeakHashMap;
 
 @Plugin(id = "pluginbans", name = "PluginBans", version = "1.0.0", description = "Система наказаний.")
 public final class PluginBansVelocity implements PunishmentListener {
     private final ProxyServer proxy;
     private final Path dataDirectory;
+    private final Map<InboundConnection, UUID> cleanLogins = Collections.synchronizedMap(new WeakHashMap<>());
+    private final MetricsRegistry metrics = new MetricsRegistry();
     private DatabaseManager databaseManager;
+    private ClusterLeader clusterLeader;
+    private CircuitBreakerPunishmentRepository repository;
     private PunishmentService punishmentService;
-    private VelocityConfig config;
+    private volatile VelocityConfig config;
     private ConnectionThrottle throttle;
+    private ConfigWatcher configWatcher;
     private AuditLogger auditLogger;
+    private ConnectionLog connectionLog;
 
     @Inject
     public PluginBansVelocity(ProxyServer proxy, @DataDirectory Path dataDirectory) {
@@ -47,28 +71,82 @@ public final class PluginBansVelocity implements PunishmentListener {
     @Subscribe
     public void onProxyInitialization(com.velocitypowered.api.event.proxy.ProxyInitializeEvent event) {
         this.config = VelocityConfigLoader.load(dataDirectory);
-        this.databaseManager = new DatabaseManager(config.databaseConfig());
+        this.databaseManager = new DatabaseManager(config.databaseConfig(), metrics);
+        this.repository = new CircuitBreakerPunishmentRepository(
+                new InstrumentedPunishmentRepository(
+                        new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executors(), databaseManager.storageFormat()),
+                        metrics
+                ),
+                config.databaseConfig().circuitBreaker()
+        );
+        this.connectionLog = new ConnectionLog(databaseManager.dataSource(), databaseManager.executors());
         this.punishmentService = new PunishmentService(
-                new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executor()),
-                Duration.ofSeconds(Math.max(1, config.syncPollSeconds()))
+                repository,
+                Duration.ofSeconds(Math.max(1, config.syncPollSeconds())),
+                config.failStatic(),
+                metrics
         );
+        this.clusterLeader = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.BACKGROUND_LEASE,
+                config.cluster().nodeIdOr("velocity"), config.cluster().lease());
+        this.clusterLeader.start();
+        this.punishmentService.setClusterLeader(clusterLeader);
+        this.punishmentService.enableWarmStart(dataDirectory.resolve("active-snapshot.bin"));
         this.punishmentService.registerListener(this);
-        this.throttle = new ConnectionThrottle(config.throttleMaxConnections(), config.throttleWindowSeconds());
+        this.throttle = new ConnectionThrottle(config.throttleMaxConnections(), config.throttleWindowSeconds(), metrics);
         this.auditLogger = new AuditLogger(config.auditPath());
+        proxy.getCommandManager().register(
+                proxy.getCommandManager().metaBuilder("pbstats").plugin(this).build(),
+                new StatsCommand(metrics)
+        );
+        startConfigWatcher();
+    }
+
+    private void startConfigWatcher() {
+        try {
+            this.configWatcher = new ConfigWatcher(dataDirectory, Set.of("config.toml"), changed -> reloadConfig());
+        } catch (IllegalStateException exception) {
+            auditLogger.log("Автоперезагрузка config.toml отключена: " + exception.getMessage());
+        }
+    }
+
+    private void reloadConfig() {
+        // Разбор идёт в потоке наблюдения; обработчики событий читают уже готовый снимок через volatile-ссылку.
+        VelocityConfig next;
+        try {
+            next = VelocityConfigLoader.load(dataDirectory);
+        } catch (RuntimeException exception) {
+            auditLogger.log("config.toml не перечитан, остаётся прежняя конфигурация: " + exception.getMessage());
+            return;
+        }
+        VelocityConfig current = config;
+        if (!current.databaseConfig().equals(next.databaseConfig())
+                || current.syncPollSeconds() != next.syncPollSeconds()
+                || !current.failStatic().equals(next.failStatic())
+                || !current.cluster().equals(next.cluster())) {
+            auditLogger.log("Изменения в [database], sync-poll-seconds, [fail-static] и [cluster] применятся после перезапуска прокси.");
+        }
+        throttle.update(next.throttleMaxConnections(), next.throttleWindowSeconds());
+        this.config = next;
+        auditLogger.log("config.toml перечитан.");
     }
 
     @Subscribe(order = PostOrder.FIRST)
-    public void onPreLogin(PreLoginEvent event) {
+    public EventTask onPreLogin(PreLoginEvent event) {
         String ip = event.getConnection().getRemoteAddress().getAddress().getHostAddress();
         if (!throttle.tryAcquire(ip)) {
             event.setResult(PreLoginEvent.PreLoginComponentResult.denied(Component.text("Слишком много подключений. Подождите.")));
-            return;
+            return null;
         }
         UUID uuid = event.getUniqueId();
-        java.util.List<PunishmentRecord> punishments;
-        try {
-            punishments = punishmentService.getActiveForConnection(uuid, ip).join();
-        } catch (RuntimeException exception) {
+        return EventTask.resumeWhenComplete(punishmentService.getActiveForConnection(uuid, ip)
+                .handle((punishments, throwable) -> {
+                    applyLoginResult(event, uuid, punishments, throwable);
+                    return null;
+                }));
+    }
+
+    private void applyLoginResult(PreLoginEvent event, UUID uuid, List<PunishmentRecord> punishments, Throwable throwable) {
+        if (throwable != null) {
             auditLogger.log("Ошибка проверки наказаний перед входом: " + uuid);
             event.setResult(PreLoginEvent.PreLoginComponentResult.denied(Component.text("Сервис наказаний временно недоступен.")));
             return;
@@ -79,14 +157,37 @@ public final class PluginBansVelocity implements PunishmentListener {
         if (ban.isPresent()) {
             auditLogger.log("Теневой вход: %s заблокирован (тип %s)".formatted(uuid, ban.get().type().name()));
             event.setResult(PreLoginEvent.PreLoginComponentResult.denied(buildBlockMessage(ban.get())));
+            return;
+        }
+        if (punishments.isEmpty() && uuid != null && config.proxyVerdict().usable()) {
+            cleanLogins.put(event.getConnection(), uuid);
         }
     }
 
+    @Subscribe
+    public void onGameProfileRequest(GameProfileRequestEvent event) {
+        UUID checked = cleanLogins.remove(event.getConnection());
+        GameProfile profile = event.getGameProfile();
+        if (checked == null || !checked.equals(profile.getId())) {
+            return;
+        }
+        // Подписанный результат уходит на сервер вместе с профилем, и Paper не повторяет проверку в базе.
+        LoginVerdict verdict = new LoginVerdict(
+                checked,
+                System.currentTimeMillis(),
+                true,
+                punishmentService.syncedAt().map(Instant::toEpochMilli).orElse(0L)
+        );
+        String token = verdict.sign(config.proxyVerdict().secretBytes());
+        event.setGameProfile(profile.addProperty(new GameProfile.Property(LoginVerdict.PROPERTY, token, "")));
+    }
+
     @Subscribe
     public void onPostLogin(PostLoginEvent event) {
         UUID uuid = event.getPlayer().getUniqueId();
         String ip = event.getPlayer().getRemoteAddress().getAddress().getHostAddress();
         punishmentService.track(uuid, ip);
+        connectionLog.record(uuid, ip);
     }
 
     @Subscribe
@@ -95,13 +196,30 @@ public final class PluginBansVelocity implements PunishmentListener {
     }
 
     @Subscribe
-    public void onServerPreConnect(ServerPreConnectEvent event) {
+    public EventTask onServerPreConnect(ServerPreConnectEvent event) {
         String target = event.getOriginalServer().getServerInfo().getName();
         if (config.lobbyServers().contains(target)) {
-            return;
+            return null;
         }
         UUID uuid = event.getPlayer().getUniqueId();
-        PunishmentType type = punishmentService.getActiveByUuid(uuid).join().all().stream()
+        Optional<ActivePunishment> cached = punishmentService.cached(uuid);
+        if (cached.isPresent()) {
+            applyServerResult(event, cached.get());
+            return null;
+        }
+        return EventTask.resumeWhenComplete(punishmentService.getActiveByUuid(uuid)
+                .handle((active, throwable) -> {
+                    if (throwable != null) {
+                        auditLogger.log("Ошибка проверки наказаний при переходе на сервер: " + uuid);
+                        return null;
+                    }
+                    applyServerResult(event, active);
+                    return null;
+                }));
+    }
+
+    private void applyServerResult(ServerPreConnectEvent event, ActivePunishment active) {
+        PunishmentType type = active.all().stream()
                 .map(PunishmentRecord::type)
                 .filter(punishment -> punishment == PunishmentType.WARN || punishment == PunishmentType.CHECK)
                 .findFirst()
@@ -123,9 +241,21 @@ public final class PluginBansVelocity implements PunishmentListener {
 
     @Subscribe
     public void onShutdown(ProxyShutdownEvent event) {
+        if (configWatcher != null) {
+            configWatcher.close();
+        }
         if (punishmentService != null) {
             punishmentService.close();
         }
+        if (clusterLeader != null) {
+            clusterLeader.close();
+        }
+        if (connectionLog != null) {
+            connectionLog.close();
+        }
+        if (repository != null) {
+            repository.close();
+        }
         if (databaseManager != null) {
             databaseManager.close();
         }
@@ -0,0 +1,41 @@
+package com.pluginbans.velocity;
+
+import com.pluginbans.core.MetricsRegistry;
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.List;
+
+public final class StatsCommand implements SimpleCommand {
+    private static final int MAX_LINES = 40;
+
+    private final MetricsRegistry metrics;
+
+    public StatsCommand(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void execute(Invocation invocation) {
+        CommandSource source = invocation.source();
+        List<String> lines = metrics.summary(String.join(" ", invocation.arguments()));
+        if (lines.isEmpty()) {
+            source.sendMessage(Component.text("Метрик по фильтру не найдено.", NamedTextColor.GRAY));
+            return;
+        }
+        source.sendMessage(Component.text("Метрики PluginBans (" + lines.size() + ")", NamedTextColor.GOLD));
+        for (int i = 0; i < Math.min(lines.size(), MAX_LINES); i++) {
+            source.sendMessage(Component.text(lines.get(i), NamedTextColor.WHITE));
+        }
+        if (lines.size() > MAX_LINES) {
+            source.sendMessage(Component.text("Показаны первые " + MAX_LINES + ", уточните фильтр: /pbstats db_query", NamedTextColor.GRAY));
+        }
+    }
+
+    @Override
+    public boolean hasPermission(Invocation invocation) {
+        return invocation.source().hasPermission("bans.stats") || invocation.source().hasPermission("bans.fullaccess");
+    }
+}
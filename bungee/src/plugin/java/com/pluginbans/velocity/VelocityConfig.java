@@ -1,7 +1,10 @@
 package com.pluginbans.velocity;
 
+import com.pluginbans.core.ClusterConfig;
 import com.pluginbans.core.DatabaseConfig;
 import com.pluginbans.core.DatabaseType;
+import com.pluginbans.core.FailStaticConfig;
+import com.pluginbans.core.ProxyVerdictConfig;
 
 import java.nio.file.Path;
 import java.util.List;
@@ -12,7 +15,10 @@ public record VelocityConfig(
         int syncPollSeconds,
         int throttleMaxConnections,
         int throttleWindowSeconds,
-        Path auditPath
+        Path auditPath,
+        FailStaticConfig failStatic,
+        ProxyVerdictConfig proxyVerdict,
+        ClusterConfig cluster
 ) {
     public static VelocityConfig defaultConfig(Path dataDirectory) {
         return new VelocityConfig(
@@ -21,7 +27,10 @@ public record VelocityConfig(
                 2,
                 5,
                 10,
-                dataDirectory.resolve("audit.log")
+                dataDirectory.resolve("audit.log"),
+                FailStaticConfig.defaults(),
+                ProxyVerdictConfig.disabled(),
+                ClusterConfig.defaults()
         );
     }
 }
@@ -1,14 +1,26 @@
 package com.pluginbans.velocity;
 
+import com.pluginbans.core.CircuitBreakerConfig;
+import com.pluginbans.core.ClusterConfig;
 import com.pluginbans.core.DatabaseConfig;
 import com.pluginbans.core.DatabaseType;
+import com.pluginbans.core.FailStaticConfig;
+import com.pluginbans.core.FailStaticPolicy;
+import com.pluginbans.core.ProxyVerdictConfig;
+import com.pluginbans.core.PunishmentType;
+import com.pluginbans.core.StorageFormat;
+import com.pluginbans.core.Workload;
+import com.pluginbans.core.WorkloadLimits;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 public final class VelocityConfigLoader {
     private VelocityConfigLoader() {
@@ -32,9 +44,46 @@ public final class VelocityConfigLoader {
             String password = parseString(lines, "password", defaults.databaseConfig().password());
             int poolSize = parseInt(lines, "pool-size", defaults.databaseConfig().maxPoolSize());
             String sqliteFile = parseString(lines, "sqlite-file", defaults.databaseConfig().sqlitePath());
+            StorageFormat storageFormat;
+            try {
+                storageFormat = StorageFormat.valueOf(parseString(lines, "storage-format", "TEXT").toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException exception) {
+                storageFormat = StorageFormat.TEXT;
+            }
             int syncPollSeconds = Math.max(1, parseInt(lines, "sync-poll-seconds", defaults.syncPollSeconds()));
             int throttleMax = parseInt(lines, "max-connections", defaults.throttleMaxConnections());
             int throttleWindow = parseInt(lines, "window-seconds", defaults.throttleWindowSeconds());
+            CircuitBreakerConfig breakerDefaults = defaults.databaseConfig().circuitBreaker();
+            CircuitBreakerConfig circuitBreaker = new CircuitBreakerConfig(
+                    parseBoolean(lines, "breaker-enabled", breakerDefaults.enabled()),
+                    Math.max(1, parseInt(lines, "breaker-window-size", breakerDefaults.windowSize())),
+                    Math.max(1, parseInt(lines, "breaker-minimum-calls", breakerDefaults.minimumCalls())),
+                    parseDouble(lines, "breaker-failure-rate", breakerDefaults.failureRateThreshold()),
+                    Duration.ofMillis(Math.max(1, parseInt(lines, "breaker-slow-call-ms", (int) breakerDefaults.slowCallThreshold().toMillis()))),
+                    parseDouble(lines, "breaker-slow-call-rate", breakerDefaults.slowCallRateThreshold()),
+                    Duration.ofSeconds(Math.max(1, parseInt(lines, "breaker-probe-seconds", (int) breakerDefaults.probeInterval().toSeconds())))
+            );
+            Map<Workload, WorkloadLimits> workloads = new EnumMap<>(WorkloadLimits.defaultsFor(poolSize));
+            for (Workload workload : Workload.values()) {
+                String prefix = workload.name().toLowerCase(Locale.ROOT);
+                WorkloadLimits limits = workloads.get(workload);
+                workloads.put(workload, new WorkloadLimits(
+                        parseInt(lines, prefix + "-threads", limits.threads()),
+                        parseInt(lines, prefix + "-queue-depth", limits.queueDepth()),
+                        Duration.ofMillis(Math.max(0, parseInt(lines, prefix + "-max-wait-ms", (int) limits.maxQueueWait().toMillis())))
+                ));
+            }
+            Map<PunishmentType, FailStaticPolicy> policies = new EnumMap<>(PunishmentType.class);
+            for (String typeName : parseList(lines, "fail-static-ignore")) {
+                try {
+                    policies.put(PunishmentType.valueOf(typeName.toUpperCase(Locale.ROOT)), FailStaticPolicy.IGNORE);
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
+            FailStaticConfig failStatic = new FailStaticConfig(
+                    parseBoolean(lines, "fail-static-enabled", defaults.failStatic().enabled()),
+                    policies.isEmpty() ? defaults.failStatic().policies() : policies
+            );
             DatabaseConfig databaseConfig = new DatabaseConfig(
                     DatabaseType.valueOf(dbType.toUpperCase(Locale.ROOT)),
                     host,
@@ -43,7 +92,10 @@ public final class VelocityConfigLoader {
                     user,
                     password,
                     sqliteFile,
-                    poolSize
+                    poolSize,
+                    circuitBreaker,
+                    workloads,
+                    storageFormat
             );
             return new VelocityConfig(
                     databaseConfig,
@@ -51,7 +103,18 @@ public final class VelocityConfigLoader {
                     syncPollSeconds,
                     throttleMax,
                     throttleWindow,
-                    defaults.auditPath()
+                    defaults.auditPath(),
+                    failStatic,
+                    new ProxyVerdictConfig(
+                            parseBoolean(lines, "verdict-enabled", defaults.proxyVerdict().enabled()),
+                            parseString(lines, "verdict-secret", defaults.proxyVerdict().secret()),
+                            defaults.proxyVerdict().maxAge(),
+                            defaults.proxyVerdict().maxStaleness()
+                    ),
+                    new ClusterConfig(
+                            parseString(lines, "node-id", defaults.cluster().nodeId()),
+                            Duration.ofSeconds(Math.max(3, parseInt(lines, "lease-seconds", (int) defaults.cluster().lease().toSeconds())))
+                    )
             );
         } catch (IOException exception) {
             throw new IllegalStateException("Не удалось загрузить config.toml.", exception);
@@ -75,10 +138,46 @@ public final class VelocityConfigLoader {
                     password = ""
                     pool-size = 10
                     sqlite-file = "%s"
+                    storage-format = "TEXT"
 
                     [throttle]
                     max-connections = 5
                     window-seconds = 10
+
+                    [circuit-breaker]
+                    breaker-enabled = true
+                    breaker-window-size = 20
+                    breaker-minimum-calls = 10
+                    breaker-failure-rate = 0.5
+                    breaker-slow-call-ms = 2000
+                    breaker-slow-call-rate = 0.8
+                    breaker-probe-seconds = 5
+
+                    [workloads]
+                    login-threads = 4
+                    login-queue-depth = 512
+                    login-max-wait-ms = 5000
+                    api-threads = 2
+                    api-queue-depth = 64
+                    api-max-wait-ms = 10000
+                    write-threads = 2
+                    write-queue-depth = 256
+                    write-max-wait-ms = 10000
+                    background-threads = 2
+                    background-queue-depth = 1024
+                    background-max-wait-ms = 0
+
+                    [fail-static]
+                    fail-static-enabled = true
+                    fail-static-ignore = ["CHECK"]
+
+                    [proxy-verdict]
+                    verdict-enabled = false
+                    verdict-secret = "CHANGE_ME_LONG_RANDOM_SECRET"
+
+                    [cluster]
+                    node-id = ""
+                    lease-seconds = 15
                     """.formatted(defaults.databaseConfig().sqlitePath());
             Files.writeString(configPath, content);
         } catch (IOException exception) {
@@ -109,6 +208,26 @@ public final class VelocityConfigLoader {
         }
     }
 
+    private static double parseDouble(List<String> lines, String key, double fallback) {
+        String value = parseString(lines, key, null);
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException exception) {
+            return fallback;
+        }
+    }
+
+    private static boolean parseBoolean(List<String> lines, String key, boolean fallback) {
+        String value = parseString(lines, key, null);
+        if (value == null) {
+            return fallback;
+        }
+        return Boolean.parseBoolean(value);
+    }
+
     private static List<String> parseList(List<String> lines, String key) {
         for (String line : lines) {
             String trimmed = line.trim();
@@ -0,0 +1,137 @@
+package com.pluginbans.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public final class ActivePunishmentIndex {
+    private final CompactPunishmentStore store = new CompactPunishmentStore();
+    private final IpRangeTrie<List<PunishmentRecord>> ranges = new IpRangeTrie<>();
+    private final Map<String, IpRange> rangeIds = new HashMap<>();
+    private final SortedIdIndex ids = new SortedIdIndex();
+    private volatile Instant loadedAt;
+
+    public synchronized void replaceAll(Collection<PunishmentRecord> records, Instant snapshotTime) {
+        store.clear();
+        ranges.clear();
+        rangeIds.clear();
+        // Массив ID собирается заново и подменяется целиком, чтобы автодополнение не видело его наполовину пустым.
+        List<String> nextIds = new ArrayList<>(records.size());
+        List<Long> nextWeights = new ArrayList<>(records.size());
+        for (PunishmentRecord record : records) {
+            indexRecord(record);
+            nextIds.add(record.internalId());
+            nextWeights.add(record.startTime().toEpochMilli());
+        }
+        ids.replaceAll(nextIds, nextWeights);
+        loadedAt = snapshotTime;
+    }
+
+    public synchronized void add(PunishmentRecord record) {
+        indexRecord(record);
+        ids.put(record.internalId(), record.startTime().toEpochMilli());
+    }
+
+    private void indexRecord(PunishmentRecord record) {
+        store.add(record);
+        if (record.type() != PunishmentType.IPBAN || !IpRange.isRange(record.ip())) {
+            return;
+        }
+        IpRange.parse(record.ip()).ifPresent(range -> {
+            IpRange previous = rangeIds.put(record.internalId(), range);
+            if (previous != null) {
+                detachRange(record.internalId(), previous);
+            }
+            List<PunishmentRecord> existing = ranges.get(range);
+            List<PunishmentRecord> updated = new ArrayList<>(existing == null ? List.of() : existing);
+            updated.add(record);
+            ranges.put(range, List.copyOf(updated));
+        });
+    }
+
+    public synchronized void remove(String internalId) {
+        store.remove(internalId);
+        ids.remove(internalId);
+        IpRange range = rangeIds.remove(internalId);
+        if (range != null) {
+            detachRange(internalId, range);
+        }
+    }
+
+    public synchronized List<PunishmentRecord> findForConnection(UUID uuid, String ip, String ipHash, Instant now) {
+        List<PunishmentRecord> direct = store.findForConnection(uuid, ip, ipHash, now);
+        List<PunishmentRecord> inRange = findRanges(ip, now);
+        if (inRange.isEmpty()) {
+            return List.copyOf(direct);
+        }
+        List<PunishmentRecord> merged = new ArrayList<>(direct);
+        merged.addAll(inRange);
+        return List.copyOf(merged);
+    }
+
+    public synchronized List<PunishmentRecord> activeFor(UUID uuid, Instant now) {
+        return List.copyOf(store.findForConnection(uuid, null, null, now));
+    }
+
+    public synchronized List<PunishmentRecord> findRanges(String ip, Instant now) {
+        if (rangeIds.isEmpty() || ip == null || ip.isBlank()) {
+            return List.of();
+        }
+        byte[] address = StorageCodec.ipToBytes(ip);
+        if (address == null) {
+            return List.of();
+        }
+        // Самый узкий диапазон, в котором есть неистекший бан, определяет решение за длину префикса.
+        List<PunishmentRecord> match = ranges.longestMatch(address, records -> records.stream().anyMatch(record -> !record.isExpired(now)));
+        if (match == null) {
+            return List.of();
+        }
+        return match.stream().filter(record -> !record.isExpired(now)).toList();
+    }
+
+    public synchronized List<PunishmentRecord> allRanges() {
+        List<PunishmentRecord> records = new ArrayList<>();
+        for (List<PunishmentRecord> value : ranges.values()) {
+            records.addAll(value);
+        }
+        return records;
+    }
+
+    public synchronized List<PunishmentRecord> all() {
+        return List.copyOf(store.all());
+    }
+
+    public List<String> completeIds(String prefix, int limit) {
+        // Без блокировки индекса: автодополнение не ждёт проверок входа.
+        return ids.complete(prefix, limit);
+    }
+
+    public synchronized int size() {
+        return store.size();
+    }
+
+    private void detachRange(String internalId, IpRange range) {
+        List<PunishmentRecord> existing = ranges.get(range);
+        if (existing == null) {
+            return;
+        }
+        List<PunishmentRecord> remaining = existing.stream().filter(record -> !record.internalId().equals(internalId)).toList();
+        if (remaining.isEmpty()) {
+            ranges.remove(range);
+        } else {
+            ranges.put(range, remaining);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loadedAt != null;
+    }
+
+    public Instant loadedAt() {
+        return loadedAt;
+    }
+}
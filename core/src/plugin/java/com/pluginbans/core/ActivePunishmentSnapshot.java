@@ -0,0 +1,157 @@
+package com.pluginbans.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public record ActivePunishmentSnapshot(Instant createdAt, List<PunishmentRecord> records) {
+    private static final int MAGIC = 0x50424153;
+    private static final int VERSION = 1;
+    private static final byte HASH_ABSENT = 0;
+    private static final byte HASH_RAW = 1;
+    private static final byte HASH_TEXT = 2;
+    private static final PunishmentType[] TYPES = PunishmentType.values();
+    // UUID, тип, время, флаг, байт хэша и длины четырёх строк: меньше запись не бывает.
+    private static final int MIN_RECORD_BYTES = 16 + 1 + 8 + 8 + 1 + 1 + 4 * 4;
+
+    public static void write(Path file, Instant createdAt, Collection<PunishmentRecord> records) {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(createdAt.toEpochMilli());
+                output.writeInt(records.size());
+                for (PunishmentRecord record : records) {
+                    output.writeLong(record.uuid().getMostSignificantBits());
+                    output.writeLong(record.uuid().getLeastSignificantBits());
+                    writeString(output, record.ip());
+                    writeHash(output, record.ipHash());
+                    output.writeByte(record.type().ordinal());
+                    writeString(output, record.reason());
+                    writeString(output, record.actor());
+                    writeString(output, record.internalId());
+                    output.writeLong(record.startTime().toEpochMilli());
+                    output.writeLong(record.endTime() == null ? -1L : record.endTime().toEpochMilli());
+                    output.writeBoolean(record.silent());
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Не удалось сохранить снимок активных наказаний.", exception);
+        }
+    }
+
+    public static Optional<ActivePunishmentSnapshot> read(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < 20 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return Optional.empty();
+            }
+            Instant createdAt = Instant.ofEpochMilli(buffer.getLong());
+            int count = buffer.getInt();
+            // Повреждённый счётчик не должен превращаться в огромный список.
+            if (count < 0 || count > buffer.remaining() / MIN_RECORD_BYTES) {
+                return Optional.empty();
+            }
+            List<PunishmentRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(buffer.getLong(), buffer.getLong());
+                String ip = readString(buffer);
+                String ipHash = readHash(buffer);
+                PunishmentType type = TYPES[buffer.get()];
+                String reason = readString(buffer);
+                String actor = readString(buffer);
+                String internalId = readString(buffer);
+                Instant start = Instant.ofEpochMilli(buffer.getLong());
+                long end = buffer.getLong();
+                boolean silent = buffer.get() != 0;
+                records.add(new PunishmentRecord(
+                        uuid,
+                        ip,
+                        ipHash,
+                        type,
+                        reason,
+                        actor,
+                        start,
+                        end < 0L ? null : Instant.ofEpochMilli(end),
+                        true,
+                        internalId,
+                        silent
+                ));
+            }
+            return Optional.of(new ActivePunishmentSnapshot(createdAt, records));
+        } catch (IOException | BufferUnderflowException | ArrayIndexOutOfBoundsException exception) {
+            return Optional.empty();
+        }
+    }
+
+    private static void writeString(DataOutputStream output, String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String readString(MappedByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeHash(DataOutputStream output, String ipHash) throws IOException {
+        if (ipHash == null) {
+            output.writeByte(HASH_ABSENT);
+            return;
+        }
+        if (ipHash.length() == 64 && ipHash.chars().allMatch(ch -> Character.digit(ch, 16) >= 0 && !Character.isUpperCase(ch))) {
+            output.writeByte(HASH_RAW);
+            output.write(HexFormat.of().parseHex(ipHash));
+            return;
+        }
+        output.writeByte(HASH_TEXT);
+        writeString(output, ipHash);
+    }
+
+    private static String readHash(MappedByteBuffer buffer) {
+        byte kind = buffer.get();
+        if (kind == HASH_RAW) {
+            byte[] raw = new byte[32];
+            buffer.get(raw);
+            return HexFormat.of().formatHex(raw);
+        }
+        if (kind == HASH_TEXT) {
+            return readString(buffer);
+        }
+        return null;
+    }
+}
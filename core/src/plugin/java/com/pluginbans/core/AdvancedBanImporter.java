@@ -0,0 +1,437 @@
+package com.pluginbans.core;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+public final class AdvancedBanImporter implements AutoCloseable {
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(5);
+    private static final String HISTORY_COLUMNS = "id, uuid, ip, ip_hash, type, reason, actor, start_time, end_time, internal_id, action, action_time";
+
+    public enum LegacyTable {
+        // Активные наказания переносятся первыми: при повторе из истории их строка уже занята и не перезапишется неактивной.
+        PUNISHMENTS("Punishments", true),
+        HISTORY("PunishmentHistory", false);
+
+        private final String tableName;
+        private final boolean active;
+
+        LegacyTable(String tableName, boolean active) {
+            this.tableName = tableName;
+            this.active = active;
+        }
+
+        public String tableName() {
+            return tableName;
+        }
+
+        private String cursorKey() {
+            return "advancedban_import_" + name().toLowerCase(Locale.ROOT) + "_cursor";
+        }
+    }
+
+    public record ImportProgress(
+            LegacyTable table,
+            long read,
+            long imported,
+            long skipped,
+            long cursor,
+            double rowsPerSecond,
+            boolean finished
+    ) {
+    }
+
+    private record LegacyRow(long id, String name, String uuid, String reason, String operator, String type, long start, long end) {
+    }
+
+    private record Page(long number, long lastId, List<LegacyRow> rows) {
+    }
+
+    // Импорт идёт рядом с рабочей нагрузкой узла; больше писателей только сильнее нагружает базу.
+    public static final int MAX_PARALLELISM = 4;
+
+    private final DataSource source;
+    private final DataSource target;
+    private final PunishmentTable table;
+    private final int pageSize;
+    private final int parallelism;
+    private final ExecutorService writers;
+
+    public AdvancedBanImporter(DataSource source, DataSource target, StorageFormat format, int pageSize, int parallelism) {
+        this.source = source;
+        this.target = target;
+        this.table = PunishmentTable.forFormat(format);
+        this.pageSize = Math.max(1, pageSize);
+        this.parallelism = clampParallelism(parallelism);
+        AtomicInteger counter = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "PluginBans-Импорт-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static int clampParallelism(int parallelism) {
+        return Math.min(MAX_PARALLELISM, Math.max(1, parallelism));
+    }
+
+    public List<ImportProgress> run(Consumer<ImportProgress> listener) {
+        List<ImportProgress> results = new ArrayList<>(LegacyTable.values().length);
+        try {
+            for (LegacyTable legacyTable : LegacyTable.values()) {
+                results.add(importTable(legacyTable, listener));
+            }
+        } finally {
+            // Даже прерванный импорт успел записать страницы; остальные узлы пересобирают фильтр по смене поколения.
+            publishGeneration();
+        }
+        return results;
+    }
+
+    private void publishGeneration() {
+        try (Connection connection = target.getConnection()) {
+            DatabaseMeta.write(connection, DatabaseMeta.IMPORT_GENERATION_KEY, UUID.randomUUID().toString());
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось сохранить поколение импорта.", exception);
+        }
+    }
+
+    public ImportProgress importTable(LegacyTable legacyTable, Consumer<ImportProgress> listener) {
+        long startedAt = System.nanoTime();
+        long cursor = readCheckpoint(legacyTable);
+        Checkpoint checkpoint = new Checkpoint(legacyTable, cursor);
+        LongAdder read = new LongAdder();
+        LongAdder imported = new LongAdder();
+        LongAdder skipped = new LongAdder();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        // Не больше двух страниц на писателя в памяти: чтение ждёт, пока запись не освободит место.
+        int window = parallelism * 2;
+        Semaphore inFlight = new Semaphore(window);
+        long lastReport = System.nanoTime();
+        long pageNumber = 0;
+        while (failure.get() == null) {
+            List<LegacyRow> rows = readPage(legacyTable, cursor);
+            if (rows.isEmpty()) {
+                break;
+            }
+            cursor = rows.get(rows.size() - 1).id();
+            read.add(rows.size());
+            Page page = new Page(pageNumber++, cursor, rows);
+            inFlight.acquireUninterruptibly();
+            CompletableFuture.runAsync(() -> {
+                int written = writePage(legacyTable, page.rows(), skipped);
+                imported.add(written);
+                checkpoint.complete(page);
+            }, writers).whenComplete((ignored, throwable) -> {
+                if (throwable != null) {
+                    failure.compareAndSet(null, throwable);
+                }
+                inFlight.release();
+            });
+            if (System.nanoTime() - lastReport >= REPORT_INTERVAL.toNanos()) {
+                lastReport = System.nanoTime();
+                listener.accept(progress(legacyTable, read, imported, skipped, checkpoint.watermark(), startedAt, false));
+            }
+        }
+        inFlight.acquireUninterruptibly(window);
+        inFlight.release(window);
+        Throwable error = failure.get();
+        if (error != null) {
+            throw new IllegalStateException("Импорт " + legacyTable.tableName() + " остановлен на id " + checkpoint.watermark()
+                    + "; повторный запуск продолжит с этого места.", error);
+        }
+        ImportProgress result = progress(legacyTable, read, imported, skipped, checkpoint.watermark(), startedAt, true);
+        listener.accept(result);
+        return result;
+    }
+
+    private ImportProgress progress(LegacyTable legacyTable, LongAdder read, LongAdder imported, LongAdder skipped,
+                                    long cursor, long startedAt, boolean finished) {
+        double seconds = Math.max(1e-3, (System.nanoTime() - startedAt) / 1_000_000_000.0);
+        return new ImportProgress(legacyTable, read.sum(), imported.sum(), skipped.sum(), cursor, read.sum() / seconds, finished);
+    }
+
+    private List<LegacyRow> readPage(LegacyTable legacyTable, long afterId) {
+        // Постраничное чтение по первичному ключу: каждая страница - короткий запрос без открытого курсора на всю таблицу.
+        String sql = "SELECT id, name, uuid, reason, operator, punishmentType, start, end FROM " + legacyTable.tableName()
+                + " WHERE id > ? ORDER BY id LIMIT ?";
+        List<LegacyRow> rows = new ArrayList<>(pageSize);
+        try (Connection connection = source.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, afterId);
+            statement.setInt(2, pageSize);
+            statement.setFetchSize(pageSize);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    rows.add(new LegacyRow(
+                            resultSet.getLong(1),
+                            resultSet.getString(2),
+                            resultSet.getString(3),
+                            resultSet.getString(4),
+                            resultSet.getString(5),
+                            resultSet.getString(6),
+                            resultSet.getLong(7),
+                            resultSet.getLong(8)
+                    ));
+                }
+            }
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось прочитать таблицу " + legacyTable.tableName() + ".", exception);
+        }
+        return rows;
+    }
+
+    private int writePage(LegacyTable legacyTable, List<LegacyRow> rows, LongAdder skipped) {
+        try (Connection connection = target.getConnection()) {
+            boolean sqlite = DatabaseMeta.isSqlite(connection);
+            String historySql = (sqlite ? "INSERT OR IGNORE INTO" : "INSERT IGNORE INTO")
+                    + " pluginbans_punishment_history (" + HISTORY_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+            connection.setAutoCommit(false);
+            try (PreparedStatement punishments = connection.prepareStatement(table.insertIgnoringDuplicates(sqlite));
+                 PreparedStatement history = connection.prepareStatement(historySql)) {
+                List<PunishmentRecord> batch = new ArrayList<>(rows.size());
+                for (LegacyRow row : rows) {
+                    PunishmentRecord record = map(row, legacyTable.active);
+                    if (record == null) {
+                        skipped.increment();
+                        continue;
+                    }
+                    table.bindInsert(punishments, record);
+                    punishments.addBatch();
+                    bindHistory(history, record);
+                    history.addBatch();
+                    batch.add(record);
+                }
+                int inserted = 0;
+                if (!batch.isEmpty()) {
+                    int[] punishmentCounts = punishments.executeBatch();
+                    List<PunishmentRecord> indexed = new ArrayList<>(batch.size());
+                    for (int i = 0; i < punishmentCounts.length; i++) {
+                        if (punishmentCounts[i] > 0 || punishmentCounts[i] == Statement.SUCCESS_NO_INFO) {
+                            inserted++;
+                            indexed.add(batch.get(i));
+                        }
+                    }
+                    PunishmentSearch.index(connection, indexed);
+                    // В сводку попадают только действительно добавленные строки истории, повтор страницы её не удваивает.
+                    int[] historyCounts = history.executeBatch();
+                    List<PunishmentHistoryRecord> added = new ArrayList<>(batch.size());
+                    for (int i = 0; i < historyCounts.length; i++) {
+                        if (historyCounts[i] > 0 || historyCounts[i] == Statement.SUCCESS_NO_INFO) {
+                            added.add(toHistory(batch.get(i)));
+                        }
+                    }
+                    StatsRollup.apply(connection, added);
+                }
+                connection.commit();
+                return inserted;
+            } catch (SQLException | RuntimeException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось записать страницу импорта.", exception);
+        }
+    }
+
+    private static PunishmentRecord map(LegacyRow row, boolean activeTable) {
+        PunishmentType type = mapType(row.type());
+        if (type == null || row.start() <= 0L) {
+            return null;
+        }
+        Instant start = Instant.ofEpochMilli(row.start());
+        Instant end = row.end() <= 0L ? null : Instant.ofEpochMilli(row.end());
+        if (type == PunishmentType.BAN && end != null) {
+            type = PunishmentType.TEMPBAN;
+        }
+        // У IP-банов AdvancedBan хранит в колонке uuid сам адрес.
+        String ip = null;
+        UUID uuid;
+        if (type == PunishmentType.IPBAN) {
+            ip = row.uuid();
+            if (ip == null || ip.isBlank()) {
+                return null;
+            }
+            uuid = IpRange.NO_PLAYER;
+        } else {
+            uuid = parseUuid(row.uuid(), row.name());
+            if (uuid == null) {
+                return null;
+            }
+        }
+        boolean active = activeTable && (end == null || end.isAfter(Instant.now()));
+        return new PunishmentRecord(
+                uuid,
+                ip,
+                ip == null ? null : IpHashing.hash(ip),
+                type,
+                row.reason() == null ? "" : row.reason(),
+                row.operator() == null ? "CONSOLE" : row.operator(),
+                start,
+                end,
+                active,
+                legacyId(row),
+                false
+        );
+    }
+
+    static PunishmentType mapType(String legacyType) {
+        if (legacyType == null) {
+            return null;
+        }
+        return switch (legacyType.toUpperCase(Locale.ROOT)) {
+            case "BAN" -> PunishmentType.BAN;
+            case "TEMP_BAN" -> PunishmentType.TEMPBAN;
+            case "IP_BAN", "TEMP_IP_BAN" -> PunishmentType.IPBAN;
+            case "MUTE", "TEMP_MUTE" -> PunishmentType.MUTE;
+            case "WARNING", "TEMP_WARNING" -> PunishmentType.WARN;
+            default -> null;
+        };
+    }
+
+    static UUID parseUuid(String raw, String name) {
+        if (raw != null && raw.length() == 32) {
+            try {
+                return UUID.fromString(raw.replaceFirst("(\\p{XDigit}{8})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{12})", "$1-$2-$3-$4-$5"));
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        if (raw != null && raw.length() == 36) {
+            try {
+                return UUID.fromString(raw);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        // В офлайн-режиме AdvancedBan пишет вместо UUID имя; такой UUID сервер выдаёт игроку сам.
+        String offlineName = name != null && !name.isBlank() ? name : raw;
+        if (offlineName == null || offlineName.isBlank()) {
+            return null;
+        }
+        return UUID.nameUUIDFromBytes(("OfflinePlayer:" + offlineName).getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String legacyId(LegacyRow row) {
+        // Строки Punishments и PunishmentHistory об одном наказании совпадают по (uuid, start, тип), а не по id.
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest((row.uuid() + "|" + row.start() + "|" + row.type()).getBytes(StandardCharsets.UTF_8));
+            long value = 0L;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (hash[i] & 0xFF);
+            }
+            String encoded = Long.toString(value & Long.MAX_VALUE, 36).toUpperCase(Locale.ROOT);
+            return "AB" + "0".repeat(Math.max(0, 10 - encoded.length())) + encoded.substring(0, Math.min(10, encoded.length()));
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException("Не удалось вычислить ID наказания.", exception);
+        }
+    }
+
+    private static PunishmentHistoryRecord toHistory(PunishmentRecord record) {
+        return new PunishmentHistoryRecord(
+                record.internalId() + "-" + record.startTime().toEpochMilli(),
+                record.uuid(),
+                record.ip(),
+                record.ipHash(),
+                record.type(),
+                record.reason(),
+                record.actor(),
+                record.startTime(),
+                record.endTime(),
+                record.internalId(),
+                "CREATE",
+                record.startTime()
+        );
+    }
+
+    private static void bindHistory(PreparedStatement statement, PunishmentRecord record) throws SQLException {
+        statement.setString(1, record.internalId() + "-" + record.startTime().toEpochMilli());
+        statement.setString(2, record.uuid().toString());
+        statement.setString(3, record.ip());
+        statement.setString(4, record.ipHash());
+        statement.setString(5, record.type().name());
+        statement.setString(6, record.reason());
+        statement.setString(7, record.actor());
+        statement.setLong(8, record.startTime().toEpochMilli());
+        if (record.endTime() == null) {
+            statement.setNull(9, Types.BIGINT);
+        } else {
+            statement.setLong(9, record.endTime().toEpochMilli());
+        }
+        statement.setString(10, record.internalId());
+        statement.setString(11, "CREATE");
+        statement.setLong(12, record.startTime().toEpochMilli());
+    }
+
+    private long readCheckpoint(LegacyTable legacyTable) {
+        try (Connection connection = target.getConnection()) {
+            String value = DatabaseMeta.read(connection, legacyTable.cursorKey());
+            return value == null ? 0L : Long.parseLong(value);
+        } catch (SQLException | NumberFormatException exception) {
+            throw new IllegalStateException("Не удалось прочитать позицию импорта.", exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        writers.shutdownNow();
+    }
+
+    private final class Checkpoint {
+        private final LegacyTable legacyTable;
+        private final TreeMap<Long, Long> completed = new TreeMap<>();
+        private long nextPage;
+        private volatile long watermark;
+
+        private Checkpoint(LegacyTable legacyTable, long watermark) {
+            this.legacyTable = legacyTable;
+            this.watermark = watermark;
+        }
+
+        private long watermark() {
+            return watermark;
+        }
+
+        private synchronized void complete(Page page) {
+            // Страницы завершаются не по порядку; позиция двигается только по непрерывному префиксу записанных.
+            completed.put(page.number(), page.lastId());
+            long advanced = -1L;
+            while (completed.containsKey(nextPage)) {
+                advanced = completed.remove(nextPage);
+                nextPage++;
+            }
+            if (advanced < 0L) {
+                return;
+            }
+            try (Connection connection = target.getConnection()) {
+                DatabaseMeta.write(connection, legacyTable.cursorKey(), Long.toString(advanced));
+                watermark = advanced;
+            } catch (SQLException exception) {
+                throw new IllegalStateException("Не удалось сохранить позицию импорта.", exception);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.pluginbans.core;
+
+import java.util.Arrays;
+
+public final class CircuitBreaker {
+    public enum State {
+        CLOSED,
+        OPEN
+    }
+
+    private final CircuitBreakerConfig config;
+    private final boolean[] failed;
+    private final boolean[] slow;
+    private final long slowThresholdNanos;
+    private int position;
+    private int recorded;
+    private int failedCount;
+    private int slowCount;
+    private volatile State state = State.CLOSED;
+    private volatile long openedAtMillis;
+
+    public CircuitBreaker(CircuitBreakerConfig config) {
+        this.config = config;
+        int window = Math.max(1, config.windowSize());
+        this.failed = new boolean[window];
+        this.slow = new boolean[window];
+        this.slowThresholdNanos = config.slowCallThreshold().toNanos();
+    }
+
+    public boolean allowRequest() {
+        return !config.enabled() || state == State.CLOSED;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public long openedAtMillis() {
+        return openedAtMillis;
+    }
+
+    public synchronized void record(boolean failure, long durationNanos) {
+        if (!config.enabled() || state == State.OPEN) {
+            return;
+        }
+        boolean slowCall = durationNanos >= slowThresholdNanos;
+        if (recorded == failed.length) {
+            if (failed[position]) {
+                failedCount--;
+            }
+            if (slow[position]) {
+                slowCount--;
+            }
+        } else {
+            recorded++;
+        }
+        failed[position] = failure;
+        slow[position] = slowCall;
+        if (failure) {
+            failedCount++;
+        }
+        if (slowCall) {
+            slowCount++;
+        }
+        position = (position + 1) % failed.length;
+        if (recorded < Math.max(1, config.minimumCalls())) {
+            return;
+        }
+        if ((double) failedCount / recorded >= config.failureRateThreshold()
+                || (double) slowCount / recorded >= config.slowCallRateThreshold()) {
+            open();
+        }
+    }
+
+    public synchronized void open() {
+        if (state == State.OPEN) {
+            return;
+        }
+        state = State.OPEN;
+        openedAtMillis = System.currentTimeMillis();
+    }
+
+    public synchronized void close() {
+        position = 0;
+        recorded = 0;
+        failedCount = 0;
+        slowCount = 0;
+        Arrays.fill(failed, false);
+        Arrays.fill(slow, false);
+        state = State.CLOSED;
+    }
+}
@@ -0,0 +1,17 @@
+package com.pluginbans.core;
+
+import java.time.Duration;
+
+public record CircuitBreakerConfig(
+        boolean enabled,
+        int windowSize,
+        int minimumCalls,
+        double failureRateThreshold,
+        Duration slowCallThreshold,
+        double slowCallRateThreshold,
+        Duration probeInterval
+) {
+    public static CircuitBreakerConfig defaults() {
+        return new CircuitBreakerConfig(true, 20, 10, 0.5, Duration.ofSeconds(2), 0.8, Duration.ofSeconds(5));
+    }
+}
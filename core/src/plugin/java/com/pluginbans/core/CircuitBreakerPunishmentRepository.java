@@ -0,0 +1,176 @@
+package com.pluginbans.core;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+public final class CircuitBreakerPunishmentRepository implements PunishmentRepository, AutoCloseable {
+    private final PunishmentRepository delegate;
+    private final CircuitBreaker breaker;
+    private final ScheduledExecutorService prober;
+
+    public CircuitBreakerPunishmentRepository(PunishmentRepository delegate, CircuitBreakerConfig config) {
+        this.delegate = delegate;
+        this.breaker = new CircuitBreaker(config);
+        this.prober = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PluginBans-Проверка-БД");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long probeMillis = Math.max(500L, config.probeInterval().toMillis());
+        this.prober.scheduleWithFixedDelay(this::probe, probeMillis, probeMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    @Override
+    public CompletableFuture<Void> addPunishment(PunishmentRecord record) {
+        return guard(() -> delegate.addPunishment(record));
+    }
+
+    @Override
+    public CompletableFuture<Void> addPunishments(List<PunishmentRecord> records) {
+        return guard(() -> delegate.addPunishments(records));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> addWithEscalation(PunishmentRecord trigger, EscalationPolicy policy) {
+        return guard(() -> delegate.addWithEscalation(trigger, policy));
+    }
+
+    @Override
+    public CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action) {
+        return guard(() -> delegate.deactivate(internalId, actor, reason, action));
+    }
+
+    @Override
+    public CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action, Workload workload) {
+        return guard(() -> delegate.deactivate(internalId, actor, reason, action, workload));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByUuid(UUID uuid) {
+        return guard(() -> delegate.findActiveByUuid(uuid));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByUuid(UUID uuid, Workload workload) {
+        return guard(() -> delegate.findActiveByUuid(uuid, workload));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByIp(String ip) {
+        return guard(() -> delegate.findActiveByIp(ip));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByIpHash(String ipHash) {
+        return guard(() -> delegate.findActiveByIpHash(ipHash));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findAllActive() {
+        return guard(delegate::findAllActive);
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveStartedSince(Instant since) {
+        return guard(() -> delegate.findActiveStartedSince(since));
+    }
+
+    @Override
+    public CompletableFuture<String> findImportGeneration() {
+        return guard(delegate::findImportGeneration);
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findExpiredActive(Instant now, int limit) {
+        return guard(() -> delegate.findExpiredActive(now, limit));
+    }
+
+    @Override
+    public CompletableFuture<Optional<PunishmentRecord>> findByInternalId(String internalId) {
+        return guard(() -> delegate.findByInternalId(internalId));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findByInternalIds(List<String> internalIds, Workload workload) {
+        return guard(() -> delegate.findByInternalIds(internalIds, workload));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid) {
+        return guard(() -> delegate.findHistory(uuid));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid, boolean includeArchive) {
+        return guard(() -> delegate.findHistory(uuid, includeArchive));
+    }
+
+    @Override
+    public CompletableFuture<List<DailyStat>> findDailyStats(LocalDate from, LocalDate to) {
+        return guard(() -> delegate.findDailyStats(from, to));
+    }
+
+    @Override
+    public CompletableFuture<SearchPage> search(SearchQuery query) {
+        return guard(() -> delegate.search(query));
+    }
+
+    @Override
+    public CompletableFuture<Void> ping() {
+        return delegate.ping();
+    }
+
+    private <T> CompletableFuture<T> guard(Supplier<CompletableFuture<T>> call) {
+        if (!breaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new DatabaseUnavailableException("База данных временно недоступна."));
+        }
+        long started = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException exception) {
+            breaker.record(true, System.nanoTime() - started);
+            return CompletableFuture.failedFuture(exception);
+        }
+        return future.whenComplete((ignored, throwable) -> breaker.record(isDatabaseFailure(throwable), System.nanoTime() - started));
+    }
+
+    private boolean isDatabaseFailure(Throwable throwable) {
+        if (throwable == null) {
+            return false;
+        }
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        // Переполненная очередь одной полосы не говорит о недоступности базы.
+        return !(cause instanceof WorkloadSaturatedException);
+    }
+
+    private void probe() {
+        if (breaker.state() != CircuitBreaker.State.OPEN) {
+            return;
+        }
+        try {
+            delegate.ping().get(5, TimeUnit.SECONDS);
+            breaker.close();
+        } catch (Exception ignored) {
+            // Следующая проверка повторится по расписанию.
+        }
+    }
+
+    @Override
+    public void close() {
+        prober.shutdownNow();
+    }
+}
@@ -0,0 +1,20 @@
+package com.pluginbans.core;
+
+import java.time.Duration;
+import java.util.UUID;
+
+public record ClusterConfig(String nodeId, Duration lease) {
+    public ClusterConfig {
+        nodeId = nodeId == null ? "" : nodeId.trim();
+        lease = lease == null ? Duration.ofSeconds(15) : lease;
+    }
+
+    public static ClusterConfig defaults() {
+        return new ClusterConfig("", Duration.ofSeconds(15));
+    }
+
+    public String nodeIdOr(String prefix) {
+        // Без явного ID узел получает случайный: после падения он всё равно ждёт истечения чужой аренды.
+        return nodeId.isEmpty() ? prefix + "-" + UUID.randomUUID().toString().substring(0, 8) : nodeId;
+    }
+}
@@ -0,0 +1,170 @@
+package com.pluginbans.core;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class ClusterLeader implements AutoCloseable {
+    public static final String BACKGROUND_LEASE = "background-jobs";
+    // Архив ведут только серверы Paper: прокси его не запускает и не должен забирать эту аренду.
+    public static final String RETENTION_LEASE = "retention";
+    private static final String SQLITE_NOW = "SELECT CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+    private static final String MYSQL_NOW = "SELECT CAST(UNIX_TIMESTAMP(CURRENT_TIMESTAMP(3)) * 1000 AS SIGNED)";
+    private static final Duration DEFAULT_LEASE = Duration.ofSeconds(15);
+    private static final Duration MIN_LEASE = Duration.ofSeconds(3);
+
+    private final DataSource dataSource;
+    private final String name;
+    private final String nodeId;
+    private final Duration lease;
+    private final long renewNanos;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder takeovers = new LongAdder();
+    private volatile long validUntilNanos = Long.MIN_VALUE;
+    private volatile boolean leader;
+    private volatile String holder;
+
+    public ClusterLeader(DataSource dataSource, String nodeId) {
+        this(dataSource, BACKGROUND_LEASE, nodeId, DEFAULT_LEASE);
+    }
+
+    public ClusterLeader(DataSource dataSource, String name, String nodeId, Duration lease) {
+        if (nodeId == null || nodeId.isBlank() || nodeId.length() > 64) {
+            throw new IllegalArgumentException("ID узла должен быть непустым и не длиннее 64 символов.");
+        }
+        this.dataSource = dataSource;
+        this.name = name;
+        this.nodeId = nodeId;
+        this.lease = lease == null || lease.compareTo(MIN_LEASE) < 0 ? MIN_LEASE : lease;
+        this.renewNanos = this.lease.toNanos() / 3;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PluginBans-Лидер");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                renew();
+            } catch (RuntimeException ignored) {
+                // Без связи с базой аренда истечёт сама, и задачи возьмёт другой узел.
+            }
+        }, 0, renewNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isLeader() {
+        // Лидерство действует, пока не истёк запас времени с последнего продления, даже если поток продления завис.
+        return leader && System.nanoTime() - validUntilNanos < 0;
+    }
+
+    public boolean renew() {
+        long started = System.nanoTime();
+        boolean acquired;
+        // Продление не ждёт в очереди фоновой полосы: задержка за долгой задачей отдала бы лидерство.
+        try (Connection connection = dataSource.getConnection()) {
+            // Срок аренды сравнивается по часам базы: у узлов с разошедшимися часами иначе было бы два лидера.
+            long now = databaseNow(connection);
+            long expiresAt = now + lease.toMillis();
+            acquired = update(connection, now, expiresAt) || insert(connection, expiresAt);
+            holder = acquired ? nodeId : readHolder(connection);
+        } catch (SQLException exception) {
+            leader = false;
+            throw new IllegalStateException("Не удалось продлить аренду лидера.", exception);
+        }
+        if (acquired) {
+            if (!leader) {
+                takeovers.increment();
+            }
+            // Узел считает себя лидером на треть срока меньше, чем видят остальные: запас на задержку продления.
+            validUntilNanos = started + lease.toNanos() - renewNanos;
+        }
+        leader = acquired;
+        return acquired;
+    }
+
+    private static long databaseNow(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(DatabaseMeta.isSqlite(connection) ? SQLITE_NOW : MYSQL_NOW);
+             ResultSet resultSet = statement.executeQuery()) {
+            if (!resultSet.next()) {
+                throw new SQLException("База не вернула текущее время.");
+            }
+            return resultSet.getLong(1);
+        }
+    }
+
+    private boolean update(Connection connection, long now, long expiresAt) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE pluginbans_leases SET holder = ?, expires_at = ? WHERE name = ? AND (holder = ? OR expires_at < ?)")) {
+            statement.setString(1, nodeId);
+            statement.setLong(2, expiresAt);
+            statement.setString(3, name);
+            statement.setString(4, nodeId);
+            statement.setLong(5, now);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    private boolean insert(Connection connection, long expiresAt) throws SQLException {
+        String verb = DatabaseMeta.isSqlite(connection) ? "INSERT OR IGNORE INTO" : "INSERT IGNORE INTO";
+        try (PreparedStatement statement = connection.prepareStatement(
+                verb + " pluginbans_leases (name, holder, expires_at) VALUES (?, ?, ?)")) {
+            statement.setString(1, name);
+            statement.setString(2, nodeId);
+            statement.setLong(3, expiresAt);
+            return statement.executeUpdate() > 0;
+        }
+    }
+
+    private String readHolder(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT holder FROM pluginbans_leases WHERE name = ?")) {
+            statement.setString(1, name);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    private void release() {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "UPDATE pluginbans_leases SET expires_at = 0 WHERE name = ? AND holder = ?")) {
+            statement.setString(1, name);
+            statement.setString(2, nodeId);
+            statement.executeUpdate();
+        } catch (SQLException ignored) {
+            // Аренда истечёт по сроку.
+        }
+    }
+
+    public String nodeId() {
+        return nodeId;
+    }
+
+    public String holder() {
+        return holder;
+    }
+
+    public long takeovers() {
+        return takeovers.sum();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        boolean wasLeader = leader;
+        leader = false;
+        // При штатной остановке аренда отпускается сразу, и следующий узел забирает её на ближайшем продлении.
+        if (wasLeader) {
+            release();
+        }
+    }
+}
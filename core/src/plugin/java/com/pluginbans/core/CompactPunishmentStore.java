@@ -0,0 +1,576 @@
+package com.pluginbans.core;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public final class CompactPunishmentStore {
+    private static final int NONE = -1;
+    private static final byte IP_NONE = 0;
+    private static final byte IP_TEXT = 1;
+    private static final byte IP_V4 = 4;
+    private static final byte IP_V6 = 16;
+    private static final byte HASH_NONE = 0;
+    private static final byte HASH_RAW = 1;
+    private static final byte HASH_TEXT = 2;
+    private static final byte FLAG_USED = 1;
+    private static final byte FLAG_SILENT = 2;
+    private static final String ID_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    static final int MAX_PACKED_ID_LENGTH = 12;
+    static final int ID_RADIX = 37;
+    private static final PunishmentType[] TYPES = PunishmentType.values();
+
+    private final StringDictionary dictionary = new StringDictionary();
+    private final Chain byId = new Chain();
+    private final Chain byUuid = new Chain();
+    private final Chain byIp = new Chain();
+    private final Chain byIpHash = new Chain();
+    private long[] uuidHigh;
+    private long[] uuidLow;
+    private long[] startMillis;
+    private long[] endMillis;
+    private long[] ids;
+    private byte[] types;
+    private byte[] flags;
+    private int[] reasons;
+    private int[] actors;
+    private byte[] ipKinds;
+    private byte[] ips;
+    private int[] ipTexts;
+    private byte[] hashKinds;
+    private byte[] hashes;
+    private int[] hashTexts;
+    private int[] freeSlots;
+    private int freeCount;
+    private int highWater;
+    private int size;
+
+    public CompactPunishmentStore() {
+        allocate(16);
+    }
+
+    public void clear() {
+        dictionary.clear();
+        byId.clear();
+        byUuid.clear();
+        byIp.clear();
+        byIpHash.clear();
+        allocate(16);
+    }
+
+    public void add(PunishmentRecord record) {
+        remove(record.internalId());
+        int slot = acquireSlot();
+        uuidHigh[slot] = record.uuid().getMostSignificantBits();
+        uuidLow[slot] = record.uuid().getLeastSignificantBits();
+        startMillis[slot] = record.startTime().toEpochMilli();
+        endMillis[slot] = record.endTime() == null ? Long.MIN_VALUE : record.endTime().toEpochMilli();
+        ids[slot] = encodeId(record.internalId(), true);
+        types[slot] = (byte) record.type().ordinal();
+        flags[slot] = (byte) (FLAG_USED | (record.silent() ? FLAG_SILENT : 0));
+        reasons[slot] = dictionary.encode(record.reason());
+        actors[slot] = dictionary.encode(record.actor());
+        encodeIp(slot, record.ip());
+        encodeHash(slot, record.ipHash());
+        byId.link(ids[slot], slot);
+        byUuid.link(uuidKey(uuidHigh[slot], uuidLow[slot]), slot);
+        if (ipKinds[slot] != IP_NONE) {
+            byIp.link(ipKey(slot), slot);
+        }
+        if (hashKinds[slot] != HASH_NONE) {
+            byIpHash.link(hashKey(slot), slot);
+        }
+        size++;
+    }
+
+    public boolean remove(String internalId) {
+        long id = encodeId(internalId, false);
+        if (id == NONE) {
+            return false;
+        }
+        int slot = byId.first(id);
+        while (slot != NONE && ids[slot] != id) {
+            slot = byId.next[slot];
+        }
+        if (slot == NONE) {
+            return false;
+        }
+        byId.unlink(id, slot);
+        byUuid.unlink(uuidKey(uuidHigh[slot], uuidLow[slot]), slot);
+        if (ipKinds[slot] != IP_NONE) {
+            byIp.unlink(ipKey(slot), slot);
+        }
+        if (hashKinds[slot] != HASH_NONE) {
+            byIpHash.unlink(hashKey(slot), slot);
+        }
+        flags[slot] = 0;
+        freeSlots[freeCount++] = slot;
+        size--;
+        return true;
+    }
+
+    public List<PunishmentRecord> findForConnection(UUID uuid, String ip, String ipHash, Instant now) {
+        long nowMillis = now.toEpochMilli();
+        List<Integer> matched = new ArrayList<>(2);
+        if (uuid != null) {
+            long high = uuid.getMostSignificantBits();
+            long low = uuid.getLeastSignificantBits();
+            for (int slot = byUuid.first(uuidKey(high, low)); slot != NONE; slot = byUuid.next[slot]) {
+                if (uuidHigh[slot] == high && uuidLow[slot] == low) {
+                    collect(matched, slot, nowMillis);
+                }
+            }
+        }
+        if (ip != null) {
+            byte[] probe = new byte[16];
+            int text = NONE;
+            byte kind = parseIp(ip, probe);
+            if (kind == IP_TEXT) {
+                text = dictionary.find(ip);
+            }
+            if (kind != IP_TEXT || text != NONE) {
+                long key = kind == IP_TEXT ? textKey(text) : bytesKey(probe, 0, kind);
+                for (int slot = byIp.first(key); slot != NONE; slot = byIp.next[slot]) {
+                    if (ipKinds[slot] == kind && (kind == IP_TEXT ? ipTexts[slot] == text : Arrays.equals(ips, slot * 16, slot * 16 + kind, probe, 0, kind))) {
+                        collect(matched, slot, nowMillis);
+                    }
+                }
+            }
+        }
+        if (ipHash != null) {
+            byte[] raw = StorageCodec.hashToBytes(ipHash);
+            int text = raw == null ? dictionary.find(ipHash) : NONE;
+            if (raw != null || text != NONE) {
+                long key = raw == null ? textKey(text) : bytesKey(raw, 0, 8);
+                for (int slot = byIpHash.first(key); slot != NONE; slot = byIpHash.next[slot]) {
+                    boolean same = raw == null
+                            ? hashKinds[slot] == HASH_TEXT && hashTexts[slot] == text
+                            : hashKinds[slot] == HASH_RAW && Arrays.equals(hashes, slot * 32, slot * 32 + 32, raw, 0, 32);
+                    if (same) {
+                        collect(matched, slot, nowMillis);
+                    }
+                }
+            }
+        }
+        List<PunishmentRecord> records = new ArrayList<>(matched.size());
+        for (int slot : matched) {
+            records.add(materialize(slot));
+        }
+        return records;
+    }
+
+    public List<PunishmentRecord> all() {
+        List<PunishmentRecord> records = new ArrayList<>(size);
+        for (int slot = 0; slot < highWater; slot++) {
+            if ((flags[slot] & FLAG_USED) != 0) {
+                records.add(materialize(slot));
+            }
+        }
+        return records;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void collect(List<Integer> matched, int slot, long nowMillis) {
+        if (endMillis[slot] != Long.MIN_VALUE && endMillis[slot] <= nowMillis) {
+            return;
+        }
+        if (!matched.contains(slot)) {
+            matched.add(slot);
+        }
+    }
+
+    private PunishmentRecord materialize(int slot) {
+        return new PunishmentRecord(
+                new UUID(uuidHigh[slot], uuidLow[slot]),
+                decodeIp(slot),
+                decodeHash(slot),
+                TYPES[types[slot]],
+                dictionary.decode(reasons[slot]),
+                dictionary.decode(actors[slot]),
+                Instant.ofEpochMilli(startMillis[slot]),
+                endMillis[slot] == Long.MIN_VALUE ? null : Instant.ofEpochMilli(endMillis[slot]),
+                true,
+                decodeId(ids[slot]),
+                (flags[slot] & FLAG_SILENT) != 0
+        );
+    }
+
+    private int acquireSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (highWater == uuidHigh.length) {
+            grow(uuidHigh.length + (uuidHigh.length >> 1));
+        }
+        return highWater++;
+    }
+
+    private void allocate(int capacity) {
+        uuidHigh = new long[capacity];
+        uuidLow = new long[capacity];
+        startMillis = new long[capacity];
+        endMillis = new long[capacity];
+        ids = new long[capacity];
+        types = new byte[capacity];
+        flags = new byte[capacity];
+        reasons = new int[capacity];
+        actors = new int[capacity];
+        ipKinds = new byte[capacity];
+        ips = new byte[capacity * 16];
+        ipTexts = new int[capacity];
+        hashKinds = new byte[capacity];
+        hashes = new byte[capacity * 32];
+        hashTexts = new int[capacity];
+        freeSlots = new int[capacity];
+        byId.resize(capacity);
+        byUuid.resize(capacity);
+        byIp.resize(capacity);
+        byIpHash.resize(capacity);
+        freeCount = 0;
+        highWater = 0;
+        size = 0;
+    }
+
+    private void grow(int capacity) {
+        uuidHigh = Arrays.copyOf(uuidHigh, capacity);
+        uuidLow = Arrays.copyOf(uuidLow, capacity);
+        startMillis = Arrays.copyOf(startMillis, capacity);
+        endMillis = Arrays.copyOf(endMillis, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        types = Arrays.copyOf(types, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        reasons = Arrays.copyOf(reasons, capacity);
+        actors = Arrays.copyOf(actors, capacity);
+        ipKinds = Arrays.copyOf(ipKinds, capacity);
+        ips = Arrays.copyOf(ips, capacity * 16);
+        ipTexts = Arrays.copyOf(ipTexts, capacity);
+        hashKinds = Arrays.copyOf(hashKinds, capacity);
+        hashes = Arrays.copyOf(hashes, capacity * 32);
+        hashTexts = Arrays.copyOf(hashTexts, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+        byId.resize(capacity);
+        byUuid.resize(capacity);
+        byIp.resize(capacity);
+        byIpHash.resize(capacity);
+    }
+
+    private void encodeIp(int slot, String ip) {
+        ipTexts[slot] = NONE;
+        if (ip == null) {
+            ipKinds[slot] = IP_NONE;
+            return;
+        }
+        byte[] parsed = new byte[16];
+        byte kind = parseIp(ip, parsed);
+        ipKinds[slot] = kind;
+        if (kind == IP_TEXT) {
+            ipTexts[slot] = dictionary.encode(ip);
+        } else {
+            System.arraycopy(parsed, 0, ips, slot * 16, 16);
+        }
+    }
+
+    private String decodeIp(int slot) {
+        byte kind = ipKinds[slot];
+        if (kind == IP_NONE) {
+            return null;
+        }
+        if (kind == IP_TEXT) {
+            return dictionary.decode(ipTexts[slot]);
+        }
+        return StorageCodec.ipFromBytes(Arrays.copyOfRange(ips, slot * 16, slot * 16 + kind));
+    }
+
+    private long ipKey(int slot) {
+        return ipKinds[slot] == IP_TEXT ? textKey(ipTexts[slot]) : bytesKey(ips, slot * 16, ipKinds[slot]);
+    }
+
+    private void encodeHash(int slot, String ipHash) {
+        hashTexts[slot] = NONE;
+        if (ipHash == null) {
+            hashKinds[slot] = HASH_NONE;
+            return;
+        }
+        byte[] raw = StorageCodec.hashToBytes(ipHash);
+        if (raw == null) {
+            hashKinds[slot] = HASH_TEXT;
+            hashTexts[slot] = dictionary.encode(ipHash);
+            return;
+        }
+        hashKinds[slot] = HASH_RAW;
+        System.arraycopy(raw, 0, hashes, slot * 32, 32);
+    }
+
+    private String decodeHash(int slot) {
+        return switch (hashKinds[slot]) {
+            case HASH_RAW -> StorageCodec.hashFromBytes(Arrays.copyOfRange(hashes, slot * 32, slot * 32 + 32));
+            case HASH_TEXT -> dictionary.decode(hashTexts[slot]);
+            default -> null;
+        };
+    }
+
+    private long hashKey(int slot) {
+        return hashKinds[slot] == HASH_TEXT ? textKey(hashTexts[slot]) : bytesKey(hashes, slot * 32, 8);
+    }
+
+    private long encodeId(String internalId, boolean register) {
+        if (internalId == null) {
+            return NONE;
+        }
+        long packed = packId(internalId);
+        if (packed != NONE) {
+            return packed;
+        }
+        // Нестандартные ID хранятся в словаре и кодируются отрицательным числом, чтобы не пересекаться с упакованными.
+        int code = register ? dictionary.encode(internalId) : dictionary.find(internalId);
+        return code == NONE ? NONE : -2L - code;
+    }
+
+    private String decodeId(long id) {
+        if (id < 0L) {
+            return dictionary.decode((int) (-2L - id));
+        }
+        return unpackId(id);
+    }
+
+    static long packId(String internalId) {
+        if (internalId.isEmpty() || internalId.length() > MAX_PACKED_ID_LENGTH) {
+            return NONE;
+        }
+        // Цифра хранится со сдвигом на единицу, поэтому ID одной длины упорядочены как строки.
+        long packed = 0L;
+        for (int i = 0; i < internalId.length(); i++) {
+            int digit = ID_ALPHABET.indexOf(internalId.charAt(i));
+            if (digit < 0) {
+                return NONE;
+            }
+            packed = packed * ID_RADIX + digit + 1;
+        }
+        return packed;
+    }
+
+    static String unpackId(long packed) {
+        StringBuilder builder = new StringBuilder(MAX_PACKED_ID_LENGTH);
+        long remaining = packed;
+        while (remaining > 0L) {
+            builder.append(ID_ALPHABET.charAt((int) (remaining % ID_RADIX) - 1));
+            remaining /= ID_RADIX;
+        }
+        return builder.reverse().toString();
+    }
+
+    private static byte parseIp(String ip, byte[] target) {
+        byte[] address = StorageCodec.ipToBytes(ip);
+        // Адрес хранится в байтах, только если обратное преобразование даёт ту же строку.
+        if (address == null || !ip.equals(StorageCodec.ipFromBytes(address))) {
+            return IP_TEXT;
+        }
+        System.arraycopy(address, 0, target, 0, address.length);
+        return address.length == 4 ? IP_V4 : IP_V6;
+    }
+
+    private static long uuidKey(long high, long low) {
+        return mix(high ^ Long.rotateLeft(low, 32));
+    }
+
+    private static long textKey(int code) {
+        return mix(~(long) code);
+    }
+
+    private static long bytesKey(byte[] bytes, int offset, int length) {
+        long key = length;
+        for (int i = 0; i < length; i++) {
+            key = key * 31 + bytes[offset + i];
+        }
+        return mix(key);
+    }
+
+    private static long mix(long value) {
+        long mixed = value;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xc4ceb9fe1a85ec53L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+
+    private static final class Chain {
+        private final LongIntHashMap heads = new LongIntHashMap();
+        private int[] next = new int[0];
+
+        void resize(int capacity) {
+            int previous = next.length;
+            next = Arrays.copyOf(next, capacity);
+            if (capacity > previous) {
+                Arrays.fill(next, previous, capacity, NONE);
+            }
+        }
+
+        void clear() {
+            heads.clear();
+            next = new int[0];
+        }
+
+        int first(long key) {
+            return heads.get(key);
+        }
+
+        void link(long key, int slot) {
+            next[slot] = heads.get(key);
+            heads.put(key, slot);
+        }
+
+        void unlink(long key, int slot) {
+            int previous = NONE;
+            int current = heads.get(key);
+            while (current != NONE && current != slot) {
+                previous = current;
+                current = next[current];
+            }
+            if (current == NONE) {
+                return;
+            }
+            if (previous != NONE) {
+                next[previous] = next[slot];
+            } else if (next[slot] == NONE) {
+                heads.remove(key);
+            } else {
+                heads.put(key, next[slot]);
+            }
+            next[slot] = NONE;
+        }
+    }
+
+    private static final class LongIntHashMap {
+        private long[] keys;
+        private int[] values;
+        private int mask;
+        private int size;
+
+        LongIntHashMap() {
+            clear();
+        }
+
+        void clear() {
+            keys = new long[16];
+            values = new int[16];
+            Arrays.fill(values, NONE);
+            mask = 15;
+            size = 0;
+        }
+
+        int get(long key) {
+            for (int i = index(key); values[i] != NONE; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return NONE;
+        }
+
+        void put(long key, int value) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                rehash(keys.length * 2);
+            }
+            int i = index(key);
+            while (values[i] != NONE) {
+                if (keys[i] == key) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        void remove(long key) {
+            int gap = index(key);
+            while (values[gap] != NONE && keys[gap] != key) {
+                gap = (gap + 1) & mask;
+            }
+            if (values[gap] == NONE) {
+                return;
+            }
+            size--;
+            // Сдвиг следующих записей назад сохраняет цепочки линейного пробирования без надгробий.
+            int i = gap;
+            while (true) {
+                i = (i + 1) & mask;
+                if (values[i] == NONE) {
+                    values[gap] = NONE;
+                    return;
+                }
+                int home = index(keys[i]);
+                boolean reachable = gap <= i ? gap < home && home <= i : gap < home || home <= i;
+                if (reachable) {
+                    continue;
+                }
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+
+        private void rehash(int capacity) {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, NONE);
+            mask = capacity - 1;
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != NONE) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private int index(long key) {
+            return (int) (key ^ (key >>> 32)) & mask;
+        }
+    }
+
+    private static final class StringDictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int encode(String value) {
+            if (value == null) {
+                return NONE;
+            }
+            Integer existing = codes.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            int code = values.size();
+            values.add(value);
+            codes.put(value, code);
+            return code;
+        }
+
+        int find(String value) {
+            Integer existing = value == null ? null : codes.get(value);
+            return existing == null ? NONE : existing;
+        }
+
+        String decode(int code) {
+            return code == NONE ? null : values.get(code);
+        }
+
+        void clear() {
+            codes.clear();
+            values.clear();
+        }
+    }
+}
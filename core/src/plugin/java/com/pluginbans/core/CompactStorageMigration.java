@@ -0,0 +1,177 @@
+package com.pluginbans.core;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class CompactStorageMigration {
+    private static final String CURSOR_KEY = "compact_migration_cursor";
+    static final String DONE_KEY = "compact_migration_done";
+
+    private final DataSource dataSource;
+    private final int chunkSize;
+    private final LongAdder migrated = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder unstorable = new LongAdder();
+
+    public CompactStorageMigration(DataSource dataSource, int chunkSize) {
+        this.dataSource = dataSource;
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    public boolean migrateChunk() {
+        try (Connection connection = dataSource.getConnection()) {
+            if ("1".equals(DatabaseMeta.read(connection, DONE_KEY))) {
+                return true;
+            }
+            connection.setAutoCommit(false);
+            try {
+                boolean done = copyChunk(connection);
+                connection.commit();
+                return done;
+            } catch (SQLException | RuntimeException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось перенести наказания в компактную таблицу.", exception);
+        }
+    }
+
+    public long migratedRows() {
+        return migrated.sum();
+    }
+
+    public long skippedRows() {
+        return skipped.sum();
+    }
+
+    public long unstorableRows() {
+        return unstorable.sum();
+    }
+
+    private boolean copyChunk(Connection connection) throws SQLException {
+        String cursor = DatabaseMeta.read(connection, CURSOR_KEY);
+        List<PunishmentRecord> records = new ArrayList<>(chunkSize);
+        String lastId = null;
+        String select = "SELECT " + PunishmentTable.COLUMNS + " FROM " + PunishmentTable.TEXT.name()
+                + " WHERE internal_id > ? ORDER BY internal_id LIMIT ?";
+        try (PreparedStatement statement = connection.prepareStatement(select)) {
+            statement.setString(1, cursor == null ? "" : cursor);
+            statement.setInt(2, chunkSize);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    lastId = resultSet.getString(1);
+                    try {
+                        records.add(PunishmentTable.TEXT.map(resultSet));
+                    } catch (SQLException | IllegalArgumentException exception) {
+                        // Повреждённая строка остаётся только в старой таблице и не останавливает перенос.
+                        skipped.increment();
+                    }
+                }
+            }
+        }
+        if (lastId == null) {
+            int pending = copyMissed(connection);
+            reconcileDeactivations(connection);
+            if (pending > 0) {
+                // Без флага завершения узлы продолжают читать старую таблицу, и эти наказания не пропадают.
+                throw new IllegalStateException(pending + " наказаний нельзя перенести в компактный формат без потерь IP, "
+                        + "чтение старой таблицы продолжается.");
+            }
+            DatabaseMeta.write(connection, DONE_KEY, "1");
+            return true;
+        }
+        Set<String> present = existingIds(connection, records);
+        try (PreparedStatement insert = connection.prepareStatement(PunishmentTable.BINARY.insert())) {
+            for (PunishmentRecord record : records) {
+                if (present.contains(record.internalId())) {
+                    continue;
+                }
+                if (!PunishmentTable.BINARY.canStore(record)) {
+                    // Читаемая строка со значением, которое компактный формат не хранит, не переносится с потерей IP.
+                    unstorable.increment();
+                    continue;
+                }
+                PunishmentTable.BINARY.bindInsert(insert, record);
+                insert.addBatch();
+                migrated.increment();
+            }
+            insert.executeBatch();
+        }
+        DatabaseMeta.write(connection, CURSOR_KEY, lastId);
+        return false;
+    }
+
+    private Set<String> existingIds(Connection connection, List<PunishmentRecord> records) throws SQLException {
+        Set<String> present = new HashSet<>();
+        if (records.isEmpty()) {
+            return present;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(records.size(), "?"));
+        String sql = "SELECT internal_id FROM " + PunishmentTable.BINARY.name() + " WHERE internal_id IN (" + placeholders + ")";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < records.size(); i++) {
+                statement.setString(i + 1, records.get(i).internalId());
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    present.add(resultSet.getString(1));
+                }
+            }
+        }
+        return present;
+    }
+
+    private int copyMissed(Connection connection) throws SQLException {
+        // Идентификаторы случайны: строка, вставленная узлом со старым форматом ниже курсора, проходом по курсору не видна.
+        String columns = "t." + PunishmentTable.COLUMNS.replace(", ", ", t.");
+        String select = "SELECT " + columns + " FROM " + PunishmentTable.TEXT.name() + " t LEFT JOIN "
+                + PunishmentTable.BINARY.name() + " c ON c.internal_id = t.internal_id WHERE c.internal_id IS NULL";
+        List<PunishmentRecord> missed = new ArrayList<>();
+        try (PreparedStatement statement = connection.prepareStatement(select);
+             ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                try {
+                    missed.add(PunishmentTable.TEXT.map(resultSet));
+                } catch (SQLException | IllegalArgumentException exception) {
+                    skipped.increment();
+                }
+            }
+        }
+        int pending = 0;
+        String insertSql = PunishmentTable.BINARY.insertIgnoringDuplicates(DatabaseMeta.isSqlite(connection));
+        try (PreparedStatement insert = connection.prepareStatement(insertSql)) {
+            for (PunishmentRecord record : missed) {
+                if (!PunishmentTable.BINARY.canStore(record)) {
+                    pending++;
+                    continue;
+                }
+                PunishmentTable.BINARY.bindInsert(insert, record);
+                insert.addBatch();
+                migrated.increment();
+            }
+            insert.executeBatch();
+        }
+        return pending;
+    }
+
+    private void reconcileDeactivations(Connection connection) throws SQLException {
+        // Снятия, сделанные узлами со старым форматом во время переноса, переносятся одним запросом в конце.
+        String sql = "UPDATE " + PunishmentTable.BINARY.name() + " SET active = 0 WHERE active = 1 AND internal_id IN "
+                + "(SELECT internal_id FROM " + PunishmentTable.TEXT.name() + " WHERE active = 0)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.pluginbans.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class CompletionTrie<V> {
+    private static final Comparator<Entry<?>> RANK = Comparator.<Entry<?>>comparingLong(Entry::weight)
+            .thenComparing(Entry::key, Comparator.reverseOrder());
+
+    private final Node<V> root = new Node<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final Object writeLock = new Object();
+
+    public void put(String key, V value, long weight) {
+        String normalized = normalize(key);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        // Записи идут под одной блокировкой, чтение - без блокировок по ConcurrentHashMap.
+        synchronized (writeLock) {
+            Node<V> node = root;
+            for (int i = 0; i < normalized.length(); i++) {
+                node = node.children.computeIfAbsent(normalized.charAt(i), ignored -> new Node<>());
+            }
+            if (node.entry == null) {
+                size.incrementAndGet();
+            }
+            node.entry = new Entry<>(normalized, value, weight);
+        }
+    }
+
+    public boolean remove(String key) {
+        String normalized = normalize(key);
+        synchronized (writeLock) {
+            Deque<Node<V>> path = new ArrayDeque<>(normalized.length() + 1);
+            Node<V> node = root;
+            path.push(node);
+            for (int i = 0; i < normalized.length(); i++) {
+                node = node.children.get(normalized.charAt(i));
+                if (node == null) {
+                    return false;
+                }
+                path.push(node);
+            }
+            if (node.entry == null) {
+                return false;
+            }
+            node.entry = null;
+            size.decrementAndGet();
+            // Пустые ветки срезаются, чтобы поток уникальных ID не раздувал дерево.
+            for (int i = normalized.length() - 1; i >= 0; i--) {
+                Node<V> child = path.pop();
+                if (child.entry != null || !child.children.isEmpty()) {
+                    break;
+                }
+                path.peek().children.remove(normalized.charAt(i));
+            }
+            return true;
+        }
+    }
+
+    public List<V> complete(String prefix, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        String normalized = normalize(prefix);
+        Node<V> node = root;
+        for (int i = 0; i < normalized.length() && node != null; i++) {
+            node = node.children.get(normalized.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+        // Min-куча на limit элементов: обход поддерева без сортировки всех совпадений.
+        PriorityQueue<Entry<V>> best = new PriorityQueue<>(limit + 1, RANK);
+        Deque<Node<V>> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Node<V> current = stack.pop();
+            Entry<V> entry = current.entry;
+            if (entry != null) {
+                best.offer(entry);
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+            for (Node<V> child : current.children.values()) {
+                stack.push(child);
+            }
+        }
+        List<V> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().value());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    private static String normalize(String key) {
+        return key == null ? "" : key.toLowerCase(Locale.ROOT);
+    }
+
+    private record Entry<V>(String key, V value, long weight) {
+    }
+
+    private static final class Node<V> {
+        private final ConcurrentHashMap<Character, Node<V>> children = new ConcurrentHashMap<>(4);
+        private volatile Entry<V> entry;
+    }
+}
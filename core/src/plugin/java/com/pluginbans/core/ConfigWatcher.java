@@ -0,0 +1,95 @@
+package com.pluginbans.core;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+public final class ConfigWatcher implements AutoCloseable {
+    private static final Duration DEFAULT_SETTLE = Duration.ofMillis(500);
+
+    private final Path directory;
+    private final Set<String> fileNames;
+    private final Consumer<Set<String>> onChange;
+    private final Duration settle;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    public ConfigWatcher(Path directory, Set<String> fileNames, Consumer<Set<String>> onChange) {
+        this(directory, fileNames, onChange, DEFAULT_SETTLE);
+    }
+
+    public ConfigWatcher(Path directory, Set<String> fileNames, Consumer<Set<String>> onChange, Duration settle) {
+        this.directory = directory;
+        this.fileNames = Set.copyOf(fileNames);
+        this.onChange = onChange;
+        this.settle = settle;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException exception) {
+            throw new IllegalStateException("Не удалось отслеживать изменения в " + directory + ".", exception);
+        }
+        this.thread = new Thread(this::watch, "PluginBans-Конфиг");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                WatchKey key = watchService.take();
+                Set<String> changed = new HashSet<>();
+                collect(key, changed);
+                // Редакторы пишут файл в несколько приёмов: ждём, пока события утихнут, и перечитываем один раз.
+                WatchKey next;
+                while ((next = watchService.poll(settle.toMillis(), TimeUnit.MILLISECONDS)) != null) {
+                    collect(next, changed);
+                }
+                if (!changed.isEmpty()) {
+                    onChange.accept(Set.copyOf(changed));
+                }
+            } catch (InterruptedException | ClosedWatchServiceException exception) {
+                return;
+            } catch (RuntimeException ignored) {
+                // Ошибка перечитывания не должна останавливать наблюдение.
+            }
+        }
+    }
+
+    private void collect(WatchKey key, Set<String> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.context() instanceof Path path && fileNames.contains(path.getFileName().toString())) {
+                changed.add(path.getFileName().toString());
+            }
+        }
+        key.reset();
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // Поток наблюдения уже остановлен.
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.pluginbans.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class ConnectionIndex {
+    // Двудольный граф: аккаунт -> хэши адресов и хэш адреса -> аккаунты.
+    private final ConcurrentHashMap<UUID, Set<String>> addressesByAccount = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<UUID>> accountsByAddress = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Long> lastSeenByAccount = new ConcurrentHashMap<>();
+
+    public boolean add(UUID uuid, String ipHash) {
+        return add(uuid, ipHash, System.currentTimeMillis());
+    }
+
+    public synchronized boolean add(UUID uuid, String ipHash, long seenAtMillis) {
+        if (uuid == null || ipHash == null) {
+            return false;
+        }
+        boolean added = addressesByAccount.computeIfAbsent(uuid, ignored -> ConcurrentHashMap.newKeySet()).add(ipHash);
+        accountsByAddress.computeIfAbsent(ipHash, ignored -> ConcurrentHashMap.newKeySet()).add(uuid);
+        lastSeenByAccount.merge(uuid, seenAtMillis, Math::max);
+        return added;
+    }
+
+    public synchronized int evictOlderThan(long cutoffMillis) {
+        int evicted = 0;
+        for (Map.Entry<UUID, Long> entry : lastSeenByAccount.entrySet()) {
+            if (entry.getValue() >= cutoffMillis) {
+                continue;
+            }
+            UUID uuid = entry.getKey();
+            lastSeenByAccount.remove(uuid);
+            Set<String> addresses = addressesByAccount.remove(uuid);
+            if (addresses != null) {
+                for (String address : addresses) {
+                    Set<UUID> accounts = accountsByAddress.get(address);
+                    if (accounts != null) {
+                        accounts.remove(uuid);
+                        if (accounts.isEmpty()) {
+                            accountsByAddress.remove(address);
+                        }
+                    }
+                }
+            }
+            evicted++;
+        }
+        return evicted;
+    }
+
+    public boolean contains(UUID uuid) {
+        return addressesByAccount.containsKey(uuid);
+    }
+
+    public Set<String> addressesOf(UUID uuid) {
+        Set<String> addresses = addressesByAccount.get(uuid);
+        return addresses == null ? Set.of() : Set.copyOf(addresses);
+    }
+
+    public Set<UUID> accountsOn(String ipHash) {
+        Set<UUID> accounts = accountsByAddress.get(ipHash);
+        return accounts == null ? Set.of() : Set.copyOf(accounts);
+    }
+
+    public Map<UUID, Integer> altsOf(UUID uuid) {
+        Set<String> addresses = addressesByAccount.get(uuid);
+        if (addresses == null) {
+            return Map.of();
+        }
+        Map<UUID, Integer> shared = new HashMap<>();
+        for (String address : addresses) {
+            Set<UUID> accounts = accountsByAddress.get(address);
+            if (accounts == null) {
+                continue;
+            }
+            for (UUID account : accounts) {
+                if (!account.equals(uuid)) {
+                    shared.merge(account, 1, Integer::sum);
+                }
+            }
+        }
+        return byShared(shared);
+    }
+
+    static Map<UUID, Integer> byShared(Map<UUID, Integer> shared) {
+        // Сначала аккаунты с наибольшим числом общих адресов.
+        List<Map.Entry<UUID, Integer>> entries = new ArrayList<>(shared.entrySet());
+        entries.sort(Map.Entry.<UUID, Integer>comparingByValue().reversed());
+        Map<UUID, Integer> ordered = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Integer> entry : entries) {
+            ordered.put(entry.getKey(), entry.getValue());
+        }
+        return ordered;
+    }
+
+    public int accounts() {
+        return addressesByAccount.size();
+    }
+
+    public int addresses() {
+        return accountsByAddress.size();
+    }
+}
@@ -0,0 +1,216 @@
+package com.pluginbans.core;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class ConnectionLog implements AutoCloseable {
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration FEED_OVERLAP = Duration.ofSeconds(30);
+    private static final int MAX_BATCH = 500;
+    // В памяти держатся аккаунты, заходившие за это время; более старые ищутся в базе.
+    private static final Duration INDEX_WINDOW = Duration.ofDays(30);
+
+    private final DataSource dataSource;
+    private final DatabaseExecutors executors;
+    private final ConnectionIndex index = new ConnectionIndex();
+    private final ConcurrentHashMap<String, ConnectionRecord> pending = new ConcurrentHashMap<>();
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+    private volatile Instant feedCursor;
+    private CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+
+    public ConnectionLog(DataSource dataSource, DatabaseExecutors executors) {
+        this.dataSource = dataSource;
+        this.executors = executors;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PluginBans-Подключения");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::sync, 0, FLUSH_INTERVAL.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    public void record(UUID uuid, String ip) {
+        if (uuid == null || ip == null || ip.isBlank()) {
+            return;
+        }
+        String ipHash = IpHashing.hash(ip);
+        Instant now = Instant.now();
+        index.add(uuid, ipHash, now.toEpochMilli());
+        recorded.increment();
+        // Повторные входы одного аккаунта с одного адреса до записи сливаются в одну строку.
+        pending.merge(uuid + "|" + ipHash, new ConnectionRecord(uuid, ipHash, now, now), ConnectionRecord::merge);
+    }
+
+    public CompletableFuture<Map<UUID, Integer>> findAlts(UUID uuid) {
+        // В памяти только последние 30 дней, поэтому её соседи всегда дополняются соединением по базе:
+        // база хранит давние общие адреса, память - ещё не записанные входы.
+        return executors.supply(Workload.API, () -> {
+            String sql = "SELECT DISTINCT other.uuid, other.ip_hash FROM pluginbans_connections own"
+                    + " JOIN pluginbans_connections other ON other.ip_hash = own.ip_hash AND other.uuid <> own.uuid"
+                    + " WHERE own.uuid = ?";
+            Map<UUID, Set<String>> shared = new HashMap<>();
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setString(1, uuid.toString());
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        shared.computeIfAbsent(UUID.fromString(resultSet.getString(1)), ignored -> new HashSet<>())
+                                .add(resultSet.getString(2));
+                    }
+                }
+            } catch (SQLException | IllegalArgumentException exception) {
+                throw new IllegalStateException("Не удалось найти аккаунты с общими адресами.", exception);
+            }
+            for (String address : index.addressesOf(uuid)) {
+                for (UUID account : index.accountsOn(address)) {
+                    if (!account.equals(uuid)) {
+                        shared.computeIfAbsent(account, ignored -> new HashSet<>()).add(address);
+                    }
+                }
+            }
+            Map<UUID, Integer> counts = new HashMap<>();
+            shared.forEach((account, addresses) -> counts.put(account, addresses.size()));
+            return ConnectionIndex.byShared(counts);
+        });
+    }
+
+    public ConnectionIndex index() {
+        return index;
+    }
+
+    public boolean loaded() {
+        return feedCursor != null;
+    }
+
+    public long recordedConnections() {
+        return recorded.sum();
+    }
+
+    public long writtenRows() {
+        return written.sum();
+    }
+
+    public synchronized CompletableFuture<Void> flush() {
+        if (pending.isEmpty()) {
+            return lastFlush;
+        }
+        List<ConnectionRecord> batch = new ArrayList<>(Math.min(pending.size(), MAX_BATCH));
+        for (String key : pending.keySet()) {
+            ConnectionRecord record = pending.remove(key);
+            if (record != null) {
+                batch.add(record);
+            }
+        }
+        // Записи идут строго друг за другом, поэтому вызывающий всегда дожидается своих строк.
+        lastFlush = lastFlush.handle((ignored, throwable) -> null)
+                .thenCompose(ignored -> executors.run(Workload.BACKGROUND, () -> write(batch)))
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null) {
+                        // Строки возвращаются в очередь и уйдут со следующей попыткой.
+                        for (ConnectionRecord record : batch) {
+                            pending.merge(record.uuid() + "|" + record.ipHash(), record, ConnectionRecord::merge);
+                        }
+                    }
+                });
+        return lastFlush;
+    }
+
+    private void sync() {
+        try {
+            flush().join();
+            loadRecent().join();
+            index.evictOlderThan(System.currentTimeMillis() - INDEX_WINDOW.toMillis());
+        } catch (RuntimeException ignored) {
+            // База недоступна: очередь сохраняется, следующая попытка будет по расписанию.
+        }
+    }
+
+    private CompletableFuture<Void> loadRecent() {
+        Instant cursor = feedCursor;
+        Instant startedAt = Instant.now();
+        long since = cursor == null ? startedAt.minus(INDEX_WINDOW).toEpochMilli() : cursor.minus(FEED_OVERLAP).toEpochMilli();
+        return executors.run(Workload.BACKGROUND, () -> {
+            String sql = "SELECT uuid, ip_hash, last_seen FROM pluginbans_connections WHERE last_seen >= ?";
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(sql)) {
+                statement.setLong(1, since);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        index.add(UUID.fromString(resultSet.getString(1)), resultSet.getString(2), resultSet.getLong(3));
+                    }
+                }
+            } catch (SQLException | IllegalArgumentException exception) {
+                throw new IllegalStateException("Не удалось загрузить историю подключений.", exception);
+            }
+            feedCursor = startedAt;
+        });
+    }
+
+    private void write(List<ConnectionRecord> batch) {
+        try (Connection connection = dataSource.getConnection()) {
+            boolean sqlite = DatabaseMeta.isSqlite(connection);
+            String sql = sqlite
+                    ? "INSERT INTO pluginbans_connections (uuid, ip_hash, first_seen, last_seen) VALUES (?, ?, ?, ?) "
+                    + "ON CONFLICT(uuid, ip_hash) DO UPDATE SET last_seen = MAX(last_seen, excluded.last_seen)"
+                    : "INSERT INTO pluginbans_connections (uuid, ip_hash, first_seen, last_seen) VALUES (?, ?, ?, ?) "
+                    + "ON DUPLICATE KEY UPDATE last_seen = GREATEST(last_seen, VALUES(last_seen))";
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                int inBatch = 0;
+                for (ConnectionRecord record : batch) {
+                    statement.setString(1, record.uuid().toString());
+                    statement.setString(2, record.ipHash());
+                    statement.setLong(3, record.firstSeen().toEpochMilli());
+                    statement.setLong(4, record.lastSeen().toEpochMilli());
+                    statement.addBatch();
+                    if (++inBatch == MAX_BATCH) {
+                        statement.executeBatch();
+                        inBatch = 0;
+                    }
+                }
+                if (inBatch > 0) {
+                    statement.executeBatch();
+                }
+                connection.commit();
+                written.add(batch.size());
+            } catch (SQLException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось записать историю подключений.", exception);
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            flush().join();
+        } catch (RuntimeException ignored) {
+            // Последние подключения теряются только при недоступной базе.
+        }
+    }
+}
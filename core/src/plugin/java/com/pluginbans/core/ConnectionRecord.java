@@ -0,0 +1,17 @@
+package com.pluginbans.core;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record ConnectionRecord(
+        UUID uuid,
+        String ipHash,
+        Instant firstSeen,
+        Instant lastSeen
+) {
+    public ConnectionRecord merge(ConnectionRecord other) {
+        Instant first = firstSeen.isBefore(other.firstSeen) ? firstSeen : other.firstSeen;
+        Instant last = lastSeen.isAfter(other.lastSeen) ? lastSeen : other.lastSeen;
+        return new ConnectionRecord(uuid, ipHash, first, last);
+    }
+}
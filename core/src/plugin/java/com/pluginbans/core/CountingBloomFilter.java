@@ -0,0 +1,97 @@
+package com.pluginbans.core;
+
+import java.nio.charset.StandardCharsets;
+
+public final class CountingBloomFilter {
+    private static final int MAX_COUNT = 0xFF;
+
+    private final byte[] counters;
+    private final int hashFunctions;
+    private volatile long modifications;
+
+    private CountingBloomFilter(int size, int hashFunctions) {
+        this.counters = new byte[size];
+        this.hashFunctions = hashFunctions;
+    }
+
+    public static CountingBloomFilter create(long expectedInsertions, double falsePositiveRate) {
+        long expected = Math.max(1024L, expectedInsertions);
+        double rate = Math.min(0.5, Math.max(1.0E-6, falsePositiveRate));
+        long bits = (long) Math.ceil(-expected * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        int size = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(64L, bits));
+        int hashes = (int) Math.max(1L, Math.round((double) size / expected * Math.log(2)));
+        return new CountingBloomFilter(size, Math.min(hashes, 16));
+    }
+
+    public synchronized void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashFunctions; i++) {
+            int index = index(h1 + i * h2);
+            int current = counters[index] & MAX_COUNT;
+            if (current < MAX_COUNT) {
+                counters[index] = (byte) (current + 1);
+            }
+        }
+        modifications++;
+    }
+
+    public synchronized void remove(String key) {
+        if (!mightContain(key)) {
+            return;
+        }
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashFunctions; i++) {
+            int index = index(h1 + i * h2);
+            int current = counters[index] & MAX_COUNT;
+            // Насыщенный счетчик уже не знает точного числа ключей, поэтому не уменьшается.
+            if (current > 0 && current < MAX_COUNT) {
+                counters[index] = (byte) (current - 1);
+            }
+        }
+        modifications++;
+    }
+
+    public boolean mightContain(String key) {
+        if (key == null) {
+            return false;
+        }
+        // Чтение volatile-поля публикует счетчики, измененные под блокировкой.
+        long ignored = modifications;
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashFunctions; i++) {
+            if (counters[index(h1 + i * h2)] == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return counters.length;
+    }
+
+    private int index(int combined) {
+        return (combined & Integer.MAX_VALUE) % counters.length;
+    }
+
+    private static long hash(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long hash = 0xcbf29ce484222325L;
+        for (byte value : bytes) {
+            hash ^= value & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,6 @@
+package com.pluginbans.core;
+
+import java.time.LocalDate;
+
+public record DailyStat(LocalDate day, PunishmentType type, String action, String actor, long total) {
+}
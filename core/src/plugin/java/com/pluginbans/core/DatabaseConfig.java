@@ -1,5 +1,8 @@
 package com.pluginbans.core;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 public record DatabaseConfig(
         DatabaseType type,
         String host,
@@ -8,6 +11,60 @@ public record DatabaseConfig(
         String username,
         String password,
         String sqlitePath,
-        int maxPoolSize
+        int maxPoolSize,
+        CircuitBreakerConfig circuitBreaker,
+        Map<Workload, WorkloadLimits> workloads,
+        StorageFormat storageFormat
 ) {
+    public DatabaseConfig {
+        Map<Workload, WorkloadLimits> resolved = new EnumMap<>(WorkloadLimits.defaultsFor(maxPoolSize));
+        if (workloads != null) {
+            resolved.putAll(workloads);
+        }
+        workloads = Map.copyOf(resolved);
+        circuitBreaker = circuitBreaker == null ? CircuitBreakerConfig.defaults() : circuitBreaker;
+        storageFormat = storageFormat == null ? StorageFormat.TEXT : storageFormat;
+    }
+
+    public DatabaseConfig(
+            DatabaseType type,
+            String host,
+            int port,
+            String database,
+            String username,
+            String password,
+            String sqlitePath,
+            int maxPoolSize,
+            CircuitBreakerConfig circuitBreaker,
+            Map<Workload, WorkloadLimits> workloads
+    ) {
+        this(type, host, port, database, username, password, sqlitePath, maxPoolSize, circuitBreaker, workloads, StorageFormat.TEXT);
+    }
+
+    public DatabaseConfig(
+            DatabaseType type,
+            String host,
+            int port,
+            String database,
+            String username,
+            String password,
+            String sqlitePath,
+            int maxPoolSize,
+            CircuitBreakerConfig circuitBreaker
+    ) {
+        this(type, host, port, database, username, password, sqlitePath, maxPoolSize, circuitBreaker, null, StorageFormat.TEXT);
+    }
+
+    public DatabaseConfig(
+            DatabaseType type,
+            String host,
+            int port,
+            String database,
+            String username,
+            String password,
+            String sqlitePath,
+            int maxPoolSize
+    ) {
+        this(type, host, port, database, username, password, sqlitePath, maxPoolSize, CircuitBreakerConfig.defaults(), null, StorageFormat.TEXT);
+    }
 }
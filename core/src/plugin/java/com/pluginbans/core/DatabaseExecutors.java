@@ -0,0 +1,122 @@
+package com.pluginbans.core;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public final class DatabaseExecutors implements AutoCloseable {
+    private final Map<Workload, Lane> lanes;
+    private final boolean owned;
+
+    private DatabaseExecutors(Map<Workload, Lane> lanes, boolean owned) {
+        this.lanes = lanes;
+        this.owned = owned;
+    }
+
+    public static DatabaseExecutors create(Map<Workload, WorkloadLimits> limits) {
+        Map<Workload, Lane> lanes = new EnumMap<>(Workload.class);
+        for (Workload workload : Workload.values()) {
+            WorkloadLimits laneLimits = limits.get(workload);
+            if (laneLimits == null) {
+                laneLimits = WorkloadLimits.defaultsFor(0).get(workload);
+            }
+            lanes.put(workload, new Lane(workload, newLaneExecutor(workload, laneLimits), laneLimits.maxQueueWait().toNanos()));
+        }
+        return new DatabaseExecutors(lanes, true);
+    }
+
+    public static DatabaseExecutors shared(ExecutorService executor) {
+        Map<Workload, Lane> lanes = new EnumMap<>(Workload.class);
+        for (Workload workload : Workload.values()) {
+            lanes.put(workload, new Lane(workload, executor, 0L));
+        }
+        return new DatabaseExecutors(lanes, false);
+    }
+
+    public <T> CompletableFuture<T> supply(Workload workload, Supplier<T> task) {
+        Lane lane = lanes.get(workload);
+        long enqueuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                lane.checkWait(enqueuedAt);
+                return task.get();
+            }, lane.executor());
+        } catch (RejectedExecutionException exception) {
+            return CompletableFuture.failedFuture(new WorkloadSaturatedException(
+                    "Очередь запросов " + workload.name().toLowerCase(Locale.ROOT) + " переполнена."));
+        }
+    }
+
+    public CompletableFuture<Void> run(Workload workload, Runnable task) {
+        return supply(workload, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public ExecutorService executor(Workload workload) {
+        return lanes.get(workload).executor();
+    }
+
+    public int totalThreads() {
+        int total = 0;
+        for (Lane lane : lanes.values()) {
+            if (lane.executor() instanceof ThreadPoolExecutor pool) {
+                total += pool.getMaximumPoolSize();
+            }
+        }
+        return total;
+    }
+
+    public int queueDepth(Workload workload) {
+        if (lanes.get(workload).executor() instanceof ThreadPoolExecutor pool) {
+            return pool.getQueue().size();
+        }
+        return 0;
+    }
+
+    @Override
+    public void close() {
+        if (!owned) {
+            return;
+        }
+        for (Lane lane : lanes.values()) {
+            lane.executor().shutdownNow();
+        }
+    }
+
+    private static ThreadPoolExecutor newLaneExecutor(Workload workload, WorkloadLimits limits) {
+        AtomicInteger counter = new AtomicInteger();
+        String prefix = "PluginBans-БД-" + workload.name().toLowerCase(Locale.ROOT) + "-";
+        return new ThreadPoolExecutor(
+                limits.threads(),
+                limits.threads(),
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(limits.queueDepth()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    private record Lane(Workload workload, ExecutorService executor, long maxWaitNanos) {
+        void checkWait(long enqueuedAt) {
+            if (maxWaitNanos > 0L && System.nanoTime() - enqueuedAt > maxWaitNanos) {
+                throw new WorkloadSaturatedException(
+                        "Запрос " + workload.name().toLowerCase(Locale.ROOT) + " слишком долго ждал в очереди.");
+            }
+        }
+    }
+}
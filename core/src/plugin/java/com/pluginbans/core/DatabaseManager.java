@@ -2,28 +2,56 @@ package com.pluginbans.core;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.PoolStats;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class DatabaseManager implements AutoCloseable {
+    // Аренды фоновых задач и архивации: по одному соединению на каждую.
+    static final int OUT_OF_LANE_CONNECTIONS = 2;
+
+    private final DatabaseConfig config;
     private final HikariDataSource dataSource;
-    private final ExecutorService executor;
+    private final DatabaseExecutors executors;
+    private final StorageFormat storageFormat;
 
     public DatabaseManager(DatabaseConfig config) {
+        this(config, null);
+    }
+
+    public DatabaseManager(DatabaseConfig config, MetricsRegistry metrics) {
         Objects.requireNonNull(config, "config");
-        this.dataSource = new HikariDataSource(buildHikariConfig(config));
-        this.executor = Executors.newFixedThreadPool(Math.max(2, config.maxPoolSize()));
+        this.config = config;
+        this.executors = DatabaseExecutors.create(config.workloads());
+        this.storageFormat = config.storageFormat();
+        this.dataSource = new HikariDataSource(buildHikariConfig(config, metrics));
+        if (metrics != null) {
+            registerLaneMetrics(metrics);
+        }
         initializeSchema();
     }
 
-    private HikariConfig buildHikariConfig(DatabaseConfig config) {
+    private HikariConfig buildHikariConfig(DatabaseConfig config, MetricsRegistry metrics) {
         HikariConfig hikari = new HikariConfig();
-        hikari.setMaximumPoolSize(config.maxPoolSize());
+        if (metrics != null) {
+            hikari.setMetricsTrackerFactory((poolName, poolStats) -> new PoolMetrics(metrics, poolStats));
+        }
+        // Каждый поток полосы держит не больше одного соединения, поэтому полосы не конкурируют за пул.
+        // Продление аренд идёт мимо полос; для него соединения резервируются сверх потоков, и вход их не ждёт.
+        hikari.setMaximumPoolSize(Math.max(config.maxPoolSize(), executors.totalThreads() + OUT_OF_LANE_CONNECTIONS));
         hikari.setPoolName("PluginBans-Пул");
+        configureConnection(hikari, config);
+        return hikari;
+    }
+
+    private static void configureConnection(HikariConfig hikari, DatabaseConfig config) {
         hikari.setAutoCommit(true);
         if (config.type() == DatabaseType.SQLITE) {
             hikari.setJdbcUrl("jdbc:sqlite:" + config.sqlitePath());
@@ -35,12 +63,39 @@ public final class DatabaseManager implements AutoCloseable {
             hikari.setPassword(config.password());
             hikari.setDriverClassName("com.mysql.cj.jdbc.Driver");
         }
-        return hikari;
+    }
+
+    private void registerLaneMetrics(MetricsRegistry metrics) {
+        for (Workload workload : Workload.values()) {
+            metrics.gauge("pluginbans_db_lane_queue_depth", "Запросы, ожидающие свободного потока полосы.",
+                    () -> executors.queueDepth(workload), "lane", workload.name().toLowerCase(Locale.ROOT));
+        }
+    }
+
+    public static HikariDataSource openExternal(String jdbcUrl, String username, String password, int poolSize) {
+        // Отдельный пул для чужой базы (например, при импорте), схема PluginBans в ней не создаётся.
+        HikariConfig hikari = new HikariConfig();
+        hikari.setJdbcUrl(jdbcUrl);
+        hikari.setUsername(username);
+        hikari.setPassword(password);
+        hikari.setMaximumPoolSize(Math.max(1, poolSize));
+        hikari.setPoolName("PluginBans-Внешний");
+        hikari.setReadOnly(true);
+        return new HikariDataSource(hikari);
+    }
+
+    public HikariDataSource openSeparate(String poolName, int poolSize) {
+        // Отдельный пул к той же базе для долгих задач вроде импорта: соединения полос и аренд он не занимает.
+        HikariConfig hikari = new HikariConfig();
+        hikari.setMaximumPoolSize(Math.max(1, poolSize));
+        hikari.setPoolName(poolName);
+        configureConnection(hikari, config);
+        return new HikariDataSource(hikari);
     }
 
     private void initializeSchema() {
         try (Connection connection = dataSource.getConnection()) {
-            DatabaseSchema.ensure(connection);
+            DatabaseSchema.ensure(connection, storageFormat);
         } catch (SQLException exception) {
             throw new IllegalStateException("Не удалось инициализировать базу данных.", exception);
         }
@@ -51,12 +106,50 @@ public final class DatabaseManager implements AutoCloseable {
     }
 
     public ExecutorService executor() {
-        return executor;
+        return executors.executor(Workload.BACKGROUND);
+    }
+
+    public DatabaseExecutors executors() {
+        return executors;
+    }
+
+    public StorageFormat storageFormat() {
+        return storageFormat;
     }
 
     @Override
     public void close() {
-        executor.shutdownNow();
+        executors.close();
         dataSource.close();
     }
+
+    private static final class PoolMetrics implements IMetricsTracker {
+        private final LatencyHistogram acquire;
+        private final LatencyHistogram usage;
+        private final LongAdder timeouts;
+
+        private PoolMetrics(MetricsRegistry metrics, PoolStats stats) {
+            this.acquire = metrics.histogram("pluginbans_db_pool_wait_seconds", "Ожидание соединения из пула.");
+            this.usage = metrics.histogram("pluginbans_db_connection_usage_seconds", "Время удержания соединения.");
+            this.timeouts = metrics.counter("pluginbans_db_pool_timeouts_total", "Соединение не выдано за connectionTimeout.");
+            metrics.gauge("pluginbans_db_pool_connections", "Соединения пула по состоянию.", stats::getActiveConnections, "state", "active");
+            metrics.gauge("pluginbans_db_pool_connections", "Соединения пула по состоянию.", stats::getIdleConnections, "state", "idle");
+            metrics.gauge("pluginbans_db_pool_pending_threads", "Потоки, ждущие соединение.", stats::getPendingThreads);
+        }
+
+        @Override
+        public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+            acquire.record(elapsedAcquiredNanos);
+        }
+
+        @Override
+        public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+            usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+        }
+
+        @Override
+        public void recordConnectionTimeout() {
+            timeouts.increment();
+        }
+    }
 }
@@ -0,0 +1,42 @@
+package com.pluginbans.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+
+public final class DatabaseMeta {
+    public static final String IMPORT_GENERATION_KEY = "import_generation";
+
+    private DatabaseMeta() {
+    }
+
+    public static String read(Connection connection, String key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT meta_value FROM pluginbans_meta WHERE meta_key = ?")) {
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    public static void write(Connection connection, String key, String value) throws SQLException {
+        try (PreparedStatement update = connection.prepareStatement("UPDATE pluginbans_meta SET meta_value = ? WHERE meta_key = ?")) {
+            update.setString(1, value);
+            update.setString(2, key);
+            if (update.executeUpdate() > 0) {
+                return;
+            }
+        }
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO pluginbans_meta (meta_key, meta_value) VALUES (?, ?)")) {
+            insert.setString(1, key);
+            insert.setString(2, value);
+            insert.executeUpdate();
+        }
+    }
+
+    public static boolean isSqlite(Connection connection) throws SQLException {
+        return connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT).contains("sqlite");
+    }
+}
@@ -1,6 +1,7 @@
 package com.pluginbans.core;
 
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 
@@ -38,13 +39,207 @@ public final class DatabaseSchema {
             )
             """;
 
+    private static final String CREATE_PUNISHMENTS_ARCHIVE = """
+            CREATE TABLE IF NOT EXISTS pluginbans_punishments_archive (
+                internal_id VARCHAR(64) PRIMARY KEY,
+                uuid VARCHAR(36) NOT NULL,
+                ip VARCHAR(45),
+                ip_hash VARCHAR(128),
+                type VARCHAR(32) NOT NULL,
+                reason TEXT NOT NULL,
+                actor VARCHAR(64) NOT NULL,
+                start_time BIGINT NOT NULL,
+                end_time BIGINT,
+                active BOOLEAN NOT NULL,
+                silent BOOLEAN NOT NULL%s
+            )
+            """;
+
+    private static final String CREATE_HISTORY_ARCHIVE = """
+            CREATE TABLE IF NOT EXISTS pluginbans_punishment_history_archive (
+                id VARCHAR(96) PRIMARY KEY,
+                uuid VARCHAR(36) NOT NULL,
+                ip VARCHAR(45),
+                ip_hash VARCHAR(128),
+                type VARCHAR(32) NOT NULL,
+                reason TEXT NOT NULL,
+                actor VARCHAR(64) NOT NULL,
+                start_time BIGINT NOT NULL,
+                end_time BIGINT,
+                internal_id VARCHAR(64) NOT NULL,
+                action VARCHAR(32) NOT NULL,
+                action_time BIGINT NOT NULL%s
+            )
+            """;
+
+    private static final String MYSQL_PUNISHMENTS_ARCHIVE_INDEXES = ","
+            + "\n    KEY idx_pluginbans_punishments_archive_uuid (uuid)";
+
+    private static final String MYSQL_HISTORY_ARCHIVE_INDEXES = ","
+            + "\n    KEY idx_pluginbans_history_archive_uuid (uuid)";
+
+    private static final String[] SQLITE_ARCHIVE_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_pluginbans_punishments_archive_uuid ON pluginbans_punishments_archive (uuid)",
+            "CREATE INDEX IF NOT EXISTS idx_pluginbans_history_archive_uuid ON pluginbans_punishment_history_archive (uuid)"
+    };
+
+    private static final String[][] RETENTION_INDEXES = {
+            {"idx_pluginbans_history_action_time", "pluginbans_punishment_history", "action_time"},
+            {"idx_pluginbans_punishments_retention", "pluginbans_punishments", "active, start_time"},
+            {"idx_pluginbans_punishments_expiry", "pluginbans_punishments", "active, end_time"}
+    };
+
+    private static final int MYSQL_DUPLICATE_KEY_NAME = 1061;
+
+    private static final String CREATE_COMPACT_PUNISHMENTS = """
+            CREATE TABLE IF NOT EXISTS pluginbans_punishments_compact (
+                internal_id VARCHAR(64) PRIMARY KEY,
+                uuid BINARY(16) NOT NULL,
+                ip VARBINARY(17),
+                ip_hash BINARY(32),
+                type VARCHAR(32) NOT NULL,
+                reason TEXT NOT NULL,
+                actor VARCHAR(64) NOT NULL,
+                start_time BIGINT NOT NULL,
+                end_time BIGINT,
+                active BOOLEAN NOT NULL,
+                silent BOOLEAN NOT NULL%s
+            )
+            """;
+
+    private static final String MYSQL_COMPACT_INDEXES = ","
+            + "\n    KEY idx_pluginbans_compact_uuid (uuid, active),"
+            + "\n    KEY idx_pluginbans_compact_ip (ip, active),"
+            + "\n    KEY idx_pluginbans_compact_ip_hash (ip_hash, active)";
+
+    private static final String[] SQLITE_COMPACT_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_pluginbans_compact_uuid ON pluginbans_punishments_compact (uuid, active)",
+            "CREATE INDEX IF NOT EXISTS idx_pluginbans_compact_ip ON pluginbans_punishments_compact (ip, active)",
+            "CREATE INDEX IF NOT EXISTS idx_pluginbans_compact_ip_hash ON pluginbans_punishments_compact (ip_hash, active)"
+    };
+
+    private static final String CREATE_CONNECTIONS = """
+            CREATE TABLE IF NOT EXISTS pluginbans_connections (
+                uuid VARCHAR(36) NOT NULL,
+                ip_hash VARCHAR(128) NOT NULL,
+                first_seen BIGINT NOT NULL,
+                last_seen BIGINT NOT NULL,
+                PRIMARY KEY (uuid, ip_hash)%s
+            )
+            """;
+
+    private static final String MYSQL_CONNECTION_INDEXES = ","
+            + "\n    KEY idx_pluginbans_connections_ip_hash (ip_hash),"
+            + "\n    KEY idx_pluginbans_connections_last_seen (last_seen)";
+
+    private static final String[] SQLITE_CONNECTION_INDEXES = {
+            "CREATE INDEX IF NOT EXISTS idx_pluginbans_connections_ip_hash ON pluginbans_connections (ip_hash)",
+            "CREATE INDEX IF NOT EXISTS idx_pluginbans_connections_last_seen ON pluginbans_connections (last_seen)"
+    };
+
+    private static final String CREATE_META = """
+            CREATE TABLE IF NOT EXISTS pluginbans_meta (
+                meta_key VARCHAR(64) PRIMARY KEY,
+                meta_value VARCHAR(255) NOT NULL
+            )
+            """;
+
+    private static final String CREATE_STATS_DAILY = """
+            CREATE TABLE IF NOT EXISTS pluginbans_stats_daily (
+                day INT NOT NULL,
+                type VARCHAR(32) NOT NULL,
+                action VARCHAR(32) NOT NULL,
+                actor VARCHAR(64) NOT NULL,
+                total BIGINT NOT NULL,
+                PRIMARY KEY (day, type, action, actor)
+            )
+            """;
+
+    private static final String CREATE_LEASES = """
+            CREATE TABLE IF NOT EXISTS pluginbans_leases (
+                name VARCHAR(64) PRIMARY KEY,
+                holder VARCHAR(64) NOT NULL,
+                expires_at BIGINT NOT NULL
+            )
+            """;
+
+    private static final String CREATE_ESCALATION_LOCKS = """
+            CREATE TABLE IF NOT EXISTS pluginbans_escalation_locks (
+                uuid VARCHAR(36) PRIMARY KEY,
+                locked_at BIGINT NOT NULL
+            )
+            """;
+
     private DatabaseSchema() {
     }
 
     public static void ensure(Connection connection) throws SQLException {
+        ensure(connection, StorageFormat.TEXT);
+    }
+
+    public static void ensure(Connection connection, StorageFormat format) throws SQLException {
         try (Statement statement = connection.createStatement()) {
             statement.execute(CREATE_PUNISHMENTS);
             statement.execute(CREATE_HISTORY);
+            statement.execute(CREATE_META);
+            statement.execute(CREATE_STATS_DAILY);
+            statement.execute(CREATE_LEASES);
+            statement.execute(CREATE_ESCALATION_LOCKS);
+            StatsRollup.backfill(connection);
+            boolean sqlite = DatabaseMeta.isSqlite(connection);
+            statement.execute(CREATE_CONNECTIONS.formatted(sqlite ? "" : MYSQL_CONNECTION_INDEXES));
+            if (sqlite) {
+                for (String index : SQLITE_CONNECTION_INDEXES) {
+                    statement.execute(index);
+                }
+            }
+            for (String[] index : RETENTION_INDEXES) {
+                createIndex(statement, sqlite, index[0], index[1], index[2]);
+            }
+            statement.execute(CREATE_PUNISHMENTS_ARCHIVE.formatted(sqlite ? "" : MYSQL_PUNISHMENTS_ARCHIVE_INDEXES));
+            statement.execute(CREATE_HISTORY_ARCHIVE.formatted(sqlite ? "" : MYSQL_HISTORY_ARCHIVE_INDEXES));
+            if (sqlite) {
+                for (String index : SQLITE_ARCHIVE_INDEXES) {
+                    statement.execute(index);
+                }
+            }
+            if (format == StorageFormat.BINARY) {
+                statement.execute(CREATE_COMPACT_PUNISHMENTS.formatted(sqlite ? "" : MYSQL_COMPACT_INDEXES));
+                if (sqlite) {
+                    for (String index : SQLITE_COMPACT_INDEXES) {
+                        statement.execute(index);
+                    }
+                } else {
+                    widenCompactIp(connection, statement);
+                }
+                createIndex(statement, sqlite, "idx_pluginbans_compact_retention", "pluginbans_punishments_compact", "active, start_time");
+                createIndex(statement, sqlite, "idx_pluginbans_compact_expiry", "pluginbans_punishments_compact", "active, end_time");
+            }
+        }
+        PunishmentSearch.ensure(connection);
+    }
+
+    private static void widenCompactIp(Connection connection, Statement statement) throws SQLException {
+        // Таблицы, созданные до банов диапазонов, хранят ip как VARBINARY(16), а диапазон IPv6 занимает 17 байт.
+        try (ResultSet columns = connection.getMetaData().getColumns(connection.getCatalog(), null, "pluginbans_punishments_compact", "ip")) {
+            if (columns.next() && columns.getInt("COLUMN_SIZE") < 17) {
+                statement.execute("ALTER TABLE pluginbans_punishments_compact MODIFY COLUMN ip VARBINARY(17)");
+            }
+        }
+    }
+
+    private static void createIndex(Statement statement, boolean sqlite, String name, String table, String columns) throws SQLException {
+        if (sqlite) {
+            statement.execute("CREATE INDEX IF NOT EXISTS " + name + " ON " + table + " (" + columns + ")");
+            return;
+        }
+        // В MySQL нет CREATE INDEX IF NOT EXISTS: повторное создание на уже обновлённой базе просто пропускается.
+        try {
+            statement.execute("CREATE INDEX " + name + " ON " + table + " (" + columns + ")");
+        } catch (SQLException exception) {
+            if (exception.getErrorCode() != MYSQL_DUPLICATE_KEY_NAME) {
+                throw exception;
+            }
         }
     }
 }
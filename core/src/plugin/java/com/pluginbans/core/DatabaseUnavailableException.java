@@ -0,0 +1,7 @@
+package com.pluginbans.core;
+
+public final class DatabaseUnavailableException extends IllegalStateException {
+    public DatabaseUnavailableException(String message) {
+        super(message);
+    }
+}
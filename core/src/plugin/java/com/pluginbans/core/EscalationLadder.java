@@ -0,0 +1,30 @@
+package com.pluginbans.core;
+
+import java.util.Comparator;
+import java.util.List;
+
+public record EscalationLadder(PunishmentType trigger, String reason, List<EscalationStep> steps) {
+    public EscalationLadder {
+        if (trigger == null) {
+            throw new IllegalArgumentException("Не указан тип наказания для эскалации.");
+        }
+        reason = reason == null || reason.isBlank() ? null : reason.trim();
+        steps = steps == null ? List.of() : steps.stream()
+                .sorted(Comparator.comparingInt(EscalationStep::count).reversed())
+                .toList();
+    }
+
+    public boolean matches(PunishmentRecord record) {
+        return record.type() == trigger && (reason == null || reason.equalsIgnoreCase(record.reason()));
+    }
+
+    public EscalationStep stepFor(int count) {
+        // Ступени отсортированы по убыванию порога: первая подходящая - самая высокая достигнутая.
+        for (EscalationStep step : steps) {
+            if (count >= step.count()) {
+                return step;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,92 @@
+package com.pluginbans.core;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+public record EscalationPolicy(List<EscalationLadder> ladders) {
+    private static final String SYSTEM_ACTOR = "Система";
+
+    public EscalationPolicy {
+        // Лестницы с конкретной причиной проверяются раньше общих для того же типа.
+        ladders = ladders == null ? List.of() : ladders.stream()
+                .sorted(Comparator.comparing((EscalationLadder ladder) -> ladder.reason() == null))
+                .toList();
+    }
+
+    public static EscalationPolicy none() {
+        return new EscalationPolicy(List.of());
+    }
+
+    public static EscalationPolicy defaults(String autoBanReason) {
+        return new EscalationPolicy(List.of(new EscalationLadder(
+                PunishmentType.WARN,
+                null,
+                List.of(new EscalationStep(3, PunishmentType.BAN, 0L, autoBanReason))
+        )));
+    }
+
+    public boolean triggeredBy(PunishmentType type) {
+        for (EscalationLadder ladder : ladders) {
+            if (ladder.trigger() == type) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Optional<PunishmentRecord> evaluate(PunishmentRecord trigger, Collection<PunishmentRecord> active, Instant now) {
+        for (EscalationLadder ladder : ladders) {
+            if (!ladder.matches(trigger)) {
+                continue;
+            }
+            // Само новое наказание ещё не в индексе, поэтому считается отдельно.
+            int count = 1;
+            for (PunishmentRecord record : active) {
+                if (!record.internalId().equals(trigger.internalId()) && !record.isExpired(now) && ladder.matches(record)) {
+                    count++;
+                }
+            }
+            EscalationStep step = ladder.stepFor(count);
+            if (step == null || alreadyApplied(step.action(), active, now)) {
+                continue;
+            }
+            if (step.action() == PunishmentType.IPBAN && (trigger.ip() == null || trigger.ip().isBlank())) {
+                continue;
+            }
+            return Optional.of(issue(trigger, step, now));
+        }
+        return Optional.empty();
+    }
+
+    private static boolean alreadyApplied(PunishmentType action, Collection<PunishmentRecord> active, Instant now) {
+        for (PunishmentRecord record : active) {
+            if (record.isExpired(now)) {
+                continue;
+            }
+            if (PunishmentRules.isBanLike(action) ? PunishmentRules.isBanLike(record.type()) : record.type() == action) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static PunishmentRecord issue(PunishmentRecord trigger, EscalationStep step, Instant now) {
+        Instant end = step.durationSeconds() > 0 ? now.plusSeconds(step.durationSeconds()) : null;
+        return new PunishmentRecord(
+                trigger.uuid(),
+                trigger.ip(),
+                trigger.ipHash(),
+                step.action(),
+                step.reason(),
+                SYSTEM_ACTOR,
+                now,
+                end,
+                true,
+                PunishmentIdGenerator.generate(end == null ? "NV" : "TM"),
+                false
+        );
+    }
+}
@@ -0,0 +1,20 @@
+package com.pluginbans.core;
+
+public record EscalationStep(int count, PunishmentType action, long durationSeconds, String reason) {
+    public EscalationStep {
+        if (count < 1) {
+            throw new IllegalArgumentException("Порог эскалации должен быть не меньше 1.");
+        }
+        if (action == null || action == PunishmentType.WARN || action == PunishmentType.CHECK) {
+            throw new IllegalArgumentException("Эскалация может выдавать только BAN, TEMPBAN, IPBAN или MUTE.");
+        }
+        durationSeconds = Math.max(0L, durationSeconds);
+        // Срок определяет вид бана так же, как при выдаче командой.
+        if (action == PunishmentType.BAN && durationSeconds > 0) {
+            action = PunishmentType.TEMPBAN;
+        } else if (action == PunishmentType.TEMPBAN && durationSeconds == 0) {
+            action = PunishmentType.BAN;
+        }
+        reason = reason == null ? "" : reason;
+    }
+}
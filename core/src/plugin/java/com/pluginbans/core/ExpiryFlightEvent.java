@@ -0,0 +1,40 @@
+package com.pluginbans.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("pluginbans.Expiry")
+@Label("Снятие истёкших наказаний")
+@Category({"PluginBans", "Фоновые задачи"})
+@Description("Проверка срока наказаний и запись снятия истёкших в базу.")
+@StackTrace(false)
+final class ExpiryFlightEvent extends jdk.jfr.Event {
+    @Label("Плановый обход")
+    boolean sweep;
+
+    @Label("Проверено")
+    int checked;
+
+    @Label("Истекло")
+    int expired;
+
+    @Label("Лидер")
+    boolean leader;
+
+    ExpiryFlightEvent(boolean sweep) {
+        this.sweep = sweep;
+    }
+
+    void finish(int checked, int expired, boolean leader) {
+        // Обычные поиски почти всегда без истёкших записей, в запись попадают обходы и реальные снятия.
+        if ((sweep || expired > 0) && shouldCommit()) {
+            this.checked = checked;
+            this.expired = expired;
+            this.leader = leader;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.pluginbans.core;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+public record FailStaticConfig(boolean enabled, Map<PunishmentType, FailStaticPolicy> policies) {
+    public FailStaticConfig {
+        EnumMap<PunishmentType, FailStaticPolicy> resolved = new EnumMap<>(PunishmentType.class);
+        for (PunishmentType type : PunishmentType.values()) {
+            resolved.put(type, FailStaticPolicy.ENFORCE);
+        }
+        if (policies != null) {
+            resolved.putAll(policies);
+        }
+        policies = Map.copyOf(resolved);
+    }
+
+    public static FailStaticConfig defaults() {
+        return new FailStaticConfig(true, Map.of(PunishmentType.CHECK, FailStaticPolicy.IGNORE));
+    }
+
+    public static FailStaticConfig disabled() {
+        return new FailStaticConfig(false, Map.of());
+    }
+
+    public FailStaticPolicy policy(PunishmentType type) {
+        return policies.get(type);
+    }
+}
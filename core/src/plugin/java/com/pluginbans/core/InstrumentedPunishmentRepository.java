@@ -0,0 +1,179 @@
+package com.pluginbans.core;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public final class InstrumentedPunishmentRepository implements PunishmentRepository {
+    private record Operation(LatencyHistogram latency, LongAdder errors) {
+    }
+
+    private final PunishmentRepository delegate;
+    private final Operation addPunishment;
+    private final Operation addPunishments;
+    private final Operation addWithEscalation;
+    private final Operation deactivate;
+    private final Operation findActiveByUuid;
+    private final Operation findActiveByIp;
+    private final Operation findActiveByIpHash;
+    private final Operation findAllActive;
+    private final Operation findActiveStartedSince;
+    private final Operation findImportGeneration;
+    private final Operation findExpiredActive;
+    private final Operation findByInternalId;
+    private final Operation findByInternalIds;
+    private final Operation findHistory;
+    private final Operation findDailyStats;
+    private final Operation search;
+    private final Operation ping;
+
+    public InstrumentedPunishmentRepository(PunishmentRepository delegate, MetricsRegistry metrics) {
+        this.delegate = delegate;
+        this.addPunishment = operation(metrics, "addPunishment");
+        this.addPunishments = operation(metrics, "addPunishments");
+        this.addWithEscalation = operation(metrics, "addWithEscalation");
+        this.deactivate = operation(metrics, "deactivate");
+        this.findActiveByUuid = operation(metrics, "findActiveByUuid");
+        this.findActiveByIp = operation(metrics, "findActiveByIp");
+        this.findActiveByIpHash = operation(metrics, "findActiveByIpHash");
+        this.findAllActive = operation(metrics, "findAllActive");
+        this.findActiveStartedSince = operation(metrics, "findActiveStartedSince");
+        this.findImportGeneration = operation(metrics, "findImportGeneration");
+        this.findExpiredActive = operation(metrics, "findExpiredActive");
+        this.findByInternalId = operation(metrics, "findByInternalId");
+        this.findByInternalIds = operation(metrics, "findByInternalIds");
+        this.findHistory = operation(metrics, "findHistory");
+        this.findDailyStats = operation(metrics, "findDailyStats");
+        this.search = operation(metrics, "search");
+        this.ping = operation(metrics, "ping");
+    }
+
+    private static Operation operation(MetricsRegistry metrics, String name) {
+        return new Operation(
+                metrics.histogram("pluginbans_db_query_seconds", "Время запроса к хранилищу, включая ожидание в очереди полосы.", "operation", name),
+                metrics.counter("pluginbans_db_errors_total", "Запросы к хранилищу, завершившиеся ошибкой.", "operation", name)
+        );
+    }
+
+    @Override
+    public CompletableFuture<Void> addPunishment(PunishmentRecord record) {
+        return timed(addPunishment, () -> delegate.addPunishment(record));
+    }
+
+    @Override
+    public CompletableFuture<Void> addPunishments(List<PunishmentRecord> records) {
+        return timed(addPunishments, () -> delegate.addPunishments(records));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> addWithEscalation(PunishmentRecord trigger, EscalationPolicy policy) {
+        return timed(addWithEscalation, () -> delegate.addWithEscalation(trigger, policy));
+    }
+
+    @Override
+    public CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action) {
+        return timed(deactivate, () -> delegate.deactivate(internalId, actor, reason, action));
+    }
+
+    @Override
+    public CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action, Workload workload) {
+        return timed(deactivate, () -> delegate.deactivate(internalId, actor, reason, action, workload));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByUuid(UUID uuid) {
+        return timed(findActiveByUuid, () -> delegate.findActiveByUuid(uuid));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByUuid(UUID uuid, Workload workload) {
+        return timed(findActiveByUuid, () -> delegate.findActiveByUuid(uuid, workload));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByIp(String ip) {
+        return timed(findActiveByIp, () -> delegate.findActiveByIp(ip));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByIpHash(String ipHash) {
+        return timed(findActiveByIpHash, () -> delegate.findActiveByIpHash(ipHash));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findAllActive() {
+        return timed(findAllActive, delegate::findAllActive);
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveStartedSince(Instant since) {
+        return timed(findActiveStartedSince, () -> delegate.findActiveStartedSince(since));
+    }
+
+    @Override
+    public CompletableFuture<String> findImportGeneration() {
+        return timed(findImportGeneration, delegate::findImportGeneration);
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findExpiredActive(Instant now, int limit) {
+        return timed(findExpiredActive, () -> delegate.findExpiredActive(now, limit));
+    }
+
+    @Override
+    public CompletableFuture<Optional<PunishmentRecord>> findByInternalId(String internalId) {
+        return timed(findByInternalId, () -> delegate.findByInternalId(internalId));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findByInternalIds(List<String> internalIds, Workload workload) {
+        return timed(findByInternalIds, () -> delegate.findByInternalIds(internalIds, workload));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid) {
+        return timed(findHistory, () -> delegate.findHistory(uuid));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid, boolean includeArchive) {
+        return timed(findHistory, () -> delegate.findHistory(uuid, includeArchive));
+    }
+
+    @Override
+    public CompletableFuture<List<DailyStat>> findDailyStats(LocalDate from, LocalDate to) {
+        return timed(findDailyStats, () -> delegate.findDailyStats(from, to));
+    }
+
+    @Override
+    public CompletableFuture<SearchPage> search(SearchQuery query) {
+        return timed(search, () -> delegate.search(query));
+    }
+
+    @Override
+    public CompletableFuture<Void> ping() {
+        return timed(ping, delegate::ping);
+    }
+
+    private static <T> CompletableFuture<T> timed(Operation operation, Supplier<CompletableFuture<T>> call) {
+        long started = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException exception) {
+            operation.errors().increment();
+            throw exception;
+        }
+        return future.whenComplete((ignored, throwable) -> {
+            operation.latency().recordSince(started);
+            if (throwable != null) {
+                operation.errors().increment();
+            }
+        });
+    }
+}
@@ -0,0 +1,111 @@
+package com.pluginbans.core;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.UUID;
+
+public final class IpRange {
+    // Владелец записи диапазонного бана: такое наказание не привязано к игроку.
+    public static final UUID NO_PLAYER = new UUID(0L, 0L);
+
+    private final byte[] address;
+    private final int prefixLength;
+
+    private IpRange(byte[] address, int prefixLength) {
+        this.address = address;
+        this.prefixLength = prefixLength;
+    }
+
+    public static boolean isRange(String value) {
+        return value != null && value.indexOf('/') > 0;
+    }
+
+    public static Optional<IpRange> parse(String value) {
+        if (!isRange(value)) {
+            return Optional.empty();
+        }
+        int slash = value.indexOf('/');
+        byte[] address = StorageCodec.ipToBytes(value.substring(0, slash).trim());
+        if (address == null) {
+            return Optional.empty();
+        }
+        int prefix;
+        try {
+            prefix = Integer.parseInt(value.substring(slash + 1).trim());
+        } catch (NumberFormatException exception) {
+            return Optional.empty();
+        }
+        if (prefix < 0 || prefix > address.length * 8) {
+            return Optional.empty();
+        }
+        return Optional.of(new IpRange(mask(address, prefix), prefix));
+    }
+
+    public static Optional<IpRange> fromBytes(byte[] bytes) {
+        if (bytes == null || (bytes.length != 5 && bytes.length != 17)) {
+            return Optional.empty();
+        }
+        int prefix = bytes[bytes.length - 1] & 0xFF;
+        if (prefix > (bytes.length - 1) * 8) {
+            return Optional.empty();
+        }
+        return Optional.of(new IpRange(mask(Arrays.copyOf(bytes, bytes.length - 1), prefix), prefix));
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = Arrays.copyOf(address, address.length + 1);
+        bytes[address.length] = (byte) prefixLength;
+        return bytes;
+    }
+
+    public byte[] address() {
+        return address.clone();
+    }
+
+    public int prefixLength() {
+        return prefixLength;
+    }
+
+    public boolean isIpv6() {
+        return address.length == 16;
+    }
+
+    public boolean contains(String ip) {
+        byte[] candidate = StorageCodec.ipToBytes(ip);
+        return candidate != null && contains(candidate);
+    }
+
+    public boolean contains(byte[] candidate) {
+        if (candidate.length != address.length) {
+            return false;
+        }
+        return IpRangeTrie.commonPrefix(address, candidate, prefixLength) == prefixLength;
+    }
+
+    byte[] rawAddress() {
+        return address;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof IpRange range && prefixLength == range.prefixLength && Arrays.equals(address, range.address);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(address) + prefixLength;
+    }
+
+    @Override
+    public String toString() {
+        return StorageCodec.ipFromBytes(address) + "/" + prefixLength;
+    }
+
+    private static byte[] mask(byte[] address, int prefix) {
+        byte[] masked = address.clone();
+        for (int bit = prefix; bit < masked.length * 8; bit++) {
+            masked[bit >>> 3] &= (byte) ~(0x80 >>> (bit & 7));
+        }
+        return masked;
+    }
+}
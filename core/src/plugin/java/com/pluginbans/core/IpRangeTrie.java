@@ -0,0 +1,206 @@
+package com.pluginbans.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+public final class IpRangeTrie<V> {
+    private Node<V> ipv4Root;
+    private Node<V> ipv6Root;
+    private int size;
+
+    public V get(IpRange range) {
+        Node<V> node = root(range.isIpv6());
+        byte[] key = range.rawAddress();
+        int length = range.prefixLength();
+        while (node != null && node.length <= length) {
+            if (commonPrefix(node.key, key, node.length) < node.length) {
+                return null;
+            }
+            if (node.length == length) {
+                return node.value;
+            }
+            node = bit(key, node.length) ? node.right : node.left;
+        }
+        return null;
+    }
+
+    public void put(IpRange range, V value) {
+        byte[] key = range.rawAddress();
+        int length = range.prefixLength();
+        boolean ipv6 = range.isIpv6();
+        Node<V> parent = null;
+        Node<V> node = root(ipv6);
+        while (true) {
+            if (node == null) {
+                replace(ipv6, parent, key, new Node<>(key, length, value));
+                size++;
+                return;
+            }
+            int common = commonPrefix(node.key, key, Math.min(node.length, length));
+            if (common == node.length && common == length) {
+                if (node.value == null) {
+                    size++;
+                }
+                node.value = value;
+                return;
+            }
+            if (common == node.length) {
+                parent = node;
+                node = bit(key, node.length) ? node.right : node.left;
+                continue;
+            }
+            // Узел расходится с ключом раньше своей длины: вставляем новый узел или развилку над ним.
+            Node<V> inserted = new Node<>(key, length, common == length ? value : null);
+            if (common == length) {
+                inserted.attach(bit(node.key, length), node);
+            } else {
+                Node<V> leaf = new Node<>(key, length, value);
+                inserted = new Node<>(key, common, null);
+                inserted.attach(bit(node.key, common), node);
+                inserted.attach(bit(key, common), leaf);
+            }
+            replace(ipv6, parent, key, inserted);
+            size++;
+            return;
+        }
+    }
+
+    public V remove(IpRange range) {
+        byte[] key = range.rawAddress();
+        int length = range.prefixLength();
+        boolean ipv6 = range.isIpv6();
+        Node<V> grandparent = null;
+        Node<V> parent = null;
+        Node<V> node = root(ipv6);
+        while (node != null && node.length < length) {
+            if (commonPrefix(node.key, key, node.length) < node.length) {
+                return null;
+            }
+            grandparent = parent;
+            parent = node;
+            node = bit(key, node.length) ? node.right : node.left;
+        }
+        if (node == null || node.length != length || node.value == null || commonPrefix(node.key, key, length) < length) {
+            return null;
+        }
+        V removed = node.value;
+        node.value = null;
+        size--;
+        // Пустые узлы с одним потомком и пустые листья сжимаются, чтобы путь поиска не удлинялся.
+        if (node.left != null && node.right != null) {
+            return removed;
+        }
+        Node<V> child = node.left != null ? node.left : node.right;
+        replace(ipv6, parent, node.key, child);
+        if (child == null && parent != null && parent.value == null) {
+            Node<V> sibling = parent.left != null ? parent.left : parent.right;
+            replace(ipv6, grandparent, parent.key, sibling);
+        }
+        return removed;
+    }
+
+    public V longestMatch(byte[] address, Predicate<V> accept) {
+        Node<V> node = root(address.length == 16);
+        int bits = address.length * 8;
+        V best = null;
+        while (node != null && node.length <= bits) {
+            if (commonPrefix(node.key, address, node.length) < node.length) {
+                break;
+            }
+            if (node.value != null && accept.test(node.value)) {
+                best = node.value;
+            }
+            if (node.length == bits) {
+                break;
+            }
+            node = bit(address, node.length) ? node.right : node.left;
+        }
+        return best;
+    }
+
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        collect(ipv4Root, values);
+        collect(ipv6Root, values);
+        return values;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        ipv4Root = null;
+        ipv6Root = null;
+        size = 0;
+    }
+
+    static int commonPrefix(byte[] left, byte[] right, int limit) {
+        int bit = 0;
+        while (bit < limit) {
+            int index = bit >>> 3;
+            int diff = (left[index] ^ right[index]) & 0xFF;
+            if (diff == 0) {
+                bit += 8;
+                continue;
+            }
+            bit += Integer.numberOfLeadingZeros(diff) - 24;
+            break;
+        }
+        return Math.min(bit, limit);
+    }
+
+    private static boolean bit(byte[] key, int index) {
+        return (key[index >>> 3] & (0x80 >>> (index & 7))) != 0;
+    }
+
+    private Node<V> root(boolean ipv6) {
+        return ipv6 ? ipv6Root : ipv4Root;
+    }
+
+    private void replace(boolean ipv6, Node<V> parent, byte[] key, Node<V> node) {
+        if (parent == null) {
+            if (ipv6) {
+                ipv6Root = node;
+            } else {
+                ipv4Root = node;
+            }
+            return;
+        }
+        parent.attach(bit(key, parent.length), node);
+    }
+
+    private static <V> void collect(Node<V> node, List<V> target) {
+        if (node == null) {
+            return;
+        }
+        if (node.value != null) {
+            target.add(node.value);
+        }
+        collect(node.left, target);
+        collect(node.right, target);
+    }
+
+    private static final class Node<V> {
+        private final byte[] key;
+        private final int length;
+        private V value;
+        private Node<V> left;
+        private Node<V> right;
+
+        private Node(byte[] key, int length, V value) {
+            this.key = key;
+            this.length = length;
+            this.value = value;
+        }
+
+        private void attach(boolean right, Node<V> child) {
+            if (right) {
+                this.right = child;
+            } else {
+                this.left = child;
+            }
+        }
+    }
+}
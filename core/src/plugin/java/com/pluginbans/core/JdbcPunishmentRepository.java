@@ -6,193 +6,528 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 public final class JdbcPunishmentRepository implements PunishmentRepository {
+    private static final int MIGRATION_CHUNK_SIZE = 500;
+    private static final long MIGRATION_RETRY_SECONDS = 30L;
+    private static final String HISTORY_INSERT = """
+            INSERT INTO pluginbans_punishment_history
+            (id, uuid, ip, ip_hash, type, reason, actor, start_time, end_time, internal_id, action, action_time)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
     private final DataSource dataSource;
-    private final ExecutorService executor;
+    private final DatabaseExecutors executors;
+    private final StorageFormat format;
+    private final PunishmentTable table;
+    private final ReentrantReadWriteLock migrationLock = new ReentrantReadWriteLock();
+    private final CompactStorageMigration migration;
+    private final StatsRollup stats = new StatsRollup();
+    private final PunishmentSearch search;
+    private volatile boolean legacyReads;
 
     public JdbcPunishmentRepository(DataSource dataSource, ExecutorService executor) {
+        this(dataSource, DatabaseExecutors.shared(executor));
+    }
+
+    public JdbcPunishmentRepository(DataSource dataSource, DatabaseExecutors executors) {
+        this(dataSource, executors, StorageFormat.TEXT);
+    }
+
+    public JdbcPunishmentRepository(DataSource dataSource, DatabaseExecutors executors, StorageFormat format) {
         this.dataSource = dataSource;
-        this.executor = executor;
+        this.executors = executors;
+        this.format = format == null ? StorageFormat.TEXT : format;
+        this.table = PunishmentTable.forFormat(this.format);
+        this.search = new PunishmentSearch(dataSource);
+        if (this.format == StorageFormat.BINARY) {
+            // Пока перенос не завершён, строки, ещё не попавшие в компактную таблицу, читаются из старой.
+            this.migration = new CompactStorageMigration(dataSource, MIGRATION_CHUNK_SIZE);
+            this.legacyReads = true;
+            continueMigration();
+        } else {
+            this.migration = null;
+            this.legacyReads = false;
+        }
+    }
+
+    public boolean migrationComplete() {
+        return !legacyReads;
+    }
+
+    public long migratedRows() {
+        return migration == null ? 0L : migration.migratedRows();
     }
 
     @Override
     public CompletableFuture<Void> addPunishment(PunishmentRecord record) {
-        return CompletableFuture.runAsync(() -> {
-            String sql = """
-                    INSERT INTO pluginbans_punishments
-                    (internal_id, uuid, ip, ip_hash, type, reason, actor, start_time, end_time, active, silent)
-                    VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                    """;
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, record.internalId());
-                statement.setString(2, record.uuid().toString());
-                statement.setString(3, record.ip());
-                statement.setString(4, record.ipHash());
-                statement.setString(5, record.type().name());
-                statement.setString(6, record.reason());
-                statement.setString(7, record.actor());
-                statement.setLong(8, record.startTime().toEpochMilli());
-                if (record.endTime() == null) {
-                    statement.setNull(9, java.sql.Types.BIGINT);
-                } else {
-                    statement.setLong(9, record.endTime().toEpochMilli());
+        return addPunishments(List.of(record));
+    }
+
+    @Override
+    public CompletableFuture<Void> addPunishments(List<PunishmentRecord> records) {
+        return executors.run(Workload.WRITE, () -> insertPunishments(connection -> records));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> addWithEscalation(PunishmentRecord trigger, EscalationPolicy policy) {
+        return executors.supply(Workload.WRITE, () -> insertPunishments(connection -> {
+            // Счёт ведётся под замком игрока внутри той же транзакции, что и запись:
+            // одновременная выдача с другого узла ждёт фиксации и видит уже выданный шаг.
+            lockPlayer(connection, trigger.uuid());
+            List<PunishmentRecord> active = queryInTransaction(connection, "uuid = ? AND active = 1",
+                    (statement, layout) -> layout.bindUuid(statement, 1, trigger.uuid()));
+            return policy.evaluate(trigger, active, Instant.now())
+                    .map(next -> List.of(trigger, next))
+                    .orElse(List.of(trigger));
+        }));
+    }
+
+    private List<PunishmentRecord> insertPunishments(BatchPlan plan) {
+        RepositoryQueryFlightEvent event = new RepositoryQueryFlightEvent("insert", table.name(), null);
+        event.begin();
+        List<PunishmentRecord> records;
+        List<PunishmentHistoryRecord> history;
+        migrationLock.readLock().lock();
+        // Наказания, их история и дневная сводка пишутся одной транзакцией: либо всё, либо ничего.
+        try (Connection connection = connect(event)) {
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try {
+                records = plan.records(connection);
+                history = new ArrayList<>(records.size());
+                for (PunishmentRecord record : records) {
+                    history.add(buildHistory(record, "CREATE"));
                 }
-                statement.setBoolean(10, record.active());
-                statement.setBoolean(11, record.silent());
-                statement.executeUpdate();
-            } catch (SQLException exception) {
-                throw new IllegalStateException("Не удалось записать наказание.", exception);
+                try (PreparedStatement insert = connection.prepareStatement(table.insert())) {
+                    for (PunishmentRecord record : records) {
+                        table.bindInsert(insert, record);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                writeHistory(connection, history);
+                search.indexInTransaction(connection, records);
+                connection.commit();
+            } catch (SQLException | RuntimeException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(autoCommit);
             }
-            insertHistory(buildHistory(record, "CREATE"));
-        }, executor);
+        } catch (SQLException exception) {
+            event.finish(0, false);
+            throw new IllegalStateException("Не удалось записать наказание.", exception);
+        } finally {
+            migrationLock.readLock().unlock();
+        }
+        event.finish(records.size(), true);
+        stats.committed(history);
+        search.committed(records);
+        return records;
     }
 
-    @Override
-    public CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action) {
-        return CompletableFuture.runAsync(() -> {
-            PunishmentRecord existing = null;
-            String selectSql = "SELECT * FROM pluginbans_punishments WHERE internal_id = ?";
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(selectSql)) {
-                statement.setString(1, internalId);
+    private static void lockPlayer(Connection connection, UUID uuid) throws SQLException {
+        String insert = DatabaseMeta.isSqlite(connection)
+                ? "INSERT OR IGNORE INTO pluginbans_escalation_locks (uuid, locked_at) VALUES (?, ?)"
+                : "INSERT IGNORE INTO pluginbans_escalation_locks (uuid, locked_at) VALUES (?, ?)";
+        long now = System.currentTimeMillis();
+        try (PreparedStatement statement = connection.prepareStatement(insert)) {
+            statement.setString(1, uuid.toString());
+            statement.setLong(2, now);
+            statement.executeUpdate();
+        }
+        // Обновление берёт блокировку строки до конца транзакции (в SQLite - блокировку записи всей базы).
+        try (PreparedStatement statement = connection.prepareStatement(
+                "UPDATE pluginbans_escalation_locks SET locked_at = ? WHERE uuid = ?")) {
+            statement.setLong(1, now);
+            statement.setString(2, uuid.toString());
+            statement.executeUpdate();
+        }
+    }
+
+    private List<PunishmentRecord> queryInTransaction(Connection connection, String where, StatementConsumer binder) throws SQLException {
+        List<PunishmentTable> layouts = legacyReads ? List.of(table, PunishmentTable.TEXT) : List.of(table);
+        Map<String, PunishmentRecord> merged = new LinkedHashMap<>();
+        for (PunishmentTable layout : layouts) {
+            try (PreparedStatement statement = connection.prepareStatement(layout.select(where))) {
+                binder.accept(statement, layout);
                 try (ResultSet resultSet = statement.executeQuery()) {
-                    if (resultSet.next()) {
-                        existing = map(resultSet);
+                    while (resultSet.next()) {
+                        PunishmentRecord record = layout.map(resultSet);
+                        merged.putIfAbsent(record.internalId(), record);
                     }
                 }
-            } catch (SQLException exception) {
-                throw new IllegalStateException("Не удалось загрузить наказание.", exception);
             }
-            String sql = "UPDATE pluginbans_punishments SET active = 0 WHERE internal_id = ?";
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, internalId);
-                statement.executeUpdate();
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    @Override
+    public CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action) {
+        return deactivate(internalId, actor, reason, action, Workload.WRITE);
+    }
+
+    @Override
+    public CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action, Workload workload) {
+        return executors.run(workload, () -> {
+            PunishmentHistoryRecord history = null;
+            RepositoryQueryFlightEvent event = new RepositoryQueryFlightEvent("update", table.name(), "internal_id = ? AND active = 1");
+            event.begin();
+            int changed = 0;
+            migrationLock.readLock().lock();
+            // Снятие, его история и сводка пишутся одной транзакцией и только если строка действительно была активна:
+            // повторное или одновременное снятие не оставляет второй записи в истории.
+            try (Connection connection = connect(event)) {
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    PunishmentRecord existing = queryInTransaction(connection, "internal_id = ?",
+                            (statement, layout) -> statement.setString(1, internalId)).stream().findFirst().orElse(null);
+                    changed = updateInactive(connection, table, internalId);
+                    if (legacyReads) {
+                        changed += updateInactive(connection, PunishmentTable.TEXT, internalId);
+                    }
+                    if (changed > 0 && existing != null) {
+                        PunishmentRecord removed = new PunishmentRecord(
+                                existing.uuid(),
+                                existing.ip(),
+                                existing.ipHash(),
+                                existing.type(),
+                                reason,
+                                actor,
+                                existing.startTime(),
+                                existing.endTime(),
+                                false,
+                                existing.internalId(),
+                                existing.silent()
+                        );
+                        history = buildHistory(removed, action);
+                        writeHistory(connection, List.of(history));
+                    }
+                    connection.commit();
+                } catch (SQLException | RuntimeException exception) {
+                    connection.rollback();
+                    throw exception;
+                } finally {
+                    connection.setAutoCommit(autoCommit);
+                }
             } catch (SQLException exception) {
+                event.finish(0, false);
                 throw new IllegalStateException("Не удалось деактивировать наказание.", exception);
+            } finally {
+                migrationLock.readLock().unlock();
             }
-            if (existing != null) {
-                PunishmentRecord removed = new PunishmentRecord(
-                        existing.uuid(),
-                        existing.ip(),
-                        existing.ipHash(),
-                        existing.type(),
-                        reason,
-                        actor,
-                        existing.startTime(),
-                        existing.endTime(),
-                        false,
-                        existing.internalId(),
-                        existing.silent()
-                );
-                insertHistory(buildHistory(removed, action));
+            event.finish(changed, true);
+            if (history != null) {
+                stats.committed(List.of(history));
             }
-        }, executor);
+        });
     }
 
     @Override
     public CompletableFuture<List<PunishmentRecord>> findActiveByUuid(UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> queryList(
-                "SELECT * FROM pluginbans_punishments WHERE uuid = ? AND active = 1",
-                statement -> statement.setString(1, uuid.toString())
-        ), executor);
+        return findActiveByUuid(uuid, Workload.LOGIN);
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveByUuid(UUID uuid, Workload workload) {
+        return executors.supply(workload, () -> queryList(
+                "uuid = ? AND active = 1",
+                (statement, layout) -> layout.bindUuid(statement, 1, uuid)
+        ));
     }
 
     @Override
     public CompletableFuture<List<PunishmentRecord>> findActiveByIp(String ip) {
-        return CompletableFuture.supplyAsync(() -> queryList(
-                "SELECT * FROM pluginbans_punishments WHERE ip = ? AND active = 1",
-                statement -> statement.setString(1, ip)
-        ), executor);
+        return executors.supply(Workload.LOGIN, () -> queryList(
+                "ip = ? AND active = 1",
+                (statement, layout) -> layout.bindIp(statement, 1, ip)
+        ));
     }
 
     @Override
     public CompletableFuture<List<PunishmentRecord>> findActiveByIpHash(String ipHash) {
-        return CompletableFuture.supplyAsync(() -> queryList(
-                "SELECT * FROM pluginbans_punishments WHERE ip_hash = ? AND active = 1",
-                statement -> statement.setString(1, ipHash)
-        ), executor);
+        return executors.supply(Workload.LOGIN, () -> queryList(
+                "ip_hash = ? AND active = 1",
+                (statement, layout) -> layout.bindIpHash(statement, 1, ipHash)
+        ));
     }
 
     @Override
-    public CompletableFuture<Optional<PunishmentRecord>> findByInternalId(String internalId) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT * FROM pluginbans_punishments WHERE internal_id = ?";
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, internalId);
-                try (ResultSet resultSet = statement.executeQuery()) {
-                    if (resultSet.next()) {
-                        return Optional.of(map(resultSet));
-                    }
+    public CompletableFuture<List<PunishmentRecord>> findAllActive() {
+        return executors.supply(Workload.BACKGROUND, () -> queryList(
+                "active = 1",
+                (statement, layout) -> {
                 }
+        ));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findActiveStartedSince(Instant since) {
+        return executors.supply(Workload.BACKGROUND, () -> queryList(
+                "start_time >= ? AND active = 1",
+                (statement, layout) -> statement.setLong(1, since.toEpochMilli())
+        ));
+    }
+
+    @Override
+    public CompletableFuture<String> findImportGeneration() {
+        return executors.supply(Workload.BACKGROUND, () -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return DatabaseMeta.read(connection, DatabaseMeta.IMPORT_GENERATION_KEY);
             } catch (SQLException exception) {
-                throw new IllegalStateException("Не удалось загрузить наказание.", exception);
+                throw new IllegalStateException("Не удалось прочитать поколение импорта.", exception);
             }
-            return Optional.empty();
-        }, executor);
+        });
     }
 
     @Override
-    public CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            String sql = "SELECT * FROM pluginbans_punishment_history WHERE uuid = ? ORDER BY action_time DESC";
-            List<PunishmentHistoryRecord> records = new ArrayList<>();
-            try (Connection connection = dataSource.getConnection();
-                 PreparedStatement statement = connection.prepareStatement(sql)) {
-                statement.setString(1, uuid.toString());
-                try (ResultSet resultSet = statement.executeQuery()) {
-                    while (resultSet.next()) {
-                        records.add(mapHistory(resultSet));
+    public CompletableFuture<List<PunishmentRecord>> findExpiredActive(Instant now, int limit) {
+        return executors.supply(Workload.BACKGROUND, () -> queryList(
+                "active = 1 AND end_time IS NOT NULL AND end_time <= ? ORDER BY end_time LIMIT ?",
+                (statement, layout) -> {
+                    statement.setLong(1, now.toEpochMilli());
+                    statement.setInt(2, limit);
+                }
+        ));
+    }
+
+    @Override
+    public CompletableFuture<Optional<PunishmentRecord>> findByInternalId(String internalId) {
+        return executors.supply(Workload.API, () -> {
+            StatementConsumer binder = (statement, layout) -> statement.setString(1, internalId);
+            Optional<PunishmentRecord> live = queryList("internal_id = ?", binder).stream().findFirst();
+            if (live.isPresent()) {
+                return live;
+            }
+            // Снятые давно наказания перенесены в архив, поиск по ID их всё равно находит.
+            return queryList(PunishmentTable.ARCHIVE, "internal_id = ?", binder, true).stream().findFirst();
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentRecord>> findByInternalIds(List<String> internalIds, Workload workload) {
+        if (internalIds.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        // Только действующая таблица: снятое наказание из архива для проверки входа ничего не меняет.
+        return executors.supply(workload, () -> queryList(
+                "internal_id IN (" + String.join(", ", Collections.nCopies(internalIds.size(), "?")) + ")",
+                (statement, layout) -> {
+                    for (int i = 0; i < internalIds.size(); i++) {
+                        statement.setString(i + 1, internalIds.get(i));
                     }
                 }
-            } catch (SQLException exception) {
-                throw new IllegalStateException("Не удалось загрузить историю наказаний.", exception);
+        ));
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid) {
+        return findHistory(uuid, false);
+    }
+
+    @Override
+    public CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid, boolean includeArchive) {
+        return executors.supply(Workload.API, () -> {
+            List<PunishmentHistoryRecord> records = new ArrayList<>(queryHistory("pluginbans_punishment_history", uuid));
+            if (includeArchive) {
+                records.addAll(queryHistory("pluginbans_punishment_history_archive", uuid));
+                records.sort(Comparator.comparing(PunishmentHistoryRecord::actionTime).reversed());
             }
             return records;
-        }, executor);
+        });
+    }
+
+    private List<PunishmentHistoryRecord> queryHistory(String tableName, UUID uuid) {
+        String sql = "SELECT * FROM " + tableName + " WHERE uuid = ? ORDER BY action_time DESC";
+        List<PunishmentHistoryRecord> records = new ArrayList<>();
+        RepositoryQueryFlightEvent event = new RepositoryQueryFlightEvent("select", tableName, "uuid = ?");
+        event.begin();
+        try (Connection connection = connect(event);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, uuid.toString());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    records.add(mapHistory(resultSet));
+                }
+            }
+        } catch (SQLException exception) {
+            event.finish(records.size(), false);
+            throw new IllegalStateException("Не удалось загрузить историю наказаний.", exception);
+        }
+        event.finish(records.size(), true);
+        return records;
     }
 
-    private List<PunishmentRecord> queryList(String sql, StatementConsumer binder) {
-        return queryList(sql, binder, true);
+    @Override
+    public CompletableFuture<List<DailyStat>> findDailyStats(LocalDate from, LocalDate to) {
+        return executors.supply(Workload.API, () -> {
+            long fromDay = from.toEpochDay();
+            long toDay = to.toEpochDay();
+            long today = StatsRollup.currentDay();
+            // Прошлые дни читаются из сводки по диапазону ключа, текущий - из счётчика в памяти.
+            List<DailyStat> result = new ArrayList<>(queryStats(fromDay, Math.min(toDay, today - 1)));
+            if (fromDay <= today && today <= toDay) {
+                result.addAll(stats.today(today, () -> queryStats(today, today)));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<SearchPage> search(SearchQuery query) {
+        return executors.supply(Workload.API, () -> {
+            List<SearchIndex.Hit> hits = search.search(query);
+            if (hits.isEmpty()) {
+                return SearchPage.EMPTY;
+            }
+            StringBuilder placeholders = new StringBuilder();
+            for (int i = 0; i < hits.size(); i++) {
+                placeholders.append(i == 0 ? "?" : ", ?");
+            }
+            StatementConsumer binder = (statement, layout) -> {
+                for (int i = 0; i < hits.size(); i++) {
+                    statement.setString(i + 1, hits.get(i).internalId());
+                }
+            };
+            Map<String, PunishmentRecord> byId = new LinkedHashMap<>();
+            for (PunishmentRecord record : queryList("internal_id IN (" + placeholders + ")", binder)) {
+                byId.put(record.internalId(), record);
+            }
+            if (byId.size() < hits.size()) {
+                for (PunishmentRecord record : queryList(PunishmentTable.ARCHIVE, "internal_id IN (" + placeholders + ")", binder, true)) {
+                    byId.putIfAbsent(record.internalId(), record);
+                }
+            }
+            // Порядок задаёт индекс поиска, строки наказаний подтягиваются одним запросом по первичному ключу.
+            List<PunishmentRecord> records = new ArrayList<>(hits.size());
+            for (SearchIndex.Hit hit : hits) {
+                PunishmentRecord record = byId.get(hit.internalId());
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+            String nextCursor = hits.size() < query.limit() ? null : Long.toString(hits.get(hits.size() - 1).sequence());
+            return new SearchPage(records, nextCursor);
+        });
     }
 
-    private List<PunishmentRecord> queryList(String sql, StatementConsumer binder, boolean allowSchemaRetry) {
+    public PunishmentSearch.Backend searchBackend() {
+        return search.backend();
+    }
+
+    @Override
+    public CompletableFuture<Void> ping() {
+        return executors.run(Workload.BACKGROUND, () -> {
+            try (Connection connection = dataSource.getConnection()) {
+                if (!connection.isValid(2)) {
+                    throw new IllegalStateException("База данных не отвечает.");
+                }
+            } catch (SQLException exception) {
+                throw new IllegalStateException("Не удалось проверить соединение с базой данных.", exception);
+            }
+        });
+    }
+
+    private List<PunishmentRecord> queryList(String where, StatementConsumer binder) {
+        List<PunishmentRecord> records = queryList(table, where, binder, true);
+        if (!legacyReads) {
+            return records;
+        }
+        Map<String, PunishmentRecord> merged = new LinkedHashMap<>();
+        for (PunishmentRecord record : records) {
+            merged.put(record.internalId(), record);
+        }
+        for (PunishmentRecord record : queryList(PunishmentTable.TEXT, where, binder, true)) {
+            merged.putIfAbsent(record.internalId(), record);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private List<PunishmentRecord> queryList(PunishmentTable layout, String where, StatementConsumer binder, boolean allowSchemaRetry) {
         List<PunishmentRecord> records = new ArrayList<>();
-        try (Connection connection = dataSource.getConnection();
-             PreparedStatement statement = connection.prepareStatement(sql)) {
-            binder.accept(statement);
+        RepositoryQueryFlightEvent event = new RepositoryQueryFlightEvent("select", layout.name(), where);
+        event.begin();
+        try (Connection connection = connect(event);
+             PreparedStatement statement = connection.prepareStatement(layout.select(where))) {
+            binder.accept(statement, layout);
             try (ResultSet resultSet = statement.executeQuery()) {
                 while (resultSet.next()) {
-                    records.add(map(resultSet));
+                    records.add(layout.map(resultSet));
                 }
             }
         } catch (SQLException exception) {
+            event.finish(records.size(), false);
             if (allowSchemaRetry && isMissingTableError(exception)) {
                 try {
                     ensureSchema();
-                    return queryList(sql, binder, false);
+                    return queryList(layout, where, binder, false);
                 } catch (SQLException schemaException) {
                     throw new IllegalStateException("Не удалось инициализировать базу данных.", schemaException);
                 }
             }
             throw new IllegalStateException("Не удалось загрузить список наказаний.", exception);
         }
+        event.finish(records.size(), true);
         return records;
     }
 
+    private Connection connect(RepositoryQueryFlightEvent event) throws SQLException {
+        long started = System.nanoTime();
+        Connection connection = dataSource.getConnection();
+        event.connected(System.nanoTime() - started);
+        return connection;
+    }
+
+    private static int updateInactive(Connection connection, PunishmentTable layout, String internalId) throws SQLException {
+        String sql = "UPDATE " + layout.name() + " SET active = 0 WHERE internal_id = ? AND active = 1";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, internalId);
+            return statement.executeUpdate();
+        }
+    }
+
+    private void continueMigration() {
+        executors.run(Workload.BACKGROUND, () -> {
+            migrationLock.writeLock().lock();
+            try {
+                if (migration.migrateChunk()) {
+                    legacyReads = false;
+                }
+            } finally {
+                migrationLock.writeLock().unlock();
+            }
+        }).whenComplete((ignored, throwable) -> {
+            if (executors.executor(Workload.BACKGROUND).isShutdown() || !legacyReads) {
+                return;
+            }
+            if (throwable == null) {
+                continueMigration();
+            } else {
+                CompletableFuture.runAsync(this::continueMigration,
+                        CompletableFuture.delayedExecutor(MIGRATION_RETRY_SECONDS, TimeUnit.SECONDS));
+            }
+        });
+    }
+
     private void ensureSchema() throws SQLException {
         try (Connection connection = dataSource.getConnection()) {
-            DatabaseSchema.ensure(connection);
+            DatabaseSchema.ensure(connection, format);
         }
     }
 
@@ -208,23 +543,6 @@ public final class JdbcPunishmentRepository implements PunishmentRepository {
         return false;
     }
 
-    private PunishmentRecord map(ResultSet resultSet) throws SQLException {
-        Long end = readNullableEpochMillis(resultSet, "end_time");
-        return new PunishmentRecord(
-                UUID.fromString(resultSet.getString("uuid")),
-                resultSet.getString("ip"),
-                resultSet.getString("ip_hash"),
-                PunishmentType.valueOf(resultSet.getString("type")),
-                resultSet.getString("reason"),
-                resultSet.getString("actor"),
-                Instant.ofEpochMilli(readRequiredEpochMillis(resultSet, "start_time")),
-                end == null ? null : Instant.ofEpochMilli(end),
-                resultSet.getBoolean("active"),
-                resultSet.getString("internal_id"),
-                resultSet.getBoolean("silent")
-        );
-    }
-
     private PunishmentHistoryRecord mapHistory(ResultSet resultSet) throws SQLException {
         Long end = readNullableEpochMillis(resultSet, "end_time");
         return new PunishmentHistoryRecord(
@@ -252,30 +570,7 @@ public final class JdbcPunishmentRepository implements PunishmentRepository {
     }
 
     private Long readNullableEpochMillis(ResultSet resultSet, String column) throws SQLException {
-        Object raw = resultSet.getObject(column);
-        if (raw == null) {
-            return null;
-        }
-        if (raw instanceof Number number) {
-            return number.longValue();
-        }
-        if (raw instanceof String stringValue) {
-            String normalized = stringValue.trim();
-            if (normalized.isEmpty()
-                    || normalized.equalsIgnoreCase("null")
-                    || normalized.equalsIgnoreCase("perm")
-                    || normalized.equalsIgnoreCase("permanent")
-                    || normalized.equalsIgnoreCase("forever")
-                    || normalized.equalsIgnoreCase("навсегда")) {
-                return null;
-            }
-            try {
-                return Long.parseLong(normalized);
-            } catch (NumberFormatException exception) {
-                throw new SQLException("Bad value for type Long", exception);
-            }
-        }
-        throw new SQLException("Bad value for type Long");
+        return PunishmentTable.parseEpochMillis(resultSet.getObject(column), column);
     }
 
     private PunishmentHistoryRecord buildHistory(PunishmentRecord record, String action) {
@@ -296,38 +591,70 @@ public final class JdbcPunishmentRepository implements PunishmentRepository {
         );
     }
 
-    private void insertHistory(PunishmentHistoryRecord record) {
-        String sql = """
-                INSERT INTO pluginbans_punishment_history
-                (id, uuid, ip, ip_hash, type, reason, actor, start_time, end_time, internal_id, action, action_time)
-                VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
-                """;
-        try (Connection connection = dataSource.getConnection();
+    private static void writeHistory(Connection connection, List<PunishmentHistoryRecord> records) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(HISTORY_INSERT)) {
+            for (PunishmentHistoryRecord record : records) {
+                bindHistory(statement, record);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+        StatsRollup.apply(connection, records);
+    }
+
+    private List<DailyStat> queryStats(long fromDay, long toDay) {
+        String sql = "SELECT day, type, action, actor, total FROM pluginbans_stats_daily WHERE day BETWEEN ? AND ? ORDER BY day";
+        List<DailyStat> stats = new ArrayList<>();
+        RepositoryQueryFlightEvent event = new RepositoryQueryFlightEvent("select", "pluginbans_stats_daily", "day BETWEEN ? AND ?");
+        event.begin();
+        try (Connection connection = connect(event);
              PreparedStatement statement = connection.prepareStatement(sql)) {
-            statement.setString(1, record.id());
-            statement.setString(2, record.uuid().toString());
-            statement.setString(3, record.ip());
-            statement.setString(4, record.ipHash());
-            statement.setString(5, record.type().name());
-            statement.setString(6, record.reason());
-            statement.setString(7, record.actor());
-            statement.setLong(8, record.startTime().toEpochMilli());
-            if (record.endTime() == null) {
-                statement.setNull(9, java.sql.Types.BIGINT);
-            } else {
-                statement.setLong(9, record.endTime().toEpochMilli());
+            statement.setLong(1, fromDay);
+            statement.setLong(2, toDay);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    stats.add(new DailyStat(
+                            LocalDate.ofEpochDay(resultSet.getLong("day")),
+                            PunishmentType.valueOf(resultSet.getString("type")),
+                            resultSet.getString("action"),
+                            resultSet.getString("actor"),
+                            resultSet.getLong("total")
+                    ));
+                }
             }
-            statement.setString(10, record.internalId());
-            statement.setString(11, record.action());
-            statement.setLong(12, record.actionTime().toEpochMilli());
-            statement.executeUpdate();
         } catch (SQLException exception) {
-            throw new IllegalStateException("Не удалось сохранить историю наказаний.", exception);
+            event.finish(stats.size(), false);
+            throw new IllegalStateException("Не удалось прочитать статистику наказаний.", exception);
         }
+        event.finish(stats.size(), true);
+        return stats;
+    }
+
+    private static void bindHistory(PreparedStatement statement, PunishmentHistoryRecord record) throws SQLException {
+        statement.setString(1, record.id());
+        statement.setString(2, record.uuid().toString());
+        statement.setString(3, record.ip());
+        statement.setString(4, record.ipHash());
+        statement.setString(5, record.type().name());
+        statement.setString(6, record.reason());
+        statement.setString(7, record.actor());
+        statement.setLong(8, record.startTime().toEpochMilli());
+        if (record.endTime() == null) {
+            statement.setNull(9, java.sql.Types.BIGINT);
+        } else {
+            statement.setLong(9, record.endTime().toEpochMilli());
+        }
+        statement.setString(10, record.internalId());
+        statement.setString(11, record.action());
+        statement.setLong(12, record.actionTime().toEpochMilli());
     }
 
     @FunctionalInterface
     private interface StatementConsumer {
-        void accept(PreparedStatement statement) throws SQLException;
+        void accept(PreparedStatement statement, PunishmentTable layout) throws SQLException;
+    }
+
+    private interface BatchPlan {
+        List<PunishmentRecord> records(Connection connection) throws SQLException;
     }
 }
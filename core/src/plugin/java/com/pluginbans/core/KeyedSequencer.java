@@ -0,0 +1,34 @@
+package com.pluginbans.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+public final class KeyedSequencer<K> {
+    private final ConcurrentHashMap<K, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    public <V> CompletableFuture<V> submit(K key, Supplier<CompletableFuture<V>> task) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<?> previous = tails.put(key, promise);
+        // Задача стартует только после завершения предыдущей по тому же ключу, ошибка предыдущей очередь не рвёт.
+        CompletableFuture<?> ready = previous == null
+                ? CompletableFuture.completedFuture(null)
+                : previous.handle((ignored, throwable) -> null);
+        ready.thenCompose(ignored -> task.get()).whenComplete((value, throwable) -> {
+            tails.remove(key, promise);
+            if (throwable != null) {
+                promise.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null
+                        ? throwable.getCause()
+                        : throwable);
+            } else {
+                promise.complete(value);
+            }
+        });
+        return promise;
+    }
+
+    public int pending() {
+        return tails.size();
+    }
+}
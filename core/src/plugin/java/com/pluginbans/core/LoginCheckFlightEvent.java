@@ -0,0 +1,54 @@
+package com.pluginbans.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+@Name("pluginbans.LoginCheck")
+@Label("Проверка при входе")
+@Category({"PluginBans", "Вход"})
+@Description("Поиск активных наказаний игрока и его IP при подключении.")
+@StackTrace(false)
+final class LoginCheckFlightEvent extends jdk.jfr.Event {
+    @Label("Хэш UUID")
+    int uuidHash;
+
+    @Label("IP проверен")
+    boolean ipChecked;
+
+    @Label("Ответ фильтра без базы")
+    @Description("UUID отсечён фильтром Блума в памяти, запрос к базе не выполнялся.")
+    boolean cacheHit;
+
+    @Label("Ответ по памяти при сбое базы")
+    boolean failStatic;
+
+    @Label("Наказаний")
+    int records;
+
+    @Label("Успешно")
+    boolean success;
+
+    void answeredFromFilter() {
+        this.cacheHit = true;
+    }
+
+    void answeredFailStatic() {
+        this.failStatic = true;
+    }
+
+    void finish(UUID uuid, String ip, int records, boolean success) {
+        if (shouldCommit()) {
+            // В запись попадает только хэш UUID, сами идентификаторы игроков в файл профилирования не пишутся.
+            this.uuidHash = uuid == null ? 0 : uuid.hashCode();
+            this.ipChecked = ip != null && !ip.isBlank();
+            this.records = records;
+            this.success = success;
+            commit();
+        }
+    }
+}
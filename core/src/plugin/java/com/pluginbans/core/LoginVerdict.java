@@ -0,0 +1,80 @@
+package com.pluginbans.core;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+public record LoginVerdict(UUID uuid, long issuedAtMillis, boolean clean, long stateVersion) {
+    public static final String PROPERTY = "pluginbans-verdict";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int VERSION = 1;
+
+    public String sign(byte[] secret) {
+        String payload = payload();
+        return payload + ";" + Base64.getUrlEncoder().withoutPadding().encodeToString(mac(secret, payload));
+    }
+
+    public static Optional<LoginVerdict> verify(String token, byte[] secret) {
+        if (token == null || secret == null || secret.length == 0) {
+            return Optional.empty();
+        }
+        int separator = token.lastIndexOf(';');
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        String payload = token.substring(0, separator);
+        byte[] signature;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException exception) {
+            return Optional.empty();
+        }
+        if (!MessageDigest.isEqual(mac(secret, payload), signature)) {
+            return Optional.empty();
+        }
+        String[] parts = payload.split(";");
+        if (parts.length != 5 || !Integer.toString(VERSION).equals(parts[0])) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new LoginVerdict(
+                    UUID.fromString(parts[1]),
+                    Long.parseLong(parts[2]),
+                    "1".equals(parts[3]),
+                    Long.parseLong(parts[4])
+            ));
+        } catch (IllegalArgumentException exception) {
+            return Optional.empty();
+        }
+    }
+
+    public boolean isFresh(Instant now, Duration maxAge) {
+        long age = now.toEpochMilli() - issuedAtMillis;
+        return age >= -1_000L && age <= maxAge.toMillis();
+    }
+
+    public boolean isStateCurrent(Duration maxStaleness) {
+        return issuedAtMillis - stateVersion <= maxStaleness.toMillis();
+    }
+
+    private String payload() {
+        return VERSION + ";" + uuid + ";" + issuedAtMillis + ";" + (clean ? "1" : "0") + ";" + stateVersion;
+    }
+
+    private static byte[] mac(byte[] secret, String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException exception) {
+            throw new IllegalStateException("Не удалось подписать результат проверки входа.", exception);
+        }
+    }
+}
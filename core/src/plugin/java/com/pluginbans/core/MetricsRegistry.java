@@ -0,0 +1,156 @@
+package com.pluginbans.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+public final class MetricsRegistry {
+    private static final String PREFIX = "pluginbans_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private enum Kind {
+        COUNTER("counter"),
+        GAUGE("gauge"),
+        SUMMARY("summary");
+
+        private final String type;
+
+        Kind(String type) {
+            this.type = type;
+        }
+    }
+
+    private record Family(String name, String help, Kind kind, ConcurrentSkipListMap<String, Object> series) {
+    }
+
+    // Серии создаются один раз, горячий код держит ссылку на счётчик или гистограмму и не ищет её по имени.
+    private final ConcurrentSkipListMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public LongAdder counter(String name, String help, String... labels) {
+        return (LongAdder) series(name, help, Kind.COUNTER, labels, LongAdder::new);
+    }
+
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, Kind.COUNTER, labels, value);
+    }
+
+    public void gauge(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, Kind.GAUGE, labels, value);
+    }
+
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) series(name, help, Kind.SUMMARY, labels, LatencyHistogram::new);
+    }
+
+    private Object series(String name, String help, Kind kind, String[] labels, Supplier<Object> factory) {
+        return family(name, help, kind).series().computeIfAbsent(labelString(labels), ignored -> factory.get());
+    }
+
+    private void register(String name, String help, Kind kind, String[] labels, LongSupplier value) {
+        // Функция регистрируется заново при перезапуске компонента и заменяет старую.
+        family(name, help, kind).series().put(labelString(labels), value);
+    }
+
+    private Family family(String name, String help, Kind kind) {
+        Family family = families.computeIfAbsent(name, ignored -> new Family(name, help, kind, new ConcurrentSkipListMap<>()));
+        if (family.kind() != kind) {
+            throw new IllegalArgumentException("Метрика " + name + " уже зарегистрирована с другим типом.");
+        }
+        return family;
+    }
+
+    public String prometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name()).append(' ').append(family.help()).append('\n');
+            out.append("# TYPE ").append(family.name()).append(' ').append(family.kind().type).append('\n');
+            for (Map.Entry<String, Object> entry : family.series().entrySet()) {
+                String labels = entry.getKey();
+                Object value = entry.getValue();
+                if (value instanceof LatencyHistogram histogram) {
+                    for (double quantile : QUANTILES) {
+                        out.append(family.name()).append(withLabel(labels, "quantile", Double.toString(quantile))).append(' ')
+                                .append(seconds(histogram.percentile(quantile))).append('\n');
+                    }
+                    out.append(family.name()).append("_sum").append(labels).append(' ').append(seconds(histogram.sumNanos())).append('\n');
+                    out.append(family.name()).append("_count").append(labels).append(' ').append(histogram.count()).append('\n');
+                } else {
+                    out.append(family.name()).append(labels).append(' ').append(longValue(value)).append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    public List<String> summary(String filter) {
+        String needle = filter == null ? "" : filter.toLowerCase(Locale.ROOT);
+        List<String> lines = new ArrayList<>();
+        for (Family family : families.values()) {
+            String shortName = family.name().startsWith(PREFIX) ? family.name().substring(PREFIX.length()) : family.name();
+            for (Map.Entry<String, Object> entry : family.series().entrySet()) {
+                String title = shortName + entry.getKey();
+                if (!needle.isEmpty() && !title.toLowerCase(Locale.ROOT).contains(needle)) {
+                    continue;
+                }
+                if (entry.getValue() instanceof LatencyHistogram histogram) {
+                    if (histogram.count() == 0L) {
+                        continue;
+                    }
+                    lines.add(title + ": n=" + histogram.count()
+                            + " p50=" + millis(histogram.percentile(0.5))
+                            + " p99=" + millis(histogram.percentile(0.99))
+                            + " max=" + millis(histogram.maxNanos()) + " мс");
+                } else {
+                    lines.add(title + ": " + longValue(entry.getValue()));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private static long longValue(Object value) {
+        if (value instanceof LongAdder adder) {
+            return adder.sum();
+        }
+        return ((LongSupplier) value).getAsLong();
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1_000_000_000.0);
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1_000_000.0);
+    }
+
+    private static String withLabel(String labels, String key, String value) {
+        String pair = key + "=\"" + value + "\"";
+        return labels.isEmpty() ? "{" + pair + "}" : labels.substring(0, labels.length() - 1) + "," + pair + "}";
+    }
+
+    static String labelString(String[] labels) {
+        if (labels == null || labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Метки задаются парами ключ-значение.");
+        }
+        StringBuilder builder = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return builder.append('}').toString();
+    }
+
+    private static String escape(String value) {
+        return value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
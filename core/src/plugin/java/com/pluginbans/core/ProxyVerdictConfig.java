@@ -0,0 +1,27 @@
+package com.pluginbans.core;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+public record ProxyVerdictConfig(boolean enabled, String secret, Duration maxAge, Duration maxStaleness) {
+    public ProxyVerdictConfig {
+        secret = secret == null ? "" : secret.trim();
+        maxAge = maxAge == null ? Duration.ofSeconds(10) : maxAge;
+        maxStaleness = maxStaleness == null ? Duration.ofSeconds(30) : maxStaleness;
+    }
+
+    public static ProxyVerdictConfig disabled() {
+        return new ProxyVerdictConfig(false, "", Duration.ofSeconds(10), Duration.ofSeconds(30));
+    }
+
+    public boolean usable() {
+        return enabled
+                && secret.length() >= 16
+                && !secret.equalsIgnoreCase("CHANGE_ME")
+                && !secret.equalsIgnoreCase("CHANGE_ME_LONG_RANDOM_SECRET");
+    }
+
+    public byte[] secretBytes() {
+        return secret.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,175 @@
+package com.pluginbans.core;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public final class PunishmentCache {
+    private final int probationCapacity;
+    private final int protectedCapacity;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Set<UUID> pinnedKeys = new HashSet<>();
+    private final ConcurrentHashMap<UUID, ActivePunishment> pinned = new ConcurrentHashMap<>();
+    private final LinkedHashMap<UUID, Entry> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<UUID, Entry> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public PunishmentCache(int capacity, Duration offlineTtl) {
+        this(capacity, offlineTtl, System::nanoTime);
+    }
+
+    PunishmentCache(int capacity, Duration offlineTtl, LongSupplier clock) {
+        int total = Math.max(2, capacity);
+        this.probationCapacity = Math.max(1, total / 5);
+        this.protectedCapacity = total - probationCapacity;
+        this.ttlNanos = offlineTtl.toNanos();
+        this.clock = clock;
+    }
+
+    public ActivePunishment get(UUID uuid) {
+        ActivePunishment pinnedValue = pinned.get(uuid);
+        if (pinnedValue != null) {
+            hits.increment();
+            return pinnedValue;
+        }
+        synchronized (this) {
+            long now = clock.getAsLong();
+            Entry entry = protectedSegment.get(uuid);
+            if (entry == null) {
+                entry = probation.get(uuid);
+                if (entry != null && !entry.isExpired(now, ttlNanos)) {
+                    // Повторное обращение переводит запись из испытательного сегмента в защищённый.
+                    probation.remove(uuid);
+                    protectedSegment.put(uuid, entry);
+                    demoteOverflow();
+                }
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            if (entry.isExpired(now, ttlNanos)) {
+                probation.remove(uuid);
+                protectedSegment.remove(uuid);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value();
+        }
+    }
+
+    public void put(UUID uuid, ActivePunishment value) {
+        // Проверка закрепления и запись идут под одной блокировкой с invalidate: иначе запись после снятия
+        // закрепления вернула бы значение в pinned навсегда.
+        synchronized (this) {
+            if (pinnedKeys.contains(uuid)) {
+                pinned.put(uuid, value);
+                return;
+            }
+            Entry entry = new Entry(value, clock.getAsLong());
+            if (protectedSegment.containsKey(uuid)) {
+                protectedSegment.put(uuid, entry);
+                return;
+            }
+            probation.put(uuid, entry);
+            evictOverflow();
+        }
+    }
+
+    public void pin(UUID uuid) {
+        synchronized (this) {
+            pinnedKeys.add(uuid);
+            Entry entry = protectedSegment.remove(uuid);
+            if (entry == null) {
+                entry = probation.remove(uuid);
+            }
+            if (entry != null) {
+                pinned.putIfAbsent(uuid, entry.value());
+            }
+        }
+    }
+
+    public void invalidate(UUID uuid) {
+        synchronized (this) {
+            pinnedKeys.remove(uuid);
+            pinned.remove(uuid);
+            probation.remove(uuid);
+            protectedSegment.remove(uuid);
+        }
+    }
+
+    public synchronized Map<UUID, ActivePunishment> snapshot() {
+        long now = clock.getAsLong();
+        Map<UUID, ActivePunishment> result = new HashMap<>(pinned);
+        for (Map.Entry<UUID, Entry> entry : protectedSegment.entrySet()) {
+            if (!entry.getValue().isExpired(now, ttlNanos)) {
+                result.putIfAbsent(entry.getKey(), entry.getValue().value());
+            }
+        }
+        for (Map.Entry<UUID, Entry> entry : probation.entrySet()) {
+            if (!entry.getValue().isExpired(now, ttlNanos)) {
+                result.putIfAbsent(entry.getKey(), entry.getValue().value());
+            }
+        }
+        return Map.copyOf(result);
+    }
+
+    public synchronized int size() {
+        return pinned.size() + probation.size() + protectedSegment.size();
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size(), pinned.size());
+    }
+
+    private void demoteOverflow() {
+        while (protectedSegment.size() > protectedCapacity) {
+            Iterator<Map.Entry<UUID, Entry>> eldest = protectedSegment.entrySet().iterator();
+            Map.Entry<UUID, Entry> entry = eldest.next();
+            eldest.remove();
+            probation.put(entry.getKey(), entry.getValue());
+        }
+        evictOverflow();
+    }
+
+    private void evictOverflow() {
+        long now = clock.getAsLong();
+        Iterator<Map.Entry<UUID, Entry>> iterator = probation.entrySet().iterator();
+        while (probation.size() > probationCapacity && iterator.hasNext()) {
+            Map.Entry<UUID, Entry> entry = iterator.next();
+            iterator.remove();
+            if (entry.getValue().isExpired(now, ttlNanos)) {
+                expirations.increment();
+            } else {
+                evictions.increment();
+            }
+        }
+    }
+
+    public record CacheStats(long hits, long misses, long evictions, long expirations, int size, int pinned) {
+        public double hitRate() {
+            long requests = hits + misses;
+            return requests == 0L ? 0.0 : (double) hits / requests;
+        }
+    }
+
+    private record Entry(ActivePunishment value, long writtenAtNanos) {
+        boolean isExpired(long nowNanos, long ttlNanos) {
+            return ttlNanos > 0L && nowNanos - writtenAtNanos > ttlNanos;
+        }
+    }
+}
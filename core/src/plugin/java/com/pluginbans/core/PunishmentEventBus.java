@@ -0,0 +1,264 @@
+package com.pluginbans.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public final class PunishmentEventBus implements AutoCloseable {
+    private static final int DEFAULT_LANES = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    private static final int RECENT_REMOVALS = 1024;
+    private static final long CLOSE_TIMEOUT_MILLIS = 2000L;
+    private static final long ERROR_LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final Logger LOGGER = Logger.getLogger("PluginBans");
+
+    public record ListenerStats(String listener, long events, long failures, long totalNanos, long maxNanos) {
+        public long averageNanos() {
+            return events == 0L ? 0L : totalNanos / events;
+        }
+    }
+
+    private final List<PunishmentListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<PunishmentListener, Timing> timings = new ConcurrentHashMap<>();
+    private final MetricsRegistry metrics;
+    private final Lane[] lanes;
+    private final LongAdder published;
+    private final LongAdder dropped;
+    private final LongAdder stale;
+    private final AtomicLong lastDropLogged = new AtomicLong(System.nanoTime() - ERROR_LOG_INTERVAL_NANOS);
+    private final LongAdder droppedSinceLog = new LongAdder();
+    private volatile BiConsumer<String, Throwable> errorHandler = (message, throwable) -> LOGGER.log(Level.WARNING, message, throwable);
+
+    public PunishmentEventBus() {
+        this(new MetricsRegistry());
+    }
+
+    public PunishmentEventBus(MetricsRegistry metrics) {
+        this(DEFAULT_LANES, DEFAULT_QUEUE_CAPACITY, metrics);
+    }
+
+    public PunishmentEventBus(int laneCount, int queueCapacity) {
+        this(laneCount, queueCapacity, new MetricsRegistry());
+    }
+
+    public PunishmentEventBus(int laneCount, int queueCapacity, MetricsRegistry metrics) {
+        if (laneCount < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Число потоков и размер очереди событий должны быть положительными.");
+        }
+        this.metrics = metrics;
+        this.lanes = new Lane[laneCount];
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(i + 1, queueCapacity);
+        }
+        this.published = metrics.counter("pluginbans_events_published_total", "События, переданные обработчикам.");
+        this.dropped = metrics.counter("pluginbans_events_dropped_total", "События, не поместившиеся в очередь.");
+        this.stale = metrics.counter("pluginbans_events_stale_total", "Выдачи, пришедшие после снятия того же наказания.");
+        metrics.gauge("pluginbans_events_queued", "События в очередях обработчиков.", this::queued);
+    }
+
+    public void register(PunishmentListener listener) {
+        String name = listener.getClass().getSimpleName();
+        timings.put(listener, new Timing(
+                metrics.histogram("pluginbans_listener_seconds", "Время обработки события.", "listener", name),
+                metrics.counter("pluginbans_listener_failures_total", "Исключения в обработчиках событий.", "listener", name),
+                new AtomicLong(System.nanoTime() - ERROR_LOG_INTERVAL_NANOS),
+                new LongAdder()
+        ));
+        listeners.add(listener);
+    }
+
+    public void setErrorHandler(BiConsumer<String, Throwable> handler) {
+        this.errorHandler = Objects.requireNonNull(handler, "handler");
+    }
+
+    public void publishCreate(PunishmentCreateEvent event) {
+        PunishmentRecord record = event.record();
+        dispatch(record.uuid(), PunishmentRules.blocksLogin(record.type()), lane -> {
+            // Создание, пришедшее после снятия того же наказания, устарело: опросы идут параллельно и могут разойтись.
+            if (lane.recentlyRemoved.containsKey(record.internalId())) {
+                stale.increment();
+                return;
+            }
+            for (PunishmentListener listener : listeners) {
+                deliver(listener, () -> listener.onCreate(event));
+            }
+        });
+    }
+
+    public void publishRemove(PunishmentRemoveEvent event) {
+        PunishmentRecord record = event.record();
+        dispatch(record.uuid(), false, lane -> {
+            lane.recentlyRemoved.put(record.internalId(), Boolean.TRUE);
+            for (PunishmentListener listener : listeners) {
+                deliver(listener, () -> listener.onRemove(event));
+            }
+        });
+    }
+
+    private void dispatch(UUID uuid, boolean mustDeliver, LaneTask task) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        // Все события одного игрока идут через одну полосу с одним потоком, поэтому порядок их доставки сохраняется.
+        Lane lane = lanes[Math.floorMod(uuid == null ? 0 : uuid.hashCode(), lanes.length)];
+        published.increment();
+        try {
+            lane.executor.execute(() -> task.run(lane));
+        } catch (RejectedExecutionException exception) {
+            if (mustDeliver && !lane.executor.isShutdown()) {
+                // Блокирующее вход наказание не теряется: без события забаненный игрок остался бы на сервере.
+                task.run(lane);
+                return;
+            }
+            // Переполненная очередь означает зависший обработчик; поток базы не должен ждать его.
+            dropped.increment();
+            reportDrop();
+        }
+    }
+
+    private void reportDrop() {
+        // Как и ошибки обработчиков, переполнение пишется в лог не чаще раза в минуту.
+        long now = System.nanoTime();
+        long last = lastDropLogged.get();
+        if (now - last < ERROR_LOG_INTERVAL_NANOS || !lastDropLogged.compareAndSet(last, now)) {
+            droppedSinceLog.increment();
+            return;
+        }
+        long suppressed = droppedSinceLog.sumThenReset();
+        LOGGER.warning("Очередь событий наказаний переполнена, событие отброшено"
+                + (suppressed > 0L ? " (ещё " + suppressed + " за последнюю минуту)." : "."));
+    }
+
+    private void deliver(PunishmentListener listener, Runnable call) {
+        Timing timing = timings.get(listener);
+        long started = System.nanoTime();
+        boolean failed = false;
+        try {
+            call.run();
+        } catch (RuntimeException exception) {
+            failed = true;
+            report(listener, timing, exception);
+        }
+        if (timing != null) {
+            timing.latency().recordSince(started);
+            if (failed) {
+                timing.failures().increment();
+            }
+        }
+    }
+
+    private void report(PunishmentListener listener, Timing timing, RuntimeException exception) {
+        long suppressed = 0L;
+        if (timing != null) {
+            // Обработчик, падающий на каждом событии, пишет в лог не чаще раза в минуту; пропущенные считаются.
+            long now = System.nanoTime();
+            long last = timing.lastLogged().get();
+            if (now - last < ERROR_LOG_INTERVAL_NANOS || !timing.lastLogged().compareAndSet(last, now)) {
+                timing.suppressed().increment();
+                return;
+            }
+            suppressed = timing.suppressed().sumThenReset();
+        }
+        String message = "Обработчик событий " + listener.getClass().getSimpleName() + " выбросил исключение"
+                + (suppressed > 0L ? " (ещё " + suppressed + " за последнюю минуту не показаны)." : ".");
+        errorHandler.accept(message, exception);
+    }
+
+    public List<ListenerStats> listenerStats() {
+        List<ListenerStats> stats = new ArrayList<>(listeners.size());
+        for (PunishmentListener listener : listeners) {
+            Timing timing = timings.get(listener);
+            stats.add(new ListenerStats(listener.getClass().getSimpleName(), timing.latency().count(), timing.failures().sum(),
+                    timing.latency().sumNanos(), timing.latency().maxNanos()));
+        }
+        return stats;
+    }
+
+    public int queued() {
+        int total = 0;
+        for (Lane lane : lanes) {
+            total += lane.executor.getQueue().size();
+        }
+        return total;
+    }
+
+    public long published() {
+        return published.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long stale() {
+        return stale.sum();
+    }
+
+    @Override
+    public void close() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdown();
+        }
+        // Уже принятые события доставляются, но выключение не ждёт зависший обработчик дольше пары секунд.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CLOSE_TIMEOUT_MILLIS);
+        for (Lane lane : lanes) {
+            try {
+                if (!lane.executor.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    lane.executor.shutdownNow();
+                }
+            } catch (InterruptedException exception) {
+                lane.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private interface LaneTask {
+        void run(Lane lane);
+    }
+
+    private static final class Lane {
+        private final ThreadPoolExecutor executor;
+        // Пишется потоком полосы; читается и вызывающим потоком, когда блокирующее событие не поместилось в очередь.
+        private final Map<String, Boolean> recentlyRemoved = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > RECENT_REMOVALS;
+            }
+        });
+
+        private Lane(int index, int queueCapacity) {
+            this.executor = new ThreadPoolExecutor(
+                    1,
+                    1,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "PluginBans-События-" + index);
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.AbortPolicy()
+            );
+        }
+    }
+
+    private record Timing(LatencyHistogram latency, LongAdder failures, AtomicLong lastLogged, LongAdder suppressed) {
+    }
+}
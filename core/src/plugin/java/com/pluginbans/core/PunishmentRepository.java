@@ -1,5 +1,7 @@
 package com.pluginbans.core;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -8,15 +10,60 @@ import java.util.concurrent.CompletableFuture;
 public interface PunishmentRepository {
     CompletableFuture<Void> addPunishment(PunishmentRecord record);
 
+    default CompletableFuture<Void> addPunishments(List<PunishmentRecord> records) {
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (PunishmentRecord record : records) {
+            chain = chain.thenCompose(ignored -> addPunishment(record));
+        }
+        return chain;
+    }
+
+    default CompletableFuture<List<PunishmentRecord>> addWithEscalation(PunishmentRecord trigger, EscalationPolicy policy) {
+        return findActiveByUuid(trigger.uuid(), Workload.WRITE).thenCompose(active -> {
+            List<PunishmentRecord> batch = policy.evaluate(trigger, active, Instant.now())
+                    .map(next -> List.of(trigger, next))
+                    .orElse(List.of(trigger));
+            return addPunishments(batch).thenApply(ignored -> batch);
+        });
+    }
+
     CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action);
 
+    default CompletableFuture<Void> deactivate(String internalId, String actor, String reason, String action, Workload workload) {
+        return deactivate(internalId, actor, reason, action);
+    }
+
     CompletableFuture<List<PunishmentRecord>> findActiveByUuid(UUID uuid);
 
+    default CompletableFuture<List<PunishmentRecord>> findActiveByUuid(UUID uuid, Workload workload) {
+        return findActiveByUuid(uuid);
+    }
+
     CompletableFuture<List<PunishmentRecord>> findActiveByIp(String ip);
 
     CompletableFuture<List<PunishmentRecord>> findActiveByIpHash(String ipHash);
 
+    CompletableFuture<List<PunishmentRecord>> findAllActive();
+
+    CompletableFuture<List<PunishmentRecord>> findActiveStartedSince(Instant since);
+
+    CompletableFuture<String> findImportGeneration();
+
+    CompletableFuture<List<PunishmentRecord>> findExpiredActive(Instant now, int limit);
+
     CompletableFuture<Optional<PunishmentRecord>> findByInternalId(String internalId);
 
+    CompletableFuture<List<PunishmentRecord>> findByInternalIds(List<String> internalIds, Workload workload);
+
     CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid);
+
+    default CompletableFuture<List<PunishmentHistoryRecord>> findHistory(UUID uuid, boolean includeArchive) {
+        return findHistory(uuid);
+    }
+
+    CompletableFuture<List<DailyStat>> findDailyStats(LocalDate from, LocalDate to);
+
+    CompletableFuture<SearchPage> search(SearchQuery query);
+
+    CompletableFuture<Void> ping();
 }
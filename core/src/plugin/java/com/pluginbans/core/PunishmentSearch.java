@@ -0,0 +1,294 @@
+package com.pluginbans.core;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public final class PunishmentSearch {
+    public enum Backend {
+        FTS5,
+        FULLTEXT,
+        MEMORY
+    }
+
+    static final String BACKEND_KEY = "search_backend";
+    private static final String CREATE_FTS5 = """
+            CREATE VIRTUAL TABLE IF NOT EXISTS pluginbans_search USING fts5(
+                internal_id UNINDEXED,
+                type UNINDEXED,
+                reason,
+                actor,
+                tokenize = 'unicode61 remove_diacritics 2'
+            )
+            """;
+    private static final String CREATE_FULLTEXT = """
+            CREATE TABLE IF NOT EXISTS pluginbans_search (
+                seq BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY,
+                internal_id VARCHAR(64) NOT NULL,
+                type VARCHAR(32) NOT NULL,
+                reason TEXT NOT NULL,
+                actor VARCHAR(64) NOT NULL,
+                UNIQUE KEY uq_pluginbans_search_id (internal_id),
+                KEY idx_pluginbans_search_actor (actor, seq),
+                FULLTEXT KEY ft_pluginbans_search (reason, actor)
+            ) ENGINE = InnoDB
+            """;
+    private static final String SOURCE_COLUMNS = "internal_id, type, reason, actor, start_time";
+    private static final int BACKFILL_BATCH = 1000;
+
+    private final DataSource dataSource;
+    private final SearchIndex memory = new SearchIndex();
+    private volatile Backend backend;
+    private volatile boolean memoryLoaded;
+
+    public PunishmentSearch(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    static void ensure(Connection connection) throws SQLException {
+        String current = DatabaseMeta.read(connection, BACKEND_KEY);
+        if (current != null) {
+            return;
+        }
+        boolean sqlite = DatabaseMeta.isSqlite(connection);
+        Backend chosen;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sqlite ? CREATE_FTS5 : CREATE_FULLTEXT);
+            chosen = sqlite ? Backend.FTS5 : Backend.FULLTEXT;
+        } catch (SQLException exception) {
+            // Сборка SQLite без FTS5 или MySQL без FULLTEXT: поиск идёт по индексу в памяти.
+            chosen = Backend.MEMORY;
+        }
+        if (chosen != Backend.MEMORY) {
+            backfill(connection, sqlite);
+        }
+        DatabaseMeta.write(connection, BACKEND_KEY, chosen.name());
+    }
+
+    private static void backfill(Connection connection, boolean sqlite) throws SQLException {
+        // Индекс заполняется по порядку выдачи, чтобы номер строки совпадал с сортировкой "сначала новые".
+        String insert = (sqlite ? "INSERT INTO" : "INSERT IGNORE INTO") + " pluginbans_search (internal_id, type, reason, actor) VALUES (?, ?, ?, ?)";
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement select = connection.createStatement();
+             PreparedStatement statement = connection.prepareStatement(insert)) {
+            select.setFetchSize(BACKFILL_BATCH);
+            try (ResultSet resultSet = select.executeQuery(
+                    "SELECT " + SOURCE_COLUMNS + " FROM (" + sourceSelect(connection) + ") source ORDER BY start_time, internal_id")) {
+                int batched = 0;
+                while (resultSet.next()) {
+                    bindDocument(statement, resultSet.getString("internal_id"), resultSet.getString("type"),
+                            resultSet.getString("reason"), resultSet.getString("actor"));
+                    statement.addBatch();
+                    if (++batched == BACKFILL_BATCH) {
+                        statement.executeBatch();
+                        connection.commit();
+                        batched = 0;
+                    }
+                }
+                if (batched > 0) {
+                    statement.executeBatch();
+                }
+            }
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static void bindDocument(PreparedStatement statement, String internalId, String type, String reason, String actor) throws SQLException {
+        // В индекс пишется уже нормализованный текст: регистр и "ё" сводятся так же, как в запросе.
+        statement.setString(1, internalId);
+        statement.setString(2, type);
+        statement.setString(3, String.join(" ", SearchIndex.tokenize(reason)));
+        statement.setString(4, actor);
+    }
+
+    private static String sourceSelect(Connection connection) throws SQLException {
+        String text = "SELECT " + SOURCE_COLUMNS + " FROM " + PunishmentTable.TEXT.name();
+        if (!tableExists(connection, PunishmentTable.BINARY.name())) {
+            return text;
+        }
+        // Во время переноса в компактный формат одно наказание лежит в обеих таблицах, UNION оставит одну строку.
+        return text + " UNION SELECT " + SOURCE_COLUMNS + " FROM " + PunishmentTable.BINARY.name();
+    }
+
+    private static boolean tableExists(Connection connection, String name) throws SQLException {
+        try (ResultSet tables = connection.getMetaData().getTables(connection.getCatalog(), null, name, null)) {
+            return tables.next();
+        }
+    }
+
+    public static void index(Connection connection, Collection<PunishmentRecord> records) throws SQLException {
+        index(connection, backendOf(connection), records);
+    }
+
+    private static void index(Connection connection, Backend backend, Collection<PunishmentRecord> records) throws SQLException {
+        if (backend == Backend.MEMORY || records.isEmpty()) {
+            return;
+        }
+        String sql = (backend == Backend.FTS5 ? "INSERT INTO" : "INSERT IGNORE INTO")
+                + " pluginbans_search (internal_id, type, reason, actor) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (PunishmentRecord record : records) {
+                bindDocument(statement, record.internalId(), record.type().name(), record.reason(), record.actor());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static Backend backendOf(Connection connection) throws SQLException {
+        String value = DatabaseMeta.read(connection, BACKEND_KEY);
+        return value == null ? Backend.MEMORY : Backend.valueOf(value);
+    }
+
+    public Backend backend() {
+        Backend resolved = backend;
+        if (resolved != null) {
+            return resolved;
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            resolved = backendOf(connection);
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось определить способ поиска.", exception);
+        }
+        backend = resolved;
+        return resolved;
+    }
+
+    public void indexInTransaction(Connection connection, Collection<PunishmentRecord> records) throws SQLException {
+        index(connection, backend(), records);
+    }
+
+    public void committed(Collection<PunishmentRecord> records) {
+        if (backend() != Backend.MEMORY || !memoryLoaded) {
+            return;
+        }
+        for (PunishmentRecord record : records) {
+            memory.add(record.internalId(), record.type(), record.reason(), record.actor());
+        }
+    }
+
+    public List<SearchIndex.Hit> search(SearchQuery query) {
+        return switch (backend()) {
+            case FTS5 -> searchSql(query, true);
+            case FULLTEXT -> searchSql(query, false);
+            case MEMORY -> searchMemory(query);
+        };
+    }
+
+    private List<SearchIndex.Hit> searchMemory(SearchQuery query) {
+        if (!memoryLoaded) {
+            loadMemory();
+        }
+        return memory.search(query);
+    }
+
+    private synchronized void loadMemory() {
+        if (memoryLoaded) {
+            return;
+        }
+        memory.clear();
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.setFetchSize(1000);
+            try (ResultSet resultSet = statement.executeQuery(
+                    "SELECT " + SOURCE_COLUMNS + " FROM (" + sourceSelect(connection) + ") source ORDER BY start_time, internal_id")) {
+                while (resultSet.next()) {
+                    memory.add(
+                            resultSet.getString("internal_id"),
+                            PunishmentType.valueOf(resultSet.getString("type")),
+                            resultSet.getString("reason"),
+                            resultSet.getString("actor")
+                    );
+                }
+            }
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось построить поисковый индекс.", exception);
+        }
+        memoryLoaded = true;
+    }
+
+    private List<SearchIndex.Hit> searchSql(SearchQuery query, boolean fts5) {
+        List<String> text = query.textTokens();
+        String position = fts5 ? "rowid" : "seq";
+        StringBuilder sql = new StringBuilder("SELECT ").append(position).append(", internal_id FROM pluginbans_search WHERE ");
+        List<Object> parameters = new ArrayList<>();
+        if (fts5) {
+            sql.append("pluginbans_search MATCH ?");
+            parameters.add(text.isEmpty() ? fts5Actor(query.actorTokens()) : fts5Text(text));
+        } else if (!text.isEmpty()) {
+            sql.append("MATCH(reason, actor) AGAINST (? IN BOOLEAN MODE)");
+            parameters.add(booleanText(text));
+        } else {
+            sql.append("1 = 1");
+        }
+        if (query.actor() != null) {
+            // Ники сравниваются без учёта регистра: в MySQL это делает сопоставление столбца, в SQLite - NOCASE.
+            sql.append(fts5 ? " AND actor = ? COLLATE NOCASE" : " AND actor = ?");
+            parameters.add(query.actor());
+        }
+        if (query.type() != null) {
+            sql.append(" AND type = ?");
+            parameters.add(query.type().name());
+        }
+        if (query.before() > 0L) {
+            sql.append(" AND ").append(position).append(" < ?");
+            parameters.add(query.before());
+        }
+        sql.append(" ORDER BY ").append(position).append(" DESC LIMIT ?");
+        parameters.add(query.limit());
+        List<SearchIndex.Hit> hits = new ArrayList<>(query.limit());
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql.toString())) {
+            for (int i = 0; i < parameters.size(); i++) {
+                statement.setObject(i + 1, parameters.get(i));
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    hits.add(new SearchIndex.Hit(resultSet.getLong(1), resultSet.getString(2)));
+                }
+            }
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось выполнить поиск наказаний.", exception);
+        }
+        return hits;
+    }
+
+    private static String fts5Text(List<String> tokens) {
+        List<String> terms = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            terms.add("\"" + token + "\"*");
+        }
+        return String.join(" AND ", terms);
+    }
+
+    private static String fts5Actor(List<String> tokens) {
+        List<String> terms = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            terms.add("actor : \"" + token + "\"");
+        }
+        return String.join(" AND ", terms);
+    }
+
+    private static String booleanText(List<String> tokens) {
+        StringBuilder builder = new StringBuilder();
+        for (String token : tokens) {
+            if (!builder.isEmpty()) {
+                builder.append(' ');
+            }
+            builder.append('+').append(token).append('*');
+        }
+        return builder.toString();
+    }
+}
@@ -1,45 +1,120 @@
 package com.pluginbans.core;
 
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
 
 public final class PunishmentService implements AutoCloseable {
+    private static final Duration FILTER_REBUILD_INTERVAL = Duration.ofMinutes(10);
+    private static final Duration FEED_OVERLAP = Duration.ofSeconds(30);
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.001;
+    private static final Duration SNAPSHOT_INTERVAL = Duration.ofMinutes(5);
+    private static final ActivePunishment NO_PUNISHMENTS = new ActivePunishment(List.of());
+    private static final int CACHE_CAPACITY = 10_000;
+    private static final Duration OFFLINE_CACHE_TTL = Duration.ofMinutes(5);
+    private static final Duration EXPIRY_SWEEP_INTERVAL = Duration.ofSeconds(30);
+    private static final int EXPIRY_SWEEP_LIMIT = 500;
+
     private final PunishmentRepository repository;
-    private final ConcurrentHashMap<UUID, ActivePunishment> cache;
+    private final PunishmentCache cache;
     private final ConcurrentHashMap<UUID, String> trackedIps;
-    private final List<PunishmentListener> listeners;
+    private final MetricsRegistry metrics;
+    private final PunishmentEventBus events;
+    private final LatencyHistogram loginChecks;
+    private final LatencyHistogram pollDurations;
+    private final LongAdder filterSkips;
     private final ScheduledExecutorService scheduler;
     private final Duration pollInterval;
+    private final Object filterLock = new Object();
+    private final List<PunishmentRecord> pendingFilterAdds = new ArrayList<>();
+    private final List<String> pendingIndexRemovals = new ArrayList<>();
+    private final ActivePunishmentIndex activeIndex = new ActivePunishmentIndex();
+    private final FailStaticConfig failStatic;
+    private final LongAdder failStaticDecisions = new LongAdder();
+    private final ConcurrentHashMap<String, Instant> feedSeen = new ConcurrentHashMap<>();
+    private final Set<String> filterRemoved = new HashSet<>();
+    private final SingleFlight<String, List<PunishmentRecord>> lookups = new SingleFlight<>();
+    private final KeyedSequencer<UUID> playerWrites = new KeyedSequencer<>();
+    private volatile EscalationPolicy escalation = EscalationPolicy.none();
+    private volatile ClusterLeader clusterLeader;
+    private volatile CountingBloomFilter activeFilter;
+    private volatile Instant filterSnapshotTime;
+    private volatile Instant feedCursor;
+    private volatile String importGeneration;
+    private volatile boolean importGenerationKnown;
+    private boolean filterRebuilding;
+    private volatile Path snapshotFile;
 
     public PunishmentService(PunishmentRepository repository, Duration pollInterval) {
+        this(repository, pollInterval, FailStaticConfig.defaults());
+    }
+
+    public PunishmentService(PunishmentRepository repository, Duration pollInterval, FailStaticConfig failStatic) {
+        this(repository, pollInterval, failStatic, new MetricsRegistry());
+    }
+
+    public PunishmentService(PunishmentRepository repository, Duration pollInterval, FailStaticConfig failStatic, MetricsRegistry metrics) {
         this.repository = Objects.requireNonNull(repository, "repository");
+        this.metrics = metrics == null ? new MetricsRegistry() : metrics;
+        this.events = new PunishmentEventBus(this.metrics);
+        this.loginChecks = this.metrics.histogram("pluginbans_login_check_seconds", "Проверка наказаний при входе.");
+        this.pollDurations = this.metrics.histogram("pluginbans_poll_seconds", "Один цикл опроса базы.");
+        this.filterSkips = this.metrics.counter("pluginbans_filter_skips_total", "Запросы, отсечённые фильтром Блума без обращения к базе.");
         this.pollInterval = pollInterval == null ? Duration.ofSeconds(5) : pollInterval;
-        this.cache = new ConcurrentHashMap<>();
+        this.failStatic = failStatic == null ? FailStaticConfig.defaults() : failStatic;
+        this.cache = new PunishmentCache(CACHE_CAPACITY, OFFLINE_CACHE_TTL);
         this.trackedIps = new ConcurrentHashMap<>();
-        this.listeners = new CopyOnWriteArrayList<>();
         this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
             Thread thread = new Thread(runnable, "PluginBans-Пуллинг");
             thread.setDaemon(true);
             return thread;
         });
         this.scheduler.scheduleAtFixedRate(this::poll, 5, this.pollInterval.toSeconds(), TimeUnit.SECONDS);
+        this.scheduler.scheduleAtFixedRate(this::rebuildFilter, 0, FILTER_REBUILD_INTERVAL.toSeconds(), TimeUnit.SECONDS);
+        registerMetrics();
+        this.scheduler.scheduleWithFixedDelay(this::sweepExpired, EXPIRY_SWEEP_INTERVAL.toSeconds(), EXPIRY_SWEEP_INTERVAL.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    private void registerMetrics() {
+        metrics.counter("pluginbans_cache_requests_total", "Обращения к кэшу активных наказаний.", () -> cache.stats().hits(), "result", "hit");
+        metrics.counter("pluginbans_cache_requests_total", "Обращения к кэшу активных наказаний.", () -> cache.stats().misses(), "result", "miss");
+        metrics.counter("pluginbans_cache_evictions_total", "Записи, вытесненные из кэша.", () -> cache.stats().evictions());
+        metrics.gauge("pluginbans_cache_size", "Записи в кэше активных наказаний.", () -> cache.stats().size());
+        metrics.counter("pluginbans_lookups_coalesced_total", "Запросы, дождавшиеся уже идущего запроса того же игрока.", lookups::coalesced);
+        metrics.counter("pluginbans_fail_static_decisions_total", "Входы, решённые по памяти при недоступной базе.", failStaticDecisions::sum);
+        metrics.gauge("pluginbans_active_index_size", "Активные наказания в индексе в памяти.", activeIndex::size);
+        metrics.gauge("pluginbans_cluster_leader", "1, если узел ведёт фоновые задачи кластера.", () -> leads() ? 1L : 0L);
+    }
+
+    public MetricsRegistry metrics() {
+        return metrics;
     }
 
     public void registerListener(PunishmentListener listener) {
-        listeners.add(listener);
+        events.register(listener);
+    }
+
+    public void setListenerErrorHandler(BiConsumer<String, Throwable> handler) {
+        events.setErrorHandler(handler);
     }
 
     public void track(UUID uuid, String ip) {
@@ -47,24 +122,66 @@ public final class PunishmentService implements AutoCloseable {
             if (ip != null && !ip.isBlank()) {
                 trackedIps.put(uuid, ip);
             }
+            cache.pin(uuid);
         }
     }
 
     public void untrack(UUID uuid) {
         if (uuid != null) {
             trackedIps.remove(uuid);
-            cache.remove(uuid);
+            cache.invalidate(uuid);
         }
     }
 
+    public void setEscalationPolicy(EscalationPolicy policy) {
+        this.escalation = policy == null ? EscalationPolicy.none() : policy;
+    }
+
+    public EscalationPolicy escalationPolicy() {
+        return escalation;
+    }
+
+    public void setClusterLeader(ClusterLeader leader) {
+        this.clusterLeader = leader;
+    }
+
+    public boolean leads() {
+        // Без выборов узел работает один и сам снимает истёкшие наказания.
+        ClusterLeader leader = clusterLeader;
+        return leader == null || leader.isLeader();
+    }
+
     public CompletableFuture<PunishmentRecord> createPunishment(PunishmentRecord record) {
-        return repository.addPunishment(record).thenApply(ignored -> {
-            refreshCache(record.uuid());
-            notifyCreate(record);
-            return record;
+        if (IpRange.NO_PLAYER.equals(record.uuid())) {
+            return writePunishments(record, List.of(record));
+        }
+        // Записи одного игрока в этом процессе идут по очереди; между узлами счёт защищает замок игрока в транзакции записи.
+        return playerWrites.submit(record.uuid(), () -> {
+            EscalationPolicy policy = escalation;
+            if (!policy.triggeredBy(record.type())) {
+                return writePunishments(record, List.of(record));
+            }
+            return repository.addWithEscalation(record, policy).thenApply(batch -> afterWrite(record, batch));
         });
     }
 
+    private CompletableFuture<PunishmentRecord> writePunishments(PunishmentRecord record, List<PunishmentRecord> batch) {
+        return repository.addPunishments(batch).thenApply(ignored -> afterWrite(record, batch));
+    }
+
+    private PunishmentRecord afterWrite(PunishmentRecord record, List<PunishmentRecord> batch) {
+        for (PunishmentRecord written : batch) {
+            feedSeen.put(written.internalId(), written.startTime());
+            markActive(written);
+            forgetLookups(written);
+        }
+        refreshCache(record.uuid());
+        for (PunishmentRecord written : batch) {
+            notifyCreate(written);
+        }
+        return record;
+    }
+
     public CompletableFuture<Void> removePunishment(String internalId, String actor, String reason, String action) {
         return repository.findByInternalId(internalId).thenCompose(optional -> {
             if (optional.isEmpty()) {
@@ -73,6 +190,8 @@ public final class PunishmentService implements AutoCloseable {
             PunishmentRecord record = optional.get();
             return repository.deactivate(internalId, actor, reason, action)
                     .thenRun(() -> {
+                        markInactive(record);
+                        forgetLookups(record);
                         refreshCache(record.uuid());
                         notifyRemove(record, reason);
                     });
@@ -80,8 +199,11 @@ public final class PunishmentService implements AutoCloseable {
     }
 
     public CompletableFuture<ActivePunishment> getActiveByUuid(UUID uuid) {
-        return repository.findActiveByUuid(uuid)
-                .thenCompose(this::expireIfNeeded)
+        return getActiveByUuid(uuid, Workload.LOGIN);
+    }
+
+    public CompletableFuture<ActivePunishment> getActiveByUuid(UUID uuid, Workload workload) {
+        return loadByUuid(uuid, workload)
                 .thenApply(records -> {
                     ActivePunishment active = new ActivePunishment(records);
                     cache.put(uuid, active);
@@ -90,11 +212,19 @@ public final class PunishmentService implements AutoCloseable {
     }
 
     public CompletableFuture<List<PunishmentRecord>> getActiveByIp(String ip) {
-        return repository.findActiveByIp(ip).thenCompose(this::expireIfNeeded);
+        return lookups.execute(ipKey(ip), () -> repository.findActiveByIp(ip).thenCompose(this::expireIfNeeded));
     }
 
     public CompletableFuture<List<PunishmentRecord>> getActiveByIpHash(String ipHash) {
-        return repository.findActiveByIpHash(ipHash).thenCompose(this::expireIfNeeded);
+        return lookups.execute(ipHashKey(ipHash), () -> repository.findActiveByIpHash(ipHash).thenCompose(this::expireIfNeeded));
+    }
+
+    public long lookupQueries() {
+        return lookups.loads();
+    }
+
+    public long coalescedLookups() {
+        return lookups.coalesced();
     }
 
     public Optional<ActivePunishment> cached(UUID uuid) {
@@ -102,21 +232,53 @@ public final class PunishmentService implements AutoCloseable {
     }
 
     public Map<UUID, ActivePunishment> cacheSnapshot() {
-        return Map.copyOf(cache);
+        return cache.snapshot();
+    }
+
+    public PunishmentCache.CacheStats cacheStats() {
+        return cache.stats();
     }
 
     public CompletableFuture<List<PunishmentHistoryRecord>> history(UUID uuid) {
         return repository.findHistory(uuid);
     }
 
+    public CompletableFuture<List<PunishmentHistoryRecord>> history(UUID uuid, boolean includeArchive) {
+        return repository.findHistory(uuid, includeArchive);
+    }
+
+    public CompletableFuture<List<DailyStat>> dailyStats(LocalDate from, LocalDate to) {
+        return repository.findDailyStats(from, to);
+    }
+
+    public CompletableFuture<SearchPage> search(SearchQuery query) {
+        return repository.search(query);
+    }
+
     public CompletableFuture<Optional<PunishmentRecord>> findByInternalId(String internalId) {
         return repository.findByInternalId(internalId);
     }
 
     public CompletableFuture<List<PunishmentRecord>> getActiveForConnection(UUID uuid, String ip) {
+        LoginCheckFlightEvent event = new LoginCheckFlightEvent();
+        event.begin();
+        long started = System.nanoTime();
+        return lookupForConnection(uuid, ip, event).whenComplete((records, throwable) -> {
+            loginChecks.recordSince(started);
+            event.finish(uuid, ip, records == null ? 0 : records.size(), throwable == null);
+        });
+    }
+
+    private CompletableFuture<List<PunishmentRecord>> lookupForConnection(UUID uuid, String ip, LoginCheckFlightEvent event) {
+        CountingBloomFilter filter = activeFilter;
         CompletableFuture<List<PunishmentRecord>> byUuidFuture;
         if (uuid == null) {
             byUuidFuture = CompletableFuture.completedFuture(List.of());
+        } else if (filter != null && !filter.mightContain(uuidKey(uuid))) {
+            filterSkips.increment();
+            event.answeredFromFilter();
+            cache.put(uuid, NO_PUNISHMENTS);
+            byUuidFuture = CompletableFuture.completedFuture(List.of());
         } else {
             byUuidFuture = getActiveByUuid(uuid).thenApply(ActivePunishment::all);
         }
@@ -125,15 +287,30 @@ public final class PunishmentService implements AutoCloseable {
         if (ip == null || ip.isBlank()) {
             byIpFuture = CompletableFuture.completedFuture(List.of());
         } else {
-            byIpFuture = getActiveByIp(ip)
-                    .thenCombine(getActiveByIpHash(IpHashing.hash(ip)), (byIp, byHash) -> {
-                        List<PunishmentRecord> merged = new ArrayList<>(byIp);
-                        merged.addAll(byHash);
-                        return merged;
-                    });
+            String ipHash = IpHashing.hash(ip);
+            CompletableFuture<List<PunishmentRecord>> byIp = filter != null && !filter.mightContain(ipKey(ip))
+                    ? CompletableFuture.completedFuture(List.of())
+                    : getActiveByIp(ip);
+            CompletableFuture<List<PunishmentRecord>> byHash = filter != null && !filter.mightContain(ipHashKey(ipHash))
+                    ? CompletableFuture.completedFuture(List.of())
+                    : getActiveByIpHash(ipHash);
+            CompletableFuture<List<PunishmentRecord>> byRange = activeIndex.isLoaded()
+                    ? verifyRanges(activeIndex.findRanges(ip, Instant.now()))
+                    : rangesFromDatabase(ip);
+            byIpFuture = byIp.thenCombine(byHash, (fromIp, fromHash) -> {
+                List<PunishmentRecord> merged = new ArrayList<>(fromIp);
+                merged.addAll(fromHash);
+                return merged;
+            }).thenCombine(byRange, (merged, fromRange) -> {
+                merged.addAll(fromRange);
+                return merged;
+            });
         }
 
         return byUuidFuture.thenCombine(byIpFuture, (byUuid, byIp) -> {
+            if (byUuid.isEmpty() && byIp.isEmpty()) {
+                return List.<PunishmentRecord>of();
+            }
             Map<String, PunishmentRecord> unique = new LinkedHashMap<>();
             for (PunishmentRecord record : byUuid) {
                 unique.put(record.internalId(), record);
@@ -142,31 +319,320 @@ public final class PunishmentService implements AutoCloseable {
                 unique.putIfAbsent(record.internalId(), record);
             }
             return List.copyOf(unique.values());
+        }).handle((records, throwable) -> {
+            if (throwable == null) {
+                return records;
+            }
+            if (!failStatic.enabled() || !activeIndex.isLoaded()) {
+                throw throwable instanceof CompletionException completion ? completion : new CompletionException(throwable);
+            }
+            event.answeredFailStatic();
+            return failStaticLookup(uuid, ip);
+        });
+    }
+
+    public List<PunishmentRecord> activeRanges() {
+        return activeIndex.allRanges();
+    }
+
+    private CompletableFuture<List<PunishmentRecord>> rangesFromDatabase(String ip) {
+        // До первой загрузки индекса диапазонов в памяти нет; баны диапазонов принадлежат NO_PLAYER и ищутся по нему.
+        return repository.findActiveByUuid(IpRange.NO_PLAYER, Workload.LOGIN).thenCompose(records -> {
+            List<PunishmentRecord> matched = new ArrayList<>();
+            for (PunishmentRecord record : records) {
+                if (IpRange.parse(record.ip()).map(range -> range.contains(ip)).orElse(false)) {
+                    matched.add(record);
+                }
+            }
+            return expireIfNeeded(matched);
+        });
+    }
+
+    private CompletableFuture<List<PunishmentRecord>> verifyRanges(List<PunishmentRecord> matched) {
+        if (matched.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        // Диапазон найден в памяти; снятие на другом узле видно только в базе, поэтому совпадения перепроверяются
+        // одним запросом по ID в полосе входа, не в очереди Forum API.
+        List<String> ids = matched.stream().map(PunishmentRecord::internalId).toList();
+        return repository.findByInternalIds(ids, Workload.LOGIN).thenCompose(current -> {
+            Map<String, PunishmentRecord> byId = new HashMap<>();
+            for (PunishmentRecord record : current) {
+                byId.put(record.internalId(), record);
+            }
+            List<PunishmentRecord> stored = new ArrayList<>(matched.size());
+            for (PunishmentRecord record : matched) {
+                PunishmentRecord fresh = byId.get(record.internalId());
+                if (fresh != null && fresh.active()) {
+                    stored.add(fresh);
+                } else {
+                    markInactive(record);
+                }
+            }
+            return expireIfNeeded(stored);
+        });
+    }
+
+    public Optional<Instant> syncedAt() {
+        return Optional.ofNullable(feedCursor);
+    }
+
+    public List<PunishmentRecord> knownActiveForConnection(UUID uuid, String ip) {
+        String ipHash = ip == null || ip.isBlank() ? null : IpHashing.hash(ip);
+        return activeIndex.findForConnection(uuid, ip, ipHash, Instant.now());
+    }
+
+    public long failStaticDecisions() {
+        return failStaticDecisions.sum();
+    }
+
+    private List<PunishmentRecord> failStaticLookup(UUID uuid, String ip) {
+        failStaticDecisions.increment();
+        String ipHash = ip == null || ip.isBlank() ? null : IpHashing.hash(ip);
+        List<PunishmentRecord> known = activeIndex.findForConnection(uuid, ip, ipHash, Instant.now());
+        List<PunishmentRecord> enforced = new ArrayList<>(known.size());
+        for (PunishmentRecord record : known) {
+            if (failStatic.policy(record.type()) == FailStaticPolicy.ENFORCE) {
+                enforced.add(record);
+            }
+        }
+        return enforced;
+    }
+
+    public List<String> completeActiveIds(String prefix, int limit) {
+        return activeIndex.completeIds(prefix, limit);
+    }
+
+    public void refreshActive() {
+        // Для массовых записей в обход сервиса (импорт): их старое время выдачи не попадает в ленту изменений.
+        scheduler.execute(this::rebuildFilter);
+    }
+
+    public boolean filterReady() {
+        return activeFilter != null;
+    }
+
+    public void enableWarmStart(Path file) {
+        this.snapshotFile = Objects.requireNonNull(file, "file");
+        ActivePunishmentSnapshot.read(file).ifPresent(this::restoreSnapshot);
+        scheduler.scheduleAtFixedRate(this::saveSnapshot, SNAPSHOT_INTERVAL.toSeconds(), SNAPSHOT_INTERVAL.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    private void restoreSnapshot(ActivePunishmentSnapshot snapshot) {
+        CountingBloomFilter restored = CountingBloomFilter.create(snapshot.records().size() * 3L, FILTER_FALSE_POSITIVE_RATE);
+        for (PunishmentRecord record : snapshot.records()) {
+            addKeys(restored, record);
+        }
+        synchronized (filterLock) {
+            if (activeIndex.isLoaded()) {
+                return;
+            }
+            activeIndex.replaceAll(snapshot.records(), snapshot.createdAt());
+        }
+        // Фильтр публикуется только после догрузки наказаний, выданных с момента снимка.
+        Instant feedStartedAt = Instant.now();
+        repository.findActiveStartedSince(snapshot.createdAt().minus(FEED_OVERLAP)).thenAccept(recent -> {
+            synchronized (filterLock) {
+                if (activeFilter != null) {
+                    return;
+                }
+                for (PunishmentRecord record : recent) {
+                    feedSeen.putIfAbsent(record.internalId(), record.startTime());
+                    addKeys(restored, record);
+                    activeIndex.add(record);
+                }
+                for (PunishmentRecord record : pendingFilterAdds) {
+                    addKeys(restored, record);
+                }
+                activeFilter = restored;
+                filterSnapshotTime = snapshot.createdAt();
+                filterRemoved.clear();
+                if (feedCursor == null) {
+                    feedCursor = feedStartedAt;
+                }
+            }
         });
     }
 
+    private synchronized void saveSnapshot() {
+        Path file = snapshotFile;
+        if (file == null || !activeIndex.isLoaded()) {
+            return;
+        }
+        Instant cursor = feedCursor;
+        Instant createdAt = cursor == null ? activeIndex.loadedAt() : cursor;
+        try {
+            ActivePunishmentSnapshot.write(file, createdAt, activeIndex.all());
+        } catch (IllegalStateException ignored) {
+            // Снимок только ускоряет старт; следующая попытка будет по расписанию.
+        }
+    }
+
+    private void rebuildFilter() {
+        Instant startedAt = Instant.now();
+        synchronized (filterLock) {
+            if (filterRebuilding) {
+                return;
+            }
+            filterRebuilding = true;
+            pendingFilterAdds.clear();
+            pendingIndexRemovals.clear();
+        }
+        repository.findAllActive().whenComplete((records, throwable) -> {
+            if (throwable != null) {
+                synchronized (filterLock) {
+                    filterRebuilding = false;
+                    pendingFilterAdds.clear();
+                    pendingIndexRemovals.clear();
+                }
+                return;
+            }
+            CountingBloomFilter next = CountingBloomFilter.create(records.size() * 3L, FILTER_FALSE_POSITIVE_RATE);
+            for (PunishmentRecord record : records) {
+                addKeys(next, record);
+            }
+            synchronized (filterLock) {
+                activeIndex.replaceAll(records, startedAt);
+                for (PunishmentRecord record : pendingFilterAdds) {
+                    addKeys(next, record);
+                    activeIndex.add(record);
+                }
+                for (String internalId : pendingIndexRemovals) {
+                    activeIndex.remove(internalId);
+                }
+                pendingFilterAdds.clear();
+                pendingIndexRemovals.clear();
+                activeFilter = next;
+                filterSnapshotTime = startedAt;
+                filterRemoved.clear();
+                if (feedCursor == null || feedCursor.isAfter(startedAt)) {
+                    feedCursor = startedAt;
+                }
+                filterRebuilding = false;
+            }
+        });
+    }
+
+    private CompletableFuture<Void> pollChangeFeed() {
+        Instant cursor = feedCursor;
+        if (cursor == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Instant now = Instant.now();
+        return repository.findActiveStartedSince(cursor.minus(FEED_OVERLAP)).thenAccept(records -> {
+            for (PunishmentRecord record : records) {
+                if (feedSeen.putIfAbsent(record.internalId(), record.startTime()) == null) {
+                    markActive(record);
+                }
+            }
+            Instant cutoff = now.minus(FEED_OVERLAP.multipliedBy(2));
+            feedSeen.values().removeIf(startTime -> startTime.isBefore(cutoff));
+            feedCursor = now;
+        });
+    }
+
+    private CompletableFuture<Void> pollImportGeneration() {
+        return repository.findImportGeneration().thenAccept(generation -> {
+            // Первое чтение только запоминает поколение: фильтр при старте и так строится по всей таблице.
+            if (importGenerationKnown && !Objects.equals(importGeneration, generation)) {
+                scheduler.execute(this::rebuildFilter);
+            }
+            importGeneration = generation;
+            importGenerationKnown = true;
+        });
+    }
+
+    private void markActive(PunishmentRecord record) {
+        synchronized (filterLock) {
+            CountingBloomFilter filter = activeFilter;
+            if (filter != null) {
+                addKeys(filter, record);
+            }
+            activeIndex.add(record);
+            if (filterRebuilding) {
+                pendingFilterAdds.add(record);
+            }
+        }
+    }
+
+    private void markInactive(PunishmentRecord record) {
+        synchronized (filterLock) {
+            activeIndex.remove(record.internalId());
+            if (filterRebuilding) {
+                pendingIndexRemovals.add(record.internalId());
+            }
+            CountingBloomFilter filter = activeFilter;
+            // Удаление ключа, которого нет в фильтре, обнулило бы чужие счетчики.
+            if (filter == null || !filterCovers(record) || !filterRemoved.add(record.internalId())) {
+                return;
+            }
+            filter.remove(uuidKey(record.uuid()));
+            if (record.ip() != null) {
+                filter.remove(ipKey(record.ip()));
+            }
+            if (record.ipHash() != null) {
+                filter.remove(ipHashKey(record.ipHash()));
+            }
+        }
+    }
+
+    private boolean filterCovers(PunishmentRecord record) {
+        Instant snapshotTime = filterSnapshotTime;
+        if (feedSeen.containsKey(record.internalId())) {
+            return true;
+        }
+        return snapshotTime != null && record.startTime().isBefore(snapshotTime.minus(FEED_OVERLAP));
+    }
+
+    private static void addKeys(CountingBloomFilter filter, PunishmentRecord record) {
+        filter.add(uuidKey(record.uuid()));
+        if (record.ip() != null) {
+            filter.add(ipKey(record.ip()));
+        }
+        if (record.ipHash() != null) {
+            filter.add(ipHashKey(record.ipHash()));
+        }
+    }
+
+    private static String uuidKey(UUID uuid) {
+        return "u:" + uuid;
+    }
+
+    private static String ipKey(String ip) {
+        return "i:" + ip;
+    }
+
+    private static String ipHashKey(String ipHash) {
+        return "h:" + ipHash;
+    }
+
     private void poll() {
+        long started = System.nanoTime();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        pending.add(pollChangeFeed());
+        pending.add(pollImportGeneration());
         for (Map.Entry<UUID, String> entry : trackedIps.entrySet()) {
             UUID uuid = entry.getKey();
-            updateCache(uuid);
+            pending.add(updateCache(uuid));
         }
+        // Цикл считается законченным, когда завершились все его запросы, а не когда они отправлены.
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, throwable) -> pollDurations.recordSince(started));
     }
 
     private void refreshCache(UUID uuid) {
         if (uuid == null) {
             return;
         }
-        repository.findActiveByUuid(uuid)
-                .thenCompose(this::expireIfNeeded)
+        loadByUuid(uuid, Workload.BACKGROUND)
                 .thenAccept(records -> cache.put(uuid, new ActivePunishment(records)));
     }
 
-    private void updateCache(UUID uuid) {
+    private CompletableFuture<Void> updateCache(UUID uuid) {
         if (uuid == null) {
-            return;
+            return CompletableFuture.completedFuture(null);
         }
-        repository.findActiveByUuid(uuid)
-                .thenCompose(this::expireIfNeeded)
+        return loadByUuid(uuid, Workload.BACKGROUND)
                 .thenAccept(records -> {
                     ActivePunishment previous = cache.get(uuid);
                     ActivePunishment current = new ActivePunishment(records);
@@ -177,55 +643,105 @@ public final class PunishmentService implements AutoCloseable {
                 });
     }
 
+    private CompletableFuture<List<PunishmentRecord>> loadByUuid(UUID uuid, Workload workload) {
+        // Вход, первое сообщение в чат и опрос часто запрашивают одного игрока одновременно: такие вызовы ждут общий запрос.
+        // Общий запрос делится только внутри одной очереди, иначе вход ждал бы запрос, стоящий в фоновой очереди.
+        return lookups.execute(lookupKey(uuid, workload), () -> repository.findActiveByUuid(uuid, workload).thenCompose(this::expireIfNeeded));
+    }
+
+    private static String lookupKey(UUID uuid, Workload workload) {
+        return uuidKey(uuid) + ":" + workload.name();
+    }
+
+    private void forgetLookups(PunishmentRecord record) {
+        for (Workload workload : Workload.values()) {
+            lookups.forget(lookupKey(record.uuid(), workload));
+        }
+        if (record.ip() != null) {
+            lookups.forget(ipKey(record.ip()));
+        }
+        if (record.ipHash() != null) {
+            lookups.forget(ipHashKey(record.ipHash()));
+        }
+    }
+
     private void detectChanges(ActivePunishment previous, ActivePunishment current) {
         java.util.Set<String> previousIds = previous.all().stream().map(PunishmentRecord::internalId).collect(java.util.stream.Collectors.toSet());
         java.util.Set<String> currentIds = current.all().stream().map(PunishmentRecord::internalId).collect(java.util.stream.Collectors.toSet());
         for (PunishmentRecord record : current.all()) {
             if (!previousIds.contains(record.internalId())) {
+                if (feedSeen.putIfAbsent(record.internalId(), record.startTime()) == null) {
+                    markActive(record);
+                }
                 notifyCreate(record);
             }
         }
         for (PunishmentRecord record : previous.all()) {
             if (!currentIds.contains(record.internalId())) {
+                markInactive(record);
                 notifyRemove(record, "Снято системой");
             }
         }
     }
 
+    private void sweepExpired() {
+        if (!leads()) {
+            return;
+        }
+        ExpiryFlightEvent event = new ExpiryFlightEvent(true);
+        event.begin();
+        repository.findExpiredActive(Instant.now(), EXPIRY_SWEEP_LIMIT).thenCompose(records -> expireIfNeeded(records, event));
+    }
+
     private CompletableFuture<List<PunishmentRecord>> expireIfNeeded(List<PunishmentRecord> records) {
+        ExpiryFlightEvent event = new ExpiryFlightEvent(false);
+        event.begin();
+        return expireIfNeeded(records, event);
+    }
+
+    private CompletableFuture<List<PunishmentRecord>> expireIfNeeded(List<PunishmentRecord> records, ExpiryFlightEvent event) {
         Instant now = Instant.now();
+        boolean writes = leads();
         List<CompletableFuture<Void>> updates = new ArrayList<>();
         List<PunishmentRecord> active = new ArrayList<>();
         for (PunishmentRecord record : records) {
-            if (record.isExpired(now)) {
-                updates.add(repository.deactivate(record.internalId(), "Система", "Истек срок", "EXPIRE"));
+            if (record.isExpired(now) && !writes) {
+                // Запись в базу и историю делает только лидер, остальные узлы просто не учитывают истёкшее.
+                markInactive(record);
+            } else if (record.isExpired(now)) {
+                updates.add(repository.deactivate(record.internalId(), "Система", "Истек срок", "EXPIRE", Workload.BACKGROUND)
+                        .thenRun(() -> markInactive(record)));
             } else {
                 active.add(record);
             }
         }
+        int expired = records.size() - active.size();
         if (updates.isEmpty()) {
+            event.finish(records.size(), expired, writes);
             return CompletableFuture.completedFuture(active);
         }
         return CompletableFuture.allOf(updates.toArray(new CompletableFuture[0]))
+                .whenComplete((ignored, throwable) -> event.finish(records.size(), expired, writes))
                 .thenApply(ignored -> active);
     }
 
     private void notifyCreate(PunishmentRecord record) {
-        PunishmentCreateEvent event = new PunishmentCreateEvent(record);
-        for (PunishmentListener listener : listeners) {
-            listener.onCreate(event);
-        }
+        // Обработчики работают в своих потоках и не задерживают потоки базы, завершившие запись.
+        events.publishCreate(new PunishmentCreateEvent(record));
     }
 
     private void notifyRemove(PunishmentRecord record, String reason) {
-        PunishmentRemoveEvent event = new PunishmentRemoveEvent(record, reason);
-        for (PunishmentListener listener : listeners) {
-            listener.onRemove(event);
-        }
+        events.publishRemove(new PunishmentRemoveEvent(record, reason));
+    }
+
+    public PunishmentEventBus events() {
+        return events;
     }
 
     @Override
     public void close() {
         scheduler.shutdownNow();
+        events.close();
+        saveSnapshot();
     }
 }
@@ -0,0 +1,196 @@
+package com.pluginbans.core;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.UUID;
+
+public final class PunishmentTable {
+    public static final String COLUMNS = "internal_id, uuid, ip, ip_hash, type, reason, actor, start_time, end_time, active, silent";
+    public static final PunishmentTable TEXT = new PunishmentTable("pluginbans_punishments", false);
+    public static final PunishmentTable BINARY = new PunishmentTable("pluginbans_punishments_compact", true);
+    public static final PunishmentTable ARCHIVE = new PunishmentTable("pluginbans_punishments_archive", false);
+
+    private static final int INTERNAL_ID = 1;
+    private static final int UUID_COLUMN = 2;
+    private static final int IP = 3;
+    private static final int IP_HASH = 4;
+    private static final int TYPE = 5;
+    private static final int REASON = 6;
+    private static final int ACTOR = 7;
+    private static final int START_TIME = 8;
+    private static final int END_TIME = 9;
+    private static final int ACTIVE = 10;
+    private static final int SILENT = 11;
+    private static final PunishmentType[] TYPES = PunishmentType.values();
+
+    private final String name;
+    private final boolean binary;
+
+    private PunishmentTable(String name, boolean binary) {
+        this.name = name;
+        this.binary = binary;
+    }
+
+    public static PunishmentTable forFormat(StorageFormat format) {
+        return format == StorageFormat.BINARY ? BINARY : TEXT;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public String select(String where) {
+        return "SELECT " + COLUMNS + " FROM " + name + " WHERE " + where;
+    }
+
+    public String insert() {
+        return "INSERT INTO " + name + " (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    public String insertIgnoringDuplicates(boolean sqlite) {
+        return insert().replaceFirst("INSERT INTO", sqlite ? "INSERT OR IGNORE INTO" : "INSERT IGNORE INTO");
+    }
+
+    public void bindInsert(PreparedStatement statement, PunishmentRecord record) throws SQLException {
+        statement.setString(INTERNAL_ID, record.internalId());
+        bindUuid(statement, UUID_COLUMN, record.uuid());
+        bindIp(statement, IP, record.ip(), true);
+        bindIpHash(statement, IP_HASH, record.ipHash(), true);
+        statement.setString(TYPE, record.type().name());
+        statement.setString(REASON, record.reason());
+        statement.setString(ACTOR, record.actor());
+        statement.setLong(START_TIME, record.startTime().toEpochMilli());
+        if (record.endTime() == null) {
+            statement.setNull(END_TIME, Types.BIGINT);
+        } else {
+            statement.setLong(END_TIME, record.endTime().toEpochMilli());
+        }
+        statement.setBoolean(ACTIVE, record.active());
+        statement.setBoolean(SILENT, record.silent());
+    }
+
+    public void bindUuid(PreparedStatement statement, int index, UUID uuid) throws SQLException {
+        if (binary) {
+            statement.setBytes(index, StorageCodec.uuidToBytes(uuid));
+        } else {
+            statement.setString(index, uuid.toString());
+        }
+    }
+
+    public void bindIp(PreparedStatement statement, int index, String ip) throws SQLException {
+        bindIp(statement, index, ip, false);
+    }
+
+    public void bindIpHash(PreparedStatement statement, int index, String ipHash) throws SQLException {
+        bindIpHash(statement, index, ipHash, false);
+    }
+
+    public boolean canStore(PunishmentRecord record) {
+        // Компактная таблица хранит только адреса, диапазоны и хэши; иное значение нельзя записать без потерь.
+        return !binary
+                || (isBlank(record.ip()) || encodeIp(record.ip()) != null)
+                && (isBlank(record.ipHash()) || StorageCodec.hashToBytes(record.ipHash()) != null);
+    }
+
+    // При записи непредставимое значение отклоняется; при поиске оно просто ничего не находит.
+    private void bindIp(PreparedStatement statement, int index, String ip, boolean store) throws SQLException {
+        if (!binary) {
+            statement.setString(index, ip);
+            return;
+        }
+        byte[] bytes = encodeIp(ip);
+        if (bytes == null) {
+            if (store && !isBlank(ip)) {
+                throw new IllegalArgumentException("IP \"" + ip + "\" нельзя сохранить в компактном формате: ожидается адрес или диапазон CIDR.");
+            }
+            statement.setNull(index, Types.VARBINARY);
+        } else {
+            statement.setBytes(index, bytes);
+        }
+    }
+
+    private void bindIpHash(PreparedStatement statement, int index, String ipHash, boolean store) throws SQLException {
+        if (!binary) {
+            statement.setString(index, ipHash);
+            return;
+        }
+        byte[] bytes = StorageCodec.hashToBytes(ipHash);
+        if (bytes == null) {
+            if (store && !isBlank(ipHash)) {
+                throw new IllegalArgumentException("Хэш IP нельзя сохранить в компактном формате: ожидается SHA-256 из 64 шестнадцатеричных символов в нижнем регистре.");
+            }
+            statement.setNull(index, Types.BINARY);
+        } else {
+            statement.setBytes(index, bytes);
+        }
+    }
+
+    private static byte[] encodeIp(String ip) {
+        return IpRange.isRange(ip)
+                ? IpRange.parse(ip).map(IpRange::toBytes).orElse(null)
+                : StorageCodec.ipToBytes(ip);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isEmpty();
+    }
+
+    public PunishmentRecord map(ResultSet resultSet) throws SQLException {
+        Long end = parseEpochMillis(resultSet.getObject(END_TIME), "end_time");
+        Long start = parseEpochMillis(resultSet.getObject(START_TIME), "start_time");
+        if (start == null) {
+            throw new SQLException("Пустое значение во временном поле: start_time");
+        }
+        return new PunishmentRecord(
+                binary ? StorageCodec.uuidFromBytes(resultSet.getBytes(UUID_COLUMN)) : UUID.fromString(resultSet.getString(UUID_COLUMN)),
+                binary ? StorageCodec.ipFromBytes(resultSet.getBytes(IP)) : resultSet.getString(IP),
+                binary ? StorageCodec.hashFromBytes(resultSet.getBytes(IP_HASH)) : resultSet.getString(IP_HASH),
+                type(resultSet.getString(TYPE)),
+                resultSet.getString(REASON),
+                resultSet.getString(ACTOR),
+                Instant.ofEpochMilli(start),
+                end == null ? null : Instant.ofEpochMilli(end),
+                resultSet.getBoolean(ACTIVE),
+                resultSet.getString(INTERNAL_ID),
+                resultSet.getBoolean(SILENT)
+        );
+    }
+
+    public static Long parseEpochMillis(Object raw, String column) throws SQLException {
+        if (raw == null) {
+            return null;
+        }
+        if (raw instanceof Number number) {
+            return number.longValue();
+        }
+        if (raw instanceof String stringValue) {
+            String normalized = stringValue.trim();
+            if (normalized.isEmpty()
+                    || normalized.equalsIgnoreCase("null")
+                    || normalized.equalsIgnoreCase("perm")
+                    || normalized.equalsIgnoreCase("permanent")
+                    || normalized.equalsIgnoreCase("forever")
+                    || normalized.equalsIgnoreCase("навсегда")) {
+                return null;
+            }
+            try {
+                return Long.parseLong(normalized);
+            } catch (NumberFormatException exception) {
+                throw new SQLException("Bad value for type Long: " + column, exception);
+            }
+        }
+        throw new SQLException("Bad value for type Long: " + column);
+    }
+
+    private static PunishmentType type(String name) {
+        for (PunishmentType type : TYPES) {
+            if (type.name().equals(name)) {
+                return type;
+            }
+        }
+        return PunishmentType.valueOf(name);
+    }
+}
@@ -0,0 +1,51 @@
+package com.pluginbans.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+@Name("pluginbans.RepositoryQuery")
+@Label("Запрос к базе наказаний")
+@Category({"PluginBans", "База данных"})
+@Description("Один SQL-запрос хранилища наказаний, включая ожидание соединения из пула.")
+final class RepositoryQueryFlightEvent extends jdk.jfr.Event {
+    @Label("Операция")
+    String statement;
+
+    @Label("Таблица")
+    String table;
+
+    @Label("Условие")
+    String filter;
+
+    @Label("Строк")
+    int rows;
+
+    @Label("Ожидание пула")
+    @Timespan(Timespan.NANOSECONDS)
+    long poolWait;
+
+    @Label("Успешно")
+    boolean success;
+
+    RepositoryQueryFlightEvent(String statement, String table, String filter) {
+        this.statement = statement;
+        this.table = table;
+        this.filter = filter;
+    }
+
+    void connected(long waitNanos) {
+        this.poolWait = waitNanos;
+    }
+
+    void finish(int rows, boolean success) {
+        // Поля заполняются только при включённой записи, без неё остаётся одна проверка флага.
+        if (shouldCommit()) {
+            this.rows = rows;
+            this.success = success;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.pluginbans.core;
+
+import java.time.Duration;
+
+public record RetentionConfig(
+        boolean enabled,
+        Duration maxAge,
+        int chunkSize,
+        Duration chunkBudget,
+        Duration runBudget,
+        Duration interval
+) {
+    public static RetentionConfig defaults() {
+        return new RetentionConfig(false, Duration.ofDays(365), 500, Duration.ofMillis(200), Duration.ofSeconds(30), Duration.ofMinutes(30));
+    }
+}
@@ -0,0 +1,211 @@
+package com.pluginbans.core;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class RetentionJob implements AutoCloseable {
+    private static final String HISTORY_COLUMNS = "id, uuid, ip, ip_hash, type, reason, actor, start_time, end_time, internal_id, action, action_time";
+    private static final int MIN_CHUNK_SIZE = 10;
+
+    public record RetentionResult(long punishments, long history, boolean finished) {
+    }
+
+    private final DataSource dataSource;
+    private final DatabaseExecutors executors;
+    private final PunishmentTable table;
+    private final RetentionConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final LongAdder archivedPunishments = new LongAdder();
+    private final LongAdder archivedHistory = new LongAdder();
+    private volatile int chunkSize;
+    private volatile ClusterLeader clusterLeader;
+
+    public RetentionJob(DataSource dataSource, DatabaseExecutors executors, StorageFormat format, RetentionConfig config) {
+        this.dataSource = dataSource;
+        this.executors = executors;
+        this.table = PunishmentTable.forFormat(format);
+        this.config = config == null ? RetentionConfig.defaults() : config;
+        this.chunkSize = Math.max(MIN_CHUNK_SIZE, this.config.chunkSize());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PluginBans-Архив");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setClusterLeader(ClusterLeader leader) {
+        this.clusterLeader = leader;
+    }
+
+    public void start() {
+        if (!config.enabled()) {
+            return;
+        }
+        long interval = Math.max(1L, config.interval().toSeconds());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                runOnce();
+            } catch (RuntimeException ignored) {
+                // Следующий запуск повторит перенос с того же места.
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    public RetentionResult runOnce() {
+        Instant cutoff = Instant.now().minus(config.maxAge());
+        long deadline = System.nanoTime() + config.runBudget().toNanos();
+        long punishments = 0L;
+        long history = 0L;
+        boolean punishmentsDone = false;
+        boolean historyDone = false;
+        while (!(punishmentsDone && historyDone) && System.nanoTime() < deadline) {
+            // Перенос уступает входам и выдаче наказаний: при очереди в этих полосах запуск откладывается.
+            // В кластере архив ведёт только лидер; потеря аренды прерывает запуск между пачками.
+            if (!leads() || executors.queueDepth(Workload.LOGIN) > 0 || executors.queueDepth(Workload.WRITE) > 0) {
+                break;
+            }
+            int limit = chunkSize;
+            boolean skipPunishments = punishmentsDone;
+            long started = System.nanoTime();
+            int[] moved = executors.supply(Workload.BACKGROUND, () -> archiveChunk(cutoff, limit, skipPunishments)).join();
+            adjustChunkSize(limit, System.nanoTime() - started);
+            punishments += moved[0];
+            history += moved[1];
+            punishmentsDone = punishmentsDone || moved[0] < limit;
+            historyDone = moved[1] < limit;
+        }
+        archivedPunishments.add(punishments);
+        archivedHistory.add(history);
+        return new RetentionResult(punishments, history, punishmentsDone && historyDone);
+    }
+
+    private boolean leads() {
+        ClusterLeader leader = clusterLeader;
+        return leader == null || leader.isLeader();
+    }
+
+    private void adjustChunkSize(int limit, long elapsedNanos) {
+        // Размер пачки подстраивается так, чтобы одна транзакция укладывалась в chunk-budget.
+        long budget = config.chunkBudget().toNanos();
+        if (elapsedNanos > budget) {
+            chunkSize = Math.max(MIN_CHUNK_SIZE, limit / 2);
+        } else if (elapsedNanos < budget / 4) {
+            chunkSize = Math.min(Math.max(MIN_CHUNK_SIZE, config.chunkSize()), limit * 2);
+        }
+    }
+
+    private int[] archiveChunk(Instant cutoff, int limit, boolean skipPunishments) {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                boolean sqlite = DatabaseMeta.isSqlite(connection);
+                int punishments = skipPunishments || !punishmentsMovable(connection) ? 0 : archivePunishments(connection, sqlite, cutoff, limit);
+                int history = archiveHistory(connection, sqlite, cutoff, limit);
+                connection.commit();
+                return new int[]{punishments, history};
+            } catch (SQLException | RuntimeException exception) {
+                connection.rollback();
+                throw exception;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException exception) {
+            throw new IllegalStateException("Не удалось перенести старые записи в архив.", exception);
+        }
+    }
+
+    private boolean punishmentsMovable(Connection connection) throws SQLException {
+        // Пока идёт перенос в компактный формат, строки читаются из двух таблиц, и архивировать их рано.
+        return table != PunishmentTable.BINARY || "1".equals(DatabaseMeta.read(connection, CompactStorageMigration.DONE_KEY));
+    }
+
+    private int archivePunishments(Connection connection, boolean sqlite, Instant cutoff, int limit) throws SQLException {
+        List<PunishmentRecord> records = new ArrayList<>(limit);
+        String select = table.select("active = 0 AND start_time < ? AND (end_time IS NULL OR end_time < ?) ORDER BY start_time LIMIT ?");
+        try (PreparedStatement statement = connection.prepareStatement(select)) {
+            statement.setLong(1, cutoff.toEpochMilli());
+            statement.setLong(2, cutoff.toEpochMilli());
+            statement.setInt(3, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    records.add(table.map(resultSet));
+                }
+            }
+        }
+        if (records.isEmpty()) {
+            return 0;
+        }
+        try (PreparedStatement insert = connection.prepareStatement(PunishmentTable.ARCHIVE.insertIgnoringDuplicates(sqlite));
+             PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table.name() + " WHERE internal_id = ?")) {
+            for (PunishmentRecord record : records) {
+                PunishmentTable.ARCHIVE.bindInsert(insert, record);
+                insert.addBatch();
+                delete.setString(1, record.internalId());
+                delete.addBatch();
+            }
+            insert.executeBatch();
+            delete.executeBatch();
+        }
+        return records.size();
+    }
+
+    private int archiveHistory(Connection connection, boolean sqlite, Instant cutoff, int limit) throws SQLException {
+        List<String> ids = new ArrayList<>(limit);
+        try (PreparedStatement statement = connection.prepareStatement(
+                "SELECT id FROM pluginbans_punishment_history WHERE action_time < ? ORDER BY action_time LIMIT ?")) {
+            statement.setLong(1, cutoff.toEpochMilli());
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getString(1));
+                }
+            }
+        }
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = "?" + ", ?".repeat(ids.size() - 1);
+        String insert = (sqlite ? "INSERT OR IGNORE INTO" : "INSERT IGNORE INTO")
+                + " pluginbans_punishment_history_archive (" + HISTORY_COLUMNS + ") SELECT " + HISTORY_COLUMNS
+                + " FROM pluginbans_punishment_history WHERE id IN (" + placeholders + ")";
+        try (PreparedStatement copy = connection.prepareStatement(insert);
+             PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM pluginbans_punishment_history WHERE id IN (" + placeholders + ")")) {
+            for (int i = 0; i < ids.size(); i++) {
+                copy.setString(i + 1, ids.get(i));
+                delete.setString(i + 1, ids.get(i));
+            }
+            copy.executeUpdate();
+            delete.executeUpdate();
+        }
+        return ids.size();
+    }
+
+    public long archivedPunishments() {
+        return archivedPunishments.sum();
+    }
+
+    public long archivedHistory() {
+        return archivedHistory.sum();
+    }
+
+    public Duration interval() {
+        return config.interval();
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+}
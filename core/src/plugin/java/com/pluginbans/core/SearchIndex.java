@@ -0,0 +1,222 @@
+package com.pluginbans.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public final class SearchIndex {
+    private final NavigableMap<String, NavigableSet<Long>> postings = new TreeMap<>();
+    private final NavigableMap<Long, Document> documents = new TreeMap<>();
+    private final Map<String, Long> sequences = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long nextSequence = 1L;
+
+    public long add(String internalId, PunishmentType type, String reason, String actor) {
+        Set<String> tokens = new LinkedHashSet<>(tokenize(reason));
+        tokens.addAll(tokenize(actor));
+        lock.writeLock().lock();
+        try {
+            Long existing = sequences.get(internalId);
+            if (existing != null) {
+                return existing;
+            }
+            // Порядковый номер растёт с каждой записью: по нему идут и сортировка "сначала новые", и курсор страниц.
+            long sequence = nextSequence++;
+            sequences.put(internalId, sequence);
+            documents.put(sequence, new Document(internalId, type, actor, Set.copyOf(tokens)));
+            for (String token : tokens) {
+                postings.computeIfAbsent(token, ignored -> new TreeSet<>(Comparator.reverseOrder())).add(sequence);
+            }
+            return sequence;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(String internalId) {
+        lock.writeLock().lock();
+        try {
+            Long sequence = sequences.remove(internalId);
+            if (sequence == null) {
+                return false;
+            }
+            Document document = documents.remove(sequence);
+            for (String token : document.tokens()) {
+                NavigableSet<Long> posting = postings.get(token);
+                posting.remove(sequence);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Hit> search(SearchQuery query) {
+        List<String> required = new ArrayList<>(query.textTokens());
+        if (required.isEmpty()) {
+            required.addAll(query.actorTokens());
+        }
+        lock.readLock().lock();
+        try {
+            // Ведущим берётся самый редкий префикс, остальные проверяются по токенам документа.
+            String driver = null;
+            long driverSize = Long.MAX_VALUE;
+            for (String token : required) {
+                long size = 0L;
+                for (NavigableSet<Long> posting : prefixRange(token).values()) {
+                    size += posting.size();
+                }
+                if (size < driverSize) {
+                    driver = token;
+                    driverSize = size;
+                }
+            }
+            if (driverSize == 0L) {
+                return List.of();
+            }
+            List<Hit> hits = new ArrayList<>(query.limit());
+            Iterator<Long> candidates = merged(prefixRange(driver).values(), query.before());
+            while (candidates.hasNext() && hits.size() < query.limit()) {
+                long sequence = candidates.next();
+                Document document = documents.get(sequence);
+                if (matches(document, required, query)) {
+                    hits.add(new Hit(sequence, document.internalId()));
+                }
+            }
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            sequences.clear();
+            nextSequence = 1L;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        for (int i = 0; i < normalized.length(); i++) {
+            char value = normalized.charAt(i);
+            if (Character.isLetterOrDigit(value)) {
+                current.append(value);
+            } else if (!current.isEmpty()) {
+                tokens.add(current.toString());
+                current.setLength(0);
+            }
+        }
+        if (!current.isEmpty()) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private NavigableMap<String, NavigableSet<Long>> prefixRange(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private static boolean matches(Document document, List<String> required, SearchQuery query) {
+        if (query.type() != null && document.type() != query.type()) {
+            return false;
+        }
+        if (query.actor() != null && !query.actor().equalsIgnoreCase(document.actor())) {
+            return false;
+        }
+        for (String token : required) {
+            boolean found = false;
+            for (String candidate : document.tokens()) {
+                if (candidate.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Iterator<Long> merged(Collection<NavigableSet<Long>> postings, long before) {
+        // Слияние отсортированных списков по убыванию номера; один документ может попасть в несколько токенов префикса.
+        PriorityQueue<Cursor> heads = new PriorityQueue<>(Comparator.comparingLong(Cursor::head).reversed());
+        for (NavigableSet<Long> posting : postings) {
+            Iterator<Long> iterator = (before > 0L ? posting.tailSet(before, false) : posting).iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Cursor(iterator.next(), iterator));
+            }
+        }
+        return new Iterator<>() {
+            private long last = Long.MAX_VALUE;
+
+            @Override
+            public boolean hasNext() {
+                while (!heads.isEmpty() && heads.peek().head() == last) {
+                    advance();
+                }
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Long next() {
+                hasNext();
+                last = heads.peek().head();
+                advance();
+                return last;
+            }
+
+            private void advance() {
+                Cursor cursor = heads.poll();
+                if (cursor.rest().hasNext()) {
+                    heads.add(new Cursor(cursor.rest().next(), cursor.rest()));
+                }
+            }
+        };
+    }
+
+    public record Hit(long sequence, String internalId) {
+    }
+
+    private record Document(String internalId, PunishmentType type, String actor, Set<String> tokens) {
+    }
+
+    private record Cursor(long head, Iterator<Long> rest) {
+    }
+}
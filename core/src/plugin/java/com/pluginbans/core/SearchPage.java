@@ -0,0 +1,18 @@
+package com.pluginbans.core;
+
+import java.util.List;
+
+public record SearchPage(List<PunishmentRecord> records, String nextCursor) {
+    public static final SearchPage EMPTY = new SearchPage(List.of(), null);
+
+    public static long parseCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            return Math.max(0L, Long.parseLong(cursor.trim()));
+        } catch (NumberFormatException exception) {
+            throw new IllegalArgumentException("Некорректный курсор поиска.", exception);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.pluginbans.core;
+
+import java.util.List;
+
+public record SearchQuery(String text, String actor, PunishmentType type, long before, int limit) {
+    public static final int MAX_LIMIT = 100;
+
+    public SearchQuery {
+        text = text == null ? "" : text.trim();
+        actor = actor == null || actor.isBlank() ? null : actor.trim();
+        before = Math.max(0L, before);
+        limit = Math.max(1, Math.min(MAX_LIMIT, limit));
+        if (SearchIndex.tokenize(text).isEmpty() && actor == null) {
+            throw new IllegalArgumentException("Укажите текст поиска или модератора.");
+        }
+    }
+
+    public List<String> textTokens() {
+        return SearchIndex.tokenize(text);
+    }
+
+    public List<String> actorTokens() {
+        return actor == null ? List.of() : SearchIndex.tokenize(actor);
+    }
+}
@@ -0,0 +1,54 @@
+package com.pluginbans.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+public final class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> loader) {
+        CompletableFuture<V> promise = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, promise);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+        loads.increment();
+        CompletableFuture<V> source;
+        try {
+            source = loader.get();
+        } catch (RuntimeException exception) {
+            source = CompletableFuture.failedFuture(exception);
+        }
+        source.whenComplete((value, throwable) -> {
+            // Ключ снимается до завершения, чтобы следующие вызовы начали новый запрос, а не получили готовый результат.
+            inFlight.remove(key, promise);
+            if (throwable != null) {
+                promise.completeExceptionally(throwable);
+            } else {
+                promise.complete(value);
+            }
+        });
+        return promise;
+    }
+
+    public void forget(K key) {
+        inFlight.remove(key);
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    public long loads() {
+        return loads.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,140 @@
+package com.pluginbans.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+public final class SortedIdIndex {
+    private static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER;
+    private static final Comparator<Candidate> RANK = Comparator.comparingLong(Candidate::weight)
+            .thenComparing(Candidate::id, ORDER.reversed());
+
+    private record Candidate(long packed, String text, long weight) {
+        String id() {
+            return text != null ? text : CompactPunishmentStore.unpackId(packed);
+        }
+    }
+
+    private record Entries(ConcurrentSkipListMap<Long, Long> packed, ConcurrentSkipListMap<String, Long> other) {
+        Entries() {
+            this(new ConcurrentSkipListMap<>(), new ConcurrentSkipListMap<>(ORDER));
+        }
+    }
+
+    // Список с пропусками: вставка и удаление за O(log n) без копирования всего индекса, чтение без блокировок.
+    // Обычные ID хранятся упакованными в long, как в столбце CompactPunishmentStore, строки - только у нестандартных.
+    private volatile Entries entries = new Entries();
+
+    public void replaceAll(List<String> ids, List<Long> weights) {
+        if (ids.size() != weights.size()) {
+            throw new IllegalArgumentException("Количество ID и весов не совпадает.");
+        }
+        Entries next = new Entries();
+        for (int i = 0; i < ids.size(); i++) {
+            put(next, ids.get(i), weights.get(i));
+        }
+        // Индекс собирается в стороне и подменяется целиком, автодополнение не видит его наполовину пустым.
+        entries = next;
+    }
+
+    public void put(String id, long weight) {
+        put(entries, id, weight);
+    }
+
+    public boolean remove(String id) {
+        if (id == null || id.isEmpty()) {
+            return false;
+        }
+        Entries current = entries;
+        boolean removed = current.other().remove(id) != null;
+        long packed = CompactPunishmentStore.packId(id.toUpperCase(Locale.ROOT));
+        if (packed > 0L) {
+            removed |= current.packed().remove(packed) != null;
+        }
+        return removed;
+    }
+
+    public List<String> complete(String prefix, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        String normalized = prefix == null ? "" : prefix;
+        Entries current = entries;
+        // min-куча на limit выбирает самые свежие; строки упакованных ID собираются только для победителей.
+        PriorityQueue<Candidate> best = new PriorityQueue<>(limit + 1, RANK);
+        for (Map<Long, Long> range : packedRanges(current.packed(), normalized.toUpperCase(Locale.ROOT))) {
+            for (Map.Entry<Long, Long> entry : range.entrySet()) {
+                offer(best, new Candidate(entry.getKey(), null, entry.getValue()), limit);
+            }
+        }
+        for (Map.Entry<String, Long> entry : current.other().tailMap(normalized, true).entrySet()) {
+            if (!entry.getKey().regionMatches(true, 0, normalized, 0, normalized.length())) {
+                break;
+            }
+            offer(best, new Candidate(0L, entry.getKey(), entry.getValue()), limit);
+        }
+        List<String> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().id());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    public int size() {
+        Entries current = entries;
+        return current.packed().size() + current.other().size();
+    }
+
+    private static List<Map<Long, Long>> packedRanges(ConcurrentSkipListMap<Long, Long> packed, String prefix) {
+        if (prefix.isEmpty()) {
+            return List.of(packed);
+        }
+        long head = CompactPunishmentStore.packId(prefix);
+        if (head <= 0L) {
+            return List.of();
+        }
+        // ID длины L с префиксом P занимают подряд идущий отрезок [P * 37^m, (P + 1) * 37^m), где m = L - |P|.
+        List<Map<Long, Long>> ranges = new ArrayList<>();
+        long scale = 1L;
+        for (int extra = 0; extra <= CompactPunishmentStore.MAX_PACKED_ID_LENGTH - prefix.length(); extra++) {
+            ranges.add(packed.subMap(head * scale, true, (head + 1) * scale, false));
+            scale *= CompactPunishmentStore.ID_RADIX;
+        }
+        return ranges;
+    }
+
+    private static void offer(PriorityQueue<Candidate> best, Candidate candidate, int limit) {
+        best.offer(candidate);
+        if (best.size() > limit) {
+            best.poll();
+        }
+    }
+
+    private static void put(Entries target, String id, long weight) {
+        if (id == null || id.isEmpty()) {
+            return;
+        }
+        String upper = id.toUpperCase(Locale.ROOT);
+        long packed = CompactPunishmentStore.packId(upper);
+        if (packed > 0L && upper.equals(id)) {
+            // Повтор ID в другом регистре схлопывается: сохраняется написание последней записи.
+            target.other().remove(id);
+            target.packed().put(packed, weight);
+            return;
+        }
+        if (packed > 0L) {
+            target.packed().remove(packed);
+        }
+        String existing = target.other().floorKey(id);
+        if (existing != null && ORDER.compare(existing, id) == 0 && !existing.equals(id)) {
+            target.other().remove(existing);
+        }
+        target.other().put(id, weight);
+    }
+}
@@ -0,0 +1,128 @@
+package com.pluginbans.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+public final class StatsRollup {
+    static final String BACKFILL_KEY = "stats_daily_backfilled";
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final Duration TODAY_REFRESH = Duration.ofSeconds(30);
+    private static final String SQLITE_UPSERT = """
+            INSERT INTO pluginbans_stats_daily (day, type, action, actor, total) VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (day, type, action, actor) DO UPDATE SET total = total + excluded.total
+            """;
+    private static final String MYSQL_UPSERT = """
+            INSERT INTO pluginbans_stats_daily (day, type, action, actor, total) VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE total = total + VALUES(total)
+            """;
+    private static final String BACKFILL = """
+            INSERT INTO pluginbans_stats_daily (day, type, action, actor, total)
+            SELECT %s, type, action, actor, COUNT(*) FROM pluginbans_punishment_history
+            GROUP BY %s, type, action, actor
+            """;
+
+    private final Map<Key, Long> today = new HashMap<>();
+    private long todayDay = Long.MIN_VALUE;
+    private Instant todayLoadedAt = Instant.EPOCH;
+
+    public static long epochDay(Instant time) {
+        return Math.floorDiv(time.toEpochMilli(), MILLIS_PER_DAY);
+    }
+
+    public static long currentDay() {
+        return LocalDate.now(ZoneOffset.UTC).toEpochDay();
+    }
+
+    public static void apply(Connection connection, Collection<PunishmentHistoryRecord> records) throws SQLException {
+        if (records.isEmpty()) {
+            return;
+        }
+        // Строки истории сворачиваются заранее: одна пачка - по одному UPSERT на ключ.
+        Map<Key, Long> increments = aggregate(records);
+        String sql = DatabaseMeta.isSqlite(connection) ? SQLITE_UPSERT : MYSQL_UPSERT;
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (Map.Entry<Key, Long> entry : increments.entrySet()) {
+                Key key = entry.getKey();
+                statement.setLong(1, key.day());
+                statement.setString(2, key.type().name());
+                statement.setString(3, key.action());
+                statement.setString(4, key.actor());
+                statement.setLong(5, entry.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    static void backfill(Connection connection) throws SQLException {
+        if (DatabaseMeta.read(connection, BACKFILL_KEY) != null) {
+            return;
+        }
+        // Сводка создаётся поверх уже накопленной истории один раз, дальше обновляется вместе с ней.
+        String day = DatabaseMeta.isSqlite(connection) ? "action_time / " + MILLIS_PER_DAY : "action_time DIV " + MILLIS_PER_DAY;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM pluginbans_stats_daily");
+            statement.executeUpdate(BACKFILL.formatted(day, day));
+            DatabaseMeta.write(connection, BACKFILL_KEY, "1");
+            connection.commit();
+        } catch (SQLException exception) {
+            connection.rollback();
+            throw exception;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    public synchronized void committed(Collection<PunishmentHistoryRecord> records) {
+        for (Map.Entry<Key, Long> entry : aggregate(records).entrySet()) {
+            if (entry.getKey().day() == todayDay) {
+                today.merge(entry.getKey(), entry.getValue(), Long::sum);
+            }
+        }
+    }
+
+    public synchronized List<DailyStat> today(long day, Supplier<List<DailyStat>> loader) {
+        Instant now = Instant.now();
+        // Записи других серверов попадают в счётчик при перечитывании, свои - сразу после коммита.
+        if (day != todayDay || todayLoadedAt.plus(TODAY_REFRESH).isBefore(now)) {
+            today.clear();
+            for (DailyStat stat : loader.get()) {
+                today.put(new Key(stat.day().toEpochDay(), stat.type(), stat.action(), stat.actor()), stat.total());
+            }
+            todayDay = day;
+            todayLoadedAt = now;
+        }
+        List<DailyStat> stats = new ArrayList<>(today.size());
+        for (Map.Entry<Key, Long> entry : today.entrySet()) {
+            Key key = entry.getKey();
+            stats.add(new DailyStat(LocalDate.ofEpochDay(key.day()), key.type(), key.action(), key.actor(), entry.getValue()));
+        }
+        return stats;
+    }
+
+    private static Map<Key, Long> aggregate(Collection<PunishmentHistoryRecord> records) {
+        Map<Key, Long> increments = new HashMap<>();
+        for (PunishmentHistoryRecord record : records) {
+            Key key = new Key(epochDay(record.actionTime()), record.type(), record.action(), record.actor());
+            increments.merge(key, 1L, Long::sum);
+        }
+        return increments;
+    }
+
+    private record Key(long day, PunishmentType type, String action, String actor) {
+    }
+}
@@ -0,0 +1,102 @@
+package com.pluginbans.core;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.util.HexFormat;
+import java.util.UUID;
+
+public final class StorageCodec {
+    private StorageCodec() {
+    }
+
+    public static byte[] uuidToBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID uuidFromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    public static byte[] ipToBytes(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        byte[] ipv4 = parseIpv4(ip);
+        if (ipv4 != null) {
+            return ipv4;
+        }
+        if (ip.indexOf(':') < 0 || !ip.chars().allMatch(ch -> ch == ':' || ch == '.' || Character.digit(ch, 16) >= 0)) {
+            return null;
+        }
+        try {
+            // Строка состоит только из цифр, точек и двоеточий, поэтому разбор не обращается к DNS.
+            byte[] address = InetAddress.getByName(ip).getAddress();
+            return address;
+        } catch (UnknownHostException exception) {
+            return null;
+        }
+    }
+
+    public static String ipFromBytes(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        if (bytes.length == 5 || bytes.length == 17) {
+            return IpRange.fromBytes(bytes)
+                    .map(IpRange::toString)
+                    .orElseThrow(() -> new IllegalStateException("Некорректный диапазон в базе наказаний."));
+        }
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException exception) {
+            throw new IllegalStateException("Некорректный адрес в базе наказаний.", exception);
+        }
+    }
+
+    public static byte[] hashToBytes(String ipHash) {
+        if (ipHash == null || ipHash.length() != 64
+                || !ipHash.chars().allMatch(ch -> Character.digit(ch, 16) >= 0 && !Character.isUpperCase(ch))) {
+            return null;
+        }
+        return HexFormat.of().parseHex(ipHash);
+    }
+
+    public static String hashFromBytes(byte[] bytes) {
+        return bytes == null ? null : HexFormat.of().formatHex(bytes);
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        byte[] address = new byte[4];
+        int part = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            char ch = i == ip.length() ? '.' : ip.charAt(i);
+            if (ch == '.') {
+                if (digits == 0 || part > 3) {
+                    return null;
+                }
+                address[part++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (ch >= '0' && ch <= '9') {
+                if (digits > 0 && value == 0) {
+                    return null;
+                }
+                value = value * 10 + (ch - '0');
+                digits++;
+                if (value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return part == 4 ? address : null;
+    }
+}
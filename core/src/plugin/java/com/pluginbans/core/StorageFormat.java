@@ -0,0 +1,6 @@
+package com.pluginbans.core;
+
+public enum StorageFormat {
+    TEXT,
+    BINARY
+}
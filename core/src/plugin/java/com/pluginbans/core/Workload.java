@@ -0,0 +1,8 @@
+package com.pluginbans.core;
+
+public enum Workload {
+    LOGIN,
+    API,
+    WRITE,
+    BACKGROUND
+}
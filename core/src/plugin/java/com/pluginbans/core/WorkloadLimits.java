@@ -0,0 +1,23 @@
+package com.pluginbans.core;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+public record WorkloadLimits(int threads, int queueDepth, Duration maxQueueWait) {
+    public WorkloadLimits {
+        threads = Math.max(1, threads);
+        queueDepth = Math.max(1, queueDepth);
+        maxQueueWait = maxQueueWait == null ? Duration.ZERO : maxQueueWait;
+    }
+
+    public static Map<Workload, WorkloadLimits> defaultsFor(int poolSize) {
+        int pool = Math.max(5, poolSize);
+        Map<Workload, WorkloadLimits> limits = new EnumMap<>(Workload.class);
+        limits.put(Workload.LOGIN, new WorkloadLimits(Math.max(2, pool * 2 / 5), 512, Duration.ofSeconds(5)));
+        limits.put(Workload.API, new WorkloadLimits(Math.max(1, pool / 5), 64, Duration.ofSeconds(10)));
+        limits.put(Workload.WRITE, new WorkloadLimits(Math.max(1, pool / 5), 256, Duration.ofSeconds(10)));
+        limits.put(Workload.BACKGROUND, new WorkloadLimits(Math.max(1, pool / 5), 1024, Duration.ZERO));
+        return limits;
+    }
+}
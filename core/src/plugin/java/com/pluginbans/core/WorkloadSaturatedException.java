@@ -0,0 +1,7 @@
+package com.pluginbans.core;
+
+public final class WorkloadSaturatedException extends IllegalStateException {
+    public WorkloadSaturatedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,74 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ActivePunishmentSnapshotTest {
+    @Test
+    public void roundTripsRecordsThroughMappedFile() throws IOException {
+        Path dir = Files.createTempDirectory("pluginbans-snapshot-test-");
+        Path file = dir.resolve("active-snapshot.bin");
+        Instant createdAt = Instant.parse("2026-03-01T12:00:00Z");
+        String ip = "203.0.113.10";
+        PunishmentRecord ban = new PunishmentRecord(UUID.randomUUID(), ip, IpHashing.hash(ip), PunishmentType.IPBAN,
+                "Читы", "Console", createdAt.minusSeconds(60), null, true, "BAN001", false);
+        PunishmentRecord mute = new PunishmentRecord(UUID.randomUUID(), null, null, PunishmentType.MUTE,
+                "Флуд", "Moderator", createdAt.minusSeconds(30), createdAt.plusSeconds(3600), true, "MUTE01", true);
+
+        ActivePunishmentSnapshot.write(file, createdAt, List.of(ban, mute));
+        ActivePunishmentSnapshot snapshot = ActivePunishmentSnapshot.read(file).orElseThrow();
+
+        assertEquals(createdAt, snapshot.createdAt());
+        assertEquals(List.of(ban, mute), snapshot.records());
+        assertNull(snapshot.records().get(1).ipHash());
+        Files.delete(file);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void ignoresMissingOrForeignFiles() throws IOException {
+        Path dir = Files.createTempDirectory("pluginbans-snapshot-test-");
+        Path file = dir.resolve("active-snapshot.bin");
+        assertFalse(ActivePunishmentSnapshot.read(file).isPresent());
+
+        Files.writeString(file, "не снимок");
+        assertTrue(ActivePunishmentSnapshot.read(file).isEmpty());
+        Files.delete(file);
+        Files.delete(dir);
+    }
+
+    @Test
+    public void rejectsCorruptedCountsAndLengths() throws IOException {
+        Path dir = Files.createTempDirectory("pluginbans-snapshot-test-");
+        Path file = dir.resolve("active-snapshot.bin");
+        Instant createdAt = Instant.parse("2026-03-01T12:00:00Z");
+        PunishmentRecord ban = new PunishmentRecord(UUID.randomUUID(), "203.0.113.10", null, PunishmentType.BAN,
+                "Читы", "Console", createdAt.minusSeconds(60), null, true, "BAN001", false);
+        ActivePunishmentSnapshot.write(file, createdAt, List.of(ban));
+        byte[] valid = Files.readAllBytes(file);
+
+        // Число записей лежит после магии, версии и времени создания, длина адреса - после UUID первой записи.
+        for (int offset : new int[]{16, 36}) {
+            for (int value : new int[]{Integer.MAX_VALUE, -7}) {
+                byte[] corrupted = valid.clone();
+                ByteBuffer.wrap(corrupted).putInt(offset, value);
+                Files.write(file, corrupted);
+                assertTrue(ActivePunishmentSnapshot.read(file).isEmpty());
+            }
+        }
+        Files.delete(file);
+        Files.delete(dir);
+    }
+}
@@ -0,0 +1,147 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class AdvancedBanImporterTest {
+    @Test
+    public void mapsLegacyTypesAndUuids() {
+        assertEquals(PunishmentType.TEMPBAN, AdvancedBanImporter.mapType("TEMP_BAN"));
+        assertEquals(PunishmentType.IPBAN, AdvancedBanImporter.mapType("TEMP_IP_BAN"));
+        assertEquals(PunishmentType.WARN, AdvancedBanImporter.mapType("WARNING"));
+        assertNull(AdvancedBanImporter.mapType("KICK"));
+        UUID uuid = UUID.randomUUID();
+        assertEquals(uuid, AdvancedBanImporter.parseUuid(uuid.toString().replace("-", ""), "Steve"));
+        assertEquals(UUID.nameUUIDFromBytes("OfflinePlayer:Steve".getBytes(java.nio.charset.StandardCharsets.UTF_8)),
+                AdvancedBanImporter.parseUuid("steve", "Steve"));
+    }
+
+    @Test
+    public void importsLegacyTablesAndResumesFromCheckpoint() throws Exception {
+        Path tempDir = Files.createTempDirectory("pluginbans-import-test-");
+        DatabaseManager databaseManager = new DatabaseManager(new DatabaseConfig(
+                DatabaseType.SQLITE, "localhost", 3306, "pluginbans", "root", "",
+                tempDir.resolve("import.db").toString(), 4
+        ));
+        try {
+            UUID banned = UUID.randomUUID();
+            long now = System.currentTimeMillis();
+            try (Connection connection = databaseManager.dataSource().getConnection();
+                 Statement statement = connection.createStatement()) {
+                for (String table : List.of("Punishments", "PunishmentHistory")) {
+                    statement.execute("CREATE TABLE " + table + " (id INTEGER PRIMARY KEY, name TEXT, uuid TEXT, reason TEXT,"
+                            + " operator TEXT, punishmentType TEXT, start BIGINT, end BIGINT, calculation TEXT)");
+                }
+            }
+            List<Object[]> active = new ArrayList<>();
+            active.add(new Object[]{"Steve", banned.toString().replace("-", ""), "читы", "Admin", "BAN", now - 1_000L, -1L});
+            active.add(new Object[]{"Alex", "203.0.113.5", "спам", "Admin", "IP_BAN", now - 2_000L, -1L});
+            active.add(new Object[]{"Alex", "alex", "флуд", "Admin", "KICK", now - 3_000L, -1L});
+            for (int i = 0; i < 20; i++) {
+                active.add(new Object[]{"Player" + i, "player" + i, "мат", "Admin", "TEMP_MUTE", now - 10_000L - i, now + 60_000L});
+            }
+            insertLegacy(databaseManager, "Punishments", active);
+            List<Object[]> history = new ArrayList<>(active);
+            history.add(new Object[]{"Steve", banned.toString().replace("-", ""), "старый бан", "Admin", "TEMP_BAN", now - 90_000L, now - 60_000L});
+            insertLegacy(databaseManager, "PunishmentHistory", history);
+
+            List<AdvancedBanImporter.ImportProgress> reports = new ArrayList<>();
+            List<AdvancedBanImporter.ImportProgress> results;
+            // Импорт пишет через свой пул и не занимает соединения полос.
+            try (com.zaxxer.hikari.HikariDataSource importPool = databaseManager.openSeparate("PluginBans-Импорт", 4);
+                 AdvancedBanImporter importer = new AdvancedBanImporter(importPool, importPool, StorageFormat.TEXT, 5, 3)) {
+                results = importer.run(reports::add);
+            }
+            assertEquals(AdvancedBanImporter.MAX_PARALLELISM, AdvancedBanImporter.clampParallelism(64));
+            assertEquals(22L, results.get(0).imported());
+            assertEquals(1L, results.get(0).skipped());
+            assertEquals(1L, results.get(1).imported());
+            assertTrue(reports.stream().anyMatch(AdvancedBanImporter.ImportProgress::finished));
+
+            JdbcPunishmentRepository repository = new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executors());
+            List<PunishmentRecord> steve = repository.findActiveByUuid(banned).join();
+            assertEquals(1, steve.size());
+            assertEquals(PunishmentType.BAN, steve.get(0).type());
+            assertTrue(steve.get(0).active());
+            assertEquals(2, repository.findHistory(banned).join().size());
+            assertEquals(0, count(databaseManager, "pluginbans_punishments WHERE type = 'TEMPBAN' AND active = 1"));
+            assertEquals(23, count(databaseManager, "pluginbans_punishment_history"));
+
+            String firstGeneration = repository.findImportGeneration().join();
+            assertNotNull(firstGeneration);
+
+            // Повторный запуск начинает с сохранённой позиции и ничего не дублирует.
+            // Старое время выдачи не попадает в ленту изменений: другой узел узнаёт об импорте по смене поколения.
+            insertLegacy(databaseManager, "Punishments", List.<Object[]>of(
+                    new Object[]{"Late", "late", "читы", "Admin", "BAN", now - 3_600_000L, -1L}));
+            try (PunishmentService remote = new PunishmentService(repository, Duration.ofSeconds(1))) {
+                int before = awaitActiveIds(remote, ids -> ids > 0);
+                Thread.sleep(6_000L);
+                try (AdvancedBanImporter importer = new AdvancedBanImporter(databaseManager.dataSource(),
+                        databaseManager.dataSource(), StorageFormat.TEXT, 5, 2)) {
+                    results = importer.run(progress -> { });
+                }
+                assertEquals(before + 1, awaitActiveIds(remote, ids -> ids == before + 1));
+            }
+            assertEquals(1L, results.get(0).read());
+            assertEquals(1L, results.get(0).imported());
+            assertEquals(0L, results.get(1).read());
+            assertEquals(24, count(databaseManager, "pluginbans_punishments"));
+            assertFalse(firstGeneration.equals(repository.findImportGeneration().join()));
+        } finally {
+            databaseManager.close();
+            try (java.util.stream.Stream<Path> paths = Files.walk(tempDir)) {
+                paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static void insertLegacy(DatabaseManager databaseManager, String table, List<Object[]> rows) throws Exception {
+        try (Connection connection = databaseManager.dataSource().getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO " + table
+                     + " (name, uuid, reason, operator, punishmentType, start, end) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    statement.setObject(i + 1, row[i]);
+                }
+                statement.executeUpdate();
+            }
+        }
+    }
+
+    private static int awaitActiveIds(PunishmentService service, IntPredicate done) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000L;
+        int ids = service.completeActiveIds("", 1_000).size();
+        while (!done.test(ids) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100L);
+            ids = service.completeActiveIds("", 1_000).size();
+        }
+        return ids;
+    }
+
+    private static int count(DatabaseManager databaseManager, String table) throws Exception {
+        try (Connection connection = databaseManager.dataSource().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
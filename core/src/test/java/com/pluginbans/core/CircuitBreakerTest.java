@@ -0,0 +1,100 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakerTest {
+    private static final CircuitBreakerConfig CONFIG = new CircuitBreakerConfig(true, 10, 4, 0.5,
+            Duration.ofSeconds(2), 0.8, Duration.ofMillis(500));
+
+    @Test
+    public void opensOnFailureRateOnlyAfterMinimumCalls() {
+        CircuitBreaker breaker = new CircuitBreaker(CONFIG);
+        breaker.record(true, 0L);
+        breaker.record(true, 0L);
+        breaker.record(true, 0L);
+        assertEquals("До минимального числа вызовов доля ошибок не считается.", CircuitBreaker.State.CLOSED, breaker.state());
+        breaker.record(false, 0L);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.allowRequest());
+
+        breaker.close();
+        assertTrue(breaker.allowRequest());
+        for (int i = 0; i < 4; i++) {
+            breaker.record(i == 0, 0L);
+        }
+        assertEquals("Окно после закрытия начинается заново.", CircuitBreaker.State.CLOSED, breaker.state());
+    }
+
+    @Test
+    public void opensOnSlowCallsAndIgnoresEverythingWhenDisabled() {
+        CircuitBreaker breaker = new CircuitBreaker(CONFIG);
+        long slow = Duration.ofSeconds(3).toNanos();
+        for (int i = 0; i < 4; i++) {
+            breaker.record(false, slow);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        CircuitBreaker disabled = new CircuitBreaker(new CircuitBreakerConfig(false, 10, 1, 0.1,
+                Duration.ofSeconds(2), 0.1, Duration.ofMillis(500)));
+        for (int i = 0; i < 10; i++) {
+            disabled.record(true, slow);
+        }
+        assertTrue(disabled.allowRequest());
+    }
+
+    @Test
+    public void repositoryFailsFastWhenOpenAndProbeClosesIt() throws Exception {
+        FakeRepository fake = new FakeRepository(List.of());
+        try (CircuitBreakerPunishmentRepository repository = new CircuitBreakerPunishmentRepository(fake.repository(), CONFIG)) {
+            fake.failWith(new IllegalStateException("соединение разорвано"));
+            fake.failPingWith(new IllegalStateException("соединение разорвано"));
+            for (int i = 0; i < 4; i++) {
+                repository.findActiveByUuid(UUID.randomUUID(), Workload.LOGIN).handle((ignored, throwable) -> null).join();
+            }
+            assertEquals(CircuitBreaker.State.OPEN, repository.breaker().state());
+
+            int callsWhenOpened = fake.calls();
+            try {
+                repository.findActiveByIp("203.0.113.5").join();
+                fail("Открытый автомат не должен пропускать запрос.");
+            } catch (CompletionException exception) {
+                assertTrue(exception.getCause() instanceof DatabaseUnavailableException);
+            }
+            assertEquals("Запрос при открытом автомате не доходит до базы.", callsWhenOpened, fake.calls());
+
+            fake.failWith(null);
+            Thread.sleep(1_200L);
+            assertEquals("Пока проверка не проходит, автомат остаётся открытым.", CircuitBreaker.State.OPEN, repository.breaker().state());
+            fake.failPingWith(null);
+            long deadline = System.currentTimeMillis() + 5_000L;
+            while (repository.breaker().state() == CircuitBreaker.State.OPEN && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50L);
+            }
+            assertEquals(CircuitBreaker.State.CLOSED, repository.breaker().state());
+            assertTrue(repository.findActiveByIp("203.0.113.5").join().isEmpty());
+        }
+    }
+
+    @Test
+    public void saturatedLaneIsNotCountedAsDatabaseFailure() {
+        FakeRepository fake = new FakeRepository(List.of());
+        try (CircuitBreakerPunishmentRepository repository = new CircuitBreakerPunishmentRepository(fake.repository(), CONFIG)) {
+            fake.failWith(new WorkloadSaturatedException("Очередь LOGIN переполнена."));
+            for (int i = 0; i < 10; i++) {
+                repository.findActiveByUuid(UUID.randomUUID(), Workload.LOGIN).handle((ignored, throwable) -> null).join();
+            }
+            assertEquals(CircuitBreaker.State.CLOSED, repository.breaker().state());
+            assertEquals(10, fake.calls());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.pluginbans.core;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterLeaderTest {
+    private Path tempDir;
+    private DatabaseManager databaseManager;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pluginbans-leader-test-");
+        databaseManager = new DatabaseManager(new DatabaseConfig(
+                DatabaseType.SQLITE, "localhost", 3306, "pluginbans", "root", "",
+                tempDir.resolve("leader.db").toString(), 4));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        databaseManager.close();
+        try (java.util.stream.Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void singleHolderAndTakeoverAfterReleaseOrExpiry() throws Exception {
+        ClusterLeader first = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.BACKGROUND_LEASE, "node-a", Duration.ofSeconds(15));
+        ClusterLeader second = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.BACKGROUND_LEASE, "node-b", Duration.ofSeconds(15));
+        ClusterLeader third = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.BACKGROUND_LEASE, "node-c", Duration.ofSeconds(15));
+        try {
+            assertTrue(first.renew());
+            assertFalse(second.renew());
+            assertTrue("Продление своей аренды проходит повторно.", first.renew());
+            assertTrue(first.isLeader());
+            assertFalse(second.isLeader());
+            assertEquals("node-a", second.holder());
+
+            first.close();
+            assertTrue("После штатной остановки аренда освобождается сразу.", second.renew());
+            assertFalse(third.renew());
+
+            try (Connection connection = databaseManager.dataSource().getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE pluginbans_leases SET expires_at = 1");
+            }
+            assertTrue("Истёкшую аренду забирает другой узел.", third.renew());
+            assertFalse(second.renew());
+            assertFalse(second.isLeader());
+        } finally {
+            second.close();
+            third.close();
+        }
+    }
+
+    @Test
+    public void retentionLeaseIsIndependentAndExpiryUsesDatabaseClock() throws Exception {
+        ClusterLeader proxy = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.BACKGROUND_LEASE, "velocity", Duration.ofSeconds(15));
+        ClusterLeader paper = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.RETENTION_LEASE, "paper", Duration.ofSeconds(15));
+        try {
+            assertTrue(proxy.renew());
+            assertTrue("Аренда архива не зависит от аренды фоновых задач.", paper.renew());
+
+            long before = System.currentTimeMillis();
+            try (Connection connection = databaseManager.dataSource().getConnection();
+                 Statement statement = connection.createStatement();
+                 java.sql.ResultSet resultSet = statement.executeQuery(
+                         "SELECT expires_at FROM pluginbans_leases WHERE name = '" + ClusterLeader.RETENTION_LEASE + "'")) {
+                assertTrue(resultSet.next());
+                long expiresAt = resultSet.getLong(1);
+                // SQLite в тесте работает на тех же часах, поэтому срок близок к локальному времени плюс аренда.
+                assertTrue(Math.abs(expiresAt - (before + 15_000L)) < 2_000L);
+            }
+        } finally {
+            proxy.close();
+            paper.close();
+        }
+    }
+
+    @Test
+    public void followerSkipsExpiredRecordsWithoutWriting() throws Exception {
+        JdbcPunishmentRepository repository = new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executors());
+        UUID uuid = UUID.randomUUID();
+        Instant start = Instant.now().minusSeconds(3600L);
+        repository.addPunishment(new PunishmentRecord(uuid, null, null, PunishmentType.MUTE, "Флуд", "Console",
+                start, start.plusSeconds(60L), true, "EXP001", false)).join();
+        ClusterLeader leader = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.BACKGROUND_LEASE, "node-a", Duration.ofSeconds(15));
+        ClusterLeader follower = new ClusterLeader(databaseManager.dataSource(), ClusterLeader.BACKGROUND_LEASE, "node-b", Duration.ofSeconds(15));
+        try (PunishmentService service = new PunishmentService(repository, Duration.ofMinutes(1))) {
+            assertTrue(leader.renew());
+            assertFalse(follower.renew());
+            service.setClusterLeader(follower);
+
+            assertTrue(service.getActiveByUuid(uuid).join().all().isEmpty());
+            assertTrue("Ведомый узел не снимает наказание в базе.", repository.findByInternalId("EXP001").join().orElseThrow().active());
+            assertTrue(repository.findHistory(uuid).join().stream().noneMatch(record -> "EXPIRE".equals(record.action())));
+
+            service.setClusterLeader(leader);
+            service.getActiveByUuid(uuid).join();
+            assertFalse(repository.findByInternalId("EXP001").join().orElseThrow().active());
+        } finally {
+            leader.close();
+            follower.close();
+        }
+    }
+}
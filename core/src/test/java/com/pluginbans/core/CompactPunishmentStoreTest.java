@@ -0,0 +1,78 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompactPunishmentStoreTest {
+    private static final Instant NOW = Instant.parse("2026-01-01T12:00:00Z");
+
+    @Test
+    public void recordsAreMaterializedUnchanged() {
+        CompactPunishmentStore store = new CompactPunishmentStore();
+        List<PunishmentRecord> records = List.of(
+                record(UUID.randomUUID(), "203.0.113.10", "A1B2C3", null),
+                record(UUID.randomUUID(), "0:0:0:0:0:0:0:1", "Z9Y8X7", NOW.plusSeconds(60)),
+                record(UUID.randomUUID(), "не-адрес", "custom-id", NOW.plusSeconds(60)),
+                new PunishmentRecord(UUID.randomUUID(), null, "не-хэш", PunishmentType.MUTE, "Флуд", "Модератор",
+                        NOW.minusSeconds(5), null, true, "MUTE01", true)
+        );
+        records.forEach(store::add);
+
+        assertEquals(4, store.size());
+        for (PunishmentRecord record : records) {
+            assertEquals(List.of(record), store.findForConnection(record.uuid(), null, null, NOW));
+        }
+        assertEquals(List.of(records.get(0)), store.findForConnection(null, "203.0.113.10", null, NOW));
+        assertEquals(List.of(records.get(1)), store.findForConnection(null, null, IpHashing.hash("0:0:0:0:0:0:0:1"), NOW));
+        assertEquals(List.of(records.get(3)), store.findForConnection(null, null, "не-хэш", NOW));
+    }
+
+    @Test
+    public void removedAndExpiredRecordsAreNotFound() {
+        CompactPunishmentStore store = new CompactPunishmentStore();
+        UUID uuid = UUID.randomUUID();
+        PunishmentRecord permanent = record(uuid, "198.51.100.7", "PERM01", null);
+        PunishmentRecord expired = record(uuid, "198.51.100.7", "OLD001", NOW.minusSeconds(1));
+        store.add(permanent);
+        store.add(expired);
+
+        assertEquals(List.of(permanent), store.findForConnection(uuid, "198.51.100.7", null, NOW));
+        assertTrue(store.remove("PERM01"));
+        assertFalse(store.remove("PERM01"));
+        assertTrue(store.findForConnection(uuid, "198.51.100.7", null, NOW).isEmpty());
+        assertEquals(List.of(expired), store.all());
+    }
+
+    @Test
+    public void manyRecordsSurviveGrowthAndSlotReuse() {
+        CompactPunishmentStore store = new CompactPunishmentStore();
+        for (int i = 0; i < 5_000; i++) {
+            store.add(record(new UUID(i, i), "10.0." + (i / 256) + "." + (i % 256), "ID" + i, null));
+        }
+        for (int i = 0; i < 5_000; i += 2) {
+            assertTrue(store.remove("ID" + i));
+        }
+        for (int i = 0; i < 5_000; i += 2) {
+            store.add(record(new UUID(i, i), "10.0." + (i / 256) + "." + (i % 256), "ID" + i, null));
+        }
+
+        assertEquals(5_000, store.size());
+        for (int i = 0; i < 5_000; i++) {
+            List<PunishmentRecord> found = store.findForConnection(new UUID(i, i), "10.0." + (i / 256) + "." + (i % 256), null, NOW);
+            assertEquals(1, found.size());
+            assertEquals("ID" + i, found.get(0).internalId());
+        }
+    }
+
+    private static PunishmentRecord record(UUID uuid, String ip, String id, Instant end) {
+        return new PunishmentRecord(uuid, ip, IpHashing.hash(ip), PunishmentType.BAN, "Читы", "Админ",
+                NOW.minusSeconds(3600), end, true, id, false);
+    }
+}
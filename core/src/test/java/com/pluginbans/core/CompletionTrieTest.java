@@ -0,0 +1,55 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompletionTrieTest {
+    @Test
+    public void returnsTopWeightedMatchesIgnoringCase() {
+        CompletionTrie<String> trie = new CompletionTrie<>();
+        trie.put("Steve", "Steve", 10L);
+        trie.put("stefan", "stefan", 30L);
+        trie.put("Stella", "Stella", 20L);
+        trie.put("Alex", "Alex", 100L);
+
+        assertEquals(List.of("stefan", "Stella", "Steve"), trie.complete("ST", 10));
+        assertEquals(List.of("stefan", "Stella"), trie.complete("ste", 2));
+        assertEquals(List.of("Alex", "stefan"), trie.complete("", 2));
+        assertEquals(List.of(), trie.complete("bob", 5));
+
+        trie.put("steve", "steve", 50L);
+        assertEquals(4, trie.size());
+        assertEquals(List.of("steve"), trie.complete("stev", 5));
+    }
+
+    @Test
+    public void removalPrunesBranchesAndIndexTracksActiveIds() {
+        CompletionTrie<String> trie = new CompletionTrie<>();
+        trie.put("TM-ABC", "TM-ABC", 1L);
+        trie.put("TM-ABD", "TM-ABD", 2L);
+        assertTrue(trie.remove("tm-abc"));
+        assertFalse(trie.remove("tm-abc"));
+        assertEquals(List.of("TM-ABD"), trie.complete("tm-ab", 5));
+        assertTrue(trie.remove("TM-ABD"));
+        assertEquals(0, trie.size());
+        assertEquals(List.of(), trie.complete("", 5));
+
+        ActivePunishmentIndex index = new ActivePunishmentIndex();
+        Instant now = Instant.now();
+        PunishmentRecord older = new PunishmentRecord(UUID.randomUUID(), null, null, PunishmentType.BAN, "читы", "Admin",
+                now.minusSeconds(60), null, true, "NV-AAAA1111", false);
+        PunishmentRecord newer = new PunishmentRecord(UUID.randomUUID(), null, null, PunishmentType.MUTE, "спам", "Admin",
+                now, null, true, "NV-AAAA2222", false);
+        index.replaceAll(List.of(older, newer), now);
+        assertEquals(List.of("NV-AAAA2222", "NV-AAAA1111"), index.completeIds("nv-aaaa", 5));
+        index.remove("NV-AAAA2222");
+        assertEquals(List.of("NV-AAAA1111"), index.completeIds("NV", 5));
+    }
+}
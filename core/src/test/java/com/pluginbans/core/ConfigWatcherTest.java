@@ -0,0 +1,39 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ConfigWatcherTest {
+    @Test
+    public void burstOfWritesIsReportedOnceAndOtherFilesAreIgnored() throws Exception {
+        Path directory = Files.createTempDirectory("pluginbans-watch-test-");
+        Path config = directory.resolve("config.yml");
+        Files.writeString(config, "a: 1\n");
+        LinkedBlockingQueue<Set<String>> changes = new LinkedBlockingQueue<>();
+        try (ConfigWatcher ignored = new ConfigWatcher(directory, Set.of("config.yml", "messages.yml"), changes::add,
+                Duration.ofMillis(200))) {
+            Files.writeString(directory.resolve("audit.log"), "строка\n");
+            for (int i = 0; i < 3; i++) {
+                Files.writeString(config, "a: " + i + "\n");
+            }
+            Set<String> changed = changes.poll(15, TimeUnit.SECONDS);
+            assertNotNull(changed);
+            assertEquals(Set.of("config.yml"), changed);
+            assertNull(changes.poll(1, TimeUnit.SECONDS));
+        } finally {
+            try (java.util.stream.Stream<Path> paths = Files.walk(directory)) {
+                paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
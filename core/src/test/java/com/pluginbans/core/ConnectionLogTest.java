@@ -0,0 +1,116 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConnectionLogTest {
+    @Test
+    public void indexReturnsAccountsSharingAddresses() {
+        ConnectionIndex index = new ConnectionIndex();
+        UUID main = UUID.randomUUID();
+        UUID closeAlt = UUID.randomUUID();
+        UUID farAlt = UUID.randomUUID();
+        UUID stranger = UUID.randomUUID();
+        index.add(main, "home");
+        index.add(main, "school");
+        index.add(closeAlt, "home");
+        index.add(closeAlt, "school");
+        index.add(farAlt, "school");
+        index.add(stranger, "cafe");
+
+        Map<UUID, Integer> alts = index.altsOf(main);
+        assertEquals(List.of(closeAlt, farAlt), List.copyOf(alts.keySet()));
+        assertEquals(Integer.valueOf(2), alts.get(closeAlt));
+        assertEquals(Integer.valueOf(1), alts.get(farAlt));
+        assertTrue(index.altsOf(UUID.randomUUID()).isEmpty());
+        assertEquals(4, index.accounts());
+        assertEquals(3, index.addresses());
+
+        index.add(stranger, "cafe", 1L);
+        index.add(farAlt, "school", 1L);
+        assertEquals(0, index.evictOlderThan(2L));
+        ConnectionIndex aged = new ConnectionIndex();
+        aged.add(main, "home", 100L);
+        aged.add(closeAlt, "home", 5L);
+        aged.add(stranger, "cafe", 5L);
+        assertEquals(2, aged.evictOlderThan(50L));
+        assertTrue(aged.altsOf(main).isEmpty());
+        assertEquals(1, aged.accounts());
+        assertEquals("Адрес без аккаунтов удаляется вместе с последним.", 1, aged.addresses());
+    }
+
+    @Test
+    public void repeatedJoinsAreWrittenOnceAndReloaded() throws Exception {
+        Path tempDir = Files.createTempDirectory("pluginbans-connections-test-");
+        DatabaseManager databaseManager = new DatabaseManager(new DatabaseConfig(
+                DatabaseType.SQLITE, "localhost", 3306, "pluginbans", "root", "",
+                tempDir.resolve("connections.db").toString(), 4
+        ));
+        try {
+            UUID main = UUID.randomUUID();
+            UUID alt = UUID.randomUUID();
+            try (ConnectionLog log = new ConnectionLog(databaseManager.dataSource(), databaseManager.executors())) {
+                for (int i = 0; i < 5; i++) {
+                    log.record(main, "198.51.100.1");
+                }
+                log.record(alt, "198.51.100.1");
+                log.flush().join();
+                assertEquals(2L, log.writtenRows());
+                log.record(main, "198.51.100.1");
+                log.flush().join();
+            }
+            try (Connection connection = databaseManager.dataSource().getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM pluginbans_connections")) {
+                resultSet.next();
+                assertEquals(2, resultSet.getInt(1));
+            }
+
+            try (ConnectionLog reloaded = new ConnectionLog(databaseManager.dataSource(), databaseManager.executors())) {
+                long deadline = System.currentTimeMillis() + 5_000L;
+                while (!reloaded.loaded() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10L);
+                }
+                assertEquals(Map.of(alt, 1), reloaded.index().altsOf(main));
+            }
+
+            // Давние подключения в память не грузятся, но находятся запросом к базе,
+            // в том числе для недавно заходившего аккаунта, у которого с ними общий старый адрес.
+            UUID oldMain = UUID.randomUUID();
+            UUID oldAlt = UUID.randomUUID();
+            try (Connection connection = databaseManager.dataSource().getConnection();
+                 Statement statement = connection.createStatement()) {
+                for (UUID account : List.of(oldMain, oldAlt, main)) {
+                    statement.executeUpdate("INSERT INTO pluginbans_connections (uuid, ip_hash, first_seen, last_seen) VALUES ('"
+                            + account + "', 'old-home', 1, 1)");
+                }
+            }
+            try (ConnectionLog reloaded = new ConnectionLog(databaseManager.dataSource(), databaseManager.executors())) {
+                long deadline = System.currentTimeMillis() + 5_000L;
+                while (!reloaded.loaded() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(10L);
+                }
+                assertTrue(reloaded.index().altsOf(oldMain).isEmpty());
+                assertEquals(Map.of(alt, 1), reloaded.index().altsOf(main));
+                assertEquals(Map.of(oldAlt, 1, main, 1), reloaded.findAlts(oldMain).join());
+                assertEquals(Map.of(alt, 1, oldMain, 1, oldAlt, 1), reloaded.findAlts(main).join());
+            }
+        } finally {
+            databaseManager.close();
+            try (java.util.stream.Stream<Path> paths = Files.walk(tempDir)) {
+                paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CountingBloomFilterTest {
+    @Test
+    public void addedKeysAreAlwaysReported() {
+        CountingBloomFilter filter = CountingBloomFilter.create(10_000, 0.001);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("u:" + new UUID(i, i * 31L));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue("Фильтр не должен давать ложноотрицательных ответов.", filter.mightContain("u:" + new UUID(i, i * 31L)));
+        }
+    }
+
+    @Test
+    public void removedKeyIsNoLongerReportedAndOthersStay() {
+        CountingBloomFilter filter = CountingBloomFilter.create(1_000, 0.001);
+        filter.add("i:203.0.113.10");
+        filter.add("i:203.0.113.11");
+
+        filter.remove("i:203.0.113.10");
+
+        assertFalse(filter.mightContain("i:203.0.113.10"));
+        assertTrue(filter.mightContain("i:203.0.113.11"));
+    }
+
+    @Test
+    public void falsePositiveRateStaysNearConfiguredValue() {
+        CountingBloomFilter filter = CountingBloomFilter.create(20_000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filter.add("h:" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 20_000; i < 120_000; i++) {
+            if (filter.mightContain("h:" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("Слишком много ложных срабатываний: " + falsePositives, falsePositives < 2_000);
+    }
+}
@@ -0,0 +1,111 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DatabaseExecutorsTest {
+    @Test
+    public void busyBackgroundLaneDoesNotDelayLogin() throws Exception {
+        try (DatabaseExecutors executors = DatabaseExecutors.create(limits(1, 8, Duration.ZERO))) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Void> blocked = executors.run(Workload.BACKGROUND, () -> await(release));
+            executors.run(Workload.BACKGROUND, () -> { });
+            assertEquals(1, executors.queueDepth(Workload.BACKGROUND));
+
+            assertEquals("вход", executors.supply(Workload.LOGIN, () -> "вход").get(2, TimeUnit.SECONDS));
+            assertEquals(0, executors.queueDepth(Workload.LOGIN));
+            release.countDown();
+            blocked.get(2, TimeUnit.SECONDS);
+            assertEquals(Workload.values().length, executors.totalThreads());
+        }
+    }
+
+    @Test
+    public void fullQueueIsRejectedAsSaturated() throws Exception {
+        try (DatabaseExecutors executors = DatabaseExecutors.create(limits(1, 1, Duration.ZERO))) {
+            CountDownLatch started = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Void> running = executors.run(Workload.API, () -> {
+                started.countDown();
+                await(release);
+            });
+            assertTrue(started.await(2, TimeUnit.SECONDS));
+            CompletableFuture<Void> queued = executors.run(Workload.API, () -> { });
+            assertSaturated(executors.run(Workload.API, () -> { }));
+            release.countDown();
+            running.get(2, TimeUnit.SECONDS);
+            queued.get(2, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void taskWaitingLongerThanLimitFailsWithoutRunning() throws Exception {
+        try (DatabaseExecutors executors = DatabaseExecutors.create(limits(1, 8, Duration.ofMillis(50)))) {
+            CountDownLatch release = new CountDownLatch(1);
+            CompletableFuture<Void> running = executors.run(Workload.LOGIN, () -> await(release));
+            boolean[] ran = new boolean[1];
+            CompletableFuture<Void> stale = executors.run(Workload.LOGIN, () -> ran[0] = true);
+            Thread.sleep(150L);
+            release.countDown();
+            running.get(2, TimeUnit.SECONDS);
+            assertSaturated(stale);
+            assertFalse("Устаревший запрос не выполняется.", ran[0]);
+        }
+    }
+
+    @Test
+    public void poolKeepsConnectionsOutsideLanes() throws Exception {
+        Path tempDir = Files.createTempDirectory("pluginbans-executors-test-");
+        DatabaseManager databaseManager = new DatabaseManager(new DatabaseConfig(
+                DatabaseType.SQLITE, "localhost", 3306, "pluginbans", "root", "",
+                tempDir.resolve("executors.db").toString(), 1));
+        try {
+            assertEquals(databaseManager.executors().totalThreads() + DatabaseManager.OUT_OF_LANE_CONNECTIONS,
+                    databaseManager.dataSource().getMaximumPoolSize());
+        } finally {
+            databaseManager.close();
+            try (java.util.stream.Stream<Path> paths = Files.walk(tempDir)) {
+                paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static Map<Workload, WorkloadLimits> limits(int threads, int queueDepth, Duration maxWait) {
+        Map<Workload, WorkloadLimits> limits = new EnumMap<>(Workload.class);
+        for (Workload workload : Workload.values()) {
+            limits.put(workload, new WorkloadLimits(threads, queueDepth, maxWait));
+        }
+        return limits;
+    }
+
+    private static void assertSaturated(CompletableFuture<?> future) {
+        try {
+            future.join();
+            fail("Ожидался отказ переполненной полосы.");
+        } catch (CompletionException exception) {
+            assertTrue(exception.getCause() instanceof WorkloadSaturatedException);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
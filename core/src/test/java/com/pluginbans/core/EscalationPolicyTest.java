@@ -0,0 +1,126 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EscalationPolicyTest {
+    private static final Instant NOW = Instant.parse("2026-03-01T10:00:00Z");
+
+    @Test
+    public void highestReachedStepWinsAndActiveBanBlocksRepeat() {
+        UUID uuid = UUID.randomUUID();
+        EscalationPolicy policy = new EscalationPolicy(List.of(new EscalationLadder(PunishmentType.WARN, null, List.of(
+                new EscalationStep(2, PunishmentType.MUTE, 3600L, "Два предупреждения"),
+                new EscalationStep(3, PunishmentType.BAN, 86400L, "Три предупреждения")
+        ))));
+        List<PunishmentRecord> active = new ArrayList<>(List.of(warn(uuid, "W1", "Спам")));
+
+        PunishmentRecord mute = policy.evaluate(warn(uuid, "W2", "Спам"), active, NOW).orElseThrow();
+        assertEquals(PunishmentType.MUTE, mute.type());
+        assertEquals(NOW.plusSeconds(3600L), mute.endTime());
+
+        active.add(warn(uuid, "W2", "Спам"));
+        PunishmentRecord ban = policy.evaluate(warn(uuid, "W3", "Спам"), active, NOW).orElseThrow();
+        assertEquals("BAN со сроком выдаётся как TEMPBAN.", PunishmentType.TEMPBAN, ban.type());
+        assertEquals("Система", ban.actor());
+
+        active.add(ban);
+        assertTrue(policy.evaluate(warn(uuid, "W4", "Спам"), active, NOW).isEmpty());
+    }
+
+    @Test
+    public void reasonLadderCountsOnlyMatchingReasons() {
+        UUID uuid = UUID.randomUUID();
+        EscalationPolicy policy = new EscalationPolicy(List.of(new EscalationLadder(PunishmentType.WARN, "читы", List.of(
+                new EscalationStep(2, PunishmentType.BAN, 0L, "Повторные читы")
+        ))));
+        List<PunishmentRecord> active = List.of(warn(uuid, "W1", "Спам"));
+
+        assertTrue(policy.evaluate(warn(uuid, "W2", "Читы"), active, NOW).isEmpty());
+        Optional<PunishmentRecord> ban = policy.evaluate(warn(uuid, "W3", "Читы"), List.of(warn(uuid, "W2", "Читы")), NOW);
+        assertEquals(PunishmentType.BAN, ban.orElseThrow().type());
+    }
+
+    @Test
+    public void concurrentWarnsProduceSingleBanInSameBatch() throws IOException {
+        Path tempDir = Files.createTempDirectory("pluginbans-escalation-test-");
+        DatabaseManager databaseManager = new DatabaseManager(new DatabaseConfig(
+                DatabaseType.SQLITE, "localhost", 3306, "pluginbans", "root", "",
+                tempDir.resolve("escalation.db").toString(), 4));
+        JdbcPunishmentRepository repository = new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executors());
+        try (PunishmentService service = new PunishmentService(repository, Duration.ofMinutes(1))) {
+            service.setEscalationPolicy(EscalationPolicy.defaults("Лимит предупреждений"));
+            UUID uuid = UUID.randomUUID();
+            List<CompletableFuture<PunishmentRecord>> issued = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                issued.add(service.createPunishment(warn(uuid, "WARN0" + i, "Спам", Instant.now())));
+            }
+            CompletableFuture.allOf(issued.toArray(CompletableFuture[]::new)).join();
+
+            List<PunishmentRecord> active = repository.findActiveByUuid(uuid).join();
+            assertEquals(5L, active.stream().filter(record -> record.type() == PunishmentType.WARN).count());
+            assertEquals("Гонка параллельных предупреждений не должна выдать второй бан.", 1L,
+                    active.stream().filter(record -> record.type() == PunishmentType.BAN).count());
+            assertEquals(6, repository.findHistory(uuid).join().size());
+        } finally {
+            databaseManager.close();
+            try (java.util.stream.Stream<Path> paths = Files.walk(tempDir)) {
+                paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Test
+    public void warnsFromTwoNodesProduceSingleBan() throws IOException {
+        Path tempDir = Files.createTempDirectory("pluginbans-escalation-test-");
+        DatabaseManager databaseManager = new DatabaseManager(new DatabaseConfig(
+                DatabaseType.SQLITE, "localhost", 3306, "pluginbans", "root", "",
+                tempDir.resolve("escalation.db").toString(), 4));
+        JdbcPunishmentRepository repository = new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executors());
+        // Два сервиса с собственными очередями выдач изображают два узла над одной базой.
+        try (PunishmentService first = new PunishmentService(repository, Duration.ofMinutes(1));
+             PunishmentService second = new PunishmentService(
+                     new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executors()), Duration.ofMinutes(1))) {
+            first.setEscalationPolicy(EscalationPolicy.defaults("Лимит предупреждений"));
+            second.setEscalationPolicy(EscalationPolicy.defaults("Лимит предупреждений"));
+            UUID uuid = UUID.randomUUID();
+            List<CompletableFuture<PunishmentRecord>> issued = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                PunishmentService node = i % 2 == 0 ? first : second;
+                issued.add(node.createPunishment(warn(uuid, "NODE0" + i, "Спам", Instant.now())));
+            }
+            CompletableFuture.allOf(issued.toArray(CompletableFuture[]::new)).join();
+
+            List<PunishmentRecord> active = repository.findActiveByUuid(uuid).join();
+            assertEquals(6L, active.stream().filter(record -> record.type() == PunishmentType.WARN).count());
+            assertEquals(1L, active.stream().filter(record -> record.type() == PunishmentType.BAN).count());
+        } finally {
+            databaseManager.close();
+            try (java.util.stream.Stream<Path> paths = Files.walk(tempDir)) {
+                paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    private static PunishmentRecord warn(UUID uuid, String id, String reason) {
+        return warn(uuid, id, reason, NOW);
+    }
+
+    private static PunishmentRecord warn(UUID uuid, String id, String reason, Instant start) {
+        return new PunishmentRecord(uuid, "203.0.113.7", null, PunishmentType.WARN, reason, "Moderator",
+                start, start.plusSeconds(1_209_600L), true, id, false);
+    }
+}
@@ -0,0 +1,78 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FailStaticTest {
+    private final UUID player = UUID.randomUUID();
+    private final Instant now = Instant.now();
+    private final PunishmentRecord ban = new PunishmentRecord(player, null, null, PunishmentType.BAN, "читы", "Admin",
+            now.minusSeconds(60), null, true, "FS-BAN01", false);
+    private final PunishmentRecord check = new PunishmentRecord(player, null, null, PunishmentType.CHECK, "проверка", "Admin",
+            now.minusSeconds(30), null, true, "FS-CHK01", false);
+    private final PunishmentRecord ipBan = new PunishmentRecord(IpRange.NO_PLAYER, "203.0.113.7", null, PunishmentType.IPBAN, "твинки", "Admin",
+            now.minusSeconds(10), null, true, "FS-IPB01", false);
+
+    @Test
+    public void enforcedTypesDenyAndIgnoredTypesAllowWhenDatabaseFails() throws Exception {
+        FakeRepository fake = new FakeRepository(List.of(ban, check, ipBan));
+        try (PunishmentService service = new PunishmentService(fake.repository(), Duration.ofMinutes(1))) {
+            awaitFilter(service);
+            fake.failWith(new DatabaseUnavailableException("База данных временно недоступна."));
+
+            List<PunishmentRecord> records = service.getActiveForConnection(player, "198.51.100.1").join();
+            assertEquals("Проверка по умолчанию не применяется по памяти.", List.of("FS-BAN01"), ids(records));
+            assertEquals(List.of("FS-IPB01"), ids(service.getActiveForConnection(UUID.randomUUID(), "203.0.113.7").join()));
+            // Чистого игрока отсекает фильтр, до базы и решения по памяти дело не доходит.
+            assertTrue(service.getActiveForConnection(UUID.randomUUID(), "198.51.100.1").join().isEmpty());
+            assertEquals(2L, service.failStaticDecisions());
+        }
+    }
+
+    @Test
+    public void policyPerTypeAndDisabledModeAreRespected() throws Exception {
+        FakeRepository fake = new FakeRepository(List.of(ban, check));
+        FailStaticConfig config = new FailStaticConfig(true, Map.of(
+                PunishmentType.BAN, FailStaticPolicy.IGNORE, PunishmentType.CHECK, FailStaticPolicy.ENFORCE));
+        try (PunishmentService service = new PunishmentService(fake.repository(), Duration.ofMinutes(1), config)) {
+            awaitFilter(service);
+            fake.failWith(new DatabaseUnavailableException("База данных временно недоступна."));
+            assertEquals(List.of("FS-CHK01"), ids(service.getActiveForConnection(player, null).join()));
+        }
+
+        FakeRepository strict = new FakeRepository(List.of(ban));
+        try (PunishmentService service = new PunishmentService(strict.repository(), Duration.ofMinutes(1), FailStaticConfig.disabled())) {
+            awaitFilter(service);
+            strict.failWith(new DatabaseUnavailableException("База данных временно недоступна."));
+            try {
+                service.getActiveForConnection(player, null).join();
+                fail("Без fail-static ошибка базы доходит до проверки входа.");
+            } catch (CompletionException exception) {
+                assertTrue(exception.getCause() instanceof DatabaseUnavailableException);
+            }
+            assertEquals(0L, service.failStaticDecisions());
+        }
+    }
+
+    private static List<String> ids(List<PunishmentRecord> records) {
+        return records.stream().map(PunishmentRecord::internalId).sorted().toList();
+    }
+
+    private static void awaitFilter(PunishmentService service) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (!service.filterReady() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20L);
+        }
+        assertTrue(service.filterReady());
+    }
+}
@@ -0,0 +1,56 @@
+package com.pluginbans.core;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+final class FakeRepository {
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final AtomicReference<RuntimeException> pingFailure = new AtomicReference<>();
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<PunishmentRecord> active;
+    private final PunishmentRepository repository;
+
+    FakeRepository(List<PunishmentRecord> active) {
+        this.active = List.copyOf(active);
+        this.repository = (PunishmentRepository) Proxy.newProxyInstance(PunishmentRepository.class.getClassLoader(),
+                new Class<?>[]{PunishmentRepository.class}, (proxy, method, args) -> answer(method.getName()));
+    }
+
+    PunishmentRepository repository() {
+        return repository;
+    }
+
+    void failWith(RuntimeException exception) {
+        failure.set(exception);
+    }
+
+    void failPingWith(RuntimeException exception) {
+        pingFailure.set(exception);
+    }
+
+    int calls() {
+        return calls.get();
+    }
+
+    private CompletableFuture<?> answer(String method) {
+        if (method.equals("ping")) {
+            RuntimeException pingError = pingFailure.get();
+            return pingError == null ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(pingError);
+        }
+        calls.incrementAndGet();
+        RuntimeException error = failure.get();
+        if (error != null) {
+            return CompletableFuture.failedFuture(error);
+        }
+        return switch (method) {
+            case "findAllActive" -> CompletableFuture.completedFuture(active);
+            case "findByInternalId" -> CompletableFuture.completedFuture(Optional.empty());
+            case "findImportGeneration", "addPunishment", "addPunishments", "deactivate" -> CompletableFuture.completedFuture(null);
+            default -> CompletableFuture.completedFuture(List.of());
+        };
+    }
+}
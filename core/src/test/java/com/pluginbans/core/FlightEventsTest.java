@@ -0,0 +1,102 @@
+package com.pluginbans.core;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlightEventsTest {
+    private Path tempDir;
+    private DatabaseManager databaseManager;
+    private JdbcPunishmentRepository repository;
+
+    @Before
+    public void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("pluginbans-jfr-test-");
+        databaseManager = new DatabaseManager(new DatabaseConfig(
+                DatabaseType.SQLITE, "localhost", 3306, "pluginbans", "root", "",
+                tempDir.resolve("jfr.db").toString(), 4));
+        repository = new JdbcPunishmentRepository(databaseManager.dataSource(), databaseManager.executors());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        databaseManager.close();
+        try (java.util.stream.Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(java.util.Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void repositoryQueriesAreRecordedWithRowsAndPoolWait() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        repository.addPunishment(record(uuid, "JFR001")).get(5, TimeUnit.SECONDS);
+
+        List<RecordedEvent> events = record("pluginbans.RepositoryQuery",
+                () -> repository.findActiveByUuid(uuid).get(5, TimeUnit.SECONDS));
+
+        RecordedEvent select = events.stream()
+                .filter(event -> "select".equals(event.getString("statement")) && "uuid = ? AND active = 1".equals(event.getString("filter")))
+                .findFirst()
+                .orElseThrow();
+        assertEquals(1, select.getInt("rows"));
+        assertTrue(select.getBoolean("success"));
+        assertTrue(select.getDuration("poolWait").toNanos() >= 0L);
+    }
+
+    @Test
+    public void loginCheckCarriesUuidHashAndResultSize() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        repository.addPunishment(record(uuid, "JFR002")).get(5, TimeUnit.SECONDS);
+
+        try (PunishmentService service = new PunishmentService(repository, Duration.ofMinutes(1))) {
+            List<RecordedEvent> events = record("pluginbans.LoginCheck",
+                    () -> service.getActiveForConnection(uuid, null).get(5, TimeUnit.SECONDS));
+
+            RecordedEvent check = events.stream()
+                    .filter(event -> event.getInt("uuidHash") == uuid.hashCode())
+                    .findFirst()
+                    .orElseThrow();
+            assertEquals(1, check.getInt("records"));
+            assertFalse(check.getBoolean("ipChecked"));
+            assertTrue(check.getBoolean("success"));
+        }
+    }
+
+    private List<RecordedEvent> record(String eventName, ThrowingAction action) throws Exception {
+        Path dump = tempDir.resolve(eventName + ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(eventName).withThreshold(Duration.ZERO);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(dump);
+        }
+        return RecordingFile.readAllEvents(dump).stream()
+                .filter(event -> eventName.equals(event.getEventType().getName()))
+                .toList();
+    }
+
+    private interface ThrowingAction {
+        void run() throws Exception;
+    }
+
+    private static PunishmentRecord record(UUID uuid, String id) {
+        return new PunishmentRecord(uuid, null, null, PunishmentType.BAN, "Читы", "Console", Instant.now(), null, true, id, false);
+    }
+}
@@ -0,0 +1,98 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IpRangeTrieTest {
+    @Test
+    public void parsesAndNormalizesRanges() {
+        assertEquals("10.1.0.0/16", IpRange.parse("10.1.2.3/16").orElseThrow().toString());
+        assertEquals("2001:db8:0:0:0:0:0:0/32", IpRange.parse("2001:db8::1/32").orElseThrow().toString());
+        assertFalse(IpRange.parse("10.0.0.0/33").isPresent());
+        assertFalse(IpRange.parse("example.com/8").isPresent());
+        assertFalse(IpRange.parse("10.0.0.1").isPresent());
+
+        IpRange range = IpRange.parse("192.168.0.0/23").orElseThrow();
+        assertEquals(range, IpRange.fromBytes(range.toBytes()).orElseThrow());
+        assertTrue(range.contains("192.168.1.200"));
+        assertFalse(range.contains("192.168.2.1"));
+    }
+
+    @Test
+    public void findsLongestMatchingPrefix() {
+        IpRangeTrie<String> trie = new IpRangeTrie<>();
+        trie.put(range("10.0.0.0/8"), "wide");
+        trie.put(range("10.1.0.0/16"), "narrow");
+        trie.put(range("10.1.2.0/24"), "narrowest");
+        trie.put(range("10.2.0.0/16"), "sibling");
+        trie.put(range("2001:db8::/32"), "v6");
+
+        assertEquals("narrowest", trie.longestMatch(bytes("10.1.2.3"), value -> true));
+        assertEquals("narrow", trie.longestMatch(bytes("10.1.3.3"), value -> true));
+        assertEquals("sibling", trie.longestMatch(bytes("10.2.9.9"), value -> true));
+        assertEquals("wide", trie.longestMatch(bytes("10.200.0.1"), value -> true));
+        assertEquals("narrow", trie.longestMatch(bytes("10.1.2.3"), value -> !value.equals("narrowest")));
+        assertNull(trie.longestMatch(bytes("11.0.0.1"), value -> true));
+        assertEquals("v6", trie.longestMatch(bytes("2001:db8::42"), value -> true));
+        assertNull(trie.longestMatch(bytes("2001:db9::42"), value -> true));
+        assertEquals(5, trie.size());
+
+        assertEquals("narrow", trie.remove(range("10.1.0.0/16")));
+        assertEquals("wide", trie.longestMatch(bytes("10.1.3.3"), value -> true));
+        assertEquals("narrowest", trie.longestMatch(bytes("10.1.2.3"), value -> true));
+        assertEquals("narrowest", trie.remove(range("10.1.2.0/24")));
+        assertEquals("wide", trie.longestMatch(bytes("10.1.2.3"), value -> true));
+        assertNull(trie.remove(range("10.3.0.0/16")));
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    public void indexMatchesRangeBansAndForgetsRemovedOnes() {
+        ActivePunishmentIndex index = new ActivePunishmentIndex();
+        Instant now = Instant.parse("2026-03-01T00:00:00Z");
+        index.replaceAll(List.of(
+                rangeBan("RANGE1", "203.0.113.0/24", null),
+                rangeBan("RANGE2", "203.0.113.128/25", now.minusSeconds(60))
+        ), now);
+
+        List<PunishmentRecord> found = index.findForConnection(UUID.randomUUID(), "203.0.113.200", null, now);
+        assertEquals("Истекший узкий диапазон не должен скрывать действующий широкий.", 1, found.size());
+        assertEquals("RANGE1", found.get(0).internalId());
+
+        index.remove("RANGE1");
+        assertTrue(index.findRanges("203.0.113.200", now).isEmpty());
+        assertEquals(1, index.allRanges().size());
+    }
+
+    private static IpRange range(String value) {
+        return IpRange.parse(value).orElseThrow();
+    }
+
+    private static byte[] bytes(String ip) {
+        return StorageCodec.ipToBytes(ip);
+    }
+
+    private static PunishmentRecord rangeBan(String id, String cidr, Instant end) {
+        return new PunishmentRecord(
+                IpRange.NO_PLAYER,
+                cidr,
+                null,
+                PunishmentType.IPBAN,
+                "Ботнет",
+                "Console",
+                Instant.parse("2026-02-01T00:00:00Z"),
+                end,
+                true,
+                id,
+                false
+        );
+    }
+}
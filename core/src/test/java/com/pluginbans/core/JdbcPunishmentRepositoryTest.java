@@ -7,7 +7,10 @@ import org.junit.Test;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -112,6 +115,194 @@ public class JdbcPunishmentRepositoryTest {
                         && "MUTE02".equals(record.internalId())
                         && "Снято модератором".equals(record.reason())
         ));
+
+        // Повторное снятие уже неактивного наказания не пишет вторую строку истории и не трогает сводку.
+        Thread.sleep(2L);
+        repository.deactivate("MUTE02", "Admin", "Снято повторно", "MANUAL_REMOVE").join();
+        assertEquals(3, repository.findHistory(uuid).join().size());
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        assertEquals(Long.valueOf(1L), totalsByKey(repository.findDailyStats(today.minusDays(400), today).join())
+                .get("MUTE/MANUAL_REMOVE/Admin"));
+    }
+
+    @Test
+    public void binaryFormatMigratesExistingRowsAndKeepsLookups() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Instant start = Instant.parse("2026-02-14T12:00:00Z");
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.BAN, "BAN003", "Читы", "Console", start, 0L)).join();
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.MUTE, "MUTE03", "Флуд", "Console", start, 600L)).join();
+
+        try (java.sql.Connection connection = databaseManager.dataSource().getConnection()) {
+            DatabaseSchema.ensure(connection, StorageFormat.BINARY);
+        }
+        JdbcPunishmentRepository compact = new JdbcPunishmentRepository(
+                databaseManager.dataSource(), databaseManager.executors(), StorageFormat.BINARY);
+        compact.addPunishment(buildPunishment(uuid, PunishmentType.WARN, "WARN03", "Спам", "Console", start, 0L)).join();
+        assertEquals("До конца переноса старые строки читаются из текстовой таблицы.", 3, compact.findActiveByUuid(uuid).join().size());
+
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (!compact.migrationComplete() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertTrue("Перенос должен завершиться.", compact.migrationComplete());
+        assertEquals(2L, compact.migratedRows());
+
+        compact.deactivate("MUTE03", "Admin", "Снято", "MANUAL_REMOVE").join();
+        assertEquals(2, compact.findActiveByUuid(uuid).join().size());
+        assertEquals(2, compact.findActiveByIp("203.0.113.10").join().size());
+        assertEquals(2, compact.findActiveByIpHash(IpHashing.hash("203.0.113.10")).join().size());
+        PunishmentRecord ban = compact.findByInternalId("BAN003").join().orElseThrow();
+        assertEquals("203.0.113.10", ban.ip());
+        assertEquals(uuid, ban.uuid());
+        assertEquals(null, ban.endTime());
+    }
+
+    @Test
+    public void migrationCopiesRowsInsertedBelowTheCursor() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Instant start = Instant.parse("2026-02-14T12:15:00Z");
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.BAN, "MMMMMM", "Читы", "Console", start, 0L)).join();
+        try (java.sql.Connection connection = databaseManager.dataSource().getConnection()) {
+            DatabaseSchema.ensure(connection, StorageFormat.BINARY);
+        }
+        CompactStorageMigration migration = new CompactStorageMigration(databaseManager.dataSource(), 1);
+        assertFalse(migration.migrateChunk());
+
+        // Узел со старым форматом выдаёт наказание с ID меньше курсора уже во время переноса.
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.BAN, "AAAAAA", "Обход", "Console", start, 0L)).join();
+        while (!migration.migrateChunk()) {
+            // Перенос идёт частями по одной строке.
+        }
+
+        JdbcPunishmentRepository compact = new JdbcPunishmentRepository(
+                databaseManager.dataSource(), databaseManager.executors(), StorageFormat.BINARY);
+        long deadline = System.currentTimeMillis() + 5_000L;
+        while (!compact.migrationComplete() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10L);
+        }
+        assertTrue(compact.migrationComplete());
+        assertEquals(Set.of("MMMMMM", "AAAAAA"), compact.findActiveByUuid(uuid).join().stream()
+                .map(PunishmentRecord::internalId)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void binaryFormatRejectsValuesItCannotStore() throws Exception {
+        try (java.sql.Connection connection = databaseManager.dataSource().getConnection()) {
+            DatabaseSchema.ensure(connection, StorageFormat.BINARY);
+        }
+        JdbcPunishmentRepository compact = new JdbcPunishmentRepository(
+                databaseManager.dataSource(), databaseManager.executors(), StorageFormat.BINARY);
+        UUID uuid = UUID.randomUUID();
+        Instant start = Instant.parse("2026-02-14T12:30:00Z");
+        PunishmentRecord valid = buildPunishment(uuid, PunishmentType.BAN, "BAN004", "Читы", "Console", start, 0L);
+        PunishmentRecord hostname = new PunishmentRecord(uuid, "proxy.example.com", null, PunishmentType.BAN, "Читы", "Console",
+                start, null, true, "BAN005", false);
+
+        try {
+            compact.addPunishments(List.of(valid, hostname)).join();
+            org.junit.Assert.fail("Адрес, который нельзя закодировать, должен отклоняться.");
+        } catch (java.util.concurrent.CompletionException exception) {
+            assertTrue(exception.getCause() instanceof IllegalArgumentException);
+        }
+        assertTrue("Пакет откатывается целиком, без строки с NULL вместо адреса.", compact.findActiveByUuid(uuid).join().isEmpty());
+    }
+
+    @Test
+    public void historyWritesMaintainDailyRollup() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Instant start = Instant.now();
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.BAN, "BAN010", "Читы", "Console", start, 0L)).join();
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.MUTE, "MUTE10", "Флуд", "Moderator", start, 600L)).join();
+        Thread.sleep(2L);
+        repository.deactivate("MUTE10", "Admin", "Снято", "MANUAL_REMOVE").join();
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Map<String, Long> totals = totalsByKey(repository.findDailyStats(today.minusDays(7), today).join());
+        assertEquals(Long.valueOf(1L), totals.get("BAN/CREATE/Console"));
+        assertEquals(Long.valueOf(1L), totals.get("MUTE/CREATE/Moderator"));
+        assertEquals(Long.valueOf(1L), totals.get("MUTE/MANUAL_REMOVE/Admin"));
+
+        // Счётчик текущего дня уже загружен и дальше растёт в памяти вместе с коммитами.
+        repository.addPunishment(buildPunishment(UUID.randomUUID(), PunishmentType.BAN, "BAN011", "Читы", "Console", start, 0L)).join();
+        assertEquals(Long.valueOf(2L), totalsByKey(repository.findDailyStats(today, today).join()).get("BAN/CREATE/Console"));
+
+        long pastDay = today.minusDays(3).toEpochDay();
+        try (java.sql.Connection connection = databaseManager.dataSource().getConnection();
+             java.sql.Statement statement = connection.createStatement()) {
+            long actionTime = pastDay * 86_400_000L + 1_000L;
+            statement.executeUpdate("INSERT INTO pluginbans_punishment_history "
+                    + "(id, uuid, ip, ip_hash, type, reason, actor, start_time, end_time, internal_id, action, action_time) "
+                    + "VALUES ('OLD001-1', '" + uuid + "', NULL, NULL, 'WARN', 'Спам', 'Console', " + actionTime + ", NULL, 'OLD001', 'CREATE', " + actionTime + ")");
+            statement.executeUpdate("DELETE FROM pluginbans_meta WHERE meta_key = '" + StatsRollup.BACKFILL_KEY + "'");
+            DatabaseSchema.ensure(connection);
+        }
+        List<DailyStat> past = repository.findDailyStats(LocalDate.ofEpochDay(pastDay), LocalDate.ofEpochDay(pastDay)).join();
+        assertEquals(1, past.size());
+        assertEquals(PunishmentType.WARN, past.get(0).type());
+        assertEquals("Пересборка сводки не должна удваивать уже учтённые строки.", Long.valueOf(2L),
+                totalsByKey(repository.findDailyStats(today, today).join()).get("BAN/CREATE/Console"));
+    }
+
+    @Test
+    public void fullTextSearchPagesThroughReasonsAndActors() {
+        assertEquals(PunishmentSearch.Backend.FTS5, repository.searchBackend());
+        UUID uuid = UUID.randomUUID();
+        Instant start = Instant.parse("2026-02-14T13:00:00Z");
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.BAN, "SRCH01", "Читы (флай)", "Console", start, 0L)).join();
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.MUTE, "SRCH02", "Флуд", "Moderator", start, 600L)).join();
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.BAN, "SRCH03", "Использование читов", "Moderator", start, 0L)).join();
+
+        SearchPage first = repository.search(new SearchQuery("чит", null, null, 0L, 1)).join();
+        assertEquals("SRCH03", first.records().get(0).internalId());
+        SearchPage second = repository.search(new SearchQuery("чит", null, null, SearchPage.parseCursor(first.nextCursor()), 1)).join();
+        assertEquals("SRCH01", second.records().get(0).internalId());
+
+        SearchPage byActor = repository.search(new SearchQuery("", "moderator", null, 0L, 10)).join();
+        assertEquals(List.of("SRCH03", "SRCH02"), byActor.records().stream().map(PunishmentRecord::internalId).toList());
+        assertEquals(null, byActor.nextCursor());
+    }
+
+    @Test
+    public void retentionMovesOldRowsToArchiveAndReadsStaySeamless() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Instant old = Instant.now().minus(java.time.Duration.ofDays(400));
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.MUTE, "ARCH01", "Флуд", "Console", old, 600L)).join();
+        repository.addPunishment(buildPunishment(uuid, PunishmentType.BAN, "ARCH02", "Читы", "Console", old, 0L)).join();
+        Thread.sleep(2L);
+        repository.deactivate("ARCH01", "Admin", "Снято", "MANUAL_REMOVE").join();
+        try (java.sql.Connection connection = databaseManager.dataSource().getConnection();
+             java.sql.Statement statement = connection.createStatement()) {
+            statement.executeUpdate("UPDATE pluginbans_punishment_history SET action_time = " + old.toEpochMilli());
+        }
+
+        RetentionConfig config = new RetentionConfig(true, java.time.Duration.ofDays(365), 1,
+                java.time.Duration.ofSeconds(5), java.time.Duration.ofSeconds(30), java.time.Duration.ofMinutes(30));
+        try (RetentionJob job = new RetentionJob(databaseManager.dataSource(), databaseManager.executors(), StorageFormat.TEXT, config)) {
+            RetentionJob.RetentionResult result = job.runOnce();
+            assertTrue(result.finished());
+            assertEquals("Активный бан в архив не уходит.", 1L, result.punishments());
+            assertEquals(3L, result.history());
+        }
+
+        assertTrue(repository.findHistory(uuid).join().isEmpty());
+        assertEquals(3, repository.findHistory(uuid, true).join().size());
+        assertEquals(1, repository.findActiveByUuid(uuid).join().size());
+        PunishmentRecord archived = repository.findByInternalId("ARCH01").join().orElseThrow();
+        assertFalse(archived.active());
+        assertEquals("Флуд", archived.reason());
+        assertTrue("Пакетная проверка для входа читает только действующую таблицу.",
+                repository.findByInternalIds(List.of("ARCH01"), Workload.LOGIN).join().isEmpty());
+        assertEquals(List.of("ARCH01"), repository.search(new SearchQuery("флуд", null, null, 0L, 10)).join()
+                .records().stream().map(PunishmentRecord::internalId).toList());
+    }
+
+    private static Map<String, Long> totalsByKey(List<DailyStat> stats) {
+        return stats.stream().collect(Collectors.toMap(
+                stat -> stat.type() + "/" + stat.action() + "/" + stat.actor(),
+                DailyStat::total,
+                Long::sum
+        ));
     }
 
     private PunishmentRecord buildPunishment(
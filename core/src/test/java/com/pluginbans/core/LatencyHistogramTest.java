@@ -0,0 +1,60 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    @Test
+    public void percentilesStayWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10_000; micros++) {
+            histogram.record(micros * 1_000L);
+        }
+        assertEquals(10_000L, histogram.count());
+        assertEquals(10_000_000L, histogram.maxNanos());
+        assertWithin(5_000_000L, histogram.percentile(0.5));
+        assertWithin(9_900_000L, histogram.percentile(0.99));
+        assertEquals(10_000_000L, histogram.percentile(1.0));
+        assertEquals(0L, new LatencyHistogram().percentile(0.5));
+    }
+
+    @Test
+    public void bucketsCoverEveryValueAndConcurrentRecordsAreNotLost() throws Exception {
+        for (long value : new long[]{0L, 1L, 15L, 16L, 17L, 1_000L, 123_456_789L, (1L << 41) - 1}) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(value <= LatencyHistogram.upperBound(index));
+            assertTrue(index == 0 || value > LatencyHistogram.upperBound(index - 1));
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 4;
+        int perThread = 50_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i);
+                }
+                done.countDown();
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals((long) threads * perThread, histogram.count());
+        assertEquals(perThread - 1L, histogram.maxNanos());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("Ожидалось около " + expected + ", получено " + actual,
+                Math.abs(actual - expected) <= expected / 16);
+    }
+}
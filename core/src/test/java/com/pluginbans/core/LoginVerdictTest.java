@@ -0,0 +1,40 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LoginVerdictTest {
+    private static final byte[] SECRET = "общий-секрет".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    public void signedVerdictIsAccepted() {
+        Instant now = Instant.parse("2026-01-01T12:00:00Z");
+        LoginVerdict verdict = new LoginVerdict(UUID.randomUUID(), now.toEpochMilli(), true, now.minusSeconds(2).toEpochMilli());
+
+        Optional<LoginVerdict> verified = LoginVerdict.verify(verdict.sign(SECRET), SECRET);
+
+        assertEquals(Optional.of(verdict), verified);
+        assertTrue(verified.get().isFresh(now.plusSeconds(5), Duration.ofSeconds(10)));
+        assertFalse(verified.get().isFresh(now.plusSeconds(15), Duration.ofSeconds(10)));
+        assertTrue(verified.get().isStateCurrent(Duration.ofSeconds(30)));
+    }
+
+    @Test
+    public void tamperedOrForeignVerdictIsRejected() {
+        LoginVerdict verdict = new LoginVerdict(UUID.randomUUID(), System.currentTimeMillis(), false, 0L);
+        String token = verdict.sign(SECRET);
+
+        assertTrue(LoginVerdict.verify(token.replace(";0;0;", ";1;0;"), SECRET).isEmpty());
+        assertTrue(LoginVerdict.verify(token, "другой".getBytes(StandardCharsets.UTF_8)).isEmpty());
+        assertTrue(LoginVerdict.verify("мусор", SECRET).isEmpty());
+    }
+}
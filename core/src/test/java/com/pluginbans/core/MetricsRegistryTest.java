@@ -0,0 +1,51 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+    @Test
+    public void exportsPrometheusTextWithEscapedLabels() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        LongAdder allowed = metrics.counter("pluginbans_throttle_decisions_total", "Решения.", "result", "allowed");
+        assertSame(allowed, metrics.counter("pluginbans_throttle_decisions_total", "Решения.", "result", "allowed"));
+        allowed.add(3L);
+        metrics.gauge("pluginbans_cache_size", "Размер.", () -> 42L);
+        metrics.histogram("pluginbans_db_query_seconds", "Запросы.", "operation", "say \"hi\"\\").record(2_000_000L);
+
+        String text = metrics.prometheus();
+        assertTrue(text.contains("# TYPE pluginbans_throttle_decisions_total counter\n"));
+        assertTrue(text.contains("pluginbans_throttle_decisions_total{result=\"allowed\"} 3\n"));
+        assertTrue(text.contains("pluginbans_cache_size 42\n"));
+        assertTrue(text.contains("# TYPE pluginbans_db_query_seconds summary\n"));
+        assertTrue(text.contains("pluginbans_db_query_seconds{operation=\"say \\\"hi\\\"\\\\\",quantile=\"0.5\"} "));
+        assertTrue(text.contains("pluginbans_db_query_seconds_count{operation=\"say \\\"hi\\\"\\\\\"} 1\n"));
+    }
+
+    @Test
+    public void summaryFiltersByNameAndSkipsEmptyHistograms() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.histogram("pluginbans_login_check_seconds", "Вход.").record(1_500_000L);
+        metrics.histogram("pluginbans_poll_seconds", "Опрос.");
+        metrics.counter("pluginbans_cache_requests_total", "Кэш.", "result", "hit").increment();
+
+        List<String> login = metrics.summary("login");
+        assertEquals(1, login.size());
+        assertTrue(login.get(0).startsWith("login_check_seconds: n=1 p50="));
+        assertEquals(List.of("cache_requests_total{result=\"hit\"}: 1"), metrics.summary("cache"));
+        assertEquals(2, metrics.summary(null).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSameNameWithDifferentKind() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.counter("pluginbans_value", "Значение.");
+        metrics.gauge("pluginbans_value", "Значение.", () -> 1L);
+    }
+}
@@ -0,0 +1,71 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class PunishmentCacheTest {
+    private static final ActivePunishment EMPTY = new ActivePunishment(List.of());
+
+    @Test
+    public void sizeStaysBoundedAndFrequentEntriesSurvive() {
+        PunishmentCache cache = new PunishmentCache(100, Duration.ofMinutes(5));
+        UUID frequent = UUID.randomUUID();
+        cache.put(frequent, EMPTY);
+        assertNotNull(cache.get(frequent));
+
+        for (int i = 0; i < 1_000; i++) {
+            cache.put(UUID.randomUUID(), EMPTY);
+        }
+
+        assertTrue(cache.size() <= 100);
+        assertNotNull("Запись с повторными обращениями не должна вытесняться потоком разовых.", cache.get(frequent));
+        assertTrue(cache.stats().evictions() >= 900);
+    }
+
+    @Test
+    public void pinnedEntriesIgnoreCapacityAndTtl() {
+        AtomicLong clock = new AtomicLong();
+        PunishmentCache cache = new PunishmentCache(10, Duration.ofSeconds(1), clock::get);
+        UUID online = UUID.randomUUID();
+        cache.pin(online);
+        cache.put(online, EMPTY);
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(UUID.randomUUID(), EMPTY);
+        }
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+
+        assertNotNull(cache.get(online));
+        assertEquals(1, cache.stats().pinned());
+
+        // После выхода запись снова подчиняется сроку жизни, а не остаётся закреплённой.
+        cache.invalidate(online);
+        cache.put(online, EMPTY);
+        assertEquals(0, cache.stats().pinned());
+        clock.addAndGet(Duration.ofMinutes(1).toNanos());
+        assertNull(cache.get(online));
+    }
+
+    @Test
+    public void offlineEntriesExpire() {
+        AtomicLong clock = new AtomicLong();
+        PunishmentCache cache = new PunishmentCache(10, Duration.ofSeconds(30), clock::get);
+        UUID offline = UUID.randomUUID();
+        cache.put(offline, EMPTY);
+
+        clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        assertNull(cache.get(offline));
+        assertEquals(1L, cache.stats().expirations());
+        assertEquals(1L, cache.stats().misses());
+    }
+}
@@ -0,0 +1,140 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PunishmentEventBusTest {
+    @Test
+    public void slowListenerDoesNotBlockPublisherAndKeepsPerPlayerOrder() throws Exception {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        UUID uuid = UUID.randomUUID();
+        try (PunishmentEventBus bus = new PunishmentEventBus(2, 16)) {
+            bus.register(new PunishmentListener() {
+                @Override
+                public void onCreate(PunishmentCreateEvent event) {
+                    await(release);
+                    delivered.add("create:" + event.record().internalId());
+                    done.countDown();
+                }
+
+                @Override
+                public void onRemove(PunishmentRemoveEvent event) {
+                    delivered.add("remove:" + event.record().internalId());
+                    done.countDown();
+                }
+            });
+            long started = System.nanoTime();
+            bus.publishCreate(new PunishmentCreateEvent(record(uuid, "EVT001")));
+            bus.publishRemove(new PunishmentRemoveEvent(record(uuid, "EVT001"), "Снято"));
+            bus.publishCreate(new PunishmentCreateEvent(record(uuid, "EVT002")));
+            assertTrue("Публикация не ждёт обработчик.", System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(500));
+
+            release.countDown();
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("create:EVT001", "remove:EVT001", "create:EVT002"), delivered);
+            // Закрытие дожидается уже принятых событий, после него замеры полные.
+            bus.close();
+            PunishmentEventBus.ListenerStats stats = bus.listenerStats().get(0);
+            assertEquals(3L, stats.events());
+            assertTrue(stats.maxNanos() > 0L);
+        }
+    }
+
+    @Test
+    public void lateCreateIsDroppedAndFullQueueDropsOnlyNonBlockingEvents() throws Exception {
+        List<String> delivered = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        UUID uuid = UUID.randomUUID();
+        try (PunishmentEventBus bus = new PunishmentEventBus(1, 2)) {
+            bus.register(new PunishmentListener() {
+                @Override
+                public void onCreate(PunishmentCreateEvent event) {
+                    if (event.record().internalId().equals("BLOCK1")) {
+                        await(release);
+                    }
+                    delivered.add("create:" + event.record().internalId());
+                }
+
+                @Override
+                public void onRemove(PunishmentRemoveEvent event) {
+                    delivered.add("remove:" + event.record().internalId());
+                }
+            });
+            bus.publishCreate(new PunishmentCreateEvent(record(uuid, "BLOCK1")));
+            Thread.sleep(100L);
+            bus.publishRemove(new PunishmentRemoveEvent(record(uuid, "LATE01"), "Истек срок"));
+            bus.publishCreate(new PunishmentCreateEvent(record(uuid, "LATE01")));
+            // Мут при переполнении отбрасывается, а бан доставляется в вызывающем потоке.
+            bus.publishCreate(new PunishmentCreateEvent(record(uuid, "OVER01", PunishmentType.MUTE)));
+            bus.publishCreate(new PunishmentCreateEvent(record(uuid, "OVER02")));
+            assertEquals(1L, bus.dropped());
+            assertEquals(List.of("create:OVER02"), delivered);
+
+            release.countDown();
+            long deadline = System.currentTimeMillis() + 5_000L;
+            while (bus.stale() == 0L && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            assertEquals(1L, bus.stale());
+            assertEquals(List.of("create:OVER02", "create:BLOCK1", "remove:LATE01"), delivered);
+        }
+    }
+
+    @Test
+    public void failingListenerIsLoggedByNameAtMostOncePerMinute() throws Exception {
+        List<String> logged = Collections.synchronizedList(new ArrayList<>());
+        UUID uuid = UUID.randomUUID();
+        try (PunishmentEventBus bus = new PunishmentEventBus(1, 16)) {
+            bus.setErrorHandler((message, throwable) -> logged.add(message + " " + throwable.getMessage()));
+            bus.register(new BrokenListener());
+            for (int i = 0; i < 5; i++) {
+                bus.publishCreate(new PunishmentCreateEvent(record(uuid, "ERR00" + i)));
+            }
+            bus.close();
+            assertEquals(1, logged.size());
+            assertTrue(logged.get(0).contains("BrokenListener"));
+            assertTrue(logged.get(0).contains("сломан"));
+            assertEquals(5L, bus.listenerStats().get(0).failures());
+        }
+    }
+
+    private static final class BrokenListener implements PunishmentListener {
+        @Override
+        public void onCreate(PunishmentCreateEvent event) {
+            throw new IllegalStateException("сломан");
+        }
+
+        @Override
+        public void onRemove(PunishmentRemoveEvent event) {
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static PunishmentRecord record(UUID uuid, String id) {
+        return record(uuid, id, PunishmentType.BAN);
+    }
+
+    private static PunishmentRecord record(UUID uuid, String id, PunishmentType type) {
+        Instant start = Instant.parse("2026-03-01T10:00:00Z");
+        return new PunishmentRecord(uuid, null, null, type, "Читы", "Console", start, null, true, id, false);
+    }
+}
@@ -0,0 +1,45 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SearchIndexTest {
+    @Test
+    public void prefixTokensMatchNewestFirstWithKeysetPages() {
+        SearchIndex index = new SearchIndex();
+        index.add("A1", PunishmentType.BAN, "Читы (киллаура)", "Console");
+        index.add("A2", PunishmentType.MUTE, "Флуд в чате", "Moderator");
+        index.add("A3", PunishmentType.BAN, "Использование читов", "Moderator");
+        index.add("A4", PunishmentType.TEMPBAN, "ЧИТЕРСТВО, ещё раз", "Console");
+
+        List<SearchIndex.Hit> first = index.search(new SearchQuery("чит", null, null, 0L, 2));
+        assertEquals(List.of("A4", "A3"), first.stream().map(SearchIndex.Hit::internalId).toList());
+        List<SearchIndex.Hit> second = index.search(new SearchQuery("чит", null, null, first.get(1).sequence(), 2));
+        assertEquals(List.of("A1"), second.stream().map(SearchIndex.Hit::internalId).toList());
+
+        assertEquals(List.of("A4"), ids(index.search(new SearchQuery("еще чит", null, null, 0L, 10))));
+        assertEquals(List.of("A3"), ids(index.search(new SearchQuery("чит", "moderator", null, 0L, 10))));
+        assertEquals(List.of("A3", "A2"), ids(index.search(new SearchQuery("", "Moderator", null, 0L, 10))));
+        assertEquals(List.of("A4"), ids(index.search(new SearchQuery("чит", null, PunishmentType.TEMPBAN, 0L, 10))));
+    }
+
+    @Test
+    public void removedDocumentsDisappearFromPostings() {
+        SearchIndex index = new SearchIndex();
+        index.add("B1", PunishmentType.WARN, "Спам", "Console");
+        index.add("B1", PunishmentType.WARN, "Спам", "Console");
+        assertEquals(1, index.size());
+
+        assertTrue(index.remove("B1"));
+        assertTrue(index.search(new SearchQuery("спам", null, null, 0L, 10)).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    private static List<String> ids(List<SearchIndex.Hit> hits) {
+        return hits.stream().map(SearchIndex.Hit::internalId).toList();
+    }
+}
@@ -0,0 +1,64 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class SingleFlightTest {
+    @Test
+    public void concurrentCallersShareOneLoad() {
+        SingleFlight<String, String> lookups = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> source = new CompletableFuture<>();
+
+        CompletableFuture<String> first = lookups.execute("u:1", () -> {
+            calls.incrementAndGet();
+            return source;
+        });
+        CompletableFuture<String> second = lookups.execute("u:1", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("другой");
+        });
+        source.complete("результат");
+
+        assertSame(first, second);
+        assertEquals("результат", second.join());
+        assertEquals(1, calls.get());
+        assertEquals(1L, lookups.loads());
+        assertEquals(1L, lookups.coalesced());
+        assertEquals(0, lookups.inFlight());
+    }
+
+    @Test
+    public void completedLoadIsNotReused() {
+        SingleFlight<String, Integer> lookups = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<Integer> first = lookups.execute("i:203.0.113.10", () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+        CompletableFuture<Integer> second = lookups.execute("i:203.0.113.10", () -> CompletableFuture.completedFuture(calls.incrementAndGet()));
+
+        assertNotSame(first, second);
+        assertEquals(Integer.valueOf(2), second.join());
+        assertEquals(0L, lookups.coalesced());
+    }
+
+    @Test
+    public void forgottenKeyStartsNewLoad() {
+        SingleFlight<String, String> lookups = new SingleFlight<>();
+        CompletableFuture<String> stale = new CompletableFuture<>();
+        CompletableFuture<String> first = lookups.execute("u:2", () -> stale);
+
+        lookups.forget("u:2");
+        CompletableFuture<String> second = lookups.execute("u:2", () -> CompletableFuture.completedFuture("свежий"));
+        stale.complete("устаревший");
+
+        assertEquals("устаревший", first.join());
+        assertEquals("свежий", second.join());
+        assertEquals(0, lookups.inFlight());
+    }
+}
@@ -0,0 +1,47 @@
+package com.pluginbans.core;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SortedIdIndexTest {
+    @Test
+    public void completesPrefixRangeByRecencyIgnoringCase() {
+        SortedIdIndex index = new SortedIdIndex();
+        index.replaceAll(List.of("TM-ABD", "NV-AAAA", "TM-ABC", "tm-abc", "TM-B"), List.of(2L, 5L, 1L, 3L, 4L));
+        assertEquals("Повтор ID схлопывается в одну запись.", 4, index.size());
+        assertEquals(List.of("TM-B", "tm-abc", "TM-ABD"), index.complete("tm", 10));
+        assertEquals(List.of("tm-abc", "TM-ABD"), index.complete("TM-AB", 5));
+        assertEquals(List.of("NV-AAAA", "TM-B"), index.complete("", 2));
+        assertEquals(List.of(), index.complete("zz", 5));
+
+        index.put("TM-ABA", 10L);
+        index.put("TM-ABD", 0L);
+        assertEquals(List.of("TM-ABA", "tm-abc", "TM-ABD"), index.complete("tm-ab", 5));
+        assertTrue(index.remove("tm-aba"));
+        assertFalse(index.remove("TM-ABA"));
+        assertEquals(List.of("tm-abc"), index.complete("TM-A", 1));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void completesPackedIdsOfEveryLengthTogetherWithOtherIds() {
+        SortedIdIndex index = new SortedIdIndex();
+        index.replaceAll(List.of("AB", "AB1", "ABZZZZZZZZZZ", "AC1", "ab2", "B"), List.of(1L, 2L, 3L, 4L, 5L, 6L));
+        assertEquals(List.of("ab2", "ABZZZZZZZZZZ", "AB1", "AB"), index.complete("ab", 10));
+        assertEquals(List.of("AB1"), index.complete("Ab1", 10));
+        assertEquals(List.of("B", "ab2"), index.complete("", 2));
+        assertEquals(List.of(), index.complete("ABZZZZZZZZZZZ", 10));
+
+        // Тот же ID в другом регистре заменяет прежнюю запись, удаление не зависит от регистра.
+        index.put("AB2", 7L);
+        assertEquals(6, index.size());
+        assertEquals(List.of("AB2"), index.complete("AB2", 10));
+        assertTrue(index.remove("abzzzzzzzzzz"));
+        assertEquals(List.of("AB2", "AB1", "AB"), index.complete("AB", 10));
+    }
+}